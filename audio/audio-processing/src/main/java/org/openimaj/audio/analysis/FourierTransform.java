@@ -32,6 +32,9 @@
  */
 package org.openimaj.audio.analysis;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.openimaj.audio.AudioFormat;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
@@ -50,12 +53,30 @@ import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
  * 	frequency domain array (such as that delivered by {@link #getLastFFT()})
  * 	and returns a {@link SampleChunk}. The format of the output sample chunk
  * 	is determined by the given audio format.
+ * 	<p>
+ * 	The FFT plans are cached (per thread) by size so that processing a
+ * 	stream of equally sized sample chunks does not recompute the twiddle
+ * 	tables for every chunk. Similarly, the array returned by
+ * 	{@link #getLastFFT()} is reused between calls when the number of
+ * 	channels and FFT size do not change, so callers that need to keep the
+ * 	data beyond the next call to process should copy it.
  *
  *  @author David Dupplaw (dpd@ecs.soton.ac.uk)
  *	@created 28 Oct 2011
  */
 public class FourierTransform extends AudioProcessor
 {
+	/** Per-thread cache of FFT plans, keyed on size */
+	private static final ThreadLocal<Map<Integer, FloatFFT_1D>> fftCache =
+			new ThreadLocal<Map<Integer, FloatFFT_1D>>()
+	{
+		@Override
+		protected Map<Integer, FloatFFT_1D> initialValue()
+		{
+			return new HashMap<Integer, FloatFFT_1D>();
+		}
+	};
+
 	/** The last generated FFT */
 	private float[][] lastFFT = null;
 
@@ -114,44 +135,67 @@ public class FourierTransform extends AudioProcessor
 				this.nextPowerOf2( nSamplesPerChannel ) : nSamplesPerChannel;
 
 		// The Fourier transformer we're going to use
-		final FloatFFT_1D fft = new FloatFFT_1D( nSamplesPerChannel );
+		final FloatFFT_1D fft = FourierTransform.getFFT( nSamplesPerChannel );
+
+		// Reuse the output arrays if they're the right shape
+		if( this.lastFFT == null || this.lastFFT.length != nChannels ||
+				this.lastFFT[0].length != sizeOfFFT*2 )
+			this.lastFFT = new float[nChannels][sizeOfFFT*2];
 
 		// Creates an FFT for each of the channels in turn
-		this.lastFFT = new float[nChannels][];
 		for( int c = 0; c < nChannels; c++ )
 		{
 			// Twice the length to account for imaginary parts
-			this.lastFFT[c] = new float[ sizeOfFFT*2 ];
+			final float[] data = this.lastFFT[c];
 
 			// Fill the array
 			for( int x = 0; x < nSamplesPerChannel; x++ )
-				this.lastFFT[c][x*2] = sb.get( x*nChannels+c ) * this.scalingFactor;
-
-//			System.out.println( "FFT Input (channel "+c+"), length "+this.lastFFT[c].length+": " );
-//			System.out.println( Arrays.toString( this.lastFFT[c] ));
+			{
+				data[x*2] = sb.get( x*nChannels+c ) * this.scalingFactor;
+				data[x*2+1] = 0;
+			}
+			for( int x = nSamplesPerChannel*2; x < data.length; x++ )
+				data[x] = 0;
 
 			// Perform the FFT (using jTransforms)
-			fft.complexForward( this.lastFFT[c] );
+			fft.complexForward( data );
 
 			if( this.normalise )
-				this.normaliseReals( sizeOfFFT );
-
-//			System.out.println( "FFT Output (channel "+c+"): " );
-//			System.out.println( Arrays.toString( this.lastFFT[c] ));
+				this.normaliseReals( data, sizeOfFFT );
 		}
 
 	    return sb;
     }
 
 	/**
-	 * 	Divides the real parts of the last FFT by the given size
+	 * 	Divides the real parts of the given FFT data by the given size
+	 *	@param data The FFT data for a single channel
 	 *	@param size the divisor
 	 */
-	private void normaliseReals( final int size )
+	private void normaliseReals( final float[] data, final int size )
 	{
-		for( int c = 0; c < this.lastFFT.length; c++ )
-			for( int i = 0; i < this.lastFFT[c].length; i +=2 )
-				this.lastFFT[c][i] /= size;
+		for( int i = 0; i < data.length; i +=2 )
+			data[i] /= size;
+	}
+
+	/**
+	 * 	Returns an FFT plan for the given (complex) size. Plans are cached per
+	 * 	thread, so the returned object can be used by the calling thread
+	 * 	without further synchronisation.
+	 *
+	 *	@param size The size of the FFT
+	 *	@return The FFT plan
+	 */
+	public static FloatFFT_1D getFFT( final int size )
+	{
+		final Map<Integer, FloatFFT_1D> cache = FourierTransform.fftCache.get();
+		FloatFFT_1D fft = cache.get( size );
+		if( fft == null )
+		{
+			fft = new FloatFFT_1D( size );
+			cache.put( size, fft );
+		}
+		return fft;
 	}
 
 	/**
@@ -190,7 +234,7 @@ public class FourierTransform extends AudioProcessor
 		final int nChannels = transformedData.length;
 
 		// The Fourier transformer we're going to use
-		final FloatFFT_1D fft = new FloatFFT_1D( transformedData[0].length/2 );
+		final FloatFFT_1D fft = FourierTransform.getFFT( transformedData[0].length/2 );
 
 		// Create a sample buffer to put the time domain data into
 		final SampleBuffer sb = SampleBufferFactory.createSampleBuffer( format,
@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.analysis;
+
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.processor.AudioProcessor;
+import org.openimaj.audio.samples.FloatSampleBuffer;
+import org.openimaj.audio.samples.SampleBuffer;
+
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+
+/**
+ *	A streaming short-time Fourier transform. Incoming sample chunks (of any
+ *	size) are cut into overlapping frames of a fixed size which are separated
+ *	by a fixed hop. Each frame is multiplied by a Hamming window and
+ *	transformed, and the resulting power spectrum is passed to
+ *	{@link #processSpectrum(float[][], AudioFormat)}.
+ *	<p>
+ *	Samples that do not complete a frame are carried over to the next chunk,
+ *	so the frames do not depend on how the underlying stream is chunked. The
+ *	FFT plan, the frame buffers and the spectrum arrays are all allocated once
+ *	and reused; the spectrum passed to {@link #processSpectrum(float[][], AudioFormat)}
+ *	is only valid for the duration of that call.
+ *	<p>
+ *	Samples are normalised into the range -1 to 1 before being transformed.
+ *	The length of the FFT is the frame size rounded up to the next power of 2.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class ShortTimeFourierTransform extends AudioProcessor
+{
+	/** The number of samples (per channel) in each frame */
+	private final int frameSize;
+
+	/** The number of samples (per channel) between the starts of frames */
+	private final int hopSize;
+
+	/** The size of the FFT */
+	private final int fftSize;
+
+	/** The window applied to each frame */
+	private final float[] window;
+
+	/** Samples carried over between calls, for each channel */
+	private float[][] frameBuffer;
+
+	/** The number of samples currently in the frame buffer */
+	private int frameFill = 0;
+
+	/** Workspace for converting the samples of non-float buffers */
+	private float[] workspace = null;
+
+	/** The buffer the FFT is performed in */
+	private final float[] fftBuffer;
+
+	/** The power spectrum of the last frame for each channel */
+	private float[][] powerSpectrum;
+
+	/** The number of frames processed since the last reset */
+	private long frameCount = 0;
+
+	/**
+	 * 	Construct a short-time Fourier transform for ad-hoc processing.
+	 *
+	 *	@param frameSize The number of samples (per channel) in each frame
+	 *	@param hopSize The number of samples (per channel) between frames
+	 */
+	public ShortTimeFourierTransform( final int frameSize, final int hopSize )
+	{
+		this( null, frameSize, hopSize );
+	}
+
+	/**
+	 * 	Chainable constructor.
+	 *
+	 *	@param as The stream to chain to
+	 *	@param frameSize The number of samples (per channel) in each frame
+	 *	@param hopSize The number of samples (per channel) between frames
+	 */
+	public ShortTimeFourierTransform( final AudioStream as, final int frameSize,
+			final int hopSize )
+	{
+		super( as );
+
+		if( frameSize <= 0 || hopSize <= 0 || hopSize > frameSize )
+			throw new IllegalArgumentException( "The hop size must be between 1 " +
+					"and the frame size ("+frameSize+"): "+hopSize );
+
+		this.frameSize = frameSize;
+		this.hopSize = hopSize;
+
+		int size = 2;
+		while( size < frameSize )
+			size <<= 1;
+		this.fftSize = size;
+		this.fftBuffer = new float[ this.fftSize ];
+
+		// Hamming window
+		this.window = new float[ frameSize ];
+		for( int n = 0; n < frameSize; n++ )
+			this.window[n] = (float)(0.54-0.46*Math.cos( (2*Math.PI*n)/frameSize ));
+	}
+
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.processor.AudioProcessor#process(org.openimaj.audio.SampleChunk)
+	 */
+	@Override
+	public SampleChunk process( final SampleChunk sample ) throws Exception
+	{
+		this.process( sample.getSampleBuffer() );
+		return sample;
+	}
+
+	/**
+	 * 	Process the given sample buffer. Every frame that is completed by the
+	 * 	samples in the buffer is transformed and passed to
+	 * 	{@link #processSpectrum(float[][], AudioFormat)}; any remaining
+	 * 	samples are kept for the next call.
+	 *
+	 *	@param sb The sample buffer
+	 *	@return The sample buffer
+	 */
+	public SampleBuffer process( final SampleBuffer sb )
+	{
+		final AudioFormat format = sb.getFormat();
+		final int nChannels = format.getNumChannels();
+		final int nSamplesPerChannel = sb.size() / nChannels;
+		final float scale = 1f / Integer.MAX_VALUE;
+		final float[] samples = sb instanceof FloatSampleBuffer ?
+				((FloatSampleBuffer)sb).getSamples() :
+				(this.workspace = sb.toFloatArray( this.workspace ));
+
+		// Changing the number of channels resets the stream
+		if( this.frameBuffer == null || this.frameBuffer.length != nChannels )
+		{
+			this.frameBuffer = new float[nChannels][this.frameSize];
+			this.powerSpectrum = new float[nChannels][this.fftSize/2+1];
+			this.frameFill = 0;
+		}
+
+		int n = 0;
+		while( n < nSamplesPerChannel )
+		{
+			// Copy as many samples as we can into the frame
+			final int count = Math.min( this.frameSize - this.frameFill,
+					nSamplesPerChannel - n );
+			for( int c = 0; c < nChannels; c++ )
+			{
+				final float[] buf = this.frameBuffer[c];
+				for( int i = 0; i < count; i++ )
+					buf[this.frameFill+i] = samples[(n+i)*nChannels+c] * scale;
+			}
+			this.frameFill += count;
+			n += count;
+
+			if( this.frameFill == this.frameSize )
+			{
+				this.transformFrame();
+				this.processSpectrum( this.powerSpectrum, format );
+				this.frameCount++;
+
+				// Slide the frame along by the hop
+				final int keep = this.frameSize - this.hopSize;
+				for( int c = 0; c < nChannels; c++ )
+					System.arraycopy( this.frameBuffer[c], this.hopSize,
+							this.frameBuffer[c], 0, keep );
+				this.frameFill = keep;
+			}
+		}
+
+		return sb;
+	}
+
+	/**
+	 * 	Window and transform the current frame of every channel into the
+	 * 	power spectrum buffers.
+	 */
+	private void transformFrame()
+	{
+		final FloatFFT_1D fft = FourierTransform.getFFT( this.fftSize );
+		final float[] data = this.fftBuffer;
+		final int half = this.fftSize/2;
+
+		for( int c = 0; c < this.frameBuffer.length; c++ )
+		{
+			final float[] frame = this.frameBuffer[c];
+			for( int i = 0; i < this.frameSize; i++ )
+				data[i] = frame[i] * this.window[i];
+			for( int i = this.frameSize; i < this.fftSize; i++ )
+				data[i] = 0;
+
+			fft.realForward( data );
+
+			// Unpack the real transform: the DC and Nyquist terms are packed
+			// into the first two elements.
+			final float[] power = this.powerSpectrum[c];
+			power[0] = data[0]*data[0];
+			power[half] = data[1]*data[1];
+			for( int k = 1; k < half; k++ )
+			{
+				final float re = data[2*k];
+				final float im = data[2*k+1];
+				power[k] = re*re + im*im;
+			}
+		}
+	}
+
+	/**
+	 * 	Called for every frame with the power spectrum of each channel. The
+	 * 	spectrum has <code>fftSize/2+1</code> bins covering the frequencies from
+	 * 	0 to the Nyquist frequency. The arrays are reused for the next frame,
+	 * 	so must be copied if they are to be kept. The default implementation
+	 * 	does nothing; use {@link #getLastPowerSpectrum()} to get the spectrum
+	 * 	of the last frame.
+	 *
+	 *	@param power The power spectrum for each channel
+	 *	@param format The format of the audio
+	 */
+	protected void processSpectrum( final float[][] power, final AudioFormat format )
+	{
+		// Nothing to do by default
+	}
+
+	/**
+	 * 	Discard any partially filled frame and reset the frame count, ready
+	 * 	for processing a new stream.
+	 */
+	@Override
+	public void reset()
+	{
+		this.frameFill = 0;
+		this.frameCount = 0;
+		super.reset();
+	}
+
+	/**
+	 * 	Get the power spectrum of the last processed frame. The array is
+	 * 	overwritten when the next frame is processed.
+	 *
+	 *	@return The power spectrum of each channel, or null if nothing has
+	 *		been processed.
+	 */
+	public float[][] getLastPowerSpectrum()
+	{
+		return this.powerSpectrum;
+	}
+
+	/**
+	 * 	Returns the frequency (Hz) of the given bin of the power spectrum.
+	 *
+	 *	@param bin The bin
+	 *	@param sampleRate The sample rate (Hz) of the audio
+	 *	@return The frequency of the bin
+	 */
+	public double getBinFrequency( final int bin, final double sampleRate )
+	{
+		return bin * sampleRate / this.fftSize;
+	}
+
+	/**
+	 *	@return The number of samples (per channel) in each frame
+	 */
+	public int getFrameSize()
+	{
+		return this.frameSize;
+	}
+
+	/**
+	 *	@return The number of samples (per channel) between frames
+	 */
+	public int getHopSize()
+	{
+		return this.hopSize;
+	}
+
+	/**
+	 *	@return The size of the FFT
+	 */
+	public int getFFTSize()
+	{
+		return this.fftSize;
+	}
+
+	/**
+	 *	@return The number of frames processed since the last reset
+	 */
+	public long getFrameCount()
+	{
+		return this.frameCount;
+	}
+}
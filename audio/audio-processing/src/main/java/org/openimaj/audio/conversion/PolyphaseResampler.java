@@ -0,0 +1,449 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.conversion;
+
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.samples.FloatSampleBuffer;
+import org.openimaj.audio.samples.SampleBuffer;
+
+/**
+ *	A streaming windowed-sinc resampler. The ratio between the input and
+ *	output sample rates is reduced to a fraction L/M and a Kaiser-windowed
+ *	sinc low-pass filter is precomputed for each of the L phases, so producing
+ *	an output sample is a single dot product with no trigonometry. The cut-off
+ *	of the filter is placed just below the lower of the two Nyquist
+ *	frequencies, so the resampler is suitable for both up- and down-sampling.
+ *	<p>
+ *	The resampler is stateful: the input samples that are still needed by the
+ *	filter and the current phase are carried over between calls to
+ *	{@link #process(SampleBuffer)}, so the output does not depend on how the
+ *	input is chunked. Because the filter needs samples either side of each
+ *	output position, the last few output samples of a stream are held back
+ *	until more input arrives; call {@link #flush()} at the end of a stream to
+ *	retrieve them.
+ *	<p>
+ *	Samples are filtered in whatever scale the input buffer provides them in
+ *	(see {@link SampleBuffer#toFloatArray(float[])}) and the output is always
+ *	a {@link FloatSampleBuffer}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class PolyphaseResampler
+{
+	/** The default number of zero-crossings of the sinc either side of the centre */
+	public static final int DEFAULT_ZERO_CROSSINGS = 16;
+
+	/** The default fraction of the lower Nyquist frequency to pass */
+	public static final double DEFAULT_ROLLOFF = 0.95;
+
+	/** The Kaiser window shape parameter (approx. 90dB stop-band attenuation) */
+	private static final double KAISER_BETA = 9;
+
+	/** The input sample rate in Hz */
+	private final int inputRate;
+
+	/** The output sample rate in Hz */
+	private final int outputRate;
+
+	/** The interpolation factor (the number of filter phases) */
+	private final int L;
+
+	/** The decimation factor */
+	private final int M;
+
+	/** The number of input samples either side of the output position used by the filter */
+	private final int halfWidth;
+
+	/** The filter taps for each phase; each has 2 * halfWidth taps */
+	private final float[][] filters;
+
+	/** Input samples still required by the filter, for each channel */
+	private float[][] history;
+
+	/** The number of valid samples in the history */
+	private int historyLength;
+
+	/** The absolute input index of the first sample in the history */
+	private long historyStart;
+
+	/** The absolute input index of the sample at or before the next output */
+	private long centre;
+
+	/** The phase of the next output between centre and centre+1 */
+	private int phase;
+
+	/** The total number of input samples (per channel) seen */
+	private long inputCount;
+
+	/** The total number of output samples (per channel) produced */
+	private long outputCount;
+
+	/** The number of channels in the stream */
+	private int nChannels = -1;
+
+	/** The format of the input stream */
+	private AudioFormat inputFormat;
+
+	/** Workspace for reading the input samples */
+	private float[] workspace;
+
+	/**
+	 * 	Construct a resampler between the given rates with the default filter
+	 * 	length and roll-off.
+	 *
+	 *	@param inputRateKHz The input sample rate in KHz
+	 *	@param outputRateKHz The output sample rate in KHz
+	 */
+	public PolyphaseResampler( final double inputRateKHz, final double outputRateKHz )
+	{
+		this( inputRateKHz, outputRateKHz, DEFAULT_ZERO_CROSSINGS, DEFAULT_ROLLOFF );
+	}
+
+	/**
+	 * 	Construct a resampler between the given rates. The rates are rounded to
+	 * 	the nearest Hz to determine the resampling ratio. Longer filters (more
+	 * 	zero-crossings) give a sharper transition band at a higher cost per
+	 * 	sample.
+	 *
+	 *	@param inputRateKHz The input sample rate in KHz
+	 *	@param outputRateKHz The output sample rate in KHz
+	 *	@param zeroCrossings The number of zero-crossings of the sinc either side of the centre
+	 *	@param rolloff The fraction of the lower Nyquist frequency at which to place the cut-off
+	 */
+	public PolyphaseResampler( final double inputRateKHz, final double outputRateKHz,
+			final int zeroCrossings, final double rolloff )
+	{
+		this.inputRate = (int)Math.round( inputRateKHz * 1000 );
+		this.outputRate = (int)Math.round( outputRateKHz * 1000 );
+
+		if( this.inputRate <= 0 || this.outputRate <= 0 )
+			throw new IllegalArgumentException( "Sample rates must be positive" );
+		if( zeroCrossings < 1 )
+			throw new IllegalArgumentException( "At least one zero-crossing is required" );
+		if( rolloff <= 0 || rolloff > 1 )
+			throw new IllegalArgumentException( "The roll-off must be in the range (0, 1]" );
+
+		final int g = gcd( this.inputRate, this.outputRate );
+		this.L = this.outputRate / g;
+		this.M = this.inputRate / g;
+
+		// The cut-off as a fraction of the input Nyquist frequency. When
+		// down-sampling the sinc is stretched, so more input samples are
+		// needed to cover the same number of zero-crossings.
+		final double cutoff = Math.min( 1, this.L / (double)this.M ) * rolloff;
+		this.halfWidth = (int)Math.ceil( zeroCrossings / cutoff );
+		this.filters = makeFilters( this.L, this.halfWidth, cutoff );
+
+		this.reset();
+	}
+
+	/**
+	 * 	Builds the filter for each phase. Tap j of phase p is the response of
+	 * 	the windowed sinc at a distance of (j - halfWidth + 1 - p/L) input
+	 * 	samples from the output position. Each phase is normalised to unit
+	 * 	gain at DC.
+	 */
+	private static float[][] makeFilters( final int nPhases, final int halfWidth,
+			final double cutoff )
+	{
+		final int nTaps = 2 * halfWidth;
+		final double i0Beta = besselI0( KAISER_BETA );
+		final float[][] filters = new float[nPhases][nTaps];
+
+		for( int p = 0; p < nPhases; p++ )
+		{
+			final double frac = p / (double)nPhases;
+			double sum = 0;
+			for( int j = 0; j < nTaps; j++ )
+			{
+				final double t = j - halfWidth + 1 - frac;
+
+				final double x = Math.PI * cutoff * t;
+				final double sinc = x == 0 ? 1 : Math.sin( x ) / x;
+
+				final double r = t / halfWidth;
+				final double w = r <= -1 || r >= 1 ? 0 :
+					besselI0( KAISER_BETA * Math.sqrt( 1 - r * r ) ) / i0Beta;
+
+				final double v = cutoff * sinc * w;
+				filters[p][j] = (float)v;
+				sum += v;
+			}
+
+			for( int j = 0; j < nTaps; j++ )
+				filters[p][j] /= sum;
+		}
+
+		return filters;
+	}
+
+	/**
+	 * 	The zeroth-order modified Bessel function of the first kind, from its
+	 * 	power series.
+	 */
+	private static double besselI0( final double x )
+	{
+		final double q = x * x / 4;
+		double term = 1;
+		double sum = 1;
+		for( int k = 1; term > 1e-12 * sum; k++ )
+		{
+			term *= q / ((double)k * k);
+			sum += term;
+		}
+		return sum;
+	}
+
+	private static int gcd( int a, int b )
+	{
+		while( b != 0 )
+		{
+			final int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * 	Resample the given block of samples. The buffer's format gives the
+	 * 	number of channels; its sample rate is assumed to be the input rate of
+	 * 	this resampler. The returned buffer contains all the output samples
+	 * 	that can be computed from the input seen so far, and may be empty.
+	 *
+	 *	@param in The input samples
+	 *	@return The resampled samples
+	 */
+	public FloatSampleBuffer process( final SampleBuffer in )
+	{
+		final AudioFormat af = in.getFormat();
+		final int nc = af.getNumChannels();
+
+		if( this.nChannels == -1 )
+		{
+			this.nChannels = nc;
+			this.inputFormat = af.clone();
+			this.history = new float[nc][Math.max( 1024, 4 * this.halfWidth )];
+			this.historyLength = this.halfWidth - 1;
+		}
+		else if( this.nChannels != nc )
+			throw new IllegalArgumentException( "The number of channels cannot " +
+					"change during a stream" );
+
+		final int n = in.size() / nc;
+		final float[] data;
+		if( in instanceof FloatSampleBuffer )
+			data = ((FloatSampleBuffer)in).getSamples();
+		else
+			data = this.workspace = in.toFloatArray( this.workspace );
+
+		// Deinterleave the new samples onto the end of the history
+		this.ensureCapacity( this.historyLength + n );
+		for( int c = 0; c < nc; c++ )
+		{
+			final float[] h = this.history[c];
+			for( int i = 0, j = c; i < n; i++, j += nc )
+				h[this.historyLength + i] = data[j];
+		}
+		this.historyLength += n;
+		this.inputCount += n;
+
+		return this.resample( Long.MAX_VALUE );
+	}
+
+	/**
+	 * 	Returns the output samples that were being held back waiting for
+	 * 	further input, treating the stream as having ended. After a flush,
+	 * 	the resampler is reset and can be used for a new stream.
+	 *
+	 *	@return The remaining output samples, or null if there are none.
+	 */
+	public FloatSampleBuffer flush()
+	{
+		if( this.nChannels == -1 )
+			return null;
+
+		// The number of output samples that correspond to the whole input
+		final long expected = (this.inputCount * this.L + this.M - 1) / this.M;
+
+		// Pad with enough silence for the filter to reach the end
+		this.ensureCapacity( this.historyLength + this.halfWidth );
+		for( int c = 0; c < this.nChannels; c++ )
+			for( int i = 0; i < this.halfWidth; i++ )
+				this.history[c][this.historyLength + i] = 0;
+		this.historyLength += this.halfWidth;
+
+		final FloatSampleBuffer out = this.outputCount < expected ?
+				this.resample( expected - this.outputCount ) : null;
+		this.reset();
+		return out;
+	}
+
+	/**
+	 * 	Compute as many output samples as the history allows, up to the given
+	 * 	maximum, then discard the history that is no longer needed.
+	 */
+	private FloatSampleBuffer resample( final long max )
+	{
+		final int nc = this.nChannels;
+		final int nTaps = 2 * this.halfWidth;
+		final long lastInput = this.historyStart + this.historyLength - 1;
+
+		// The number of outputs whose filter lies entirely within the history
+		final long d = lastInput - this.halfWidth - this.centre;
+		final long available = d < 0 ? 0 :
+				((d + 1) * this.L - this.phase - 1) / this.M + 1;
+		final int maxOut = (int)Math.min( max, available );
+		final float[] out = new float[maxOut * nc];
+
+		int count = 0;
+		while( count < maxOut && this.centre + this.halfWidth <= lastInput )
+		{
+			final float[] f = this.filters[this.phase];
+			final int base = (int)(this.centre - this.halfWidth + 1 - this.historyStart);
+
+			for( int c = 0; c < nc; c++ )
+			{
+				final float[] h = this.history[c];
+				float acc = 0;
+				for( int j = 0; j < nTaps; j++ )
+					acc += f[j] * h[base + j];
+				out[count * nc + c] = acc;
+			}
+			count++;
+
+			this.phase += this.M;
+			this.centre += this.phase / this.L;
+			this.phase %= this.L;
+		}
+		this.outputCount += count;
+
+		// Drop the samples that will not be needed again
+		final int drop = (int)Math.max( 0, Math.min( this.historyLength,
+				this.centre - this.halfWidth + 1 - this.historyStart ) );
+		if( drop > 0 )
+		{
+			for( int c = 0; c < nc; c++ )
+				System.arraycopy( this.history[c], drop, this.history[c], 0,
+						this.historyLength - drop );
+			this.historyLength -= drop;
+			this.historyStart += drop;
+		}
+
+		final float[] samples;
+		if( count == maxOut )
+			samples = out;
+		else
+		{
+			samples = new float[count * nc];
+			System.arraycopy( out, 0, samples, 0, samples.length );
+		}
+
+		final AudioFormat af = this.inputFormat.clone();
+		af.setSampleRateKHz( this.outputRate / 1000d );
+		return new FloatSampleBuffer( samples, af );
+	}
+
+	private void ensureCapacity( final int size )
+	{
+		if( this.history[0].length >= size )
+			return;
+
+		final int newSize = Math.max( size, this.history[0].length * 2 );
+		for( int c = 0; c < this.nChannels; c++ )
+		{
+			final float[] h = new float[newSize];
+			System.arraycopy( this.history[c], 0, h, 0, this.historyLength );
+			this.history[c] = h;
+		}
+	}
+
+	/**
+	 * 	Discard any buffered samples so that the resampler can be used for a
+	 * 	new stream. The filters are retained.
+	 */
+	public void reset()
+	{
+		this.nChannels = -1;
+		this.history = null;
+		this.historyLength = 0;
+		// The history starts with halfWidth-1 samples of silence so that the
+		// first output is aligned with the first input sample
+		this.historyStart = -(this.halfWidth - 1);
+		this.centre = 0;
+		this.phase = 0;
+		this.inputCount = 0;
+		this.outputCount = 0;
+	}
+
+	/**
+	 * 	Returns the input sample rate in KHz
+	 *	@return the input sample rate
+	 */
+	public double getInputSampleRateKHz()
+	{
+		return this.inputRate / 1000d;
+	}
+
+	/**
+	 * 	Returns the output sample rate in KHz
+	 *	@return the output sample rate
+	 */
+	public double getOutputSampleRateKHz()
+	{
+		return this.outputRate / 1000d;
+	}
+
+	/**
+	 * 	Returns the number of output samples (per channel) produced since the
+	 * 	resampler was created or last reset. As the first output sample is
+	 * 	aligned with the first input sample, this gives the position in the
+	 * 	stream of the next output sample.
+	 *
+	 *	@return the number of output samples produced
+	 */
+	public long getOutputCount()
+	{
+		return this.outputCount;
+	}
+
+	/**
+	 * 	Returns the number of filter taps used for each output sample
+	 *	@return the number of taps per phase
+	 */
+	public int getNumberOfTaps()
+	{
+		return 2 * this.halfWidth;
+	}
+}
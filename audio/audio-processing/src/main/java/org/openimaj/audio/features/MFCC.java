@@ -38,6 +38,8 @@ import org.openimaj.audio.samples.SampleBuffer;
 /**
  *	A wrapper around the MFCC implementation of jAudio (which itself
  *	is a wrapper around the OrangeCow Volume implementation of FFT).
+ *	For high-throughput extraction of framed MFCCs over long streams,
+ *	see {@link StreamingMFCC}.
  *
  *	@author David Dupplaw (dpd@ecs.soton.ac.uk)
  *  @created 5 Mar 2013
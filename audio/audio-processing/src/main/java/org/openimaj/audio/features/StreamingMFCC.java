@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.features;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.analysis.ShortTimeFourierTransform;
+import org.openimaj.audio.filters.MelFilterBank;
+import org.openimaj.audio.filters.TriangularFilter;
+import org.openimaj.audio.samples.SampleBuffer;
+
+/**
+ *	A streaming MFCC extractor built directly on a {@link ShortTimeFourierTransform}.
+ *	Unlike {@link MFCC}, which computes one set of coefficients per sample chunk
+ *	through jAudio, this class produces one set of coefficients for every
+ *	(overlapping) frame in the stream, and does not depend on how the stream
+ *	is chunked.
+ *	<p>
+ *	The Mel filter bank weights are sampled at the FFT bin frequencies once,
+ *	when the first frame is seen, and stored sparsely so that each filter only
+ *	visits the bins it covers. The DCT basis is also precomputed, so each frame
+ *	costs a single pass over the spectrum followed by a small matrix-vector
+ *	product. The coefficients for the frames completed by the last call to
+ *	process are available from {@link #getLastCalculatedFeatures()}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class StreamingMFCC extends ShortTimeFourierTransform
+{
+	/** The number of Mel filters */
+	private final int nFilters;
+
+	/** The number of cepstral coefficients to output */
+	private final int nCoefficients;
+
+	/** The lowest frequency covered by the filter bank */
+	private final double lowFreq;
+
+	/** The highest frequency covered by the filter bank */
+	private final double highFreq;
+
+	/** The first spectrum bin of each filter */
+	private int[] filterStart;
+
+	/** The weights of each filter, starting at {@link #filterStart} */
+	private float[][] filterWeights;
+
+	/** The sample rate that the filter weights were computed for */
+	private double filterSampleRate = -1;
+
+	/** The DCT basis: nCoefficients x nFilters */
+	private final float[][] dct;
+
+	/** Workspace for the log filter bank energies */
+	private final float[] logEnergies;
+
+	/** The coefficients of the frames completed by the last call to process */
+	private final List<double[][]> lastFeatures = new ArrayList<double[][]>();
+
+	/**
+	 * 	Construct an MFCC extractor with 26 Mel filters between 133.33Hz and
+	 * 	6855.5Hz, returning 13 coefficients per frame.
+	 *
+	 *	@param frameSize The number of samples (per channel) in each frame
+	 *	@param hopSize The number of samples (per channel) between frames
+	 */
+	public StreamingMFCC( final int frameSize, final int hopSize )
+	{
+		this( null, frameSize, hopSize, 26, 13, 133.33, 6855.5 );
+	}
+
+	/**
+	 * 	Chainable constructor for an MFCC extractor with 26 Mel filters between
+	 * 	133.33Hz and 6855.5Hz, returning 13 coefficients per frame.
+	 *
+	 *	@param as The stream to chain to
+	 *	@param frameSize The number of samples (per channel) in each frame
+	 *	@param hopSize The number of samples (per channel) between frames
+	 */
+	public StreamingMFCC( final AudioStream as, final int frameSize, final int hopSize )
+	{
+		this( as, frameSize, hopSize, 26, 13, 133.33, 6855.5 );
+	}
+
+	/**
+	 * 	Chainable constructor that specifies all the parameters. The stream
+	 * 	may be null for ad-hoc processing.
+	 *
+	 *	@param as The stream to chain to
+	 *	@param frameSize The number of samples (per channel) in each frame
+	 *	@param hopSize The number of samples (per channel) between frames
+	 *	@param nFilters The number of Mel filters
+	 *	@param nCoefficients The number of coefficients to output
+	 *	@param lowFreq The lowest frequency covered by the filter bank
+	 *	@param highFreq The highest frequency covered by the filter bank
+	 */
+	public StreamingMFCC( final AudioStream as, final int frameSize, final int hopSize,
+			final int nFilters, final int nCoefficients, final double lowFreq,
+			final double highFreq )
+	{
+		super( as, frameSize, hopSize );
+
+		if( nCoefficients > nFilters )
+			throw new IllegalArgumentException( "Cannot compute "+nCoefficients+
+					" coefficients from "+nFilters+" filters" );
+
+		this.nFilters = nFilters;
+		this.nCoefficients = nCoefficients;
+		this.lowFreq = lowFreq;
+		this.highFreq = highFreq;
+		this.logEnergies = new float[ nFilters ];
+
+		// Orthonormal DCT-II basis
+		this.dct = new float[nCoefficients][nFilters];
+		for( int i = 0; i < nCoefficients; i++ )
+		{
+			final double s = Math.sqrt( (i == 0 ? 1d : 2d) / nFilters );
+			for( int j = 0; j < nFilters; j++ )
+				this.dct[i][j] = (float)(s * Math.cos( Math.PI * i * (j+0.5) / nFilters ));
+		}
+	}
+
+	/**
+	 * 	Sample the Mel filter weights at the bin frequencies of the spectrum
+	 * 	for the given sample rate.
+	 *
+	 *	@param sampleRate The sample rate (Hz)
+	 */
+	private void createFilters( final double sampleRate )
+	{
+		final MelFilterBank mfb = new MelFilterBank( this.nFilters, this.lowFreq,
+				Math.min( this.highFreq, sampleRate/2 ) );
+		final List<TriangularFilter> filters = mfb.getFilters();
+		final int nBins = this.getFFTSize()/2+1;
+
+		this.filterStart = new int[ this.nFilters ];
+		this.filterWeights = new float[ this.nFilters ][];
+		for( int f = 0; f < this.nFilters; f++ )
+		{
+			final TriangularFilter filter = filters.get( f );
+
+			int start = (int)Math.ceil( filter.getLowFrequency() * this.getFFTSize() / sampleRate );
+			int end = (int)Math.floor( filter.getHighFrequency() * this.getFFTSize() / sampleRate );
+			start = Math.max( 0, start );
+			end = Math.min( nBins-1, end );
+
+			this.filterStart[f] = start;
+			this.filterWeights[f] = new float[ Math.max( 0, end-start+1 ) ];
+			for( int k = start; k <= end; k++ )
+				this.filterWeights[f][k-start] = (float)filter.getWeightAt(
+						this.getBinFrequency( k, sampleRate ) );
+		}
+
+		this.filterSampleRate = sampleRate;
+	}
+
+	/**
+	 * 	Process the given sample buffer, returning the coefficients of every
+	 * 	frame completed by the samples in the buffer. The returned list is
+	 * 	reused by the next call.
+	 *
+	 *	@param sb The sample buffer
+	 *	@return The MFCCs of each frame (frame x channel x coefficient)
+	 */
+	public List<double[][]> calculateMFCC( final SampleBuffer sb )
+	{
+		this.process( sb );
+		return this.lastFeatures;
+	}
+
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.analysis.ShortTimeFourierTransform#process(org.openimaj.audio.samples.SampleBuffer)
+	 */
+	@Override
+	public SampleBuffer process( final SampleBuffer sb )
+	{
+		this.lastFeatures.clear();
+		return super.process( sb );
+	}
+
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.analysis.ShortTimeFourierTransform#processSpectrum(float[][], org.openimaj.audio.AudioFormat)
+	 */
+	@Override
+	protected void processSpectrum( final float[][] power, final AudioFormat format )
+	{
+		final double sampleRate = format.getSampleRateKHz()*1000;
+		if( sampleRate != this.filterSampleRate )
+			this.createFilters( sampleRate );
+
+		final double[][] mfcc = new double[power.length][this.nCoefficients];
+		for( int c = 0; c < power.length; c++ )
+		{
+			final float[] spectrum = power[c];
+
+			// Filter bank energies
+			for( int f = 0; f < this.nFilters; f++ )
+			{
+				final float[] w = this.filterWeights[f];
+				final int start = this.filterStart[f];
+				float e = 0;
+				for( int k = 0; k < w.length; k++ )
+					e += w[k] * spectrum[start+k];
+				this.logEnergies[f] = (float)Math.log( Math.max( e, 1e-10f ) );
+			}
+
+			// DCT
+			for( int i = 0; i < this.nCoefficients; i++ )
+			{
+				final float[] basis = this.dct[i];
+				float v = 0;
+				for( int f = 0; f < this.nFilters; f++ )
+					v += basis[f] * this.logEnergies[f];
+				mfcc[c][i] = v;
+			}
+		}
+
+		this.lastFeatures.add( mfcc );
+	}
+
+	/**
+	 * 	Returns the coefficients of the frames that were completed by the last
+	 * 	call to process. The list is cleared by the next call.
+	 *
+	 *	@return The MFCCs of each frame (frame x channel x coefficient)
+	 */
+	public List<double[][]> getLastCalculatedFeatures()
+	{
+		return this.lastFeatures;
+	}
+
+	/**
+	 *	@return The number of coefficients computed for each frame
+	 */
+	public int getNumberOfCoefficients()
+	{
+		return this.nCoefficients;
+	}
+}
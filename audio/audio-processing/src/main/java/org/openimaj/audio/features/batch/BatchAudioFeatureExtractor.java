@@ -0,0 +1,533 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.features.batch;
+
+import gnu.trove.list.array.TFloatArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.features.StreamingMFCC;
+import org.openimaj.audio.samples.FloatSampleBuffer;
+import org.openimaj.audio.samples.SampleBuffer;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+import org.openimaj.video.xuggle.XuggleAudio;
+
+/**
+ *	Offline extraction of per-frame audio features over a collection of audio
+ *	files. The files are processed in parallel on a pool of worker threads;
+ *	each file is decoded once, mixed down to mono into {@link FloatSampleBuffer}
+ *	blocks and passed through a single short-time Fourier transform from which
+ *	all the features are computed:
+ *	<ul>
+ *	<li>the Mel-frequency cepstral coefficients (see {@link StreamingMFCC}),</li>
+ *	<li>the spectral flux (the sum of the increases in magnitude of each bin
+ *		since the previous frame), and</li>
+ *	<li>an onset indicator (1 or 0), found by picking peaks in the spectral
+ *		flux that are local maxima and exceed the local mean by a threshold
+ *		(after normalising the flux of the file to zero mean and unit
+ *		variance).</li>
+ *	</ul>
+ *	The results are written with a {@link ColumnarFeatureWriter}, with columns
+ *	<code>mfcc0</code> to <code>mfccN</code>, <code>flux</code> and
+ *	<code>onset</code>. Files that fail to decode are logged and skipped,
+ *	and are returned to the caller.
+ *	<p>
+ *	By default the files are decoded with {@link XuggleAudio}; a different
+ *	decoder can be used by providing an {@link AudioStreamProvider}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class BatchAudioFeatureExtractor
+{
+	private static final Logger logger = Logger.getLogger( BatchAudioFeatureExtractor.class );
+
+	/**
+	 * 	Opens (and closes) the audio streams for the files being processed.
+	 *
+	 *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 */
+	public interface AudioStreamProvider
+	{
+		/**
+		 * 	Open the given file as an audio stream
+		 *	@param file The file
+		 *	@return The audio stream
+		 *	@throws Exception If the file could not be opened
+		 */
+		public AudioStream open( File file ) throws Exception;
+
+		/**
+		 * 	Release any resources held by a stream returned by
+		 * 	{@link #open(File)}.
+		 *	@param stream The stream
+		 */
+		public void close( AudioStream stream );
+	}
+
+	/** The default provider that decodes files with Xuggler */
+	public static final AudioStreamProvider XUGGLE_PROVIDER = new AudioStreamProvider()
+	{
+		@Override
+		public AudioStream open( final File file ) throws Exception
+		{
+			return new XuggleAudio( file );
+		}
+
+		@Override
+		public void close( final AudioStream stream )
+		{
+			((XuggleAudio)stream).close();
+		}
+	};
+
+	/** The length of each frame in milliseconds */
+	private double frameMillis = 25;
+
+	/** The step between frames in milliseconds */
+	private double hopMillis = 10;
+
+	/** The number of MFCCs per frame */
+	private int nCoefficients = 13;
+
+	/** The number of Mel filters */
+	private int nFilters = 26;
+
+	/** The number of frames either side of a peak that it must be the maximum of */
+	private int onsetWindow = 3;
+
+	/** The threshold (in standard deviations) above the local mean for an onset */
+	private double onsetThreshold = 0.35;
+
+	/** The number of worker threads */
+	private int nThreads = Runtime.getRuntime().availableProcessors();
+
+	/** The audio decoder */
+	private AudioStreamProvider provider = BatchAudioFeatureExtractor.XUGGLE_PROVIDER;
+
+	/**
+	 * 	Construct an extractor with 25ms frames every 10ms, computing 13
+	 * 	MFCCs from 26 filters, and using one worker thread per processor.
+	 */
+	public BatchAudioFeatureExtractor()
+	{
+	}
+
+	/**
+	 * 	Construct an extractor with the given framing and number of worker
+	 * 	threads.
+	 *
+	 *	@param frameMillis The length of each frame in milliseconds
+	 *	@param hopMillis The step between frames in milliseconds
+	 *	@param nThreads The number of worker threads
+	 */
+	public BatchAudioFeatureExtractor( final double frameMillis, final double hopMillis,
+			final int nThreads )
+	{
+		this.frameMillis = frameMillis;
+		this.hopMillis = hopMillis;
+		this.nThreads = nThreads;
+	}
+
+	/**
+	 * 	Extract the features from all the given files and write them into the
+	 * 	given output directory (see {@link ColumnarFeatureWriter}).
+	 *
+	 *	@param files The audio files
+	 *	@param outputDir The output directory
+	 *	@return The files that could not be processed
+	 *	@throws IOException If the output could not be written
+	 */
+	public List<File> extract( final List<File> files, final File outputDir ) throws IOException
+	{
+		final ColumnarFeatureWriter writer = new ColumnarFeatureWriter( outputDir,
+				this.getColumnNames() );
+
+		try
+		{
+			return this.extract( files, writer );
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * 	Extract the features from all the given files and write them with the
+	 * 	given writer, which must have the columns given by
+	 * 	{@link #getColumnNames()}. The writer is not closed.
+	 *
+	 *	@param files The audio files
+	 *	@param writer The writer
+	 *	@return The files that could not be processed
+	 *	@throws IOException If the output could not be written
+	 */
+	public List<File> extract( final List<File> files, final ColumnarFeatureWriter writer )
+			throws IOException
+	{
+		final ExecutorService pool = Executors.newFixedThreadPool( this.nThreads,
+				new DaemonThreadFactory() );
+
+		try
+		{
+			final List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for( final File file : files )
+			{
+				results.add( pool.submit( new Callable<Void>()
+				{
+					@Override
+					public Void call() throws Exception
+					{
+						final FeatureFrontEnd features =
+								BatchAudioFeatureExtractor.this.extractFeatures( file );
+						writer.write( file.getPath(), features.frameRate, features.getColumns() );
+						return null;
+					}
+				} ) );
+			}
+
+			final List<File> failed = new ArrayList<File>();
+			for( int i = 0; i < files.size(); i++ )
+			{
+				try
+				{
+					results.get( i ).get();
+				}
+				catch( final ExecutionException e )
+				{
+					if( e.getCause() instanceof IOException &&
+							!(e.getCause() instanceof DecodeException) )
+						throw (IOException)e.getCause();
+
+					BatchAudioFeatureExtractor.logger.warn( "Unable to process "+files.get( i ), e.getCause() );
+					failed.add( files.get( i ) );
+				}
+				catch( final InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+					throw new IOException( e );
+				}
+			}
+
+			return failed;
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * 	Indicates a failure to decode a file, which is distinct from a
+	 * 	failure to write the output.
+	 */
+	private static class DecodeException extends IOException
+	{
+		private static final long serialVersionUID = 1L;
+
+		DecodeException( final Throwable cause )
+		{
+			super( cause );
+		}
+	}
+
+	/**
+	 * 	Decode a file and compute its features.
+	 *
+	 *	@param file The file
+	 *	@return The features
+	 *	@throws DecodeException If the file could not be decoded
+	 */
+	private FeatureFrontEnd extractFeatures( final File file ) throws DecodeException
+	{
+		AudioStream stream = null;
+		try
+		{
+			stream = this.provider.open( file );
+			return this.extractFeatures( stream );
+		}
+		catch( final Exception e )
+		{
+			throw new DecodeException( e );
+		}
+		finally
+		{
+			if( stream != null )
+				this.provider.close( stream );
+		}
+	}
+
+	/**
+	 * 	Compute the features of a stream.
+	 *
+	 *	@param stream The stream
+	 *	@return The features
+	 */
+	private FeatureFrontEnd extractFeatures( final AudioStream stream )
+	{
+		final AudioFormat format = stream.getFormat();
+		final double sampleRate = format.getSampleRateKHz() * 1000;
+		final int frameSize = (int)Math.round( sampleRate * this.frameMillis / 1000 );
+		final int hopSize = (int)Math.round( sampleRate * this.hopMillis / 1000 );
+
+		final FeatureFrontEnd frontEnd = new FeatureFrontEnd( frameSize, hopSize,
+				sampleRate / hopSize );
+		final AudioFormat monoFormat = format.clone();
+		monoFormat.setNumChannels( 1 );
+
+		float[] block = null;
+		float[] interleaved = null;
+		SampleChunk sc = null;
+		while( (sc = stream.nextSampleChunk()) != null )
+		{
+			final SampleBuffer sb = sc.getSampleBuffer();
+			final int nc = sb.getFormat().getNumChannels();
+			final int n = sb.size() / nc;
+			interleaved = sb.toFloatArray( interleaved );
+
+			// Mix down into the (reused) mono block
+			if( block == null || block.length != n )
+				block = new float[ n ];
+			for( int i = 0; i < n; i++ )
+			{
+				float v = 0;
+				for( int c = 0; c < nc; c++ )
+					v += interleaved[i*nc+c];
+				block[i] = v / nc;
+			}
+
+			frontEnd.process( new FloatSampleBuffer( block, monoFormat ) );
+		}
+
+		return frontEnd;
+	}
+
+	/**
+	 * 	The MFCC transform extended to compute the spectral flux of each frame
+	 * 	from the same spectrum, and to accumulate the features of the whole
+	 * 	stream in columns.
+	 */
+	private class FeatureFrontEnd extends StreamingMFCC
+	{
+		private final TFloatArrayList[] mfccs;
+		private final TFloatArrayList flux = new TFloatArrayList();
+		private float[] lastMagnitudes = null;
+		private final double frameRate;
+
+		FeatureFrontEnd( final int frameSize, final int hopSize, final double frameRate )
+		{
+			super( null, frameSize, hopSize, BatchAudioFeatureExtractor.this.nFilters,
+					BatchAudioFeatureExtractor.this.nCoefficients, 133.33, 6855.5 );
+			this.frameRate = frameRate;
+
+			this.mfccs = new TFloatArrayList[ this.getNumberOfCoefficients() ];
+			for( int i = 0; i < this.mfccs.length; i++ )
+				this.mfccs[i] = new TFloatArrayList();
+		}
+
+		@Override
+		protected void processSpectrum( final float[][] power, final AudioFormat format )
+		{
+			super.processSpectrum( power, format );
+
+			final List<double[][]> features = this.getLastCalculatedFeatures();
+			final double[] mfcc = features.get( features.size()-1 )[0];
+			for( int i = 0; i < mfcc.length; i++ )
+				this.mfccs[i].add( (float)mfcc[i] );
+
+			final float[] p = power[0];
+			float f = 0;
+			if( this.lastMagnitudes == null )
+			{
+				this.lastMagnitudes = new float[ p.length ];
+				for( int k = 0; k < p.length; k++ )
+					this.lastMagnitudes[k] = (float)Math.sqrt( p[k] );
+			}
+			else
+			{
+				for( int k = 0; k < p.length; k++ )
+				{
+					final float m = (float)Math.sqrt( p[k] );
+					final float d = m - this.lastMagnitudes[k];
+					if( d > 0 )
+						f += d;
+					this.lastMagnitudes[k] = m;
+				}
+			}
+			this.flux.add( f );
+		}
+
+		/**
+		 * 	Get the accumulated columns, with the onsets computed from the
+		 * 	spectral flux.
+		 */
+		float[][] getColumns()
+		{
+			final float[][] columns = new float[ this.mfccs.length + 2 ][];
+			for( int i = 0; i < this.mfccs.length; i++ )
+				columns[i] = this.mfccs[i].toArray();
+
+			final float[] f = this.flux.toArray();
+			columns[ this.mfccs.length ] = f;
+			columns[ this.mfccs.length + 1 ] = BatchAudioFeatureExtractor.detectOnsets(
+					f, BatchAudioFeatureExtractor.this.onsetWindow,
+					BatchAudioFeatureExtractor.this.onsetThreshold );
+			return columns;
+		}
+	}
+
+	/**
+	 * 	Pick the onsets from the spectral flux of a stream. After normalising
+	 * 	the flux to zero mean and unit variance, a frame is an onset if its
+	 * 	flux is the maximum within <code>window</code> frames either side,
+	 * 	and it is at least <code>threshold</code> above the mean of the flux
+	 * 	from <code>3*window</code> frames before to <code>window</code> frames
+	 * 	after.
+	 *
+	 *	@param flux The spectral flux of each frame
+	 *	@param window The half-width of the peak window
+	 *	@param threshold The threshold above the local mean
+	 *	@return An array with 1 for each onset frame and 0 elsewhere
+	 */
+	public static float[] detectOnsets( final float[] flux, final int window,
+			final double threshold )
+	{
+		final int n = flux.length;
+		final float[] onsets = new float[ n ];
+		if( n == 0 )
+			return onsets;
+
+		double mean = 0;
+		for( final float f : flux )
+			mean += f;
+		mean /= n;
+
+		double var = 0;
+		for( final float f : flux )
+			var += (f-mean)*(f-mean);
+		final double sd = Math.sqrt( var / n );
+		if( sd == 0 )
+			return onsets;
+
+		final double[] norm = new double[ n ];
+		for( int i = 0; i < n; i++ )
+			norm[i] = (flux[i] - mean) / sd;
+
+		// Prefix sums for the local means
+		final double[] cumsum = new double[ n+1 ];
+		for( int i = 0; i < n; i++ )
+			cumsum[i+1] = cumsum[i] + norm[i];
+
+		for( int i = 0; i < n; i++ )
+		{
+			boolean isMax = true;
+			for( int j = Math.max( 0, i-window ); j <= Math.min( n-1, i+window ) && isMax; j++ )
+				if( norm[j] > norm[i] )
+					isMax = false;
+			if( !isMax )
+				continue;
+
+			final int lo = Math.max( 0, i - 3*window );
+			final int hi = Math.min( n, i + window + 1 );
+			final double localMean = (cumsum[hi] - cumsum[lo]) / (hi - lo);
+
+			if( norm[i] >= localMean + threshold )
+				onsets[i] = 1;
+		}
+
+		return onsets;
+	}
+
+	/**
+	 * 	Get the names of the columns written by this extractor.
+	 *	@return The column names
+	 */
+	public String[] getColumnNames()
+	{
+		final String[] names = new String[ this.nCoefficients + 2 ];
+		for( int i = 0; i < this.nCoefficients; i++ )
+			names[i] = "mfcc" + i;
+		names[ this.nCoefficients ] = "flux";
+		names[ this.nCoefficients + 1 ] = "onset";
+		return names;
+	}
+
+	/**
+	 * 	Set the decoder used to open the audio files.
+	 *	@param provider The provider
+	 */
+	public void setAudioStreamProvider( final AudioStreamProvider provider )
+	{
+		this.provider = provider;
+	}
+
+	/**
+	 * 	Set the number of MFCCs computed per frame and the number of Mel
+	 * 	filters they are computed from.
+	 *
+	 *	@param nCoefficients The number of coefficients
+	 *	@param nFilters The number of filters
+	 */
+	public void setMFCCParameters( final int nCoefficients, final int nFilters )
+	{
+		this.nCoefficients = nCoefficients;
+		this.nFilters = nFilters;
+	}
+
+	/**
+	 * 	Set the parameters of the onset detection.
+	 *
+	 *	@param window The number of frames either side of a peak that it must
+	 *		be the maximum of
+	 *	@param threshold The threshold (in standard deviations of the flux)
+	 *		above the local mean that a peak must exceed
+	 */
+	public void setOnsetParameters( final int window, final double threshold )
+	{
+		this.onsetWindow = window;
+		this.onsetThreshold = threshold;
+	}
+}
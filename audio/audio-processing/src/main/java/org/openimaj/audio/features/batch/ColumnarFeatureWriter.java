@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.features.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openimaj.io.ChannelDataOutput;
+
+/**
+ *	Writes per-frame features for a collection of audio files in a columnar
+ *	binary layout. Each feature column is written to its own file
+ *	(<code>&lt;column&gt;.f32</code>) in the output directory as a contiguous
+ *	sequence of big-endian 32-bit floats, so that a single dimension of the
+ *	data for all the files can be read (or memory-mapped) without touching the
+ *	others. The frames of each audio file are contiguous within every column.
+ *	The columns are written in bulk through a {@link ChannelDataOutput} on
+ *	each file's channel.
+ *	<p>
+ *	When the writer is closed, an <code>index.bin</code> file is written
+ *	describing the columns and, for each audio file, its name, frame rate, the
+ *	offset of its first frame (in frames) and the number of frames. The index
+ *	is written with a {@link DataOutputStream}:
+ *	<pre>
+ *	int     version
+ *	int     number of columns
+ *	UTF     column name (repeated for each column)
+ *	int     number of files
+ *	UTF     file name     \
+ *	double  frame rate     | repeated for each file
+ *	long    first frame    |
+ *	int     number frames /
+ *	</pre>
+ *	<p>
+ *	Calls to {@link #write(String, double, float[][])} are synchronised, so the
+ *	writer can be shared between worker threads. Each call is atomic: if
+ *	writing any of the columns fails, all of the columns are truncated back to
+ *	the end of the previous file, so the columns stay aligned and the index
+ *	only ever describes complete files.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class ColumnarFeatureWriter implements Closeable
+{
+	/** The version of the index format */
+	public static final int VERSION = 1;
+
+	/** The name of the index file */
+	public static final String INDEX_FILENAME = "index.bin";
+
+	/** The extension of the column files */
+	public static final String COLUMN_EXTENSION = ".f32";
+
+	/** The output directory */
+	private final File outputDir;
+
+	/** The names of the columns */
+	private final String[] columnNames;
+
+	/** The channels of the column files */
+	private final FileChannel[] channels;
+
+	/** The outputs for each column */
+	private final ChannelDataOutput[] columns;
+
+	/** The index entries */
+	private final List<IndexEntry> index = new ArrayList<IndexEntry>();
+
+	/** The number of frames written so far */
+	private long nFrames = 0;
+
+	/** Whether a failed write could not be undone */
+	private boolean inconsistent = false;
+
+	/**
+	 * 	An entry in the index.
+	 */
+	private static class IndexEntry
+	{
+		String name;
+		double frameRate;
+		long start;
+		int length;
+	}
+
+	/**
+	 * 	Construct a writer that will write the given columns into the given
+	 * 	directory. The directory will be created if it does not exist and any
+	 * 	existing column files will be overwritten.
+	 *
+	 *	@param outputDir The output directory
+	 *	@param columnNames The names of the columns
+	 *	@throws IOException If the column files could not be created
+	 */
+	public ColumnarFeatureWriter( final File outputDir, final String... columnNames )
+			throws IOException
+	{
+		if( !outputDir.exists() && !outputDir.mkdirs() )
+			throw new IOException( "Unable to create output directory "+outputDir );
+
+		this.outputDir = outputDir;
+		this.columnNames = columnNames.clone();
+		this.channels = new FileChannel[ columnNames.length ];
+		this.columns = new ChannelDataOutput[ columnNames.length ];
+
+		try
+		{
+			for( int i = 0; i < columnNames.length; i++ )
+			{
+				this.channels[i] = new FileOutputStream( new File( outputDir,
+						columnNames[i] + ColumnarFeatureWriter.COLUMN_EXTENSION ) ).getChannel();
+				this.columns[i] = new ChannelDataOutput( this.channels[i] );
+			}
+		}
+		catch( final IOException e )
+		{
+			for( final FileChannel c : this.channels )
+				if( c != null )
+					c.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 	Write the frames of a single audio file. The columns array must have
+	 * 	one array for each column, and all the arrays must be the same length
+	 * 	(the number of frames). If the data cannot be written, none of it is
+	 * 	kept in any of the columns.
+	 *
+	 *	@param name The name of the audio file
+	 *	@param frameRate The number of frames per second
+	 *	@param data The data for each column
+	 *	@throws IOException If the data could not be written
+	 */
+	public synchronized void write( final String name, final double frameRate,
+			final float[][] data ) throws IOException
+	{
+		if( data.length != this.columns.length )
+			throw new IllegalArgumentException( "Expected "+this.columns.length+
+					" columns, but got "+data.length );
+
+		final int length = data.length == 0 ? 0 : data[0].length;
+		for( int i = 0; i < data.length; i++ )
+		{
+			if( data[i].length != length )
+				throw new IllegalArgumentException( "Column "+this.columnNames[i]+
+						" has "+data[i].length+" frames; expected "+length );
+		}
+
+		if( this.inconsistent )
+			throw new IOException( "The columns could not be restored after an earlier write failed" );
+
+		try
+		{
+			for( int i = 0; i < data.length; i++ )
+				this.columns[i].writeFloats( data[i], 0, length );
+
+			// the file is only complete once every column has been written
+			// to its channel
+			for( int i = 0; i < data.length; i++ )
+				this.columns[i].flush();
+		}
+		catch( final IOException e )
+		{
+			this.rollback();
+			throw e;
+		}
+
+		final IndexEntry e = new IndexEntry();
+		e.name = name;
+		e.frameRate = frameRate;
+		e.start = this.nFrames;
+		e.length = length;
+		this.index.add( e );
+		this.nFrames += length;
+	}
+
+	/**
+	 * 	Flush and close the column files and write the index.
+	 *
+	 *	@throws IOException If the files could not be written
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		this.closeColumns();
+
+		final DataOutputStream dos = new DataOutputStream( new BufferedOutputStream(
+				new FileOutputStream( new File( this.outputDir,
+						ColumnarFeatureWriter.INDEX_FILENAME ) ) ) );
+		try
+		{
+			dos.writeInt( ColumnarFeatureWriter.VERSION );
+			dos.writeInt( this.columnNames.length );
+			for( final String c : this.columnNames )
+				dos.writeUTF( c );
+
+			dos.writeInt( this.index.size() );
+			for( final IndexEntry e : this.index )
+			{
+				dos.writeUTF( e.name );
+				dos.writeDouble( e.frameRate );
+				dos.writeLong( e.start );
+				dos.writeInt( e.length );
+			}
+		}
+		finally
+		{
+			dos.close();
+		}
+	}
+
+	/**
+	 * 	Truncate all of the columns back to the end of the last complete file,
+	 * 	discarding anything still buffered. If that fails, the writer refuses
+	 * 	any further writes, although the files already in the index are still
+	 * 	valid.
+	 */
+	private void rollback()
+	{
+		// the outputs may still hold part of the failed write
+		for( final ChannelDataOutput c : this.columns )
+			c.discard();
+
+		final long end = this.nFrames * 4;
+		try
+		{
+			for( final FileChannel c : this.channels )
+			{
+				c.truncate( end );
+				c.position( end );
+			}
+		}
+		catch( final IOException e )
+		{
+			this.inconsistent = true;
+		}
+	}
+
+	/**
+	 * 	Close all of the open column streams
+	 *	@throws IOException If a stream could not be closed
+	 */
+	private void closeColumns() throws IOException
+	{
+		IOException ex = null;
+		for( int i = 0; i < this.columns.length; i++ )
+		{
+			if( this.columns[i] == null )
+				continue;
+
+			try
+			{
+				this.columns[i].close();
+			}
+			catch( final IOException e )
+			{
+				ex = e;
+			}
+			this.columns[i] = null;
+		}
+
+		if( ex != null )
+			throw ex;
+	}
+
+	/**
+	 *	@return The total number of frames written
+	 */
+	public synchronized long getNumberOfFrames()
+	{
+		return this.nFrames;
+	}
+}
@@ -35,6 +35,7 @@ package org.openimaj.audio.filters;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
 import org.openimaj.audio.processor.AudioProcessor;
+import org.openimaj.audio.samples.FloatSampleBuffer;
 import org.openimaj.audio.samples.SampleBuffer;
 
 /**
@@ -174,6 +175,9 @@ public class EQFilter extends AudioProcessor
 	// and are stored between loops to avoid clicking
 	private double xm1 = 0, xm2 = 0, xm3 = 0, xm4 = 0, 
 				   ym1 = 0, ym2 = 0, ym3 = 0, ym4 = 0;
+
+	/** Workspace for converting the samples of non-float buffers */
+	private float[] workspace = null;
 	
 	/**
 	 * 	Default constructor for ad-hoc processing.
@@ -215,13 +219,20 @@ public class EQFilter extends AudioProcessor
 		// is recursive.
 		final SampleBuffer sb = sample.getSampleBuffer();
 		final int nChans = sample.getFormat().getNumChannels();
+
+		// Work on the samples in bulk rather than one at a time
+		final boolean isFloat = sb instanceof FloatSampleBuffer;
+		final float[] data = isFloat ? ((FloatSampleBuffer)sb).getSamples() :
+				(this.workspace = sb.toFloatArray( this.workspace ));
+		final int size = sb.size();
+
 		for( int c = 0; c < nChans; c++ )
 		{
 			this.xm1 = this.xm2 = this.xm3 = this.xm4 = 0;
 			this.ym1 = this.ym2 = this.ym3 = this.ym4 = 0;
-			for( int n = c; n < sb.size(); n += nChans )
+			for( int n = c; n < size; n += nChans )
 			{
-				final double tempx = sb.get(n);
+				final double tempx = data[n];
 				final double tempy = this.vars.a0*tempx + this.vars.a1*this.xm1 
 						+ this.vars.a2*this.xm2 + this.vars.a3*this.xm3 + 
 						this.vars.a4*this.xm4 - this.vars.b1*this.ym1 - 
@@ -233,9 +244,12 @@ public class EQFilter extends AudioProcessor
 				this.ym4 = this.ym3; this.ym3 = this.ym2; this.ym2 = this.ym1;
 				this.ym1 = tempy;
 		
-				sb.set( n, (float)tempy );
+				data[n] = (float)tempy;
 			}
 		}
+
+		if( !isFloat )
+			sb.setFromFloatArray( data );
 			
 		return sample;
 	}
@@ -35,6 +35,7 @@ package org.openimaj.audio.filters;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
 import org.openimaj.audio.processor.FixedSizeSampleAudioProcessor;
+import org.openimaj.audio.samples.FloatSampleBuffer;
 import org.openimaj.audio.samples.SampleBuffer;
 
 /**
@@ -50,6 +51,9 @@ public abstract class FIRFilter extends FixedSizeSampleAudioProcessor
 	/** The coefficients for this filter */
 	private final double[] coefficients;
 
+	/** Workspace for converting the samples of non-float buffers */
+	private float[] workspace = null;
+
 	/**
 	 *	@param stream
 	 */
@@ -77,14 +81,23 @@ public abstract class FIRFilter extends FixedSizeSampleAudioProcessor
 	{
 		final SampleBuffer sb = sample.getSampleBuffer();
 
+		// Work on the samples in bulk rather than one at a time
+		final boolean isFloat = sb instanceof FloatSampleBuffer;
+		final float[] data = isFloat ? ((FloatSampleBuffer)sb).getSamples() :
+				(this.workspace = sb.toFloatArray( this.workspace ));
+		final int n = Math.min( this.coefficients.length, sb.size() );
+
 		for( int c = 0; c < sample.getFormat().getNumChannels(); c++ )
 		{
 			float acc = 0;
-			for( int i = 0; i < this.coefficients.length; i++ )
-				acc += sb.get(i) * this.coefficients[i];
-			sb.set( 0, acc );
+			for( int i = 0; i < n; i++ )
+				acc += data[i] * this.coefficients[i];
+			data[0] = acc;
 		}
 
+		if( !isFloat )
+			sb.setFromFloatArray( data );
+
 		return sample;
 	}
 }
@@ -98,7 +98,7 @@ public class HanningAudioProcessor extends WeightedWindowedAudioProcessor
 	protected void generateWeightTableCache( final int length, final int nc )
 	{
 		final int ns = length;
-		this.weightTable = new double[ length ];
+		this.weightTable = new double[ length*nc ];
 		for( int n = 0; n < ns; n++ )
 			for( int c = 0; c < nc; c++ )
 				this.weightTable[n*nc+c] = 0.5*(1-Math.cos((2*Math.PI*n)/ns));
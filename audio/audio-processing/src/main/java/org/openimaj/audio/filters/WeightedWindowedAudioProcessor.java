@@ -35,6 +35,7 @@ package org.openimaj.audio.filters;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
 import org.openimaj.audio.processor.FixedSizeSampleAudioProcessor;
+import org.openimaj.audio.samples.FloatSampleBuffer;
 import org.openimaj.audio.samples.SampleBuffer;
 
 /**
@@ -60,6 +61,9 @@ public abstract class WeightedWindowedAudioProcessor
 	/** Whether to apply the weights to the incoming signal */
 	protected boolean useWeights = true;
 
+	/** Workspace for converting the samples of non-float buffers */
+	private float[] workspace = null;
+
 	/**
 	 * 	Default constructor for non chainable processing.
 	 * 	@param sizeRequired Size of the window required 
@@ -158,16 +162,20 @@ public abstract class WeightedWindowedAudioProcessor
 		if( this.weightTable == null )
 			this.generateWeightTableCache( b.size()/nc, nc );
 
-		for( int c = 0; c < nc; c++ )
-		{
-			for( int n = 0; n < b.size()/nc; n++ )
-			{
-				final float x = b.get(n*nc+c);
-				float v = (float)(x * this.weightTable[n*nc+c]);
-				if( !this.useWeights ) v = x;
-				b.set( n*nc+c, v );
-			}
-		}
+		if( !this.useWeights )
+			return b;
+
+		// Work on the samples in bulk rather than one at a time
+		final boolean isFloat = b instanceof FloatSampleBuffer;
+		final float[] data = isFloat ? ((FloatSampleBuffer)b).getSamples() :
+				(this.workspace = b.toFloatArray( this.workspace ));
+
+		final int n = (b.size()/nc)*nc;
+		for( int i = 0; i < n; i++ )
+			data[i] = (float)(data[i] * this.weightTable[i]);
+
+		if( !isFloat )
+			b.setFromFloatArray( data );
 		
 		return b;
 	}
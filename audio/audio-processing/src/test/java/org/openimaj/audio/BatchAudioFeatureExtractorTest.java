@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.audio.features.batch.BatchAudioFeatureExtractor;
+import org.openimaj.audio.features.batch.BatchAudioFeatureExtractor.AudioStreamProvider;
+import org.openimaj.audio.features.batch.ColumnarFeatureWriter;
+import org.openimaj.audio.samples.SampleBuffer;
+import org.openimaj.audio.samples.SampleBufferFactory;
+
+/**
+ *	Tests for the {@link BatchAudioFeatureExtractor}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class BatchAudioFeatureExtractorTest
+{
+	/** Temporary output */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * 	Provides two seconds of stereo 16kHz audio with a click every half
+	 * 	second, in chunks of 1000 samples. Files with names starting "bad"
+	 * 	cannot be opened.
+	 */
+	private final AudioStreamProvider provider = new AudioStreamProvider()
+	{
+		@Override
+		public AudioStream open( final File file ) throws Exception
+		{
+			if( file.getName().startsWith( "bad" ) )
+				throw new IOException( "Bad file" );
+
+			final AudioFormat af = new AudioFormat( 16, 16, 2 );
+			return new AudioStream()
+			{
+				private int position = 0;
+
+				{
+					this.setFormat( af );
+				}
+
+				@Override
+				public SampleChunk nextSampleChunk()
+				{
+					if( this.position >= 32000 )
+						return null;
+
+					final SampleBuffer sb = SampleBufferFactory.createSampleBuffer( af, 2000 );
+					for( int i = 0; i < 1000; i++ )
+					{
+						final int t = this.position + i;
+						final float v = t % 8000 < 32 ? 0.8f * Integer.MAX_VALUE : 0;
+						sb.set( i*2, v );
+						sb.set( i*2+1, v );
+					}
+					this.position += 1000;
+					return sb.getSampleChunk();
+				}
+
+				@Override
+				public void reset()
+				{
+					this.position = 0;
+				}
+
+				@Override
+				public long getLength()
+				{
+					return 2000;
+				}
+			};
+		}
+
+		@Override
+		public void close( final AudioStream stream )
+		{
+		}
+	};
+
+	/**
+	 * 	Extract features from a few streams and check the columnar output.
+	 *	@throws IOException
+	 */
+	@Test
+	public void testExtract() throws IOException
+	{
+		final File out = this.folder.newFolder( "features" );
+		final BatchAudioFeatureExtractor bafe = new BatchAudioFeatureExtractor( 25, 10, 2 );
+		bafe.setAudioStreamProvider( this.provider );
+
+		final List<File> failed = bafe.extract( Arrays.asList(
+				new File( "a.wav" ), new File( "bad.wav" ), new File( "b.wav" ) ), out );
+
+		Assert.assertEquals( Arrays.asList( new File( "bad.wav" ) ), failed );
+
+		// 32000 samples, 400 sample frames with a 160 sample hop
+		final int nFrames = (32000 - 400) / 160 + 1;
+		final String[] columns = bafe.getColumnNames();
+
+		final DataInputStream index = new DataInputStream( new FileInputStream(
+				new File( out, ColumnarFeatureWriter.INDEX_FILENAME ) ) );
+		try
+		{
+			Assert.assertEquals( ColumnarFeatureWriter.VERSION, index.readInt() );
+			Assert.assertEquals( columns.length, index.readInt() );
+			for( final String c : columns )
+				Assert.assertEquals( c, index.readUTF() );
+			Assert.assertEquals( 2, index.readInt() );
+			for( int i = 0; i < 2; i++ )
+			{
+				index.readUTF();
+				Assert.assertEquals( 100, index.readDouble(), 0 );
+				Assert.assertEquals( i * nFrames, index.readLong() );
+				Assert.assertEquals( nFrames, index.readInt() );
+			}
+		}
+		finally
+		{
+			index.close();
+		}
+
+		for( final String c : columns )
+			Assert.assertEquals( 2 * nFrames * 4, new File( out,
+					c + ColumnarFeatureWriter.COLUMN_EXTENSION ).length() );
+
+		// There should be an onset near each of the clicks after the first
+		final DataInputStream onsets = new DataInputStream( new FileInputStream(
+				new File( out, "onset" + ColumnarFeatureWriter.COLUMN_EXTENSION ) ) );
+		try
+		{
+			int count = 0;
+			for( int i = 0; i < nFrames; i++ )
+			{
+				if( onsets.readFloat() == 1 )
+				{
+					count++;
+					final double time = i * 0.01;
+					final double nearest = Math.round( time * 2 ) / 2d;
+					Assert.assertEquals( nearest, time, 0.03 );
+				}
+			}
+			Assert.assertEquals( 3, count );
+		}
+		finally
+		{
+			onsets.close();
+		}
+	}
+}
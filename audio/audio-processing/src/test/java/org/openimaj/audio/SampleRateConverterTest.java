@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openimaj.audio.conversion.SampleRateConverter;
+import org.openimaj.audio.conversion.SampleRateConverter.SampleRateConversionAlgorithm;
+import org.openimaj.audio.samples.SampleBuffer;
+import org.openimaj.audio.samples.SampleBufferFactory;
+import org.openimaj.audio.timecode.AudioTimecode;
+
+/**
+ *	Tests for the windowed-sinc mode of the {@link SampleRateConverter}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class SampleRateConverterTest
+{
+	/**
+	 * 	A stream of a sine wave delivered in chunks of a fixed size.
+	 */
+	private static class SineStream extends AudioStream
+	{
+		private final int length;
+		private final int chunkSize;
+		private final double freq;
+		private int pos = 0;
+
+		public SineStream( final AudioFormat af, final int length,
+				final int chunkSize, final double freq )
+		{
+			this.format = af;
+			this.length = length;
+			this.chunkSize = chunkSize;
+			this.freq = freq;
+		}
+
+		@Override
+		public SampleChunk nextSampleChunk()
+		{
+			if( this.pos >= this.length )
+				return null;
+
+			final int n = Math.min( this.chunkSize, this.length - this.pos );
+			final SampleBuffer sb = SampleBufferFactory.createSampleBuffer( this.format, n );
+			final double sr = this.format.getSampleRateKHz() * 1000;
+			for( int i = 0; i < n; i++ )
+				sb.set( i, (float)(0.5 * Integer.MAX_VALUE *
+						Math.sin( 2 * Math.PI * this.freq * (i + this.pos) / sr )) );
+
+			final SampleChunk sc = sb.getSampleChunk();
+			sc.setStartTimecode( new AudioTimecode(
+					(long)(this.pos / this.format.getSampleRateKHz()) ) );
+			this.pos += n;
+			return sc;
+		}
+
+		@Override
+		public void reset()
+		{
+			this.pos = 0;
+		}
+
+		@Override
+		public long getLength()
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * 	Resample a stream to 16KHz and return all the samples.
+	 */
+	private float[] resample( final AudioStream in )
+	{
+		final AudioFormat out = in.getFormat().clone().setSampleRateKHz( 16 );
+		final SampleRateConverter src = new SampleRateConverter( in,
+				SampleRateConversionAlgorithm.WINDOWED_SINC, out );
+
+		float[] samples = new float[0];
+		SampleChunk sc;
+		while( (sc = src.nextSampleChunk()) != null )
+		{
+			Assert.assertEquals( 16, sc.getFormat().getSampleRateKHz(), 0 );
+			final float[] s = sc.getSampleBuffer().toFloatArray( null );
+			final float[] all = new float[samples.length + s.length];
+			System.arraycopy( samples, 0, all, 0, samples.length );
+			System.arraycopy( s, 0, all, samples.length, s.length );
+			samples = all;
+		}
+		return samples;
+	}
+
+	/**
+	 * 	Check that a tone in the pass-band is preserved and that the output
+	 * 	has the expected length.
+	 */
+	@Test
+	public void testPassband()
+	{
+		final AudioFormat af = new AudioFormat( 16, 44.1, 1 );
+		final float[] out = this.resample( new SineStream( af, 44100, 4410, 1000 ) );
+
+		Assert.assertEquals( 16000, out.length );
+
+		// Ignore the edges where the filter overlaps the start and end of the stream
+		for( int i = 100; i < out.length - 100; i++ )
+		{
+			final double expected = 0.5 * Math.sin( 2 * Math.PI * 1000 * i / 16000d );
+			Assert.assertEquals( expected, out[i] / Integer.MAX_VALUE, 2e-3 );
+		}
+	}
+
+	/**
+	 * 	Check that a tone above the output Nyquist frequency is removed
+	 * 	rather than aliased.
+	 */
+	@Test
+	public void testAntiAliasing()
+	{
+		final AudioFormat af = new AudioFormat( 16, 44.1, 1 );
+		final float[] out = this.resample( new SineStream( af, 44100, 4410, 10000 ) );
+
+		double energy = 0;
+		for( int i = 100; i < out.length - 100; i++ )
+			energy += (out[i] / Integer.MAX_VALUE) * (out[i] / Integer.MAX_VALUE);
+		final double rms = Math.sqrt( energy / (out.length - 200) );
+
+		// The input has an RMS of 0.35
+		Assert.assertTrue( "RMS " + rms, rms < 1e-3 );
+	}
+
+	/**
+	 * 	Check that the output does not depend on how the input is chunked.
+	 */
+	@Test
+	public void testChunking()
+	{
+		final AudioFormat af = new AudioFormat( 16, 44.1, 1 );
+		final float[] whole = this.resample( new SineStream( af, 20000, 20000, 440 ) );
+		final float[] chunked = this.resample( new SineStream( af, 20000, 317, 440 ) );
+
+		Assert.assertArrayEquals( whole, chunked, 0 );
+	}
+
+	/**
+	 * 	Check that the timecode of each output chunk, including the final
+	 * 	chunk of held-back samples, is the time of its first sample at the
+	 * 	output rate.
+	 */
+	@Test
+	public void testTimecodes()
+	{
+		final AudioFormat af = new AudioFormat( 16, 44.1, 1 );
+		final AudioStream in = new SineStream( af, 44100, 4410, 440 );
+		final SampleRateConverter src = new SampleRateConverter( in,
+				SampleRateConversionAlgorithm.WINDOWED_SINC,
+				af.clone().setSampleRateKHz( 16 ) );
+
+		long count = 0;
+		SampleChunk sc;
+		SampleChunk last = null;
+		while( (sc = src.nextSampleChunk()) != null )
+		{
+			Assert.assertEquals( count / 16, sc.getStartTimecode().getTimecodeInMilliseconds() );
+			count += sc.getSampleBuffer().size();
+			last = sc;
+		}
+
+		Assert.assertEquals( 16000, count );
+
+		// The last chunk holds the samples delayed by the filter
+		Assert.assertTrue( last.getStartTimecode().getTimecodeInMilliseconds() > 900 );
+	}
+}
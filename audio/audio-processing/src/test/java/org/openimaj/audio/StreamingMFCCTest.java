@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openimaj.audio.analysis.ShortTimeFourierTransform;
+import org.openimaj.audio.features.StreamingMFCC;
+import org.openimaj.audio.samples.SampleBuffer;
+import org.openimaj.audio.samples.SampleBufferFactory;
+
+/**
+ *	Tests for the {@link ShortTimeFourierTransform} and {@link StreamingMFCC}.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class StreamingMFCCTest
+{
+	/**
+	 * 	Create a buffer containing a sine wave
+	 *	@param af The format
+	 *	@param nSamples The number of samples
+	 *	@param offset The sample offset of the first sample
+	 *	@param freq The frequency (Hz)
+	 *	@return The buffer
+	 */
+	private SampleBuffer sine( final AudioFormat af, final int nSamples, final int offset,
+			final double freq )
+	{
+		final SampleBuffer sb = SampleBufferFactory.createSampleBuffer( af, nSamples );
+		final double sr = af.getSampleRateKHz()*1000;
+		for( int i = 0; i < nSamples; i++ )
+			sb.set( i, (float)(0.5 * Integer.MAX_VALUE *
+					Math.sin( 2*Math.PI*freq*(i+offset)/sr )) );
+		return sb;
+	}
+
+	/**
+	 * 	Check that the peak of the power spectrum is at the frequency of
+	 * 	a sine wave.
+	 */
+	@Test
+	public void testSpectrumPeak()
+	{
+		final AudioFormat af = new AudioFormat( 16, 16, 1 );
+		final ShortTimeFourierTransform stft = new ShortTimeFourierTransform( 400, 160 );
+		stft.process( this.sine( af, 1600, 0, 1000 ) );
+
+		Assert.assertEquals( 8, stft.getFrameCount() );
+
+		final float[] power = stft.getLastPowerSpectrum()[0];
+		int max = 0;
+		for( int k = 1; k < power.length; k++ )
+			if( power[k] > power[max] )
+				max = k;
+
+		Assert.assertEquals( 1000, stft.getBinFrequency( max, 16000 ), 16000d/stft.getFFTSize() );
+	}
+
+	/**
+	 * 	Check that the MFCCs do not depend on how the stream is chunked.
+	 */
+	@Test
+	public void testChunking()
+	{
+		final AudioFormat af = new AudioFormat( 16, 16, 1 );
+
+		final StreamingMFCC whole = new StreamingMFCC( 400, 160 );
+		final List<double[][]> expected = new ArrayList<double[][]>(
+				whole.calculateMFCC( this.sine( af, 4000, 0, 440 ) ) );
+
+		final StreamingMFCC chunked = new StreamingMFCC( 400, 160 );
+		final List<double[][]> actual = new ArrayList<double[][]>();
+		for( int i = 0; i < 4000; i += 333 )
+			actual.addAll( chunked.calculateMFCC( this.sine( af, Math.min( 333, 4000-i ), i, 440 ) ) );
+
+		Assert.assertEquals( 23, expected.size() );
+		Assert.assertEquals( expected.size(), actual.size() );
+		for( int f = 0; f < expected.size(); f++ )
+			Assert.assertArrayEquals( expected.get(f)[0], actual.get(f)[0], 1e-6 );
+	}
+}
@@ -105,6 +105,42 @@ public class FloatSampleBuffer implements SampleBuffer, Iterator<Float>
 		this.samples[index] = sample;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.openimaj.audio.samples.SampleBuffer#toFloatArray(float[])
+	 */
+	@Override
+	public float[] toFloatArray(final float[] buffer) {
+		final float[] out = buffer == null || buffer.length < this.samples.length ?
+				new float[this.samples.length] : buffer;
+		System.arraycopy(this.samples, 0, out, 0, this.samples.length);
+		return out;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.openimaj.audio.samples.SampleBuffer#setFromFloatArray(float[])
+	 */
+	@Override
+	public void setFromFloatArray(final float[] buffer) {
+		if (buffer != this.samples)
+			System.arraycopy(buffer, 0, this.samples, 0, this.samples.length);
+	}
+
+	/**
+	 * Returns the array backing this buffer (not a copy). Processors can work
+	 * on this array directly rather than calling {@link #get(int)} and
+	 * {@link #set(int, float)} for every sample; changes to the array are
+	 * changes to the buffer.
+	 * 
+	 * @return the samples
+	 */
+	public float[] getSamples() {
+		return this.samples;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
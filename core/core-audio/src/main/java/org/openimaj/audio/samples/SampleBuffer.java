@@ -140,6 +140,28 @@ public interface SampleBuffer extends Iterable<Float>
 	 */
 	public float getUnscaled( int index );
 
+	/**
+	 * 	Copy all the samples in this buffer into the given array, scaled in
+	 * 	the same way as {@link #get(int)}. If the array is null or has fewer
+	 * 	than {@link #size()} elements, a new array is allocated; otherwise only
+	 * 	the first {@link #size()} elements are written. This allows a single
+	 * 	array to be reused for a stream of buffers without the cost of a call
+	 * 	to {@link #get(int)} for each sample.
+	 *
+	 *	@param buffer The array to fill (may be null)
+	 *	@return The filled array (which may be a new array)
+	 */
+	public float[] toFloatArray( float[] buffer );
+
+	/**
+	 * 	Set all the samples in this buffer from the first {@link #size()}
+	 * 	elements of the given array. This has the same effect as calling
+	 * 	{@link #set(int, float)} for each sample.
+	 *
+	 *	@param buffer The samples
+	 */
+	public void setFromFloatArray( float[] buffer );
+
 	/**
 	 * 	Returns the timecode of the start of this sample buffer. May return null if
 	 * 	the timecode is unknown or has no meaning in this context.
@@ -183,6 +183,37 @@ public class SampleBuffer16Bit implements SampleBuffer, Iterator<Float>
 		this.shortBuffer.put( index, (short)(sample  * Short.MAX_VALUE / Integer.MAX_VALUE) );
 	}
 
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.samples.SampleBuffer#toFloatArray(float[])
+	 */
+	@Override
+	public float[] toFloatArray( final float[] buffer )
+	{
+		final ShortBuffer sb = this.shortBuffer;
+		final int n = sb.limit();
+		final float[] out = buffer == null || buffer.length < n ? new float[n] : buffer;
+
+		for( int i = 0; i < n; i++ )
+			out[i] = (float)sb.get(i) * Integer.MAX_VALUE / Short.MAX_VALUE;
+
+		return out;
+	}
+
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.samples.SampleBuffer#setFromFloatArray(float[])
+	 */
+	@Override
+	public void setFromFloatArray( final float[] buffer )
+	{
+		final ShortBuffer sb = this.shortBuffer;
+		final int n = sb.limit();
+
+		for( int i = 0; i < n; i++ )
+			sb.put( i, (short)(buffer[i] * Short.MAX_VALUE / Integer.MAX_VALUE) );
+	}
+
 	/**
 	 *	{@inheritDoc}
 	 * 	@see org.openimaj.audio.samples.SampleBuffer#size()
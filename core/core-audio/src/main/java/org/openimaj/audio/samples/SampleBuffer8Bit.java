@@ -175,14 +175,51 @@ public class SampleBuffer8Bit implements SampleBuffer, Iterator<Float>
 	@Override
 	public void set( final int index, float sample )
 	{
-		if( sample > Byte.MAX_VALUE )
-			sample = Byte.MAX_VALUE;
-		if( sample < Byte.MIN_VALUE )
-			sample = Byte.MIN_VALUE;
+		if( sample > Integer.MAX_VALUE )
+			sample = Integer.MAX_VALUE;
+		if( sample < Integer.MIN_VALUE )
+			sample = Integer.MIN_VALUE;
 
 		this.byteBuffer[index] = (byte)(sample / SampleBuffer8Bit.SAMPLE_SCALAR);
 	}
 
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.samples.SampleBuffer#toFloatArray(float[])
+	 */
+	@Override
+	public float[] toFloatArray( final float[] buffer )
+	{
+		final byte[] bb = this.byteBuffer;
+		final float[] out = buffer == null || buffer.length < bb.length ?
+				new float[bb.length] : buffer;
+
+		for( int i = 0; i < bb.length; i++ )
+			out[i] = bb[i] * SampleBuffer8Bit.SAMPLE_SCALAR;
+
+		return out;
+	}
+
+	/**
+	 *	{@inheritDoc}
+	 * 	@see org.openimaj.audio.samples.SampleBuffer#setFromFloatArray(float[])
+	 */
+	@Override
+	public void setFromFloatArray( final float[] buffer )
+	{
+		final byte[] bb = this.byteBuffer;
+		for( int i = 0; i < bb.length; i++ )
+		{
+			float sample = buffer[i];
+			if( sample > Integer.MAX_VALUE )
+				sample = Integer.MAX_VALUE;
+			if( sample < Integer.MIN_VALUE )
+				sample = Integer.MIN_VALUE;
+
+			bb[i] = (byte)(sample / SampleBuffer8Bit.SAMPLE_SCALAR);
+		}
+	}
+
 	/**
 	 *	{@inheritDoc}
 	 * 	@see org.openimaj.audio.samples.SampleBuffer#size()
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ *
+ */
+package org.openimaj.audio.samples;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openimaj.audio.AudioFormat;
+
+/**
+ *	Tests for the bulk sample access methods of the {@link SampleBuffer}
+ *	implementations.
+ *
+ *	@author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *  @created 19 Oct 2026
+ */
+public class SampleBufferTest
+{
+	/**
+	 * 	Check that the bulk methods give the same results as the per-sample
+	 * 	methods for a buffer.
+	 *
+	 *	@param af The format of the buffers
+	 */
+	private void checkBulkAccess( final AudioFormat af )
+	{
+		final int n = 1001;
+		final Random r = new Random( 0 );
+		final float[] values = new float[ n ];
+		for( int i = 0; i < n; i++ )
+			values[i] = (r.nextFloat()*2-1) * Integer.MAX_VALUE;
+
+		// Set the samples one at a time and in bulk
+		final SampleBuffer a = SampleBufferFactory.createSampleBuffer( af, n );
+		final SampleBuffer b = SampleBufferFactory.createSampleBuffer( af, n );
+		for( int i = 0; i < n; i++ )
+			a.set( i, values[i] );
+		b.setFromFloatArray( values );
+
+		// Get them one at a time and in bulk, reusing a larger array
+		final float[] workspace = new float[ n+10 ];
+		Assert.assertSame( workspace, b.toFloatArray( workspace ) );
+		final float[] all = a.toFloatArray( null );
+		Assert.assertEquals( n, all.length );
+		for( int i = 0; i < n; i++ )
+		{
+			Assert.assertEquals( a.get(i), b.get(i), 0 );
+			Assert.assertEquals( a.get(i), workspace[i], 0 );
+			Assert.assertEquals( a.get(i), all[i], 0 );
+		}
+
+		// The samples should be close to the originals
+		final double tolerance = af.getNBits() == 8 ? 2d/Byte.MAX_VALUE : 2d/Short.MAX_VALUE;
+		for( int i = 0; i < n; i++ )
+			Assert.assertEquals( values[i] / Integer.MAX_VALUE, a.get(i) / Integer.MAX_VALUE, tolerance );
+	}
+
+	/**
+	 * 	Test bulk access to 8-bit buffers
+	 */
+	@Test
+	public void test8Bit()
+	{
+		this.checkBulkAccess( new AudioFormat( 8, 44.1, 1 ) );
+	}
+
+	/**
+	 * 	Test bulk access to 16-bit buffers in both byte orders
+	 */
+	@Test
+	public void test16Bit()
+	{
+		final AudioFormat af = new AudioFormat( 16, 44.1, 2 );
+		af.setBigEndian( false );
+		this.checkBulkAccess( af );
+		af.setBigEndian( true );
+		this.checkBulkAccess( af );
+	}
+
+	/**
+	 * 	Test bulk access to float buffers
+	 */
+	@Test
+	public void testFloat()
+	{
+		final float[] samples = { 1, 2, 3 };
+		final FloatSampleBuffer fsb = new FloatSampleBuffer( samples, new AudioFormat( 16, 44.1, 1 ) );
+		Assert.assertSame( samples, fsb.getSamples() );
+
+		final float[] copy = fsb.toFloatArray( null );
+		Assert.assertNotSame( samples, copy );
+		Assert.assertArrayEquals( samples, copy, 0 );
+
+		fsb.setFromFloatArray( new float[] { 4, 5, 6, 7 } );
+		Assert.assertArrayEquals( new float[] { 4, 5, 6 }, samples, 0 );
+	}
+}
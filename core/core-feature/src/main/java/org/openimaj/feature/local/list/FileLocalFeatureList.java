@@ -35,14 +35,21 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+import org.openimaj.data.AbstractDataSource;
+import org.openimaj.data.DataSource;
 import org.openimaj.feature.local.LocalFeature;
 import org.openimaj.io.IOUtils;
 import org.openimaj.util.list.AbstractFileBackedList;
 
 /**
  * A {@link LocalFeatureList} backed by a file. Data is only read as necessary.
+ * The feature vectors can be read without creating a {@link LocalFeature} for
+ * every record through {@link #asDataSource()}.
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -133,14 +140,122 @@ public class FileLocalFeatureList<T extends LocalFeature<?, ?>> extends Abstract
 			a = (Q[]) Array.newInstance(a.getClass().getComponentType(), size());
 		}
 
-		int i = 0;
-		for (final T t : this) {
-			a[i++] = (Q) t.getFeatureVector().getVector();
+		if (isBinary) {
+			this.<Q> asDataSource().getData(0, size(), a);
+		} else {
+			int i = 0;
+			for (final T t : this) {
+				a[i++] = (Q) t.getFeatureVector().getVector();
+			}
 		}
 
 		return a;
 	}
 
+	/**
+	 * Get a {@link DataSource} view of the feature vectors in this list. The
+	 * type parameter must match the array type of the feature vectors (e.g.
+	 * <code>byte[]</code> for SIFT keypoints).
+	 * <p>
+	 * For binary files, the records are decoded on demand into a single reused
+	 * feature and only the vector arrays are copied out, so no
+	 * {@link LocalFeature} objects are created per record and the view can be
+	 * passed straight to the clustering algorithms. A contiguous range of rows
+	 * is read through a single file handle. ASCII files are read through the
+	 * normal list accessors.
+	 * 
+	 * @param <Q>
+	 *            the type of the feature vector arrays
+	 * @return a {@link DataSource} of the feature vectors
+	 */
+	public <Q> DataSource<Q> asDataSource() {
+		return new AbstractDataSource<Q>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void getData(int startRow, int stopRow, Q[] data) {
+				if (!isBinary) {
+					for (int i = startRow, j = 0; i < stopRow; i++, j++)
+						data[j] = (Q) get(i).getFeatureVector().getVector();
+					return;
+				}
+
+				final T element = newElementInstance();
+				RandomAccessFile raf = null;
+				try {
+					raf = new RandomAccessFile(file, "r");
+					raf.seek(headerLength + (long) startRow * recordLength);
+
+					for (int j = 0; j < stopRow - startRow; j++) {
+						element.readBinary(raf);
+						data[j] = (Q) LocalFeatureListUtils.copyVector(element);
+					}
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					if (raf != null)
+						try {
+							raf.close();
+						} catch (final IOException e) {
+						}
+				}
+			}
+
+			@Override
+			public Q getData(int row) {
+				final Q[] data = createTemporaryArray(1);
+				getData(row, row + 1, data);
+				return data[0];
+			}
+
+			@Override
+			public int numDimensions() {
+				return veclen;
+			}
+
+			@Override
+			public int size() {
+				return FileLocalFeatureList.this.size();
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Q[] createTemporaryArray(int size) {
+				final Object vec = newElementInstance().getFeatureVector().getVector();
+				return (Q[]) Array.newInstance(vec.getClass(), size);
+			}
+
+			@Override
+			public Iterator<Q> iterator() {
+				return new Iterator<Q>() {
+					final int batch = 256;
+					final Q[] buffer = createTemporaryArray(batch);
+					int index = 0;
+
+					@Override
+					public boolean hasNext() {
+						return index < size();
+					}
+
+					@Override
+					public Q next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+
+						if (index % batch == 0)
+							getData(index, Math.min(size(), index + batch), buffer);
+
+						return buffer[index++ % batch];
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
 	@Override
 	protected AbstractFileBackedList<T> newInstance(int newSize, boolean isBinary, int newHeaderLength, int recordLength,
 			File file)
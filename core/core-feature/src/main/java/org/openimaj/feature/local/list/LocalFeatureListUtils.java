@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.lang.reflect.Array;
 import java.util.Locale;
 import java.util.Scanner;
 
@@ -172,6 +173,23 @@ class LocalFeatureListUtils {
 		}
 	}
 
+	/**
+	 * Copy the feature vector of a feature into a new array. This is used when
+	 * records are decoded into a single reused feature instance, as the
+	 * feature may be backed by the same array for every record.
+	 * 
+	 * @param feature
+	 *            the feature
+	 * @return a copy of the feature vector array
+	 */
+	protected static Object copyVector(LocalFeature<?, ?> feature) {
+		final Object vec = feature.getFeatureVector().getVector();
+		final int length = Array.getLength(vec);
+		final Object copy = Array.newInstance(vec.getClass().getComponentType(), length);
+		System.arraycopy(vec, 0, copy, 0, length);
+		return copy;
+	}
+
 	public static <T> T newInstance(Class<T> cls, int length) {
 		try {
 			if (VariableLength.class.isAssignableFrom(cls)) {
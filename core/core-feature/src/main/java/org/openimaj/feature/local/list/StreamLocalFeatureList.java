@@ -35,6 +35,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.openimaj.feature.local.LocalFeature;
 import org.openimaj.io.IOUtils;
@@ -43,7 +45,8 @@ import org.openimaj.util.list.AbstractStreamBackedList;
 /**
  * A list of {@link LocalFeature}s backed by an input stream. The list is
  * read-only, and can only be read in order (i.e. random access is not
- * possible).
+ * possible). The feature vectors can be read without creating a
+ * {@link LocalFeature} for every record through {@link #vectorIterator()}.
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -119,13 +122,61 @@ public class StreamLocalFeatureList<T extends LocalFeature<?, ?>> extends Abstra
 		}
 
 		int i = 0;
-		for (final T t : this) {
-			a[i++] = (Q) t.getFeatureVector().getVector();
+		final Iterator<Q> iter = vectorIterator();
+		while (iter.hasNext()) {
+			a[i++] = iter.next();
 		}
 
 		return a;
 	}
 
+	/**
+	 * Get an iterator over the feature vectors remaining in the stream. The
+	 * type parameter must match the array type of the feature vectors (e.g.
+	 * <code>byte[]</code> for SIFT keypoints). Each record is decoded into a
+	 * single reused feature and only its vector array is copied out, so no
+	 * {@link LocalFeature} objects are created per record. Like the list
+	 * itself, the stream can only be consumed once.
+	 * 
+	 * @param <Q>
+	 *            the type of the feature vector arrays
+	 * @return an iterator over the feature vectors
+	 */
+	public <Q> Iterator<Q> vectorIterator() {
+		final T element = newElementInstance();
+
+		return new Iterator<Q>() {
+			boolean ready = false;
+
+			@Override
+			public boolean hasNext() {
+				if (!ready) {
+					try {
+						ready = readNextRecord(element);
+					} catch (final IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+				return ready;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Q next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				ready = false;
+				return (Q) LocalFeatureListUtils.copyVector(element);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
 	@Override
 	public int vecLength() {
 		return veclen;
@@ -0,0 +1,397 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import org.openimaj.image.colour.ColourSpace;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.Parallel.IntRange;
+
+/**
+ * Direct conversion of {@link BufferedImage}s with common raster layouts into
+ * {@link FImage}s and {@link MBFImage}s. Rather than drawing the image into a
+ * packed ARGB working image and unpacking the ints, the samples are read in
+ * bulk from the backing {@link DataBuffer} array. Large images are converted
+ * in parallel across rows.
+ * <p>
+ * The supported types are {@link BufferedImage#TYPE_3BYTE_BGR},
+ * {@link BufferedImage#TYPE_4BYTE_ABGR}, {@link BufferedImage#TYPE_BYTE_GRAY},
+ * {@link BufferedImage#TYPE_INT_RGB}, {@link BufferedImage#TYPE_INT_ARGB} and
+ * {@link BufferedImage#TYPE_INT_BGR}. The results are identical to those
+ * produced by the ARGB route, with the exception of translucent pixels in
+ * {@link BufferedImage#TYPE_4BYTE_ABGR} images, where the stored
+ * (non-premultiplied) samples are used exactly rather than the slightly
+ * perturbed values produced by compositing onto an ARGB image.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+final class BufferedImageConversion {
+	/**
+	 * Images with at least this many pixels are converted in parallel
+	 */
+	static final int PARALLEL_THRESHOLD = 512 * 512;
+
+	/**
+	 * Description of where the red, green, blue and alpha samples of each
+	 * pixel are found in the backing array. For byte rasters the offsets are
+	 * indices relative to the start of the pixel; for packed int rasters they
+	 * are bit shifts. An alpha offset of -1 indicates that the image is opaque.
+	 */
+	private static class Layout {
+		byte[] bytes;
+		int[] ints;
+		int base;
+		int scanlineStride;
+		int pixelStride;
+		int r, g, b, a = -1;
+	}
+
+	private abstract static class Rows implements Operation<IntRange> {
+		abstract void rows(int start, int stop);
+
+		@Override
+		public void perform(IntRange range) {
+			rows(range.start, range.stop);
+		}
+	}
+
+	private BufferedImageConversion() {
+	}
+
+	private static Layout layout(BufferedImage image) {
+		switch (image.getType()) {
+		case BufferedImage.TYPE_3BYTE_BGR:
+		case BufferedImage.TYPE_4BYTE_ABGR:
+		case BufferedImage.TYPE_BYTE_GRAY:
+		case BufferedImage.TYPE_INT_RGB:
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_INT_BGR:
+			break;
+		default:
+			return null;
+		}
+
+		final Raster raster = image.getRaster();
+		final SampleModel sm = raster.getSampleModel();
+		final DataBuffer db = raster.getDataBuffer();
+
+		if (db.getNumBanks() != 1)
+			return null;
+
+		final int tx = -raster.getSampleModelTranslateX();
+		final int ty = -raster.getSampleModelTranslateY();
+		final Layout l = new Layout();
+
+		if (db instanceof DataBufferByte && sm instanceof ComponentSampleModel) {
+			final ComponentSampleModel csm = (ComponentSampleModel) sm;
+			final int[] offsets = csm.getBandOffsets();
+
+			l.bytes = ((DataBufferByte) db).getData();
+			l.scanlineStride = csm.getScanlineStride();
+			l.pixelStride = csm.getPixelStride();
+			l.base = db.getOffset() + ty * l.scanlineStride + tx * l.pixelStride;
+
+			if (offsets.length == 1) {
+				l.r = l.g = l.b = offsets[0];
+			} else {
+				l.r = offsets[0];
+				l.g = offsets[1];
+				l.b = offsets[2];
+				if (offsets.length > 3)
+					l.a = offsets[3];
+			}
+		} else if (db instanceof DataBufferInt && sm instanceof SinglePixelPackedSampleModel) {
+			final SinglePixelPackedSampleModel spsm = (SinglePixelPackedSampleModel) sm;
+			final int[] shifts = spsm.getBitOffsets();
+
+			l.ints = ((DataBufferInt) db).getData();
+			l.scanlineStride = spsm.getScanlineStride();
+			l.pixelStride = 1;
+			l.base = db.getOffset() + ty * l.scanlineStride + tx;
+			l.r = shifts[0];
+			l.g = shifts[1];
+			l.b = shifts[2];
+			if (shifts.length > 3)
+				l.a = shifts[3];
+		} else {
+			return null;
+		}
+
+		return l;
+	}
+
+	private static void run(int width, int height, Rows rows) {
+		if ((long) width * height >= PARALLEL_THRESHOLD)
+			Parallel.forRange(0, height, 1, rows);
+		else
+			rows.rows(0, height);
+	}
+
+	/**
+	 * Convert the given image to an {@link FImage} using the same NTSC weighting
+	 * as {@link FImage#internalAssign(int[], int, int)}.
+	 *
+	 * @param image
+	 *            the image to convert
+	 * @param dest
+	 *            the image to write into if it is the right size; can be null
+	 * @return the converted image, or null if the image has an unsupported
+	 *         layout
+	 */
+	static FImage toFImage(BufferedImage image, FImage dest) {
+		final Layout l = layout(image);
+		if (l == null)
+			return null;
+
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+
+		if (dest == null || dest.width != width || dest.height != height)
+			dest = new FImage(width, height);
+
+		final float[][] pix = dest.pixels;
+		final float[] lut = ImageUtilities.BYTE_TO_FLOAT_LUT;
+
+		if (l.bytes != null) {
+			final byte[] data = l.bytes;
+
+			run(width, height, new Rows() {
+				@Override
+				void rows(int start, int stop) {
+					for (int y = start; y < stop; y++) {
+						final float[] row = pix[y];
+						for (int x = 0, i = l.base + y * l.scanlineStride; x < width; x++, i += l.pixelStride) {
+							final int red = data[i + l.r] & 0xff;
+							final int green = data[i + l.g] & 0xff;
+							final int blue = data[i + l.b] & 0xff;
+
+							final float fpix = 0.299f * red + 0.587f * green + 0.114f * blue;
+							row[x] = lut[(int) fpix];
+						}
+					}
+				}
+			});
+		} else {
+			final int[] data = l.ints;
+
+			run(width, height, new Rows() {
+				@Override
+				void rows(int start, int stop) {
+					for (int y = start; y < stop; y++) {
+						final float[] row = pix[y];
+						for (int x = 0, i = l.base + y * l.scanlineStride; x < width; x++, i++) {
+							final int rgb = data[i];
+							final int red = (rgb >>> l.r) & 0xff;
+							final int green = (rgb >>> l.g) & 0xff;
+							final int blue = (rgb >>> l.b) & 0xff;
+
+							final float fpix = 0.299f * red + 0.587f * green + 0.114f * blue;
+							row[x] = lut[(int) fpix];
+						}
+					}
+				}
+			});
+		}
+
+		return dest;
+	}
+
+	/**
+	 * Convert the given image to an RGB or RGBA {@link MBFImage}. Opaque
+	 * images converted with an alpha channel get an alpha of 1 everywhere.
+	 *
+	 * @param image
+	 *            the image to convert
+	 * @param alpha
+	 *            should the resultant image have an alpha channel
+	 * @param dest
+	 *            the image to write into if it is the right size and colour
+	 *            space; can be null
+	 * @return the converted image, or null if the image has an unsupported
+	 *         layout
+	 */
+	static MBFImage toMBFImage(BufferedImage image, boolean alpha, MBFImage dest) {
+		final Layout l = layout(image);
+		if (l == null)
+			return null;
+
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final ColourSpace cs = alpha ? ColourSpace.RGBA : ColourSpace.RGB;
+
+		if (dest == null || dest.colourSpace != cs || dest.numBands() != cs.getNumBands()
+				|| dest.getWidth() != width || dest.getHeight() != height)
+			dest = new MBFImage(width, height, cs);
+
+		final float[][] rp = dest.getBand(0).pixels;
+		final float[][] gp = dest.getBand(1).pixels;
+		final float[][] bp = dest.getBand(2).pixels;
+		final float[][] ap = alpha ? dest.getBand(3).pixels : null;
+		final float[] lut = ImageUtilities.BYTE_TO_FLOAT_LUT;
+
+		if (l.bytes != null) {
+			final byte[] data = l.bytes;
+
+			run(width, height, new Rows() {
+				@Override
+				void rows(int start, int stop) {
+					for (int y = start; y < stop; y++) {
+						final float[] rr = rp[y], gr = gp[y], br = bp[y];
+						for (int x = 0, i = l.base + y * l.scanlineStride; x < width; x++, i += l.pixelStride) {
+							rr[x] = lut[data[i + l.r] & 0xff];
+							gr[x] = lut[data[i + l.g] & 0xff];
+							br[x] = lut[data[i + l.b] & 0xff];
+						}
+
+						if (ap != null)
+							fillAlpha(ap[y], data, l, y, width);
+					}
+				}
+			});
+		} else {
+			final int[] data = l.ints;
+
+			run(width, height, new Rows() {
+				@Override
+				void rows(int start, int stop) {
+					for (int y = start; y < stop; y++) {
+						final float[] rr = rp[y], gr = gp[y], br = bp[y];
+						final float[] ar = ap == null ? null : ap[y];
+
+						for (int x = 0, i = l.base + y * l.scanlineStride; x < width; x++, i++) {
+							final int rgb = data[i];
+							rr[x] = lut[(rgb >>> l.r) & 0xff];
+							gr[x] = lut[(rgb >>> l.g) & 0xff];
+							br[x] = lut[(rgb >>> l.b) & 0xff];
+
+							if (ar != null)
+								ar[x] = l.a < 0 ? 1f : lut[(rgb >>> l.a) & 0xff];
+						}
+					}
+				}
+			});
+		}
+
+		return dest;
+	}
+
+	/**
+	 * Write RGB float planes into the raster of a
+	 * {@link BufferedImage#TYPE_3BYTE_BGR} image.
+	 *
+	 * @param r
+	 *            the red plane
+	 * @param g
+	 *            the green plane
+	 * @param b
+	 *            the blue plane
+	 * @param width
+	 *            the image width
+	 * @param height
+	 *            the image height
+	 * @param raster
+	 *            the raster to write to
+	 */
+	static void fromRGB(final float[][] r, final float[][] g, final float[][] b, final int width, int height,
+			WritableRaster raster)
+	{
+		final ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+		final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+		final int scanlineStride = sm.getScanlineStride();
+		final int pixelStride = sm.getPixelStride();
+		final byte[] data = db.getData();
+
+		run(width, height, new Rows() {
+			@Override
+			void rows(int start, int stop) {
+				for (int y = start; y < stop; y++) {
+					final float[] rr = r[y], gr = g[y], br = b[y];
+					for (int x = 0, i = y * scanlineStride; x < width; x++, i += pixelStride) {
+						data[i + 2] = (byte) Math.max(0, Math.min(255, (int) (rr[x] * 255)));
+						data[i + 1] = (byte) Math.max(0, Math.min(255, (int) (gr[x] * 255)));
+						data[i] = (byte) Math.max(0, Math.min(255, (int) (br[x] * 255)));
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Write a float plane into the raster of a
+	 * {@link BufferedImage#TYPE_BYTE_GRAY} image.
+	 *
+	 * @param p
+	 *            the pixels
+	 * @param width
+	 *            the image width
+	 * @param height
+	 *            the image height
+	 * @param raster
+	 *            the raster to write to
+	 */
+	static void fromGrey(final float[][] p, final int width, int height, WritableRaster raster) {
+		final ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+		final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+		final int scanlineStride = sm.getScanlineStride();
+		final int pixelStride = sm.getPixelStride();
+		final byte[] data = db.getData();
+
+		run(width, height, new Rows() {
+			@Override
+			void rows(int start, int stop) {
+				for (int y = start; y < stop; y++) {
+					final float[] row = p[y];
+					for (int x = 0, i = y * scanlineStride; x < width; x++, i += pixelStride)
+						data[i] = (byte) Math.max(0, Math.min(255, (int) (row[x] * 255)));
+				}
+			}
+		});
+	}
+
+	private static void fillAlpha(float[] row, byte[] data, Layout l, int y, int width) {
+		if (l.a < 0) {
+			for (int x = 0; x < width; x++)
+				row[x] = 1f;
+		} else {
+			for (int x = 0, i = l.base + y * l.scanlineStride; x < width; x++, i += l.pixelStride)
+				row[x] = ImageUtilities.BYTE_TO_FLOAT_LUT[data[i + l.a] & 0xff];
+		}
+	}
+}
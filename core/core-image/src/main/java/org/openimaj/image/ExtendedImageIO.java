@@ -193,6 +193,155 @@ class ExtendedImageIO {
 		return bi;
 	}
 
+	/**
+	 * Decode an image from the given file, allowing a JPEG to be decoded at a
+	 * reduced resolution.
+	 * 
+	 * @see #read(InputStream, int)
+	 * @param input
+	 *            the file to read from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return the decoded image, or <code>null</code>.
+	 * @exception IOException
+	 *                if an error occurs during reading.
+	 */
+	public static BufferedImage read(File input, int targetSize) throws IOException {
+		if (input == null) {
+			throw new IllegalArgumentException("input == null!");
+		}
+		if (!input.canRead()) {
+			throw new IIOException("Can't read input file!");
+		}
+		// opened outside the try so that a failure to open is reported
+		// directly rather than falling back to the full decoder
+		final InputStream stream = new FileInputStream(input);
+		try {
+			final BufferedImage bi = readSubsampledJPEG(new BufferedInputStream(stream), targetSize);
+			if (bi != null)
+				return bi;
+		} catch (final Exception e) {
+			// fall through to the full decoder
+		} finally {
+			try {
+				stream.close();
+			} catch (final IOException e) {
+			}
+		}
+
+		return read(input);
+	}
+
+	/**
+	 * Decode an image from the given stream, allowing a JPEG to be decoded at
+	 * a reduced resolution. If the input is a JPEG that the standard ImageIO
+	 * reader can decode, the reader is asked to subsample the image by the
+	 * largest factor of 2, 4 or 8 that keeps the longest side of the result at
+	 * least <code>targetSize</code> pixels, so the full resolution image is
+	 * never allocated. Any other input (including CMYK JPEGs, or any JPEG the
+	 * standard reader fails on) is decoded at full resolution with
+	 * {@link #read(InputStream)}.
+	 * <p>
+	 * This method <em>does not</em> close the provided <code>InputStream</code>.
+	 * 
+	 * @param input
+	 *            an <code>InputStream</code> to read from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return the decoded image, or <code>null</code>.
+	 * @exception IOException
+	 *                if an error occurs during reading.
+	 */
+	public static BufferedImage read(InputStream input, int targetSize) throws IOException {
+		if (input == null) {
+			throw new IllegalArgumentException("input == null!");
+		}
+
+		final NonClosableInputStream buffer = new NonClosableInputStream(input);
+		buffer.mark(10 * 1024 * 1024);
+
+		BufferedImage bi = null;
+		try {
+			bi = readSubsampledJPEG(buffer, targetSize);
+		} catch (final Exception e) {
+			bi = null;
+		}
+
+		if (bi == null) {
+			try {
+				buffer.reset();
+			} catch (final IOException e) {
+				throw new IOException("Unable to rewind the stream to fall back to the full decoder", e);
+			}
+			bi = read(buffer);
+		}
+
+		return bi;
+	}
+
+	/**
+	 * Compute the subsampling factor (1, 2, 4 or 8) for an image of the given
+	 * size such that the longest side remains at least targetSize.
+	 */
+	static int subsamplingFactor(int width, int height, int targetSize) {
+		final int longest = Math.max(width, height);
+
+		for (int factor = 8; factor > 1; factor /= 2) {
+			if ((longest + factor - 1) / factor >= targetSize)
+				return factor;
+		}
+		return 1;
+	}
+
+	/**
+	 * Decode a non-CMYK JPEG with the standard reader, subsampling as it goes.
+	 * Returns <code>null</code> (leaving the stream to be reset by the caller)
+	 * if the input isn't a JPEG that the standard reader should handle; in
+	 * that case {@link #readInternal(BufferedInputStream)} is used instead.
+	 */
+	private static BufferedImage readSubsampledJPEG(BufferedInputStream binput, int targetSize) throws IOException {
+		binput.mark(10 * 1024 * 1024);
+
+		ImageInfo info;
+		try {
+			info = Sanselan.getImageInfo(binput, null);
+		} catch (final ImageReadException ire) {
+			info = null;
+		} finally {
+			binput.reset();
+		}
+
+		if (info == null || info.getFormat() != ImageFormat.IMAGE_FORMAT_JPEG
+				|| info.getColorType() == ImageInfo.COLOR_TYPE_CMYK)
+			return null;
+
+		final ImageInputStream stream = ImageIO.createImageInputStream(binput);
+		if (stream == null)
+			return null;
+
+		try {
+			final Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName("jpeg");
+			if (!iter.hasNext())
+				return null;
+
+			final ImageReader reader = iter.next();
+			try {
+				reader.setInput(stream, true, true);
+
+				final int factor = subsamplingFactor(reader.getWidth(0), reader.getHeight(0), targetSize);
+				final ImageReadParam param = reader.getDefaultReadParam();
+				if (factor > 1)
+					param.setSourceSubsampling(factor, factor, 0, 0);
+
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
 	/**
 	 * Returns a <code>BufferedImage</code> as the result of decoding a supplied
 	 * <code>URL</code> with an <code>ImageReader</code> chosen automatically
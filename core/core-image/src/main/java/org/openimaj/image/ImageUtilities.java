@@ -31,8 +31,6 @@ package org.openimaj.image;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.ComponentSampleModel;
-import java.awt.image.DataBufferByte;
 import java.awt.image.WritableRaster;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
@@ -281,10 +279,37 @@ public class ImageUtilities {
 	 * @return an FImage representation of the input image
 	 */
 	public static FImage createFImage(final BufferedImage image) {
+		return ImageUtilities.createFImage(image, null);
+	}
+
+	/**
+	 * Create an FImage from a buffered image, reusing the given image if
+	 * possible. Images of the common byte and int raster types (
+	 * {@link BufferedImage#TYPE_3BYTE_BGR}, {@link BufferedImage#TYPE_INT_RGB},
+	 * {@link BufferedImage#TYPE_BYTE_GRAY}, etc.) are converted directly from
+	 * their backing arrays; other types are converted through an ARGB working
+	 * image.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param dest
+	 *            the image to write into if it has the correct size. Can be
+	 *            null.
+	 * @return an FImage representation of the input image. Might not be the
+	 *         same as the dest parameter.
+	 */
+	public static FImage createFImage(final BufferedImage image, final FImage dest) {
+		final FImage fast = BufferedImageConversion.toFImage(image, dest);
+		if (fast != null)
+			return fast;
+
 		final BufferedImage bimg = ImageUtilities.createWorkingImage(image);
 		final int[] data = bimg.getRGB(0, 0, bimg.getWidth(), bimg.getHeight(), null, 0, bimg.getWidth());
 
-		return new FImage(data, bimg.getWidth(), bimg.getHeight());
+		if (dest == null)
+			return new FImage(data, bimg.getWidth(), bimg.getHeight());
+
+		return dest.internalAssign(data, bimg.getWidth(), bimg.getHeight());
 	}
 
 	/**
@@ -297,10 +322,40 @@ public class ImageUtilities {
 	 * @return an MBFImage representation of the input image
 	 */
 	public static MBFImage createMBFImage(final BufferedImage image, final boolean alpha) {
+		return ImageUtilities.createMBFImage(image, alpha, null);
+	}
+
+	/**
+	 * Create an MBFImage from a buffered image, reusing the given image if
+	 * possible. Images of the common byte and int raster types (
+	 * {@link BufferedImage#TYPE_3BYTE_BGR}, {@link BufferedImage#TYPE_INT_RGB},
+	 * {@link BufferedImage#TYPE_BYTE_GRAY}, etc.) are converted directly from
+	 * their backing arrays; other types are converted through an ARGB working
+	 * image.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param alpha
+	 *            should the resultant MBFImage have an alpha channel
+	 * @param dest
+	 *            the image to write into if it has the correct size and
+	 *            colour space. Can be null.
+	 * @return an MBFImage representation of the input image. Might not be the
+	 *         same as the dest parameter.
+	 */
+	public static MBFImage createMBFImage(final BufferedImage image, final boolean alpha, final MBFImage dest) {
+		final MBFImage fast = BufferedImageConversion.toMBFImage(image, alpha, dest);
+		if (fast != null)
+			return fast;
+
 		final BufferedImage bimg = ImageUtilities.createWorkingImage(image);
 		final int[] data = bimg.getRGB(0, 0, bimg.getWidth(), bimg.getHeight(), null, 0, bimg.getWidth());
 
-		return new MBFImage(data, bimg.getWidth(), bimg.getHeight(), alpha);
+		final ColourSpace cs = alpha ? ColourSpace.RGBA : ColourSpace.RGB;
+		if (dest == null || dest.colourSpace != cs || dest.numBands() != cs.getNumBands())
+			return new MBFImage(data, bimg.getWidth(), bimg.getHeight(), alpha);
+
+		return dest.internalAssign(data, bimg.getWidth(), bimg.getHeight());
 	}
 
 	/**
@@ -423,6 +478,78 @@ public class ImageUtilities {
 		return ImageUtilities.createMBFImage(ExtendedImageIO.read(input), true);
 	}
 
+	/**
+	 * Reads an {@link FImage} from the given file, decoding at a reduced
+	 * resolution where possible. JPEG images are decoded by subsampling by the
+	 * largest factor of 2, 4 or 8 that keeps the longest side of the image at
+	 * least <code>targetSize</code> pixels; this is much faster and uses far
+	 * less memory than decoding at full size and then resizing. Other formats
+	 * are decoded at full size. The returned image is not resized to exactly
+	 * <code>targetSize</code>.
+	 * 
+	 * @param input
+	 *            The file to read the {@link FImage} from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return An {@link FImage}
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static FImage readF(final File input, final int targetSize) throws IOException {
+		return ImageUtilities.createFImage(ExtendedImageIO.read(input, targetSize));
+	}
+
+	/**
+	 * Reads an {@link FImage} from the given input stream, decoding at a
+	 * reduced resolution where possible.
+	 * 
+	 * @see #readF(File, int)
+	 * @param input
+	 *            The input stream to read the {@link FImage} from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return An {@link FImage}
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 */
+	public static FImage readF(final InputStream input, final int targetSize) throws IOException {
+		return ImageUtilities.createFImage(ExtendedImageIO.read(input, targetSize));
+	}
+
+	/**
+	 * Reads an {@link MBFImage} from the given file, decoding at a reduced
+	 * resolution where possible.
+	 * 
+	 * @see #readF(File, int)
+	 * @param input
+	 *            The file to read the {@link MBFImage} from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return An {@link MBFImage}
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static MBFImage readMBF(final File input, final int targetSize) throws IOException {
+		return ImageUtilities.createMBFImage(ExtendedImageIO.read(input, targetSize), false);
+	}
+
+	/**
+	 * Reads an {@link MBFImage} from the given input stream, decoding at a
+	 * reduced resolution where possible.
+	 * 
+	 * @see #readF(File, int)
+	 * @param input
+	 *            The input stream to read the {@link MBFImage} from.
+	 * @param targetSize
+	 *            the minimum length of the longest side of the decoded image
+	 * @return An {@link MBFImage}
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 */
+	public static MBFImage readMBF(final InputStream input, final int targetSize) throws IOException {
+		return ImageUtilities.createMBFImage(ExtendedImageIO.read(input, targetSize), false);
+	}
+
 	/**
 	 * Checks whether the width and height of all the given images match.
 	 * 
@@ -704,26 +831,8 @@ public class ImageUtilities {
 
 		final WritableRaster raster = ret.getRaster();
 
-		final float[][] r = img.getBand(0).pixels;
-		final float[][] g = img.getBand(1).pixels;
-		final float[][] b = img.getBand(2).pixels;
-
-		final ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
-		final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
-		final int scanlineStride = sm.getScanlineStride();
-		final int pixelStride = sm.getPixelStride();
-
-		final byte[] data = db.getData();
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				data[y * scanlineStride + x * pixelStride + 2] = (byte)
-						Math.max(0, Math.min(255, (int) (r[y][x] * 255)));
-				data[y * scanlineStride + x * pixelStride + 1] = (byte)
-						Math.max(0, Math.min(255, (int) (g[y][x] * 255)));
-				data[y * scanlineStride + x * pixelStride] = (byte)
-						Math.max(0, Math.min(255, (int) (b[y][x] * 255)));
-			}
-		}
+		BufferedImageConversion.fromRGB(img.getBand(0).pixels, img.getBand(1).pixels, img.getBand(2).pixels,
+				width, height, raster);
 
 		return ret;
 	}
@@ -760,19 +869,7 @@ public class ImageUtilities {
 
 		final WritableRaster raster = ret.getRaster();
 
-		final float[][] p = img.pixels;
-
-		final ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
-		final DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
-		final int scanlineStride = sm.getScanlineStride();
-		final int pixelStride = sm.getPixelStride();
-
-		final byte[] data = db.getData();
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				data[y * scanlineStride + x * pixelStride] = (byte) (Math.max(0, Math.min(255, (int) (p[y][x] * 255))));
-			}
-		}
+		BufferedImageConversion.fromGrey(img.pixels, width, height, raster);
 
 		return ret;
 	}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the direct raster conversions in {@link BufferedImageConversion}
+ * give the same results as converting via a packed ARGB image.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class BufferedImageConversionTest {
+	private static final int[] TYPES = { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_BGR };
+
+	private static BufferedImage create(int type, int width, int height) {
+		final Random rng = new Random(type);
+		final BufferedImage img = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				img.setRGB(x, y, type == BufferedImage.TYPE_4BYTE_ABGR ? rng.nextInt() | 0xff000000 : rng.nextInt());
+		return img;
+	}
+
+	private static int[] argb(BufferedImage img) {
+		final BufferedImage bimg = ImageUtilities.createWorkingImage(img);
+		return bimg.getRGB(0, 0, bimg.getWidth(), bimg.getHeight(), null, 0, bimg.getWidth());
+	}
+
+	private static void check(int width, int height) {
+		for (final int type : TYPES) {
+			final BufferedImage img = create(type, width, height);
+			final int[] data = argb(img);
+
+			final FImage expectedF = new FImage(data, width, height);
+			final FImage actualF = BufferedImageConversion.toFImage(img, null);
+			for (int y = 0; y < height; y++)
+				assertArrayEquals(expectedF.pixels[y], actualF.pixels[y], 0f);
+
+			for (final boolean alpha : new boolean[] { false, true }) {
+				final MBFImage expected = new MBFImage(data, width, height, alpha);
+				final MBFImage actual = BufferedImageConversion.toMBFImage(img, alpha, null);
+
+				assertEquals(expected.numBands(), actual.numBands());
+				for (int b = 0; b < expected.numBands(); b++)
+					for (int y = 0; y < height; y++)
+						assertArrayEquals(expected.getBand(b).pixels[y], actual.getBand(b).pixels[y], 0f);
+			}
+		}
+	}
+
+	/**
+	 * Test small images (converted serially)
+	 */
+	@Test
+	public void testSmall() {
+		check(37, 23);
+	}
+
+	/**
+	 * Test large images (converted in parallel)
+	 */
+	@Test
+	public void testLarge() {
+		check(1024, 600);
+	}
+
+	/**
+	 * Translucent ABGR pixels should be read exactly
+	 */
+	@Test
+	public void testTranslucentABGR() {
+		final BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
+		img.setRGB(0, 0, 0x12abcdef);
+
+		final MBFImage mbf = BufferedImageConversion.toMBFImage(img, true, null);
+		assertEquals(0xab / 255f, mbf.getBand(0).pixels[0][0], 0f);
+		assertEquals(0xcd / 255f, mbf.getBand(1).pixels[0][0], 0f);
+		assertEquals(0xef / 255f, mbf.getBand(2).pixels[0][0], 0f);
+		assertEquals(0x12 / 255f, mbf.getBand(3).pixels[0][0], 0f);
+	}
+
+	/**
+	 * Test that destination images are reused when they match
+	 */
+	@Test
+	public void testReuse() {
+		final BufferedImage img = create(BufferedImage.TYPE_3BYTE_BGR, 64, 48);
+
+		final MBFImage mbf = new MBFImage(64, 48, 3);
+		assertSame(mbf, ImageUtilities.createMBFImage(img, false, mbf));
+
+		final FImage f = new FImage(64, 48);
+		assertSame(f, ImageUtilities.createFImage(img, f));
+
+		final FImage wrong = new FImage(10, 10);
+		assertEquals(64, ImageUtilities.createFImage(img, wrong).width);
+	}
+
+	/**
+	 * Test round-trip through the display conversion
+	 */
+	@Test
+	public void testDisplayRoundTrip() {
+		final BufferedImage img = create(BufferedImage.TYPE_3BYTE_BGR, 700, 400);
+		final MBFImage mbf = ImageUtilities.createMBFImage(img, false);
+		final BufferedImage out = ImageUtilities.createBufferedImageForDisplay(mbf);
+
+		assertArrayEquals(img.getRGB(0, 0, 700, 400, null, 0, 700), out.getRGB(0, 0, 700, 400, null, 0, 700));
+	}
+}
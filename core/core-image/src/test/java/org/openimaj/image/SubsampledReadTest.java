@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Tests for reading images at a reduced resolution with
+ * {@link ImageUtilities#readF(java.io.InputStream, int)} and
+ * {@link ImageUtilities#readMBF(java.io.InputStream, int)}.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class SubsampledReadTest {
+	private static byte[] createJPEG(int width, int height) throws IOException {
+		final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				img.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | 128);
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(img, "jpeg", baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Test the choice of subsampling factor
+	 */
+	@Test
+	public void testFactor() {
+		assertEquals(1, ExtendedImageIO.subsamplingFactor(640, 480, 640));
+		assertEquals(2, ExtendedImageIO.subsamplingFactor(480, 1280, 640));
+		assertEquals(4, ExtendedImageIO.subsamplingFactor(3000, 2000, 640));
+		assertEquals(8, ExtendedImageIO.subsamplingFactor(8000, 6000, 640));
+		assertEquals(8, ExtendedImageIO.subsamplingFactor(8000, 6000, 10));
+	}
+
+	/**
+	 * The subsampled image should match the full decode at the sampled
+	 * positions
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSubsampledMatchesFull() throws IOException {
+		final byte[] jpeg = createJPEG(400, 300);
+
+		final MBFImage full = ImageUtilities.readMBF(new ByteArrayInputStream(jpeg));
+		final MBFImage small = ImageUtilities.readMBF(new ByteArrayInputStream(jpeg), 100);
+		final FImage fullGrey = ImageUtilities.readF(new ByteArrayInputStream(jpeg));
+		final FImage smallGrey = ImageUtilities.readF(new ByteArrayInputStream(jpeg), 100);
+
+		assertEquals(100, small.getWidth());
+		assertEquals(75, small.getHeight());
+		assertEquals(100, smallGrey.getWidth());
+		assertEquals(75, smallGrey.getHeight());
+
+		for (int y = 0; y < small.getHeight(); y++) {
+			for (int x = 0; x < small.getWidth(); x++) {
+				for (int b = 0; b < 3; b++)
+					assertEquals(full.getBand(b).pixels[y * 4][x * 4], small.getBand(b).pixels[y][x], 1.5f / 255f);
+
+				assertEquals(fullGrey.pixels[y * 4][x * 4], smallGrey.pixels[y][x], 1.5f / 255f);
+			}
+		}
+	}
+
+	/**
+	 * Images smaller than the target are read at full size
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNoSubsampling() throws IOException {
+		final byte[] jpeg = createJPEG(120, 80);
+		final MBFImage img = ImageUtilities.readMBF(new ByteArrayInputStream(jpeg), 640);
+
+		assertEquals(120, img.getWidth());
+		assertEquals(80, img.getHeight());
+	}
+
+	/**
+	 * The reduced-resolution readers should produce the same bands as the
+	 * full-size ones
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testBandsMatchFullRead() throws IOException {
+		final byte[] jpeg = createJPEG(400, 300);
+
+		final MBFImage full = ImageUtilities.readMBF(new ByteArrayInputStream(jpeg));
+		final MBFImage small = ImageUtilities.readMBF(new ByteArrayInputStream(jpeg), 100);
+
+		assertEquals(full.numBands(), small.numBands());
+		assertEquals(full.colourSpace, small.colourSpace);
+	}
+
+	/**
+	 * Non-JPEG input falls back to the full decoder
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testFallback() throws IOException {
+		final BufferedImage img = new BufferedImage(400, 300, BufferedImage.TYPE_3BYTE_BGR);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", baos);
+
+		final FImage png = ImageUtilities.readF(new ByteArrayInputStream(baos.toByteArray()), 100);
+		assertEquals(400, png.getWidth());
+		assertEquals(300, png.getHeight());
+	}
+}
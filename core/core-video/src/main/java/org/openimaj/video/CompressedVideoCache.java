@@ -0,0 +1,401 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openimaj.image.Image;
+
+/**
+ * A {@link VideoCache} that stores its frames compressed in a memory-mapped
+ * file rather than as images on the heap. Frames are compressed with a
+ * {@link FrameCodec} as they are added and written into a sequence of
+ * memory-mapped segments of the backing file; they are decompressed on demand
+ * by {@link #getFrame(int)}, with a small LRU cache of recently used frames.
+ * This makes it possible to cache many minutes of high-definition video while
+ * keeping random access to any frame.
+ * <p>
+ * By default the backing file is a temporary file that is deleted when the
+ * cache is closed (or when the JVM exits).
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <I>
+ *            The type of video frames to be cached
+ */
+public class CompressedVideoCache<I extends Image<?, I>> extends VideoCache<I> {
+	/** The default size of each mapped segment of the backing file */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/** The default number of decoded frames held in memory */
+	public static final int DEFAULT_HOT_FRAMES = 8;
+
+	private final FrameCodec<I> codec;
+	private final File file;
+	private final boolean deleteOnClose;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final int segmentSize;
+
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	private long fileEnd = 0;
+	private int currentSegment = -1;
+	private int segmentPosition = 0;
+
+	private int numFrames = 0;
+	private int[] frameSegment = new int[64];
+	private int[] frameOffset = new int[64];
+	private int[] frameLength = new int[64];
+
+	private final Map<Integer, I> hot;
+
+	/**
+	 * Create a compressed video cache for frames of the given size and for a
+	 * video of the given frame rate, backed by a temporary file.
+	 *
+	 * @param width
+	 *            The width of the video frames
+	 * @param height
+	 *            The height of the video frames
+	 * @param frameRate
+	 *            The frame rate of the video
+	 * @param codec
+	 *            The codec used to compress the frames
+	 * @throws IOException
+	 *             if the backing file cannot be created
+	 */
+	public CompressedVideoCache(int width, int height, double frameRate, FrameCodec<I> codec) throws IOException {
+		this(width, height, frameRate, codec, createTempFile(), true, DEFAULT_SEGMENT_SIZE, DEFAULT_HOT_FRAMES);
+	}
+
+	/**
+	 * Create a compressed video cache for frames of the given size and for a
+	 * video of the given frame rate, backed by the given file. Any existing
+	 * content of the file will be overwritten.
+	 *
+	 * @param width
+	 *            The width of the video frames
+	 * @param height
+	 *            The height of the video frames
+	 * @param frameRate
+	 *            The frame rate of the video
+	 * @param codec
+	 *            The codec used to compress the frames
+	 * @param file
+	 *            The backing file
+	 * @param deleteOnClose
+	 *            Should the file be deleted when the cache is closed
+	 * @param segmentSize
+	 *            The size of each mapped segment of the file in bytes
+	 * @param hotFrames
+	 *            The number of decoded frames to hold in memory
+	 * @throws IOException
+	 *             if the backing file cannot be opened
+	 */
+	public CompressedVideoCache(int width, int height, double frameRate, FrameCodec<I> codec, File file,
+			boolean deleteOnClose, int segmentSize, final int hotFrames) throws IOException
+	{
+		super(width, height, frameRate);
+
+		this.codec = codec;
+		this.file = file;
+		this.deleteOnClose = deleteOnClose;
+		this.segmentSize = segmentSize;
+		this.raf = new RandomAccessFile(file, "rw");
+		this.raf.setLength(0);
+		this.channel = raf.getChannel();
+
+		this.hot = new LinkedHashMap<Integer, I>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, I> eldest) {
+				return size() > hotFrames;
+			}
+		};
+	}
+
+	private static File createTempFile() throws IOException {
+		final File f = File.createTempFile("openimaj-videocache", ".bin");
+		f.deleteOnExit();
+		return f;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The frame is compressed immediately, so may be modified or reused by
+	 * the caller once this method returns.
+	 *
+	 * @throws RuntimeException
+	 *             if the frame cannot be compressed or written
+	 */
+	@Override
+	public synchronized void addFrame(I frame) {
+		try {
+			final byte[] data = codec.encode(frame);
+
+			if (currentSegment < 0 || segmentPosition + data.length > segments.get(currentSegment).capacity())
+				nextSegment(data.length);
+
+			final ByteBuffer buffer = segments.get(currentSegment).duplicate();
+			buffer.position(segmentPosition);
+			buffer.put(data);
+
+			ensureCapacity(numFrames + 1);
+			frameSegment[numFrames] = currentSegment;
+			frameOffset[numFrames] = segmentPosition;
+			frameLength[numFrames] = data.length;
+			numFrames++;
+
+			segmentPosition += data.length;
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void nextSegment(int minSize) throws IOException {
+		currentSegment++;
+		segmentPosition = 0;
+
+		if (currentSegment < segments.size() && segments.get(currentSegment).capacity() >= minSize)
+			return;
+
+		// discard any remaining (reused) segments after a reset; new
+		// segments are always mapped at the end of the file
+		while (segments.size() > currentSegment)
+			segments.remove(segments.size() - 1);
+
+		final int size = Math.max(segmentSize, minSize);
+		segments.add(channel.map(FileChannel.MapMode.READ_WRITE, fileEnd, size));
+		fileEnd += size;
+	}
+
+	private void ensureCapacity(int n) {
+		if (n > frameSegment.length) {
+			final int len = Math.max(n, frameSegment.length * 2);
+			frameSegment = Arrays.copyOf(frameSegment, len);
+			frameOffset = Arrays.copyOf(frameOffset, len);
+			frameLength = Arrays.copyOf(frameLength, len);
+		}
+	}
+
+	@Override
+	public synchronized int getNumberOfFrames() {
+		return numFrames;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Frames are decompressed on demand; a small number of recently accessed
+	 * frames are kept in memory and the same instance is returned for repeated
+	 * requests of such a frame.
+	 *
+	 * @throws RuntimeException
+	 *             if the frame cannot be decompressed
+	 */
+	@Override
+	public synchronized I getFrame(int i) {
+		if (i < 0 || i >= numFrames)
+			throw new IndexOutOfBoundsException("Frame " + i + " is not in the cache");
+
+		I frame = hot.get(i);
+		if (frame != null)
+			return frame;
+
+		final ByteBuffer buffer = segments.get(frameSegment[i]).duplicate();
+		buffer.position(frameOffset[i]);
+		buffer.limit(frameOffset[i] + frameLength[i]);
+
+		try {
+			frame = codec.decode(buffer.slice());
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		hot.put(i, frame);
+		return frame;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Note that this decompresses every frame in the cache into memory; use
+	 * {@link #getVideo()} to play back the cache without doing so.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ArrayBackedVideo<I> getArrayBackedVideo() {
+		final int n = getNumberOfFrames();
+		if (n == 0)
+			return new ArrayBackedVideo<I>((I[]) new Image<?, ?>[0], frameRate);
+
+		final I first = getFrame(0);
+		final I[] frames = (I[]) Array.newInstance(first.getClass(), n);
+		for (int i = 0; i < n; i++)
+			frames[i] = getFrame(i);
+
+		return new ArrayBackedVideo<I>(frames, frameRate);
+	}
+
+	/**
+	 * Get a {@link Video} that plays back the frames in the cache,
+	 * decompressing each frame as it is requested.
+	 *
+	 * @return a video view of the cache
+	 */
+	public Video<I> getVideo() {
+		return new Video<I>() {
+			@Override
+			public I getNextFrame() {
+				if (currentFrame >= getNumberOfFrames())
+					return null;
+				return getFrame(currentFrame++);
+			}
+
+			@Override
+			public I getCurrentFrame() {
+				return getFrame(Math.max(0, currentFrame - 1));
+			}
+
+			@Override
+			public synchronized void setCurrentFrameIndex(long newFrame) {
+				currentFrame = (int) Math.max(0, Math.min(newFrame, getNumberOfFrames()));
+			}
+
+			@Override
+			public int getWidth() {
+				return width;
+			}
+
+			@Override
+			public int getHeight() {
+				return height;
+			}
+
+			@Override
+			public long getTimeStamp() {
+				return (long) (1000 * Math.max(0, currentFrame - 1) / frameRate);
+			}
+
+			@Override
+			public double getFPS() {
+				return frameRate;
+			}
+
+			@Override
+			public boolean hasNextFrame() {
+				return currentFrame < getNumberOfFrames();
+			}
+
+			@Override
+			public long countFrames() {
+				return getNumberOfFrames();
+			}
+
+			@Override
+			public void reset() {
+				currentFrame = 0;
+			}
+		};
+	}
+
+	/**
+	 * Clears the cache. The space in the backing file is reused for
+	 * subsequent frames.
+	 */
+	@Override
+	public synchronized void reset() {
+		numFrames = 0;
+		currentSegment = -1;
+		segmentPosition = 0;
+		hot.clear();
+	}
+
+	/**
+	 * Release the backing file (deleting it if required). The cache cannot be
+	 * used after it has been closed.
+	 */
+	@Override
+	public synchronized void close() {
+		reset();
+		segments.clear();
+
+		try {
+			channel.close();
+			raf.close();
+		} catch (final IOException e) {
+			// ignore
+		}
+
+		if (deleteOnClose)
+			file.delete();
+	}
+
+	/**
+	 * Cache the whole of the given video in a compressed cache backed by a
+	 * temporary file.
+	 *
+	 * @param <I>
+	 *            Type of {@link Image}
+	 * @param video
+	 *            The video to cache
+	 * @param codec
+	 *            The codec used to compress the frames
+	 * @return A {@link CompressedVideoCache}
+	 * @throws IOException
+	 *             if the backing file cannot be created
+	 */
+	public static <I extends Image<?, I>> CompressedVideoCache<I> cacheVideo(Video<I> video, FrameCodec<I> codec)
+			throws IOException
+	{
+		final CompressedVideoCache<I> vc = new CompressedVideoCache<I>(video.getWidth(), video.getHeight(),
+				video.getFPS(), codec);
+
+		video.reset();
+		I frame;
+		while (video.hasNextFrame() && (frame = video.getNextFrame()) != null)
+			vc.addFrame(frame);
+
+		return vc;
+	}
+}
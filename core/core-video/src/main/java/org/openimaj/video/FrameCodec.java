@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openimaj.image.Image;
+
+/**
+ * Interface for objects that can compress video frames to bytes and
+ * decompress them again. Implementations for {@link org.openimaj.image.FImage}
+ * and {@link org.openimaj.image.MBFImage} frames are provided by
+ * {@link FrameCodecs}.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <I>
+ *            Type of frame
+ */
+public interface FrameCodec<I extends Image<?, I>> {
+	/**
+	 * Compress a frame
+	 *
+	 * @param frame
+	 *            the frame
+	 * @return the compressed bytes
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public byte[] encode(I frame) throws IOException;
+
+	/**
+	 * Decompress a frame from the remaining bytes of the given buffer.
+	 *
+	 * @param data
+	 *            the compressed bytes
+	 * @return the frame
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public I decode(ByteBuffer data) throws IOException;
+}
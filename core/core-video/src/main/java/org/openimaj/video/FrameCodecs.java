@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.ImageUtilities;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.colour.ColourSpace;
+
+/**
+ * Standard {@link FrameCodec}s for {@link FImage} and {@link MBFImage} frames.
+ * <p>
+ * The deflate codecs quantise each band to 8 bits, predict each pixel from
+ * its left-hand neighbour and compress the residuals with a fast
+ * {@link Deflater}. They are lossless for frames whose pixel values are
+ * multiples of 1/255 (i.e. all frames produced by the video decoders). The
+ * JPEG codecs are lossy but much more compact.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public final class FrameCodecs {
+	private FrameCodecs() {
+	}
+
+	/**
+	 * Get a codec that stores {@link MBFImage} frames as deflated 8-bit
+	 * planes.
+	 *
+	 * @return the codec
+	 */
+	public static FrameCodec<MBFImage> deflateMBF() {
+		return new FrameCodec<MBFImage>() {
+			@Override
+			public byte[] encode(MBFImage frame) throws IOException {
+				final float[][][] planes = new float[frame.numBands()][][];
+				for (int i = 0; i < planes.length; i++)
+					planes[i] = frame.getBand(i).pixels;
+
+				return deflate(planes, frame.getWidth(), frame.getHeight(), frame.colourSpace.ordinal());
+			}
+
+			@Override
+			public MBFImage decode(ByteBuffer data) throws IOException {
+				final int width = data.getInt();
+				final int height = data.getInt();
+				final int nbands = data.getInt();
+				final ColourSpace cs = ColourSpace.values()[data.getInt()];
+
+				final MBFImage frame = new MBFImage(width, height, nbands);
+				frame.colourSpace = cs;
+
+				final float[][][] planes = new float[nbands][][];
+				for (int i = 0; i < nbands; i++)
+					planes[i] = frame.getBand(i).pixels;
+
+				inflate(data, planes, width, height);
+				return frame;
+			}
+		};
+	}
+
+	/**
+	 * Get a codec that stores {@link FImage} frames as deflated 8-bit planes.
+	 *
+	 * @return the codec
+	 */
+	public static FrameCodec<FImage> deflateF() {
+		return new FrameCodec<FImage>() {
+			@Override
+			public byte[] encode(FImage frame) throws IOException {
+				return deflate(new float[][][] { frame.pixels }, frame.width, frame.height, 0);
+			}
+
+			@Override
+			public FImage decode(ByteBuffer data) throws IOException {
+				final int width = data.getInt();
+				final int height = data.getInt();
+				data.getInt();
+				data.getInt();
+
+				final FImage frame = new FImage(width, height);
+				inflate(data, new float[][][] { frame.pixels }, width, height);
+				return frame;
+			}
+		};
+	}
+
+	/**
+	 * Get a codec that stores RGB {@link MBFImage} frames as JPEGs.
+	 *
+	 * @param quality
+	 *            the JPEG quality (0-1)
+	 * @return the codec
+	 */
+	public static FrameCodec<MBFImage> jpegMBF(final float quality) {
+		return new FrameCodec<MBFImage>() {
+			@Override
+			public byte[] encode(MBFImage frame) throws IOException {
+				return jpeg(ImageUtilities.createBufferedImageForDisplay(frame), quality);
+			}
+
+			@Override
+			public MBFImage decode(ByteBuffer data) throws IOException {
+				return ImageUtilities.createMBFImage(unjpeg(data), false);
+			}
+		};
+	}
+
+	/**
+	 * Get a codec that stores {@link FImage} frames as greyscale JPEGs.
+	 *
+	 * @param quality
+	 *            the JPEG quality (0-1)
+	 * @return the codec
+	 */
+	public static FrameCodec<FImage> jpegF(final float quality) {
+		return new FrameCodec<FImage>() {
+			@Override
+			public byte[] encode(FImage frame) throws IOException {
+				return jpeg(ImageUtilities.createBufferedImage(frame), quality);
+			}
+
+			@Override
+			public FImage decode(ByteBuffer data) throws IOException {
+				return ImageUtilities.createFImage(unjpeg(data));
+			}
+		};
+	}
+
+	private static byte[] deflate(float[][][] planes, int width, int height, int type) {
+		final byte[] raw = new byte[planes.length * width * height];
+
+		for (int b = 0, i = 0; b < planes.length; b++) {
+			for (int y = 0; y < height; y++) {
+				final float[] row = planes[b][y];
+				int prev = 0;
+				for (int x = 0; x < width; x++, i++) {
+					final int v = Math.max(0, Math.min(255, Math.round(row[x] * 255)));
+					raw[i] = (byte) (v - prev);
+					prev = v;
+				}
+			}
+		}
+
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream(raw.length / 2 + 16);
+			final ByteBuffer header = ByteBuffer.allocate(16);
+			header.putInt(width).putInt(height).putInt(planes.length).putInt(type);
+			baos.write(header.array(), 0, 16);
+
+			final byte[] buf = new byte[64 * 1024];
+			while (!deflater.finished()) {
+				final int n = deflater.deflate(buf);
+				baos.write(buf, 0, n);
+			}
+
+			return baos.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static void inflate(ByteBuffer data, float[][][] planes, int width, int height) throws IOException {
+		final byte[] compressed = new byte[data.remaining()];
+		data.get(compressed);
+
+		final byte[] raw = new byte[planes.length * width * height];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int n = 0;
+			while (n < raw.length && !inflater.finished()) {
+				final int read = inflater.inflate(raw, n, raw.length - n);
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				n += read;
+			}
+
+			if (n != raw.length)
+				throw new IOException("Truncated frame data");
+		} catch (final DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+
+		final float[] lut = ImageUtilities.BYTE_TO_FLOAT_LUT;
+		for (int b = 0, i = 0; b < planes.length; b++) {
+			for (int y = 0; y < height; y++) {
+				final float[] row = planes[b][y];
+				int v = 0;
+				for (int x = 0; x < width; x++, i++) {
+					v = (v + raw[i]) & 0xff;
+					row[x] = lut[v];
+				}
+			}
+		}
+	}
+
+	private static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+		final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+		if (!writers.hasNext())
+			throw new IOException("No JPEG writer available");
+
+		final ImageWriter writer = writers.next();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
+		try {
+			final ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(quality);
+
+			writer.setOutput(ios);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+
+		return baos.toByteArray();
+	}
+
+	private static BufferedImage unjpeg(ByteBuffer data) throws IOException {
+		final byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+
+		final BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+		if (image == null)
+			throw new IOException("Unable to decode frame");
+
+		return image;
+	}
+}
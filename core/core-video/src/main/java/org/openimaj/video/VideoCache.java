@@ -41,6 +41,9 @@ import org.openimaj.video.timecode.VideoTimecode;
 /**
  *	This class represents a cache of video material. It is also able to
  *	build the cache for you with the static methods.
+ *	<p>
+ *	Frames are held uncompressed on the heap; for long or high-resolution
+ *	videos see {@link CompressedVideoCache}.
  *
  *	@author David Dupplaw (dpd@ecs.soton.ac.uk)
  *	
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openimaj.image.Image;
+import org.openimaj.image.processor.ImageProcessor;
+import org.openimaj.util.function.Function;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+import org.openimaj.video.Video;
+
+/**
+ * Multi-threaded processing of the frames of a {@link Video}. Frames are
+ * decoded on a dedicated thread and copied into buffers drawn from a fixed
+ * size pool; a configurable number of worker threads then apply a
+ * {@link Function} to each frame. The results are delivered to a
+ * {@link FrameHandler} on the calling thread strictly in frame order, after
+ * which the frame buffer is returned to the pool for reuse.
+ * <p>
+ * The pipeline depth (the number of frames that can be in flight at once)
+ * bounds both the memory used and the number of frames that can be decoded
+ * ahead of the slowest worker.
+ * <p>
+ * The worker function is called concurrently from multiple threads, so must
+ * be thread-safe. Anything that depends on the sequence of frames (for
+ * example comparing a frame to its predecessor) belongs in the
+ * {@link FrameHandler}, which is only ever called from one thread.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <T>
+ *            Type of {@link Image} in the video
+ * @param <R>
+ *            Type of result produced for each frame
+ */
+public class ParallelVideoProcessor<T extends Image<?, T>, R> {
+	/**
+	 * Receives the processed frames in order.
+	 *
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 *
+	 * @param <T>
+	 *            Type of {@link Image} in the video
+	 * @param <R>
+	 *            Type of result produced for each frame
+	 */
+	public interface FrameHandler<T, R> {
+		/**
+		 * Handle a processed frame. The frame is a pooled buffer which will be
+		 * reused once this method returns, so it must be cloned if it needs
+		 * to be kept.
+		 *
+		 * @param frame
+		 *            the frame
+		 * @param timestamp
+		 *            the timestamp of the frame in milliseconds
+		 * @param result
+		 *            the result of the worker function for the frame
+		 */
+		void handle(T frame, long timestamp, R result);
+	}
+
+	private static class Pending<T, R> {
+		T frame;
+		long timestamp;
+		Future<R> result;
+		Throwable error;
+	}
+
+	private final Video<T> video;
+	private final Function<T, R> worker;
+	private final int numWorkers;
+	private final int depth;
+
+	/**
+	 * Construct with the given video, worker function and number of worker
+	 * threads. The pipeline depth is set to twice the number of workers.
+	 *
+	 * @param video
+	 *            the video to process
+	 * @param worker
+	 *            the (thread-safe) function applied to each frame
+	 * @param numWorkers
+	 *            the number of worker threads
+	 */
+	public ParallelVideoProcessor(Video<T> video, Function<T, R> worker, int numWorkers) {
+		this(video, worker, numWorkers, 2 * numWorkers);
+	}
+
+	/**
+	 * Construct with the given video, worker function, number of worker
+	 * threads and pipeline depth.
+	 *
+	 * @param video
+	 *            the video to process
+	 * @param worker
+	 *            the (thread-safe) function applied to each frame
+	 * @param numWorkers
+	 *            the number of worker threads
+	 * @param depth
+	 *            the maximum number of frames in flight (and the number of
+	 *            pooled frame buffers); must be at least the number of
+	 *            workers
+	 */
+	public ParallelVideoProcessor(Video<T> video, Function<T, R> worker, int numWorkers, int depth) {
+		if (numWorkers < 1)
+			throw new IllegalArgumentException("numWorkers must be at least 1");
+		if (depth < numWorkers)
+			throw new IllegalArgumentException("depth must be at least numWorkers");
+
+		this.video = video;
+		this.worker = worker;
+		this.numWorkers = numWorkers;
+		this.depth = depth;
+	}
+
+	/**
+	 * Create a worker function that applies the given {@link ImageProcessor}
+	 * to each frame in-place (avoiding the allocation of a new frame). The
+	 * processor is shared between the worker threads, so must be stateless or
+	 * otherwise thread-safe.
+	 *
+	 * @param processor
+	 *            the processor
+	 * @return a worker function that returns the processed frame
+	 */
+	public static <T extends Image<?, T>> Function<T, T> inplace(final ImageProcessor<T> processor) {
+		return new Function<T, T>() {
+			@Override
+			public T apply(T frame) {
+				return frame.processInplace(processor);
+			}
+		};
+	}
+
+	/**
+	 * Process the video until it has no more frames, passing the results to
+	 * the given handler in frame order. This method blocks until processing
+	 * is complete. Any exception thrown by the worker function or by the
+	 * video is rethrown here.
+	 *
+	 * @param handler
+	 *            the handler for processed frames
+	 */
+	public void process(final FrameHandler<T, R> handler) {
+		final ExecutorService workers = Executors.newFixedThreadPool(numWorkers, new DaemonThreadFactory());
+		final BlockingQueue<T> pool = new ArrayBlockingQueue<T>(depth);
+		final BlockingQueue<Pending<T, R>> pending = new ArrayBlockingQueue<Pending<T, R>>(depth + 1);
+		final Pending<T, R> end = new Pending<T, R>();
+
+		final Thread decoder = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				int allocated = 0;
+
+				try {
+					T frame;
+					while (!Thread.currentThread().isInterrupted() && (frame = video.getNextFrame()) != null) {
+						final Pending<T, R> p = new Pending<T, R>();
+						p.timestamp = video.getTimeStamp();
+
+						T buffer = allocated < depth ? pool.poll() : pool.take();
+						if (buffer == null) {
+							buffer = frame.clone();
+							allocated++;
+						} else if (buffer.getWidth() != frame.getWidth() || buffer.getHeight() != frame.getHeight()) {
+							buffer = frame.clone();
+						} else {
+							buffer.internalCopy(frame);
+						}
+						p.frame = buffer;
+
+						final T input = buffer;
+						p.result = workers.submit(new Callable<R>() {
+							@Override
+							public R call() throws Exception {
+								return worker.apply(input);
+							}
+						});
+
+						pending.put(p);
+					}
+				} catch (final InterruptedException e) {
+					// cancelled by the consumer
+				} catch (final Throwable t) {
+					end.error = t;
+				} finally {
+					try {
+						pending.put(end);
+					} catch (final InterruptedException e) {
+						// cancelled by the consumer
+					}
+				}
+			}
+		}, "ParallelVideoProcessor-decoder");
+		decoder.setDaemon(true);
+		decoder.start();
+
+		try {
+			Pending<T, R> p;
+			while ((p = pending.take()) != end) {
+				final R result = p.result.get();
+				handler.handle(p.frame, p.timestamp, result);
+				pool.offer(p.frame);
+			}
+
+			if (end.error != null)
+				rethrow(end.error);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			rethrow(e.getCause());
+		} finally {
+			decoder.interrupt();
+			workers.shutdownNow();
+		}
+	}
+
+	private static void rethrow(Throwable t) {
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new RuntimeException(t);
+	}
+}
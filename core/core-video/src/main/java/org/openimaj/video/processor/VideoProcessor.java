@@ -62,6 +62,9 @@ import org.openimaj.video.Video;
  * content, video processors should change the video frame content in place,
  * returning new altered frames. If you do not need to do this then use the
  * VideoAnalyser.
+ * <p>
+ * Frames are processed one at a time on the calling thread. For multi-threaded
+ * processing of frames see {@link ParallelVideoProcessor}.
  *
  * @author David Dupplaw (dpd@ecs.soton.ac.uk)
  *
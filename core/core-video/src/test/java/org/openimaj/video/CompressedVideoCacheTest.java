@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.image.FImage;
+
+/**
+ * Tests for {@link CompressedVideoCache}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CompressedVideoCacheTest {
+	/**
+	 * Temporary folder for the backing files
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void assertFrameEquals(FImage expected, FImage actual) {
+		assertEquals(expected.width, actual.width);
+		assertEquals(expected.height, actual.height);
+		for (int y = 0; y < expected.height; y++)
+			assertArrayEquals(expected.pixels[y], actual.pixels[y], 0f);
+	}
+
+	private CompressedVideoCache<FImage> createCache(File file, int segmentSize) throws IOException {
+		return new CompressedVideoCache<FImage>(64, 48, 25, FrameCodecs.deflateF(), file, true, segmentSize, 2);
+	}
+
+	/**
+	 * Frames spread across several small segments come back unchanged, in any
+	 * order
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		final File file = folder.newFile("cache.bin");
+		final CompressedVideoCache<FImage> cache = createCache(file, 256);
+
+		final FImage[] frames = new FImage[20];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = FrameCodecsTest.createFrame(64, 48, i);
+			cache.addFrame(frames[i]);
+		}
+
+		assertEquals(frames.length, cache.getNumberOfFrames());
+		assertTrue(file.length() > 256);
+
+		for (int i = frames.length - 1; i >= 0; i--)
+			assertFrameEquals(frames[i], cache.getFrame(i));
+		for (int i = 0; i < frames.length; i += 3)
+			assertFrameEquals(frames[i], cache.getFrame(i));
+
+		// recently used frames are kept
+		assertSame(cache.getFrame(5), cache.getFrame(5));
+
+		final Video<FImage> video = cache.getVideo();
+		assertEquals(frames.length, video.countFrames());
+		for (int i = 0; i < frames.length; i++) {
+			assertTrue(video.hasNextFrame());
+			assertFrameEquals(frames[i], video.getNextFrame());
+		}
+		assertFalse(video.hasNextFrame());
+		assertNull(video.getNextFrame());
+
+		final Video<FImage> array = cache.getArrayBackedVideo();
+		assertEquals(frames.length, array.countFrames());
+		for (int i = 0; i < frames.length; i++)
+			assertFrameEquals(frames[i], array.getNextFrame());
+
+		cache.close();
+		assertFalse(file.exists());
+	}
+
+	/**
+	 * A frame bigger than the segment size gets a segment of its own
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testLargeFrame() throws IOException {
+		final CompressedVideoCache<FImage> cache = createCache(folder.newFile("cache.bin"), 16);
+
+		final FImage frame = FrameCodecsTest.createFrame(64, 48, 1);
+		cache.addFrame(frame);
+		cache.addFrame(frame);
+
+		assertFrameEquals(frame, cache.getFrame(0));
+		assertFrameEquals(frame, cache.getFrame(1));
+		cache.close();
+	}
+
+	/**
+	 * After a reset the cache is empty and can be refilled
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testReset() throws IOException {
+		final CompressedVideoCache<FImage> cache = createCache(folder.newFile("cache.bin"), 4096);
+
+		for (int i = 0; i < 10; i++)
+			cache.addFrame(FrameCodecsTest.createFrame(64, 48, i));
+
+		cache.reset();
+		assertEquals(0, cache.getNumberOfFrames());
+
+		final FImage[] frames = new FImage[10];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = FrameCodecsTest.createFrame(64, 48, 100 + i);
+			cache.addFrame(frames[i]);
+		}
+
+		for (int i = 0; i < frames.length; i++)
+			assertFrameEquals(frames[i], cache.getFrame(i));
+		cache.close();
+	}
+
+	/**
+	 * Frames outside the cache are rejected
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfRange() throws IOException {
+		final CompressedVideoCache<FImage> cache = createCache(folder.newFile("cache.bin"), 4096);
+		try {
+			cache.addFrame(FrameCodecsTest.createFrame(64, 48, 0));
+			cache.getFrame(1);
+		} finally {
+			cache.close();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.colour.ColourSpace;
+
+/**
+ * Tests for {@link FrameCodecs}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FrameCodecsTest {
+	static FImage createFrame(int width, int height, int seed) {
+		final FImage frame = new FImage(width, height);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				frame.pixels[y][x] = ((x * 7 + y * 13 + seed * 31) % 256) / 255f;
+		return frame;
+	}
+
+	static MBFImage createColourFrame(int width, int height, int seed) {
+		return new MBFImage(ColourSpace.RGB, createFrame(width, height, seed), createFrame(width, height, seed + 1),
+				createFrame(width, height, seed + 2));
+	}
+
+	private static void assertPixelsEqual(FImage expected, FImage actual, float tol) {
+		assertEquals(expected.width, actual.width);
+		assertEquals(expected.height, actual.height);
+		for (int y = 0; y < expected.height; y++)
+			for (int x = 0; x < expected.width; x++)
+				assertEquals(expected.pixels[y][x], actual.pixels[y][x], tol);
+	}
+
+	/**
+	 * The deflate codecs are lossless for 8-bit frames
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDeflateRoundTrip() throws IOException {
+		final FImage grey = createFrame(37, 23, 0);
+		final FImage greyOut = FrameCodecs.deflateF().decode(ByteBuffer.wrap(FrameCodecs.deflateF().encode(grey)));
+		for (int y = 0; y < grey.height; y++)
+			assertArrayEquals(grey.pixels[y], greyOut.pixels[y], 0f);
+
+		final MBFImage colour = createColourFrame(37, 23, 5);
+		final MBFImage colourOut = FrameCodecs.deflateMBF().decode(
+				ByteBuffer.wrap(FrameCodecs.deflateMBF().encode(colour)));
+		assertEquals(ColourSpace.RGB, colourOut.colourSpace);
+		assertEquals(3, colourOut.numBands());
+		for (int b = 0; b < 3; b++)
+			for (int y = 0; y < colour.getHeight(); y++)
+				assertArrayEquals(colour.getBand(b).pixels[y], colourOut.getBand(b).pixels[y], 0f);
+	}
+
+	/**
+	 * The JPEG codecs are close to the input at high quality
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testJPEGRoundTrip() throws IOException {
+		final FImage grey = new FImage(64, 48).fill(0.5f);
+		final FImage greyOut = FrameCodecs.jpegF(0.95f).decode(ByteBuffer.wrap(FrameCodecs.jpegF(0.95f).encode(grey)));
+		assertPixelsEqual(grey, greyOut, 2f / 255f);
+
+		final MBFImage colour = new MBFImage(64, 48, ColourSpace.RGB).fill(new Float[] { 0.2f, 0.4f, 0.8f });
+		final MBFImage colourOut = FrameCodecs.jpegMBF(0.95f).decode(
+				ByteBuffer.wrap(FrameCodecs.jpegMBF(0.95f).encode(colour)));
+		for (int b = 0; b < 3; b++)
+			assertPixelsEqual(colour.getBand(b), colourOut.getBand(b), 3f / 255f);
+	}
+
+	/**
+	 * Truncated or corrupt data must fail rather than hang
+	 */
+	@Test(timeout = 10000)
+	public void testTruncated() {
+		final FrameCodec<FImage> codec = FrameCodecs.deflateF();
+
+		byte[] data = null;
+		try {
+			data = codec.encode(createFrame(64, 64, 3));
+		} catch (final IOException e) {
+			fail();
+		}
+
+		final int[] lengths = { 16, 20, data.length / 2 };
+		for (final int len : lengths) {
+			try {
+				codec.decode(ByteBuffer.wrap(Arrays.copyOf(data, len)));
+				fail("Decoding " + len + " of " + data.length + " bytes should fail");
+			} catch (final IOException e) {
+				// expected
+			}
+		}
+
+		final byte[] corrupt = data.clone();
+		for (int i = 18; i < corrupt.length; i++)
+			corrupt[i] = (byte) 0xff;
+		try {
+			codec.decode(ByteBuffer.wrap(corrupt));
+			fail("Decoding corrupt data should fail");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.processor.ImageProcessor;
+import org.openimaj.util.function.Function;
+import org.openimaj.video.Video;
+import org.openimaj.video.processor.ParallelVideoProcessor.FrameHandler;
+
+/**
+ * Tests for {@link ParallelVideoProcessor}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ParallelVideoProcessorTest {
+	/**
+	 * A video of numbered frames that ends (returns null) after the last
+	 * frame. The same frame instance is reused for every frame, as a decoder
+	 * would.
+	 */
+	private static class NumberedVideo extends Video<FImage> {
+		final int nframes;
+		final FImage frame = new FImage(16, 8);
+
+		NumberedVideo(int nframes) {
+			this.nframes = nframes;
+		}
+
+		@Override
+		public FImage getNextFrame() {
+			if (currentFrame >= nframes)
+				return null;
+			frame.fill(currentFrame++);
+			return frame;
+		}
+
+		@Override
+		public FImage getCurrentFrame() {
+			return frame;
+		}
+
+		@Override
+		public int getWidth() {
+			return frame.width;
+		}
+
+		@Override
+		public int getHeight() {
+			return frame.height;
+		}
+
+		@Override
+		public long getTimeStamp() {
+			return (long) (1000 * (currentFrame - 1) / getFPS());
+		}
+
+		@Override
+		public double getFPS() {
+			return 25;
+		}
+
+		@Override
+		public boolean hasNextFrame() {
+			return currentFrame < nframes;
+		}
+
+		@Override
+		public long countFrames() {
+			return nframes;
+		}
+
+		@Override
+		public void reset() {
+			currentFrame = 0;
+		}
+	}
+
+	/**
+	 * Results are delivered in frame order with the right frame, timestamp
+	 * and result, even though workers finish out of order
+	 */
+	@Test(timeout = 30000)
+	public void testOrder() {
+		final int nframes = 200;
+		final Random rng = new Random(1);
+
+		final Function<FImage, Float> worker = new Function<FImage, Float>() {
+			@Override
+			public Float apply(FImage frame) {
+				final int delay;
+				synchronized (rng) {
+					delay = rng.nextInt(3);
+				}
+				try {
+					Thread.sleep(delay);
+				} catch (final InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				return frame.pixels[0][0] * 2;
+			}
+		};
+
+		final List<Float> results = new ArrayList<Float>();
+		final List<Long> timestamps = new ArrayList<Long>();
+		new ParallelVideoProcessor<FImage, Float>(new NumberedVideo(nframes), worker, 4, 6)
+				.process(new FrameHandler<FImage, Float>() {
+					@Override
+					public void handle(FImage frame, long timestamp, Float result) {
+						assertEquals(results.size(), frame.pixels[3][7], 0f);
+						results.add(result);
+						timestamps.add(timestamp);
+					}
+				});
+
+		assertEquals(nframes, results.size());
+		for (int i = 0; i < nframes; i++) {
+			assertEquals(2 * i, results.get(i), 0f);
+			assertEquals(i * 40, (long) timestamps.get(i));
+		}
+	}
+
+	/**
+	 * In-place processing modifies the pooled buffer, not the video's frame
+	 */
+	@Test(timeout = 30000)
+	public void testInplace() {
+		final NumberedVideo video = new NumberedVideo(50);
+		final ImageProcessor<FImage> negate = new ImageProcessor<FImage>() {
+			@Override
+			public void processImage(FImage image) {
+				image.multiplyInplace(-1f);
+			}
+		};
+
+		final int[] count = { 0 };
+		new ParallelVideoProcessor<FImage, FImage>(video, ParallelVideoProcessor.inplace(negate), 3)
+				.process(new FrameHandler<FImage, FImage>() {
+					@Override
+					public void handle(FImage frame, long timestamp, FImage result) {
+						assertTrue(frame == result);
+						assertEquals(-count[0], result.pixels[0][0], 0f);
+						count[0]++;
+					}
+				});
+
+		assertEquals(50, count[0]);
+		assertEquals(49, video.frame.pixels[0][0], 0f);
+	}
+
+	/**
+	 * Exceptions thrown by the worker are rethrown by process
+	 */
+	@Test(timeout = 30000)
+	public void testWorkerException() {
+		final Function<FImage, Float> worker = new Function<FImage, Float>() {
+			@Override
+			public Float apply(FImage frame) {
+				if (frame.pixels[0][0] == 10)
+					throw new IllegalStateException("bad frame");
+				return frame.pixels[0][0];
+			}
+		};
+
+		final int[] count = { 0 };
+		try {
+			new ParallelVideoProcessor<FImage, Float>(new NumberedVideo(100), worker, 2)
+					.process(new FrameHandler<FImage, Float>() {
+						@Override
+						public void handle(FImage frame, long timestamp, Float result) {
+							count[0]++;
+						}
+					});
+			fail();
+		} catch (final IllegalStateException e) {
+			assertEquals("bad frame", e.getMessage());
+		}
+
+		assertEquals(10, count[0]);
+	}
+
+	/**
+	 * The depth must be at least the number of workers
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDepth() {
+		new ParallelVideoProcessor<FImage, Float>(new NumberedVideo(1), null, 4, 3);
+	}
+}
@@ -29,11 +29,15 @@
  */
 package org.openimaj.data.dataset;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -44,6 +48,7 @@ import org.apache.commons.vfs2.VFS;
 import org.openimaj.data.identity.Identifiable;
 import org.openimaj.io.InputStreamObjectReader;
 import org.openimaj.io.ObjectReader;
+import org.openimaj.util.iterator.PrefetchingIterator;
 
 /**
  * A {@link GroupedDataset} of {@link VFSListDataset}s backed by directories of
@@ -91,6 +96,9 @@ public class VFSGroupDataset<INSTANCE>
 	private Map<String, VFSListDataset<INSTANCE>> files = new LinkedHashMap<String, VFSListDataset<INSTANCE>>();
 	private Map<String, FileObject> directoryInfo = new LinkedHashMap<String, FileObject>();
 	private FileObject base;
+	private int prefetchSize = 0;
+	private boolean prefetchOrdered = true;
+	private ExecutorService prefetchExecutor;
 
 	/**
 	 * Construct a grouped dataset from any virtual file system source (local
@@ -180,6 +188,58 @@ public class VFSGroupDataset<INSTANCE>
 		return directoryInfo.get(key);
 	}
 
+	/**
+	 * Configure the reading of instances during iteration. If the read-ahead
+	 * size is greater than zero, {@link #iterator()} will read and decode up
+	 * to that many instances ahead of the consumer using a pool of background
+	 * threads shared across all the groups and all the iterators of this
+	 * dataset; the threads terminate when they are idle. The setting is also
+	 * applied to each of the group's {@link VFSListDataset}s.
+	 * 
+	 * @see VFSListDataset#setPrefetch(int, int, boolean)
+	 * 
+	 * @param readAhead
+	 *            the maximum number of instances to read ahead; zero disables
+	 *            prefetching
+	 * @param numThreads
+	 *            the number of reader threads
+	 * @param ordered
+	 *            if true the iterator returns instances in group order; if
+	 *            false instances are returned as soon as they have been read
+	 * @return this dataset
+	 */
+	public VFSGroupDataset<INSTANCE> setPrefetch(int readAhead, int numThreads, boolean ordered) {
+		if (readAhead < 0)
+			throw new IllegalArgumentException("readAhead must not be negative");
+		if (numThreads < 1)
+			throw new IllegalArgumentException("numThreads must be at least 1");
+
+		for (final VFSListDataset<INSTANCE> list : files.values())
+			list.setPrefetch(readAhead, numThreads, ordered);
+
+		// any previous pool is left for existing iterators to finish with;
+		// its threads terminate once they are idle
+		this.prefetchSize = readAhead;
+		this.prefetchOrdered = ordered;
+		this.prefetchExecutor = readAhead > 0 ? PrefetchingIterator.createExecutor(numThreads) : null;
+
+		return this;
+	}
+
+	@Override
+	public Iterator<INSTANCE> iterator() {
+		if (prefetchSize > 0) {
+			final List<FileObject> all = new ArrayList<FileObject>(numInstances());
+			for (final VFSListDataset<INSTANCE> list : files.values())
+				all.addAll(Arrays.asList(list.getFileObjects()));
+
+			return new PrefetchingIterator<INSTANCE, FileObject>(all.iterator(), reader, prefetchSize, prefetchExecutor,
+					prefetchOrdered);
+		}
+
+		return super.iterator();
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%s(%d groups with a total of %d instances)", this.getClass().getName(), this.size(),
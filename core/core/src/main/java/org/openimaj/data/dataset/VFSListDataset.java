@@ -32,6 +32,7 @@ package org.openimaj.data.dataset;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
@@ -46,6 +47,7 @@ import org.openimaj.io.IOUtils;
 import org.openimaj.io.InputStreamObjectReader;
 import org.openimaj.io.ObjectReader;
 import org.openimaj.util.array.ArrayIterator;
+import org.openimaj.util.iterator.PrefetchingIterator;
 
 /**
  * A {@link ListDataset} backed by a directory of items (either locally or
@@ -140,6 +142,9 @@ public class VFSListDataset<INSTANCE> extends ReadableListDataset<INSTANCE, File
 
 	private FileObject[] files;
 	private FileObject base;
+	private int prefetchSize = 0;
+	private boolean prefetchOrdered = true;
+	private ExecutorService prefetchExecutor;
 
 	/**
 	 * Construct a list dataset from any virtual file system source (local
@@ -238,8 +243,47 @@ public class VFSListDataset<INSTANCE> extends ReadableListDataset<INSTANCE, File
 		return reader.read(file);
 	}
 
+	/**
+	 * Configure the reading of instances during iteration. If the read-ahead
+	 * size is greater than zero, {@link #iterator()} will read and decode up
+	 * to that many instances ahead of the consumer using a pool of background
+	 * threads; otherwise instances are read on the calling thread as they are
+	 * requested (the default). The threads are shared by all the iterators of
+	 * this dataset and terminate when they are idle.
+	 * 
+	 * @param readAhead
+	 *            the maximum number of instances to read ahead; zero disables
+	 *            prefetching
+	 * @param numThreads
+	 *            the number of reader threads
+	 * @param ordered
+	 *            if true the iterator returns instances in the same order as
+	 *            {@link #getFileObjects()}; if false instances are returned as
+	 *            soon as they have been read
+	 * @return this dataset
+	 */
+	public VFSListDataset<INSTANCE> setPrefetch(int readAhead, int numThreads, boolean ordered) {
+		if (readAhead < 0)
+			throw new IllegalArgumentException("readAhead must not be negative");
+		if (numThreads < 1)
+			throw new IllegalArgumentException("numThreads must be at least 1");
+
+		// any previous pool is left for existing iterators to finish with;
+		// its threads terminate once they are idle
+		this.prefetchSize = readAhead;
+		this.prefetchOrdered = ordered;
+		this.prefetchExecutor = readAhead > 0 ? PrefetchingIterator.createExecutor(numThreads) : null;
+
+		return this;
+	}
+
 	@Override
 	public Iterator<INSTANCE> iterator() {
+		if (prefetchSize > 0) {
+			return new PrefetchingIterator<INSTANCE, FileObject>(new ArrayIterator<FileObject>(files), reader,
+					prefetchSize, prefetchExecutor, prefetchOrdered);
+		}
+
 		return new Iterator<INSTANCE>() {
 			ArrayIterator<FileObject> filesIterator = new ArrayIterator<FileObject>(files);
 
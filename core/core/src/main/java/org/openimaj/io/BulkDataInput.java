@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * A {@link DataInput} that can read arrays of primitives in bulk. The format
+ * is identical to reading each value with the corresponding {@link DataInput}
+ * method. {@link ReadableBinary} implementations with large primitive arrays
+ * should test for this interface and use the bulk methods when it is
+ * available.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public interface BulkDataInput extends DataInput {
+	/**
+	 * Read into a range of an array of bytes
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readBytes(byte[] a, int off, int len) throws IOException;
+
+	/**
+	 * Read into a range of an array of shorts
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readShorts(short[] a, int off, int len) throws IOException;
+
+	/**
+	 * Read into a range of an array of ints
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readInts(int[] a, int off, int len) throws IOException;
+
+	/**
+	 * Read into a range of an array of longs
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readLongs(long[] a, int off, int len) throws IOException;
+
+	/**
+	 * Read into a range of an array of floats
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readFloats(float[] a, int off, int len) throws IOException;
+
+	/**
+	 * Read into a range of an array of doubles
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readDoubles(double[] a, int off, int len) throws IOException;
+}
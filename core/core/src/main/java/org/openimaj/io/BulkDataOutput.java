@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link DataOutput} that can write arrays of primitives in bulk. The
+ * format is identical to writing each value with the corresponding
+ * {@link DataOutput} method, so data written in bulk can be read back one
+ * value at a time and vice-versa. {@link WriteableBinary} implementations
+ * with large primitive arrays should test for this interface and use the bulk
+ * methods when it is available.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public interface BulkDataOutput extends DataOutput {
+	/**
+	 * Write a range of an array of bytes
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeBytes(byte[] a, int off, int len) throws IOException;
+
+	/**
+	 * Write a range of an array of shorts
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeShorts(short[] a, int off, int len) throws IOException;
+
+	/**
+	 * Write a range of an array of ints
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeInts(int[] a, int off, int len) throws IOException;
+
+	/**
+	 * Write a range of an array of longs
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeLongs(long[] a, int off, int len) throws IOException;
+
+	/**
+	 * Write a range of an array of floats
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeFloats(float[] a, int off, int len) throws IOException;
+
+	/**
+	 * Write a range of an array of doubles
+	 * 
+	 * @param a
+	 *            the array
+	 * @param off
+	 *            the offset of the first element
+	 * @param len
+	 *            the number of elements
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeDoubles(double[] a, int off, int len) throws IOException;
+}
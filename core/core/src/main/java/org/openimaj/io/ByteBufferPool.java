@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct {@link ByteBuffer}s used by {@link ChannelDataInput} and
+ * {@link ChannelDataOutput}. Allocating direct buffers is expensive and their
+ * memory is only reclaimed when they are garbage collected, so buffers are
+ * returned to the pool when a reader or writer is closed and reused by the
+ * next one.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public final class ByteBufferPool {
+	/**
+	 * The size of the pooled buffers in bytes
+	 */
+	public static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * The maximum number of idle buffers that are retained
+	 */
+	public static final int MAX_POOLED = 16;
+
+	private static final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+	private static final AtomicInteger pooled = new AtomicInteger();
+
+	private ByteBufferPool() {
+	}
+
+	/**
+	 * Get a cleared direct buffer of {@link #BUFFER_SIZE} bytes from the pool,
+	 * allocating a new one if the pool is empty.
+	 * 
+	 * @return the buffer
+	 */
+	public static ByteBuffer acquire() {
+		final ByteBuffer buffer = pool.poll();
+
+		if (buffer == null)
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		pooled.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #acquire()} to the pool. The buffer
+	 * must not be used by the caller afterwards.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 */
+	public static void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect() || buffer.capacity() != BUFFER_SIZE)
+			return;
+
+		if (pooled.incrementAndGet() > MAX_POOLED) {
+			pooled.decrementAndGet();
+			return;
+		}
+
+		buffer.clear();
+		pool.offer(buffer);
+	}
+}
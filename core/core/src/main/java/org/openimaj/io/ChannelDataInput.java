@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A {@link BulkDataInput} that reads either from a {@link ReadableByteChannel}
+ * through a pooled direct buffer, or directly from a {@link ByteBuffer} (for
+ * example a memory-mapped file). It reads the format written by a
+ * {@link java.io.DataOutputStream} or {@link ChannelDataOutput}, and arrays of
+ * primitives are copied out of the buffer in bulk.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ChannelDataInput implements BulkDataInput, Closeable {
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * Construct with the given channel. Closing this input will close the
+	 * channel.
+	 * 
+	 * @param channel
+	 *            the channel
+	 */
+	public ChannelDataInput(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBufferPool.acquire();
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * Construct to read the remaining content of the given buffer. The
+	 * buffer's position is advanced as data is read.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 */
+	public ChannelDataInput(ByteBuffer buffer) {
+		this.channel = null;
+		this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Ensure at least n bytes are buffered (n must be no more than the
+	 * capacity of the buffer)
+	 */
+	private void require(int n) throws IOException {
+		if (buffer.remaining() >= n)
+			return;
+
+		if (channel == null)
+			throw new EOFException();
+
+		buffer.compact();
+		while (buffer.position() < n) {
+			if (channel.read(buffer) < 0) {
+				buffer.flip();
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+	}
+
+	@Override
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			require(1);
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public int skipBytes(int n) throws IOException {
+		int skipped = 0;
+		while (skipped < n) {
+			if (!buffer.hasRemaining()) {
+				try {
+					require(1);
+				} catch (final EOFException e) {
+					break;
+				}
+			}
+			final int s = Math.min(n - skipped, buffer.remaining());
+			buffer.position(buffer.position() + s);
+			skipped += s;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		require(1);
+		return buffer.get();
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		require(2);
+		return buffer.getShort();
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		require(2);
+		return buffer.getChar();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		require(4);
+		return buffer.getInt();
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		require(8);
+		return buffer.getLong();
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		require(4);
+		return buffer.getFloat();
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		require(8);
+		return buffer.getDouble();
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		final StringBuilder sb = new StringBuilder();
+
+		for (;;) {
+			if (!buffer.hasRemaining()) {
+				try {
+					require(1);
+				} catch (final EOFException e) {
+					return sb.length() == 0 ? null : sb.toString();
+				}
+			}
+
+			final int c = buffer.get() & 0xFF;
+			if (c == '\n')
+				return sb.toString();
+
+			if (c == '\r') {
+				try {
+					require(1);
+					if (buffer.get(buffer.position()) == '\n')
+						buffer.get();
+				} catch (final EOFException e) {
+					// end of input after the \r
+				}
+				return sb.toString();
+			}
+
+			sb.append((char) c);
+		}
+	}
+
+	@Override
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	@Override
+	public void readBytes(byte[] a, int off, int len) throws IOException {
+		readFully(a, off, len);
+	}
+
+	@Override
+	public void readShorts(short[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			require(2);
+			final int n = Math.min(len, buffer.remaining() / 2);
+			buffer.asShortBuffer().get(a, off, n);
+			buffer.position(buffer.position() + n * 2);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void readInts(int[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			require(4);
+			final int n = Math.min(len, buffer.remaining() / 4);
+			buffer.asIntBuffer().get(a, off, n);
+			buffer.position(buffer.position() + n * 4);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void readLongs(long[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			require(8);
+			final int n = Math.min(len, buffer.remaining() / 8);
+			buffer.asLongBuffer().get(a, off, n);
+			buffer.position(buffer.position() + n * 8);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void readFloats(float[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			require(4);
+			final int n = Math.min(len, buffer.remaining() / 4);
+			buffer.asFloatBuffer().get(a, off, n);
+			buffer.position(buffer.position() + n * 4);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void readDoubles(double[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			require(8);
+			final int n = Math.min(len, buffer.remaining() / 8);
+			buffer.asDoubleBuffer().get(a, off, n);
+			buffer.position(buffer.position() + n * 8);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Return the buffer to the pool (if it came from the pool) and close the
+	 * channel (if there is one)
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null)
+			return;
+
+		if (channel != null) {
+			ByteBufferPool.release(buffer);
+			channel.close();
+		}
+		buffer = null;
+	}
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link BulkDataOutput} that writes to a {@link WritableByteChannel}
+ * through a pooled direct buffer. The output is byte-for-byte identical to
+ * that of a {@link java.io.DataOutputStream}, but each primitive is a single
+ * buffer operation rather than a sequence of byte writes to the underlying
+ * stream, and arrays of primitives are copied into the buffer in bulk.
+ * <p>
+ * The output must be closed (or at least flushed) for the buffered data to
+ * reach the channel.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ChannelDataOutput implements BulkDataOutput, Flushable, Closeable {
+	private final WritableByteChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * Construct with the given channel. Closing this output will close the
+	 * channel.
+	 * 
+	 * @param channel
+	 *            the channel
+	 */
+	public ChannelDataOutput(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBufferPool.acquire();
+	}
+
+	private void ensure(int n) throws IOException {
+		if (buffer.remaining() < n)
+			drain();
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensure(1);
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len > buffer.capacity()) {
+			drain();
+
+			final ByteBuffer wrapped = ByteBuffer.wrap(b, off, len);
+			while (wrapped.hasRemaining())
+				channel.write(wrapped);
+
+			return;
+		}
+
+		ensure(len);
+		buffer.put(b, off, len);
+	}
+
+	@Override
+	public void writeBoolean(boolean v) throws IOException {
+		write(v ? 1 : 0);
+	}
+
+	@Override
+	public void writeByte(int v) throws IOException {
+		write(v);
+	}
+
+	@Override
+	public void writeShort(int v) throws IOException {
+		ensure(2);
+		buffer.putShort((short) v);
+	}
+
+	@Override
+	public void writeChar(int v) throws IOException {
+		ensure(2);
+		buffer.putChar((char) v);
+	}
+
+	@Override
+	public void writeInt(int v) throws IOException {
+		ensure(4);
+		buffer.putInt(v);
+	}
+
+	@Override
+	public void writeLong(long v) throws IOException {
+		ensure(8);
+		buffer.putLong(v);
+	}
+
+	@Override
+	public void writeFloat(float v) throws IOException {
+		ensure(4);
+		buffer.putFloat(v);
+	}
+
+	@Override
+	public void writeDouble(double v) throws IOException {
+		ensure(8);
+		buffer.putDouble(v);
+	}
+
+	@Override
+	public void writeBytes(String s) throws IOException {
+		final int len = s.length();
+		for (int i = 0; i < len; i++)
+			write(s.charAt(i));
+	}
+
+	@Override
+	public void writeChars(String s) throws IOException {
+		final int len = s.length();
+		for (int i = 0; i < len; i++)
+			writeChar(s.charAt(i));
+	}
+
+	@Override
+	public void writeUTF(String s) throws IOException {
+		// modified UTF-8, as DataOutputStream
+		final int strlen = s.length();
+		int utflen = 0;
+		for (int i = 0; i < strlen; i++) {
+			final int c = s.charAt(i);
+			if ((c >= 0x0001) && (c <= 0x007F))
+				utflen++;
+			else if (c > 0x07FF)
+				utflen += 3;
+			else
+				utflen += 2;
+		}
+
+		if (utflen > 65535)
+			throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+
+		writeShort(utflen);
+		for (int i = 0; i < strlen; i++) {
+			final int c = s.charAt(i);
+			if ((c >= 0x0001) && (c <= 0x007F)) {
+				write(c);
+			} else if (c > 0x07FF) {
+				write(0xE0 | ((c >> 12) & 0x0F));
+				write(0x80 | ((c >> 6) & 0x3F));
+				write(0x80 | (c & 0x3F));
+			} else {
+				write(0xC0 | ((c >> 6) & 0x1F));
+				write(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	@Override
+	public void writeBytes(byte[] a, int off, int len) throws IOException {
+		write(a, off, len);
+	}
+
+	@Override
+	public void writeShorts(short[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			ensure(2);
+			final int n = Math.min(len, buffer.remaining() / 2);
+			buffer.asShortBuffer().put(a, off, n);
+			buffer.position(buffer.position() + n * 2);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void writeInts(int[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			ensure(4);
+			final int n = Math.min(len, buffer.remaining() / 4);
+			buffer.asIntBuffer().put(a, off, n);
+			buffer.position(buffer.position() + n * 4);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void writeLongs(long[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			ensure(8);
+			final int n = Math.min(len, buffer.remaining() / 8);
+			buffer.asLongBuffer().put(a, off, n);
+			buffer.position(buffer.position() + n * 8);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void writeFloats(float[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			ensure(4);
+			final int n = Math.min(len, buffer.remaining() / 4);
+			buffer.asFloatBuffer().put(a, off, n);
+			buffer.position(buffer.position() + n * 4);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void writeDoubles(double[] a, int off, int len) throws IOException {
+		while (len > 0) {
+			ensure(8);
+			final int n = Math.min(len, buffer.remaining() / 8);
+			buffer.asDoubleBuffer().put(a, off, n);
+			buffer.position(buffer.position() + n * 8);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Discard any buffered data that has not yet been written to the channel.
+	 * The output can continue to be used afterwards.
+	 */
+	public void discard() {
+		if (buffer != null)
+			buffer.clear();
+	}
+
+	/**
+	 * Write any buffered data to the channel
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+
+	/**
+	 * Flush the buffered data, return the buffer to the pool and close the
+	 * channel
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null)
+			return;
+
+		try {
+			drain();
+		} finally {
+			ByteBufferPool.release(buffer);
+			buffer = null;
+			channel.close();
+		}
+	}
+}
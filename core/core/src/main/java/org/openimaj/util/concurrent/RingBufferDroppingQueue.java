@@ -0,0 +1,439 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free {@linkplain BlockingDroppingQueue blocking dropping
+ * queue} backed by a ring buffer. Like the {@link ArrayBlockingDroppingQueue},
+ * attempts to <tt>put</tt> an element into a full queue will result in the
+ * oldest item being removed to make room, however no locks are taken by any of
+ * the queuing operations. This makes it suitable for hot paths such as live
+ * video frames or tweets being buffered for a slower consumer, where the
+ * lock-based queue causes contention and context switches.
+ * <p>
+ * Each slot of the ring has a sequence number that tells producers and
+ * consumers whether the slot is free or full for the current lap of the ring,
+ * in the style of Vyukov's bounded queue. The head and tail counters are
+ * padded to sit on their own cache lines. Dropping the oldest element is
+ * performed by the producer as an ordinary removal from the head, so
+ * consumers and dropping producers may safely race. The queue can be created
+ * for a single producer, in which case the tail is advanced without a
+ * compare-and-swap, or for multiple producers. Any number of threads may
+ * consume.
+ * <p>
+ * Blocking retrievals wait for an element according to a {@link WaitStrategy}
+ * rather than a condition, trading CPU for latency: an idle consumer keeps
+ * waking up, so the {@link ArrayBlockingDroppingQueue} remains the better
+ * choice for streams that are mostly idle. Streams such as the Twitter
+ * datasets accept a queue in their constructors, so this queue can be used
+ * where it pays off.
+ * <p>
+ * Removal of arbitrary elements (through {@link #remove(Object)} or the
+ * iterator) is not supported. The iterator is weakly consistent and works on a
+ * snapshot of the queue.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * @param <E>
+ *            the type of elements held in this collection
+ */
+public class RingBufferDroppingQueue<E> extends AbstractQueue<E> implements BlockingDroppingQueue<E> {
+	/**
+	 * Strategies for waiting for an element to become available.
+	 *
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 */
+	public enum WaitStrategy {
+		/**
+		 * Spin on the CPU. Lowest latency, but occupies a core while waiting.
+		 */
+		BUSY_SPIN {
+			@Override
+			void idle(int attempt) {
+				// spin
+			}
+		},
+		/**
+		 * Spin briefly, then yield the CPU to other threads between attempts.
+		 */
+		YIELD {
+			@Override
+			void idle(int attempt) {
+				if (attempt > SPIN_TRIES)
+					Thread.yield();
+			}
+		},
+		/**
+		 * Spin briefly, then park the thread between attempts, increasing the
+		 * park time up to a millisecond the longer the wait. Uses little CPU
+		 * while waiting, at the cost of latency.
+		 */
+		PARK {
+			@Override
+			void idle(int attempt) {
+				if (attempt > SPIN_TRIES)
+					LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, PARK_NANOS * (attempt - SPIN_TRIES)));
+			}
+		};
+
+		private static final int SPIN_TRIES = 100;
+		private static final long PARK_NANOS = 10000;
+		private static final long MAX_PARK_NANOS = 1000000;
+
+		abstract void idle(int attempt);
+	}
+
+	/**
+	 * An {@link AtomicLong} padded so that it does not share a cache line with
+	 * other frequently written fields.
+	 */
+	@SuppressWarnings("serial")
+	static final class PaddedAtomicLong extends AtomicLong {
+		volatile long p1, p2, p3, p4, p5, p6 = 7L;
+
+		long preventOptimisation() {
+			return p1 + p2 + p3 + p4 + p5 + p6;
+		}
+	}
+
+	private final int capacity;
+	private final int slots;
+	private final boolean multiProducer;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicReferenceArray<E> items;
+	private final AtomicLongArray sequences;
+
+	private final PaddedAtomicLong head = new PaddedAtomicLong();
+	private final PaddedAtomicLong tail = new PaddedAtomicLong();
+	private final PaddedAtomicLong dropCount = new PaddedAtomicLong();
+
+	/**
+	 * Creates a multi-producer <tt>RingBufferDroppingQueue</tt> with the given
+	 * (fixed) capacity that parks waiting consumers.
+	 *
+	 * @param capacity
+	 *            the capacity of this queue
+	 * @throws IllegalArgumentException
+	 *             if <tt>capacity</tt> is less than 1
+	 */
+	public RingBufferDroppingQueue(int capacity) {
+		this(capacity, true, WaitStrategy.PARK);
+	}
+
+	/**
+	 * Creates a <tt>RingBufferDroppingQueue</tt> with the given (fixed)
+	 * capacity, producer model and wait strategy.
+	 *
+	 * @param capacity
+	 *            the capacity of this queue
+	 * @param multiProducer
+	 *            if <tt>true</tt> any number of threads may insert elements;
+	 *            if <tt>false</tt> only a single thread may ever insert
+	 *            elements
+	 * @param waitStrategy
+	 *            how threads waiting for an element should wait
+	 * @throws IllegalArgumentException
+	 *             if <tt>capacity</tt> is less than 1
+	 */
+	public RingBufferDroppingQueue(int capacity, boolean multiProducer, WaitStrategy waitStrategy) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException();
+
+		this.capacity = capacity;
+		this.multiProducer = multiProducer;
+		this.waitStrategy = waitStrategy;
+
+		// a single slot can't distinguish full from empty by its sequence
+		// alone, so the ring always has at least two slots and the capacity
+		// is then enforced against the head
+		this.slots = Math.max(2, capacity);
+
+		items = new AtomicReferenceArray<E>(slots);
+		sequences = new AtomicLongArray(slots);
+		for (int i = 0; i < slots; i++)
+			sequences.set(i, i);
+	}
+
+	private int index(long pos) {
+		return (int) (pos % slots);
+	}
+
+	/**
+	 * Insert an element, optionally dropping the oldest elements to make room.
+	 *
+	 * @return true if inserted
+	 */
+	private boolean insert(E e, boolean drop, Object[] dropped) {
+		if (e == null)
+			throw new NullPointerException();
+
+		for (;;) {
+			final long pos = tail.get();
+			final int idx = index(pos);
+			final long diff = sequences.get(idx) - pos;
+			final boolean full = diff < 0 || (diff == 0 && slots > capacity && pos - head.get() >= capacity);
+
+			if (full) {
+				// the slot still holds the element from the previous lap, or
+				// the queue holds its capacity
+				if (!drop)
+					return false;
+
+				// a consumer has claimed the oldest element but not yet
+				// released its slot; wait for it rather than dropping another
+				if (head.get() > pos - capacity)
+					continue;
+
+				final E old = poll();
+				if (old != null) {
+					dropCount.incrementAndGet();
+					dropped[0] = old;
+				}
+			} else if (diff == 0) {
+				if (multiProducer) {
+					if (!tail.compareAndSet(pos, pos + 1))
+						continue;
+				} else {
+					tail.lazySet(pos + 1);
+				}
+
+				items.lazySet(idx, e);
+				sequences.lazySet(idx, pos + 1);
+				return true;
+			}
+			// otherwise another producer has claimed the slot; try again
+		}
+	}
+
+	@Override
+	public boolean offer(E e) {
+		return insert(e, false, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E put(E e) {
+		final Object[] dropped = new Object[1];
+		insert(e, true, dropped);
+		return (E) dropped[0];
+	}
+
+	@Override
+	public E poll() {
+		for (;;) {
+			final long pos = head.get();
+			final int idx = index(pos);
+			final long diff = sequences.get(idx) - (pos + 1);
+
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					final E e = items.get(idx);
+					items.lazySet(idx, null);
+					sequences.lazySet(idx, pos + slots);
+					return e;
+				}
+			} else if (diff < 0) {
+				return null;
+			}
+			// otherwise another consumer has taken the element; try again
+		}
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		for (int attempt = 0;; attempt++) {
+			final E e = poll();
+			if (e != null)
+				return e;
+
+			if (Thread.interrupted())
+				throw new InterruptedException();
+
+			waitStrategy.idle(attempt);
+		}
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (int attempt = 0;; attempt++) {
+			final E e = poll();
+			if (e != null)
+				return e;
+
+			if (Thread.interrupted())
+				throw new InterruptedException();
+
+			if (System.nanoTime() - deadline >= 0)
+				return null;
+
+			waitStrategy.idle(attempt);
+		}
+	}
+
+	@Override
+	public E peek() {
+		for (;;) {
+			final long pos = head.get();
+			final int idx = index(pos);
+
+			if (sequences.get(idx) != pos + 1)
+				return null;
+
+			final E e = items.get(idx);
+			if (e != null && head.get() == pos)
+				return e;
+		}
+	}
+
+	@Override
+	public int size() {
+		// read head first so that the size is never negative
+		final long h = head.get();
+		final long t = tail.get();
+
+		return (int) Math.max(0, Math.min(capacity, t - h));
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	/**
+	 * Not supported.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException("Removal of arbitrary elements is not supported");
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o == null)
+			return false;
+
+		for (final Object e : snapshot())
+			if (o.equals(e))
+				return true;
+
+		return false;
+	}
+
+	private List<E> snapshot() {
+		final List<E> list = new ArrayList<E>();
+
+		final long t = tail.get();
+		for (long pos = head.get(); pos < t; pos++) {
+			final int idx = index(pos);
+			final E e = items.get(idx);
+
+			if (e != null && sequences.get(idx) == pos + 1)
+				list.add(e);
+		}
+
+		return list;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return snapshot().toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return snapshot().toArray(a);
+	}
+
+	@Override
+	public void clear() {
+		while (poll() != null)
+			;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == null)
+			throw new NullPointerException();
+		if (c == this)
+			throw new IllegalArgumentException();
+
+		int n = 0;
+		E e;
+		while (n < maxElements && (e = poll()) != null) {
+			c.add(e);
+			n++;
+		}
+
+		return n;
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over a snapshot of the elements in
+	 * this queue in proper sequence. The iterator does not support removal.
+	 *
+	 * @return an iterator over the elements in this queue in proper sequence
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return Collections.unmodifiableList(snapshot()).iterator();
+	}
+
+	@Override
+	public long insertCount() {
+		return tail.get();
+	}
+
+	@Override
+	public long dropCount() {
+		return dropCount.get();
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.iterator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openimaj.io.ObjectReader;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+
+/**
+ * An {@link Iterator} that reads objects from an underlying iterator of
+ * sources using a pool of background threads. Up to a fixed number of
+ * sources are read ahead of the consumer, so that the (often expensive)
+ * reading and decoding of the next items overlaps with the processing of the
+ * current one.
+ * <p>
+ * In ordered mode the items are returned in the same order as the sources; in
+ * unordered mode items are returned as soon as they have been read, which
+ * avoids a single slow item holding up the rest of the window.
+ * <p>
+ * Nothing is read until {@link #hasNext()} or {@link #next()} is first
+ * called. If the iterator creates its own threads they are daemons that
+ * terminate once the sources are exhausted (or shortly after the iterator is
+ * abandoned).
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <T>
+ *            type of object produced
+ * @param <SOURCE>
+ *            type of the sources the objects are read from
+ */
+public class PrefetchingIterator<T, SOURCE> implements Iterator<T> {
+	private final Iterator<? extends SOURCE> sources;
+	private final ObjectReader<T, SOURCE> reader;
+	private final int readAhead;
+	private final boolean ordered;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+
+	private final Deque<Future<T>> pending = new ArrayDeque<Future<T>>();
+	private final CompletionService<T> completion;
+	private int outstanding = 0;
+
+	/**
+	 * Construct a prefetching iterator with its own pool of reader threads.
+	 *
+	 * @param sources
+	 *            the sources to read from
+	 * @param reader
+	 *            the reader to apply to each source
+	 * @param readAhead
+	 *            the maximum number of items that can be read ahead of the
+	 *            consumer
+	 * @param numThreads
+	 *            the number of reader threads
+	 * @param ordered
+	 *            if true, items are returned in source order; otherwise they
+	 *            are returned in the order they finish being read
+	 */
+	public PrefetchingIterator(Iterator<? extends SOURCE> sources, ObjectReader<T, SOURCE> reader, int readAhead,
+			int numThreads, boolean ordered)
+	{
+		this(sources, reader, readAhead, createExecutor(numThreads), true, ordered);
+	}
+
+	/**
+	 * Construct a prefetching iterator that reads using the given executor.
+	 * The executor is not shutdown by the iterator.
+	 *
+	 * @param sources
+	 *            the sources to read from
+	 * @param reader
+	 *            the reader to apply to each source
+	 * @param readAhead
+	 *            the maximum number of items that can be read ahead of the
+	 *            consumer
+	 * @param executor
+	 *            the executor used to perform the reads
+	 * @param ordered
+	 *            if true, items are returned in source order; otherwise they
+	 *            are returned in the order they finish being read
+	 */
+	public PrefetchingIterator(Iterator<? extends SOURCE> sources, ObjectReader<T, SOURCE> reader, int readAhead,
+			ExecutorService executor, boolean ordered)
+	{
+		this(sources, reader, readAhead, executor, false, ordered);
+	}
+
+	private PrefetchingIterator(Iterator<? extends SOURCE> sources, ObjectReader<T, SOURCE> reader, int readAhead,
+			ExecutorService executor, boolean ownsExecutor, boolean ordered)
+	{
+		if (readAhead < 1)
+			throw new IllegalArgumentException("readAhead must be at least 1");
+
+		this.sources = sources;
+		this.reader = reader;
+		this.readAhead = readAhead;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.ordered = ordered;
+		this.completion = ordered ? null : new ExecutorCompletionService<T>(executor);
+	}
+
+	/**
+	 * Create a pool of daemon reader threads suitable for sharing between
+	 * many {@link PrefetchingIterator}s. The threads terminate after a
+	 * second of inactivity, so the pool does not need to be shut down.
+	 *
+	 * @param numThreads
+	 *            the number of reader threads
+	 * @return the pool
+	 */
+	public static ExecutorService createExecutor(int numThreads) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("numThreads must be at least 1");
+
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+		pool.allowCoreThreadTimeOut(true);
+
+		return pool;
+	}
+
+	private void fill() {
+		while (outstanding < readAhead && sources.hasNext()) {
+			final SOURCE source = sources.next();
+			final Callable<T> task = new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return reader.read(source);
+				}
+			};
+
+			if (ordered)
+				pending.add(executor.submit(task));
+			else
+				completion.submit(task);
+
+			outstanding++;
+		}
+
+		if (outstanding == 0 && ownsExecutor)
+			executor.shutdown();
+	}
+
+	@Override
+	public boolean hasNext() {
+		fill();
+		return outstanding > 0;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		final Future<T> future;
+		try {
+			future = ordered ? pending.poll() : completion.take();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		outstanding--;
+
+		// keep the window full while we wait for this item
+		fill();
+
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Not supported");
+	}
+}
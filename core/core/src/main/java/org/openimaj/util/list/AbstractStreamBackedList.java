@@ -183,6 +183,35 @@ public abstract class AbstractStreamBackedList<T extends Readable> extends Abstr
 		return element;
 	}
 	
+	/**
+	 * Read the next record from the stream into the given element rather than
+	 * a new instance. This allows subclasses to decode records without
+	 * creating an object for each one.
+	 * 
+	 * @param element
+	 *            the element to read into
+	 * @return true if a record was read; false if there are no more records
+	 * @throws IOException
+	 *             if an error occurs reading the record
+	 */
+	protected boolean readNextRecord(T element) throws IOException {
+		final SLIterator iter = isBinary ? new SLBinaryIterator() : new SLAsciiIterator();
+		if (!iter.hasNext())
+			return false;
+
+		try {
+			if (isBinary)
+				element.readBinary((DataInputStream) streamWrapper);
+			else
+				element.readASCII((Scanner) streamWrapper);
+			consumed++;
+			return true;
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
 	abstract class SLIterator implements ListIterator<T> {
 		@Override
 		public void add(T e) {
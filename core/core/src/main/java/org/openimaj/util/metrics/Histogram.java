@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative long values (typically latencies in
+ * nanoseconds) in the style of an HDR histogram. Values below 32 are counted
+ * exactly; larger values are counted in one of 32 linearly spaced sub-buckets
+ * of each power of two, so that any recorded value is reported to within about
+ * 3% over the whole range of longs with a fixed footprint of less than 2000
+ * counters. Recording a value does not allocate.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class Histogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int NUM_BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	static int bucketIndex(long value) {
+		if (value < SUB_COUNT)
+			return (int) value;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BITS;
+		final int sub = (int) (value >>> shift) - SUB_COUNT;
+
+		return SUB_COUNT + shift * SUB_COUNT + sub;
+	}
+
+	static long bucketLowerBound(int index) {
+		if (index < SUB_COUNT)
+			return index;
+
+		final int shift = (index - SUB_COUNT) / SUB_COUNT;
+		final int sub = (index - SUB_COUNT) % SUB_COUNT;
+
+		return (long) (SUB_COUNT + sub) << shift;
+	}
+
+	static long bucketWidth(int index) {
+		if (index < SUB_COUNT)
+			return 1;
+
+		return 1L << ((index - SUB_COUNT) / SUB_COUNT);
+	}
+
+	/**
+	 * Record a value. Negative values are recorded as zero.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		buckets.incrementAndGet(bucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+			// retry
+		}
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Record the time elapsed since the given start time, which should have
+	 * been obtained from {@link System#nanoTime()}.
+	 * 
+	 * @param startNanos
+	 *            the start time in nanoseconds
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the smallest recorded value, or 0 if nothing has been recorded
+	 */
+	public long getMin() {
+		return count.get() == 0 ? 0 : min.get();
+	}
+
+	/**
+	 * @return the largest recorded value, or 0 if nothing has been recorded
+	 */
+	public long getMax() {
+		return count.get() == 0 ? 0 : max.get();
+	}
+
+	/**
+	 * @return the mean of the recorded values, or 0 if nothing has been
+	 *         recorded
+	 */
+	public double getMean() {
+		final long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Get the (approximate) value below which the given percentage of the
+	 * recorded values fall. The result is the midpoint of the bucket
+	 * containing the percentile, clipped to the recorded minimum and maximum.
+	 * 
+	 * @param percentile
+	 *            the percentile (0-100)
+	 * @return the value at the percentile, or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			total += buckets.get(i);
+
+		if (total == 0)
+			return 0;
+
+		final long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0));
+
+		long cumulative = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			cumulative += buckets.get(i);
+
+			if (cumulative >= target) {
+				final long value = bucketLowerBound(i) + (bucketWidth(i) - 1) / 2;
+				return Math.max(getMin(), Math.min(getMax(), value));
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Clear all recorded values
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			buckets.set(i, 0);
+
+		count.set(0);
+		sum.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(Long.MIN_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Histogram[count=%d, min=%d, mean=%.1f, p50=%d, p99=%d, max=%d]", getCount(), getMin(),
+				getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+	}
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.openimaj.util.function.Function;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+
+/**
+ * A registry of named {@link Counter}s, {@link Histogram}s and {@link Gauge}s.
+ * <p>
+ * Instrumented code should look up its metrics once (for example when a
+ * registry is attached to an engine) and keep references to them; updating a
+ * metric is then lock- and allocation-free. Code that has no registry attached
+ * should skip instrumentation entirely, so that the cost when metrics are
+ * disabled is a single null check.
+ * <p>
+ * The current values of all the metrics can be obtained as a flat, sorted
+ * snapshot, printed periodically with
+ * {@link #report(PrintStream, long, TimeUnit)}, or exposed through JMX with
+ * {@link #registerMBean(String)}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class MetricRegistry {
+	private static ScheduledExecutorService scheduler;
+
+	private final ConcurrentSkipListMap<String, Object> metrics = new ConcurrentSkipListMap<String, Object>();
+
+	private <T> T getOrCreate(String name, Class<T> clz, T newMetric) {
+		final Object existing = metrics.putIfAbsent(name, newMetric);
+
+		if (existing == null)
+			return newMetric;
+
+		if (!clz.isInstance(existing))
+			throw new IllegalArgumentException("A metric of a different type is already registered as " + name);
+
+		return clz.cast(existing);
+	}
+
+	/**
+	 * Get the counter with the given name, creating it if necessary
+	 * 
+	 * @param name
+	 *            the name
+	 * @return the counter
+	 * @throws IllegalArgumentException
+	 *             if a different type of metric has the name
+	 */
+	public Counter counter(String name) {
+		final Object existing = metrics.get(name);
+		if (existing instanceof Counter)
+			return (Counter) existing;
+
+		return getOrCreate(name, Counter.class, new Counter());
+	}
+
+	/**
+	 * Get the histogram with the given name, creating it if necessary
+	 * 
+	 * @param name
+	 *            the name
+	 * @return the histogram
+	 * @throws IllegalArgumentException
+	 *             if a different type of metric has the name
+	 */
+	public Histogram histogram(String name) {
+		final Object existing = metrics.get(name);
+		if (existing instanceof Histogram)
+			return (Histogram) existing;
+
+		return getOrCreate(name, Histogram.class, new Histogram());
+	}
+
+	/**
+	 * Register a gauge with the given name, replacing any existing gauge with
+	 * the same name.
+	 * 
+	 * @param name
+	 *            the name
+	 * @param gauge
+	 *            the gauge
+	 * @throws IllegalArgumentException
+	 *             if a different type of metric has the name
+	 */
+	public void gauge(String name, Gauge gauge) {
+		final Object existing = metrics.get(name);
+		if (existing != null && !(existing instanceof Gauge))
+			throw new IllegalArgumentException("A metric of a different type is already registered as " + name);
+
+		metrics.put(name, gauge);
+	}
+
+	/**
+	 * Remove the metric with the given name
+	 * 
+	 * @param name
+	 *            the name
+	 */
+	public void remove(String name) {
+		metrics.remove(name);
+	}
+
+	/**
+	 * Reset all the counters and histograms
+	 */
+	public void reset() {
+		for (final Object m : metrics.values()) {
+			if (m instanceof Counter)
+				((Counter) m).reset();
+			else if (m instanceof Histogram)
+				((Histogram) m).reset();
+		}
+	}
+
+	/**
+	 * Take a snapshot of the current values of all the metrics. Counters and
+	 * gauges appear under their own name; histograms are expanded into
+	 * <code>name.count</code>, <code>name.min</code>, <code>name.mean</code>,
+	 * <code>name.p50</code>, <code>name.p90</code>, <code>name.p99</code>,
+	 * <code>name.p999</code> and <code>name.max</code>.
+	 * 
+	 * @return the snapshot, sorted by name
+	 */
+	public SortedMap<String, Number> snapshot() {
+		final SortedMap<String, Number> snapshot = new TreeMap<String, Number>();
+
+		for (final Entry<String, Object> e : metrics.entrySet()) {
+			final String name = e.getKey();
+			final Object m = e.getValue();
+
+			if (m instanceof Counter) {
+				snapshot.put(name, ((Counter) m).getCount());
+			} else if (m instanceof Gauge) {
+				snapshot.put(name, ((Gauge) m).getValue());
+			} else {
+				final Histogram h = (Histogram) m;
+				snapshot.put(name + ".count", h.getCount());
+				snapshot.put(name + ".min", h.getMin());
+				snapshot.put(name + ".mean", h.getMean());
+				snapshot.put(name + ".p50", h.getValueAtPercentile(50));
+				snapshot.put(name + ".p90", h.getValueAtPercentile(90));
+				snapshot.put(name + ".p99", h.getValueAtPercentile(99));
+				snapshot.put(name + ".p999", h.getValueAtPercentile(99.9));
+				snapshot.put(name + ".max", h.getMax());
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Wrap a function so that the latency of each application is recorded in
+	 * the named histogram. This can be used to instrument a stage of a
+	 * {@link org.openimaj.util.stream.Stream}.
+	 * 
+	 * @param name
+	 *            the name of the histogram
+	 * @param function
+	 *            the function to wrap
+	 * @return the instrumented function
+	 */
+	public <IN, OUT> Function<IN, OUT> timedFunction(String name, final Function<IN, OUT> function) {
+		final Histogram histogram = histogram(name);
+
+		return new Function<IN, OUT>() {
+			@Override
+			public OUT apply(IN in) {
+				final long start = System.nanoTime();
+				try {
+					return function.apply(in);
+				} finally {
+					histogram.recordSince(start);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wrap an operation so that the latency of each invocation is recorded in
+	 * the named histogram. This can be used to instrument
+	 * {@link org.openimaj.util.parallel.Parallel} loops or the terminal
+	 * operation of a {@link org.openimaj.util.stream.Stream}.
+	 * 
+	 * @param name
+	 *            the name of the histogram
+	 * @param operation
+	 *            the operation to wrap
+	 * @return the instrumented operation
+	 */
+	public <T> Operation<T> timedOperation(String name, final Operation<T> operation) {
+		final Histogram histogram = histogram(name);
+
+		return new Operation<T>() {
+			@Override
+			public void perform(T object) {
+				final long start = System.nanoTime();
+				try {
+					operation.perform(object);
+				} finally {
+					histogram.recordSince(start);
+				}
+			}
+		};
+	}
+
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null)
+			scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+
+		return scheduler;
+	}
+
+	/**
+	 * Periodically print a snapshot of the metrics to the given stream from a
+	 * background daemon thread.
+	 * 
+	 * @param out
+	 *            the stream to print to
+	 * @param period
+	 *            the period between reports
+	 * @param unit
+	 *            the unit of the period
+	 * @return a future that can be used to cancel the reporting
+	 */
+	public ScheduledFuture<?> report(final PrintStream out, long period, TimeUnit unit) {
+		return getScheduler().scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				out.println(snapshot());
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Expose the snapshot of this registry as the attributes of an MBean on
+	 * the platform MBean server.
+	 * 
+	 * @param name
+	 *            the JMX object name (e.g.
+	 *            <code>org.openimaj:type=Metrics</code>)
+	 * @return the object name under which the bean was registered
+	 * @throws JMException
+	 *             if the name is invalid or already registered
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		final ObjectName objectName = new ObjectName(name);
+
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+
+		return objectName;
+	}
+
+	private class MetricsMBean implements DynamicMBean {
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			final Number value = snapshot().get(attribute);
+			if (value == null)
+				throw new AttributeNotFoundException(attribute);
+			return value;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read-only");
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			final SortedMap<String, Number> snapshot = snapshot();
+			final AttributeList list = new AttributeList();
+			for (final String a : attributes) {
+				if (snapshot.containsKey(a))
+					list.add(new Attribute(a, snapshot.get(a)));
+			}
+			return list;
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			// there are no operations
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			final SortedMap<String, Number> snapshot = snapshot();
+			final MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[snapshot.size()];
+
+			int i = 0;
+			for (final Entry<String, Number> e : snapshot.entrySet()) {
+				attrs[i++] = new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(), true,
+						false, false);
+			}
+
+			return new MBeanInfo(MetricRegistry.class.getName(), "OpenIMAJ metrics", attrs, null, null, null);
+		}
+	}
+}
@@ -30,6 +30,8 @@
 package org.openimaj.util.stream;
 
 import org.openimaj.util.concurrent.BlockingDroppingQueue;
+import org.openimaj.util.metrics.Gauge;
+import org.openimaj.util.metrics.MetricRegistry;
 
 /**
  * Base for a {@link Stream} with an internal buffer based on a
@@ -96,4 +98,37 @@ public class BlockingDroppingBufferedStream<T> extends AbstractStream<T> {
 	public BlockingDroppingQueue<T> getBuffer() {
 		return buffer;
 	}
+
+	/**
+	 * Register gauges for the state of the internal buffer with the given
+	 * registry. The gauges are <code>name.depth</code> (the number of buffered
+	 * items), <code>name.inserted</code> (the number of items offered to the
+	 * buffer) and <code>name.dropped</code> (the number of items the buffer has
+	 * dropped).
+	 * 
+	 * @param registry
+	 *            the registry
+	 * @param name
+	 *            the prefix for the gauge names
+	 */
+	public void registerMetrics(MetricRegistry registry, String name) {
+		registry.gauge(name + ".depth", new Gauge() {
+			@Override
+			public long getValue() {
+				return buffer.size();
+			}
+		});
+		registry.gauge(name + ".inserted", new Gauge() {
+			@Override
+			public long getValue() {
+				return buffer.insertCount();
+			}
+		});
+		registry.gauge(name + ".dropped", new Gauge() {
+			@Override
+			public long getValue() {
+				return buffer.dropCount();
+			}
+		});
+	}
 }
@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.openimaj.util.function.Function;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+
+/**
+ * A {@link Function} that turns a {@link Stream} into a pipelined stream in
+ * which the items are mapped by a number of dedicated worker threads, allowing
+ * a chain of stages (for example decode, extract, quantise and index) to
+ * overlap. Stages are applied with {@link Stream#transform(Function)}:
+ *
+ * <pre>
+ * frames.transform(new PipelineStage&lt;FImage, LocalFeatureList&lt;Keypoint&gt;&gt;(extractor, 4, 16))
+ * 		.transform(new PipelineStage&lt;LocalFeatureList&lt;Keypoint&gt;, int[]&gt;(quantiser, 2, 16))
+ * 		.forEach(indexer);
+ * </pre>
+ * <p>
+ * Each stage has a bounded capacity: at most that many items are read from
+ * the upstream but not yet consumed from the stage. When the consumer of a
+ * stage stalls the stage stops reading from its upstream, so backpressure
+ * propagates up the pipeline rather than items being buffered without bound.
+ * Items are always produced in the order they were read, regardless of the
+ * parallelism.
+ * <p>
+ * The upstream is only ever read from a single feeder thread, so it does not
+ * need to be thread-safe; the mapping function is called concurrently from the
+ * worker threads, so it must be. The threads of a stage are started when its
+ * stream is first read from, and finish when the end of the stream has been
+ * consumed or the stream is {@link PipelinedStream#close() closed} (the stream
+ * returned by {@link #apply(Stream)} is a {@link PipelinedStream}). A stream
+ * that is abandoned before its end is reached <strong>must</strong> be closed,
+ * otherwise its threads will remain blocked waiting for the consumer. If the
+ * mapping function
+ * throws, the exception is rethrown from {@link Stream#next()} in place of the
+ * corresponding item.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <IN>
+ *            type of items in the upstream
+ * @param <OUT>
+ *            type of items produced by the stage
+ */
+public class PipelineStage<IN, OUT> implements Function<Stream<IN>, Stream<OUT>> {
+	/**
+	 * A slot holding the result of mapping a single item. Slots are queued in
+	 * the order the items were read.
+	 */
+	static class Slot<IN, OUT> {
+		IN input;
+		OUT output;
+		RuntimeException error;
+		volatile boolean end;
+		final CountDownLatch done = new CountDownLatch(1);
+	}
+
+	/**
+	 * The output of a {@link PipelineStage}.
+	 *
+	 * @param <OUT>
+	 *            type of items in the stream
+	 */
+	public static abstract class PipelinedStream<OUT> extends AbstractStream<OUT> {
+		/**
+		 * Stop the threads of this stage. Items already in the stage are
+		 * discarded and {@link #hasNext()} will return false once the items
+		 * that have been completed are consumed; a consumer that is waiting
+		 * for an item that has not been completed is released. This must be
+		 * called if the stream is abandoned before its end is reached.
+		 */
+		public abstract void close();
+	}
+
+	private Function<IN, OUT> mapper;
+	private int parallelism;
+	private int capacity;
+
+	/**
+	 * Construct a stage with the given mapping function, number of worker
+	 * threads and capacity.
+	 *
+	 * @param mapper
+	 *            the function to apply to each item; must be thread-safe if
+	 *            parallelism is greater than 1
+	 * @param parallelism
+	 *            the number of worker threads
+	 * @param capacity
+	 *            the maximum number of items read from the upstream but not
+	 *            yet consumed from this stage
+	 */
+	public PipelineStage(Function<IN, OUT> mapper, int parallelism, int capacity) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be at least 1");
+
+		this.mapper = mapper;
+		this.parallelism = parallelism;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Construct a stage with a single worker thread that passes items through
+	 * unchanged. This decouples the upstream from the downstream, allowing up
+	 * to <code>capacity</code> items to be read ahead.
+	 *
+	 * @param capacity
+	 *            the maximum number of items read from the upstream but not
+	 *            yet consumed from this stage
+	 * @return the stage
+	 */
+	public static <T> PipelineStage<T, T> buffer(int capacity) {
+		return new PipelineStage<T, T>(new Function<T, T>() {
+			@Override
+			public T apply(T in) {
+				return in;
+			}
+		}, 1, capacity);
+	}
+
+	@Override
+	public PipelinedStream<OUT> apply(final Stream<IN> upstream) {
+		return new PipelinedStream<OUT>() {
+			final BlockingQueue<Slot<IN, OUT>> ordered = new ArrayBlockingQueue<Slot<IN, OUT>>(capacity);
+			final BlockingQueue<Slot<IN, OUT>> work = new LinkedBlockingQueue<Slot<IN, OUT>>();
+			final List<Thread> threads = new ArrayList<Thread>();
+			final Set<Slot<IN, OUT>> pending = Collections
+					.newSetFromMap(new ConcurrentHashMap<Slot<IN, OUT>, Boolean>());
+			Slot<IN, OUT> head;
+			volatile boolean closed;
+
+			private synchronized void start() {
+				if (!threads.isEmpty())
+					return;
+
+				final DaemonThreadFactory factory = new DaemonThreadFactory();
+
+				threads.add(factory.newThread(new Runnable() {
+					@Override
+					public void run() {
+						feed();
+					}
+				}));
+
+				for (int i = 0; i < parallelism; i++) {
+					threads.add(factory.newThread(new Runnable() {
+						@Override
+						public void run() {
+							work();
+						}
+					}));
+				}
+
+				for (final Thread t : threads)
+					t.start();
+			}
+
+			private void feed() {
+				try {
+					try {
+						while (!closed && upstream.hasNext()) {
+							final Slot<IN, OUT> slot = new Slot<IN, OUT>();
+							slot.input = upstream.next();
+							pending.add(slot);
+
+							// blocks while the stage is full
+							ordered.put(slot);
+							work.put(slot);
+						}
+					} catch (final RuntimeException e) {
+						final Slot<IN, OUT> slot = new Slot<IN, OUT>();
+						slot.error = e;
+						slot.done.countDown();
+						ordered.put(slot);
+					}
+
+					final Slot<IN, OUT> end = new Slot<IN, OUT>();
+					end.end = true;
+					end.done.countDown();
+					ordered.put(end);
+
+					// one poison slot per worker
+					for (int i = 0; i < parallelism; i++)
+						work.put(end);
+				} catch (final InterruptedException e) {
+					// closed
+				}
+			}
+
+			private void work() {
+				try {
+					while (true) {
+						final Slot<IN, OUT> slot = work.take();
+						if (slot.end)
+							return;
+
+						try {
+							slot.output = mapper.apply(slot.input);
+						} catch (final RuntimeException e) {
+							slot.error = e;
+						} catch (final Throwable t) {
+							slot.error = new RuntimeException(t);
+						}
+
+						slot.input = null;
+						pending.remove(slot);
+						slot.done.countDown();
+					}
+				} catch (final InterruptedException e) {
+					// closed
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				if (head == null) {
+					if (closed && ordered.isEmpty())
+						return false;
+
+					start();
+
+					try {
+						head = ordered.take();
+						head.done.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RuntimeException(e);
+					}
+				}
+
+				if (head.end) {
+					// the threads have nothing left to do
+					stopThreads();
+					return false;
+				}
+
+				return true;
+			}
+
+			@Override
+			public OUT next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				final Slot<IN, OUT> slot = head;
+				head = null;
+
+				if (slot.error != null)
+					throw slot.error;
+
+				return slot.output;
+			}
+
+			private synchronized void stopThreads() {
+				for (final Thread t : threads)
+					t.interrupt();
+			}
+
+			@Override
+			public void close() {
+				closed = true;
+				stopThreads();
+
+				// discard incomplete items and mark the end
+				final List<Slot<IN, OUT>> remaining = new ArrayList<Slot<IN, OUT>>();
+				ordered.drainTo(remaining);
+				for (final Slot<IN, OUT> slot : remaining) {
+					if (slot.done.getCount() == 0 && !slot.end)
+						ordered.offer(slot);
+					else
+						break;
+				}
+
+				final Slot<IN, OUT> end = new Slot<IN, OUT>();
+				end.end = true;
+				end.done.countDown();
+				ordered.offer(end);
+
+				// release a consumer waiting on an item whose worker has been
+				// stopped (including the item it already holds)
+				for (final Slot<IN, OUT> slot : pending) {
+					slot.end = true;
+					slot.done.countDown();
+				}
+				pending.clear();
+			}
+		};
+	}
+}
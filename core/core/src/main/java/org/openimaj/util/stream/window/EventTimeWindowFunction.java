@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream.window;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.openimaj.util.function.Function;
+import org.openimaj.util.stream.AbstractStream;
+import org.openimaj.util.stream.Stream;
+
+/**
+ * A function that groups a stream into windows of <em>event time</em> (the
+ * time carried by each item, rather than the time at which it is read) and
+ * incrementally aggregates each window with a {@link WindowAccumulator}.
+ * Tumbling, sliding and session windows are supported through the
+ * {@link WindowAssigner}.
+ * <p>
+ * Progress in event time is tracked with a watermark: the largest event time
+ * seen so far less the maximum expected out-of-orderness. A window produces
+ * its result once the watermark passes its end. Items that arrive after that
+ * are still added to the window for up to the allowed lateness, and each such
+ * item causes an updated result for the window to be produced; items that are
+ * later still are dropped (see {@link #getNumDroppedLate()}). When the input
+ * stream ends, all remaining windows produce their results.
+ * <p>
+ * Only an accumulator is held for each open window, so the memory used is
+ * independent of the number of items in each window.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ * @param <IN>
+ *            type of the items in the stream
+ * @param <ACC>
+ *            type of the accumulator
+ * @param <OUT>
+ *            type of the aggregated result of each window
+ */
+public class EventTimeWindowFunction<IN, ACC, OUT>
+		implements
+			Function<Stream<IN>, Stream<Aggregation<OUT, TimeWindow>>>
+{
+	private static class WindowState<ACC> {
+		ACC accumulator;
+		boolean dirty;
+	}
+
+	private WindowAssigner assigner;
+	private Function<IN, Long> timestampExtractor;
+	private WindowAccumulator<IN, ACC, OUT> accumulator;
+	private long maxOutOfOrderness;
+	private long allowedLateness;
+
+	private long numDroppedLate;
+
+	/**
+	 * Construct with the given window assigner, timestamp extractor and
+	 * accumulator. Items are expected to arrive in event-time order, and no
+	 * late items are accepted.
+	 * 
+	 * @param assigner
+	 *            the window assigner
+	 * @param timestampExtractor
+	 *            function to extract the event time of each item
+	 * @param accumulator
+	 *            the accumulator
+	 */
+	public EventTimeWindowFunction(WindowAssigner assigner, Function<IN, Long> timestampExtractor,
+			WindowAccumulator<IN, ACC, OUT> accumulator)
+	{
+		this(assigner, timestampExtractor, accumulator, 0, 0);
+	}
+
+	/**
+	 * Construct with the given window assigner, timestamp extractor,
+	 * accumulator, maximum out-of-orderness and allowed lateness.
+	 * 
+	 * @param assigner
+	 *            the window assigner
+	 * @param timestampExtractor
+	 *            function to extract the event time of each item
+	 * @param accumulator
+	 *            the accumulator
+	 * @param maxOutOfOrderness
+	 *            how far (in milliseconds) the watermark lags behind the
+	 *            largest event time seen
+	 * @param allowedLateness
+	 *            how long (in milliseconds) after the watermark passes the end
+	 *            of a window that items are still accepted into it
+	 */
+	public EventTimeWindowFunction(WindowAssigner assigner, Function<IN, Long> timestampExtractor,
+			WindowAccumulator<IN, ACC, OUT> accumulator, long maxOutOfOrderness, long allowedLateness)
+	{
+		if (maxOutOfOrderness < 0 || allowedLateness < 0)
+			throw new IllegalArgumentException("maxOutOfOrderness and allowedLateness must not be negative");
+
+		this.assigner = assigner;
+		this.timestampExtractor = timestampExtractor;
+		this.accumulator = accumulator;
+		this.maxOutOfOrderness = maxOutOfOrderness;
+		this.allowedLateness = allowedLateness;
+	}
+
+	/**
+	 * Get the number of items that have been dropped because they arrived
+	 * after the allowed lateness of all their windows
+	 * 
+	 * @return the number of dropped items
+	 */
+	public long getNumDroppedLate() {
+		return numDroppedLate;
+	}
+
+	@Override
+	public Stream<Aggregation<OUT, TimeWindow>> apply(final Stream<IN> inner) {
+		return new AbstractStream<Aggregation<OUT, TimeWindow>>() {
+			final TreeMap<TimeWindow, WindowState<ACC>> windows = new TreeMap<TimeWindow, WindowState<ACC>>();
+			final Deque<Aggregation<OUT, TimeWindow>> output = new ArrayDeque<Aggregation<OUT, TimeWindow>>();
+			final List<TimeWindow> assigned = new ArrayList<TimeWindow>();
+			long watermark = Long.MIN_VALUE;
+			boolean flushed;
+
+			@Override
+			public boolean hasNext() {
+				while (output.isEmpty() && inner.hasNext())
+					process(inner.next());
+
+				if (output.isEmpty() && !flushed) {
+					flushed = true;
+					advance(Long.MAX_VALUE);
+				}
+
+				return !output.isEmpty();
+			}
+
+			@Override
+			public Aggregation<OUT, TimeWindow> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return output.poll();
+			}
+
+			private boolean isExpired(TimeWindow window) {
+				return watermark != Long.MIN_VALUE && window.getEnd() <= watermark - allowedLateness;
+			}
+
+			private void process(IN item) {
+				final long timestamp = timestampExtractor.apply(item);
+
+				assigned.clear();
+				assigner.assignWindows(timestamp, assigned);
+
+				boolean added = false;
+				for (final TimeWindow w : assigned) {
+					if (isExpired(w))
+						continue;
+
+					final WindowState<ACC> state = assigner.isMerging() ? mergeInto(w) : getState(w);
+					state.accumulator = accumulator.add(state.accumulator, item);
+					state.dirty = true;
+					added = true;
+				}
+
+				if (!added)
+					numDroppedLate++;
+
+				if (timestamp - maxOutOfOrderness > watermark)
+					advance(timestamp - maxOutOfOrderness);
+				else
+					fire();
+			}
+
+			private WindowState<ACC> getState(TimeWindow w) {
+				WindowState<ACC> state = windows.get(w);
+
+				if (state == null) {
+					state = new WindowState<ACC>();
+					state.accumulator = accumulator.createAccumulator();
+					windows.put(w, state);
+				}
+
+				return state;
+			}
+
+			/**
+			 * Merge the given window with all the existing windows it
+			 * overlaps, returning the state of the merged window.
+			 */
+			private WindowState<ACC> mergeInto(TimeWindow w) {
+				TimeWindow merged = w;
+				WindowState<ACC> state = null;
+
+				final Iterator<Entry<TimeWindow, WindowState<ACC>>> iter = windows.entrySet().iterator();
+				while (iter.hasNext()) {
+					final Entry<TimeWindow, WindowState<ACC>> e = iter.next();
+
+					if (e.getKey().intersects(merged)) {
+						merged = merged.cover(e.getKey());
+						iter.remove();
+
+						if (state == null) {
+							state = e.getValue();
+						} else {
+							state.accumulator = accumulator.merge(state.accumulator, e.getValue().accumulator);
+						}
+					}
+				}
+
+				if (state == null) {
+					state = new WindowState<ACC>();
+					state.accumulator = accumulator.createAccumulator();
+				}
+
+				windows.put(merged, state);
+				return state;
+			}
+
+			private void advance(long newWatermark) {
+				watermark = newWatermark;
+				fire();
+			}
+
+			/**
+			 * Produce the results of the windows that the watermark has
+			 * passed, and discard the windows that have expired.
+			 */
+			private void fire() {
+				if (watermark == Long.MIN_VALUE)
+					return;
+
+				final Iterator<Entry<TimeWindow, WindowState<ACC>>> iter = windows.entrySet().iterator();
+				while (iter.hasNext()) {
+					final Entry<TimeWindow, WindowState<ACC>> e = iter.next();
+					final TimeWindow w = e.getKey();
+
+					// windows are ordered by end time
+					if (w.getEnd() > watermark)
+						break;
+
+					final WindowState<ACC> state = e.getValue();
+					if (state.dirty) {
+						output.add(new Aggregation<OUT, TimeWindow>(accumulator.getResult(state.accumulator), w));
+						state.dirty = false;
+					}
+
+					if (watermark == Long.MAX_VALUE || isExpired(w))
+						iter.remove();
+				}
+			}
+		};
+	}
+}
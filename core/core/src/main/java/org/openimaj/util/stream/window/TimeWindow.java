@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream.window;
+
+/**
+ * A window of time, defined by a start time (inclusive) and an end time
+ * (exclusive), in milliseconds.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public final class TimeWindow implements Comparable<TimeWindow> {
+	private final long start;
+	private final long end;
+
+	/**
+	 * Construct with the given start and end times
+	 * 
+	 * @param start
+	 *            the start time (inclusive)
+	 * @param end
+	 *            the end time (exclusive)
+	 */
+	public TimeWindow(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return the start time (inclusive)
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the end time (exclusive)
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Test whether this window overlaps the other window
+	 * 
+	 * @param other
+	 *            the other window
+	 * @return true if the windows overlap
+	 */
+	public boolean intersects(TimeWindow other) {
+		return start < other.end && other.start < end;
+	}
+
+	/**
+	 * Get the smallest window that covers both this and the other window
+	 * 
+	 * @param other
+	 *            the other window
+	 * @return the covering window
+	 */
+	public TimeWindow cover(TimeWindow other) {
+		return new TimeWindow(Math.min(start, other.start), Math.max(end, other.end));
+	}
+
+	/**
+	 * Windows are ordered by their end time, and then by their start time.
+	 */
+	@Override
+	public int compareTo(TimeWindow o) {
+		if (end != o.end)
+			return end < o.end ? -1 : 1;
+		if (start != o.start)
+			return start < o.start ? -1 : 1;
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof TimeWindow))
+			return false;
+
+		final TimeWindow o = (TimeWindow) obj;
+		return start == o.start && end == o.end;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (start ^ (start >>> 32)) * 31 + (int) (end ^ (end >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "TimeWindow[" + start + ", " + end + ")";
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream.window;
+
+/**
+ * An incremental aggregation over the items of a window. Rather than buffering
+ * every item of a window and aggregating at the end, items are folded into an
+ * accumulator as they arrive, so the memory used by a window does not depend
+ * on the number of items in it.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ * @param <IN>
+ *            type of the items being aggregated
+ * @param <ACC>
+ *            type of the accumulator
+ * @param <OUT>
+ *            type of the aggregated result
+ */
+public interface WindowAccumulator<IN, ACC, OUT> {
+	/**
+	 * Create a new, empty, accumulator
+	 * 
+	 * @return the accumulator
+	 */
+	public ACC createAccumulator();
+
+	/**
+	 * Add an item to the accumulator. The accumulator may be modified in
+	 * place.
+	 * 
+	 * @param accumulator
+	 *            the accumulator
+	 * @param item
+	 *            the item
+	 * @return the updated accumulator
+	 */
+	public ACC add(ACC accumulator, IN item);
+
+	/**
+	 * Merge two accumulators; used when windows are combined (for example when
+	 * an item joins two sessions). Either accumulator may be modified in
+	 * place.
+	 * 
+	 * @param a
+	 *            the first accumulator
+	 * @param b
+	 *            the second accumulator
+	 * @return the merged accumulator
+	 */
+	public ACC merge(ACC a, ACC b);
+
+	/**
+	 * Compute the result from the accumulator. The accumulator must not be
+	 * modified, as further items may be added after a result has been
+	 * produced.
+	 * 
+	 * @param accumulator
+	 *            the accumulator
+	 * @return the result
+	 */
+	public OUT getResult(ACC accumulator);
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream.window;
+
+import java.util.List;
+
+/**
+ * Assigns event times to {@link TimeWindow}s. Implementations are provided for
+ * tumbling (fixed, non-overlapping), sliding (fixed, overlapping) and session
+ * (gap-based, merging) windows.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public abstract class WindowAssigner {
+	/**
+	 * Add the windows that the given event time belongs to to the list
+	 * 
+	 * @param timestamp
+	 *            the event time
+	 * @param windows
+	 *            the list to add the windows to
+	 */
+	public abstract void assignWindows(long timestamp, List<TimeWindow> windows);
+
+	/**
+	 * Do windows produced by this assigner need to be merged when they
+	 * overlap?
+	 * 
+	 * @return true if overlapping windows should be merged
+	 */
+	public boolean isMerging() {
+		return false;
+	}
+
+	/**
+	 * Create an assigner for tumbling windows of the given size. Windows are
+	 * aligned to multiples of the size.
+	 * 
+	 * @param size
+	 *            the window size in milliseconds
+	 * @return the assigner
+	 */
+	public static WindowAssigner tumbling(long size) {
+		return sliding(size, size);
+	}
+
+	/**
+	 * Create an assigner for sliding windows of the given size, with a new
+	 * window starting every <code>slide</code> milliseconds. Each event time
+	 * belongs to <code>ceil(size / slide)</code> windows.
+	 * 
+	 * @param size
+	 *            the window size in milliseconds
+	 * @param slide
+	 *            the amount each window is offset from the previous one in
+	 *            milliseconds
+	 * @return the assigner
+	 */
+	public static WindowAssigner sliding(final long size, final long slide) {
+		if (size <= 0 || slide <= 0)
+			throw new IllegalArgumentException("size and slide must be positive");
+
+		return new WindowAssigner() {
+			@Override
+			public void assignWindows(long timestamp, List<TimeWindow> windows) {
+				final long lastStart = timestamp - mod(timestamp, slide);
+
+				for (long start = lastStart; start > timestamp - size; start -= slide)
+					windows.add(new TimeWindow(start, start + size));
+			}
+		};
+	}
+
+	/**
+	 * Create an assigner for session windows. A session is a run of events in
+	 * which no two consecutive events are more than the given gap apart; a
+	 * session ends <code>gap</code> milliseconds after its last event.
+	 * 
+	 * @param gap
+	 *            the session gap in milliseconds
+	 * @return the assigner
+	 */
+	public static WindowAssigner session(final long gap) {
+		if (gap <= 0)
+			throw new IllegalArgumentException("gap must be positive");
+
+		return new WindowAssigner() {
+			@Override
+			public void assignWindows(long timestamp, List<TimeWindow> windows) {
+				windows.add(new TimeWindow(timestamp, timestamp + gap));
+			}
+
+			@Override
+			public boolean isMerging() {
+				return true;
+			}
+		};
+	}
+
+	private static long mod(long a, long b) {
+		final long r = a % b;
+		return r < 0 ? r + b : r;
+	}
+}
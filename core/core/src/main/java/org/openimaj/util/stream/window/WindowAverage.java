@@ -38,37 +38,71 @@ import org.openimaj.util.function.Function;
 
 /**
  * Given a window of key,value map instances, this function gets the average of
- * the window
+ * the window. The average can also be computed incrementally as a
+ * {@link WindowAccumulator}, in which case only a running sum and count is
+ * held for each key.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
  */
-public class WindowAverage implements Function<List<Map<String, Double>>, Map<String, Double>> {
-
+public class WindowAverage
+		implements
+			Function<List<Map<String, Double>>, Map<String, Double>>,
+			WindowAccumulator<Map<String, Double>, Map<String, double[]>, Map<String, Double>>
+{
 	@Override
 	public Map<String, Double> apply(List<Map<String, Double>> in) {
+		Map<String, double[]> acc = createAccumulator();
 
-		final Map<String, Double> ret = new HashMap<String, Double>();
-		final Map<String, Long> count = new HashMap<String, Long>();
-
-		for (final Map<String, Double> map : in) {
-			for (final Entry<String, Double> item : map.entrySet()) {
-				final String key = item.getKey();
-				if (!count.containsKey(key)) {
-					ret.put(key, item.getValue());
-					count.put(key, 1l);
-				}
-				else {
-					ret.put(key, ret.get(key) + item.getValue());
-					count.put(key, count.get(key) + 1);
-				}
-			}
+		for (final Map<String, Double> map : in)
+			acc = add(acc, map);
+
+		return getResult(acc);
+	}
+
+	@Override
+	public Map<String, double[]> createAccumulator() {
+		return new HashMap<String, double[]>();
+	}
+
+	@Override
+	public Map<String, double[]> add(Map<String, double[]> accumulator, Map<String, Double> item) {
+		for (final Entry<String, Double> e : item.entrySet()) {
+			double[] sumCount = accumulator.get(e.getKey());
+
+			if (sumCount == null)
+				accumulator.put(e.getKey(), sumCount = new double[2]);
+
+			sumCount[0] += e.getValue();
+			sumCount[1]++;
 		}
-		for (final Entry<String, Double> map : ret.entrySet()) {
-			final String key = map.getKey();
-			ret.put(key, map.getValue() / count.get(key));
+
+		return accumulator;
+	}
+
+	@Override
+	public Map<String, double[]> merge(Map<String, double[]> a, Map<String, double[]> b) {
+		for (final Entry<String, double[]> e : b.entrySet()) {
+			final double[] sumCount = a.get(e.getKey());
+
+			if (sumCount == null) {
+				a.put(e.getKey(), e.getValue());
+			} else {
+				sumCount[0] += e.getValue()[0];
+				sumCount[1] += e.getValue()[1];
+			}
 		}
-		return ret;
+
+		return a;
 	}
 
+	@Override
+	public Map<String, Double> getResult(Map<String, double[]> accumulator) {
+		final Map<String, Double> ret = new HashMap<String, Double>();
+
+		for (final Entry<String, double[]> e : accumulator.entrySet())
+			ret.put(e.getKey(), e.getValue()[0] / e.getValue()[1]);
+
+		return ret;
+	}
 }
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ChannelDataOutput} and {@link ChannelDataInput}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ChannelDataIOTest {
+	/**
+	 * Temporary folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * An object holding a large float array
+	 */
+	static class Floats implements ReadWriteableBinary {
+		String name;
+		float[] values;
+
+		@Override
+		public void writeBinary(DataOutput out) throws IOException {
+			out.writeUTF(name);
+			out.writeInt(values.length);
+			if (out instanceof BulkDataOutput)
+				((BulkDataOutput) out).writeFloats(values, 0, values.length);
+			else
+				for (final float v : values)
+					out.writeFloat(v);
+		}
+
+		@Override
+		public void readBinary(DataInput in) throws IOException {
+			name = in.readUTF();
+			values = new float[in.readInt()];
+			if (in instanceof BulkDataInput)
+				((BulkDataInput) in).readFloats(values, 0, values.length);
+			else
+				for (int i = 0; i < values.length; i++)
+					values[i] = in.readFloat();
+		}
+
+		@Override
+		public byte[] binaryHeader() {
+			return "FLTS".getBytes();
+		}
+	}
+
+	private void writeAll(DataOutput out, double[] big) throws IOException {
+		out.writeBoolean(true);
+		out.writeByte(-3);
+		out.writeShort(-1234);
+		out.writeChar('é');
+		out.writeInt(123456789);
+		out.writeLong(-1234567890123L);
+		out.writeFloat(1.5f);
+		out.writeDouble(Math.PI);
+		out.writeUTF("héllo 世界\u0000");
+		out.writeBytes("ab");
+		out.writeChars("cd");
+		out.write(new byte[] { 1, 2, 3 });
+
+		if (out instanceof BulkDataOutput) {
+			((BulkDataOutput) out).writeInts(new int[] { 7, 8, 9 }, 1, 2);
+			((BulkDataOutput) out).writeDoubles(big, 0, big.length);
+		} else {
+			out.writeInt(8);
+			out.writeInt(9);
+			for (final double d : big)
+				out.writeDouble(d);
+		}
+		out.writeInt(42);
+	}
+
+	private void readAll(DataInput in, double[] big) throws IOException {
+		assertEquals(true, in.readBoolean());
+		assertEquals(-3, in.readByte());
+		assertEquals(-1234, in.readShort());
+		assertEquals('é', in.readChar());
+		assertEquals(123456789, in.readInt());
+		assertEquals(-1234567890123L, in.readLong());
+		assertEquals(1.5f, in.readFloat(), 0);
+		assertEquals(Math.PI, in.readDouble(), 0);
+		assertEquals("héllo 世界\u0000", in.readUTF());
+		assertEquals('a', in.readByte());
+		assertEquals('b', in.readByte());
+		assertEquals('c', in.readChar());
+		assertEquals('d', in.readChar());
+
+		final byte[] b = new byte[3];
+		in.readFully(b);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, b);
+
+		final int[] ints = new int[2];
+		final double[] doubles = new double[big.length];
+		if (in instanceof BulkDataInput) {
+			((BulkDataInput) in).readInts(ints, 0, 2);
+			((BulkDataInput) in).readDoubles(doubles, 0, doubles.length);
+		} else {
+			ints[0] = in.readInt();
+			ints[1] = in.readInt();
+			for (int i = 0; i < doubles.length; i++)
+				doubles[i] = in.readDouble();
+		}
+		assertArrayEquals(new int[] { 8, 9 }, ints);
+		assertArrayEquals(big, doubles, 0);
+		assertEquals(42, in.readInt());
+	}
+
+	/**
+	 * The channel output should be byte-for-byte identical to
+	 * {@link DataOutputStream}, and each should be readable by the other's
+	 * counterpart. The array is larger than the pooled buffers.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCompatibility() throws IOException {
+		final double[] big = new double[300000];
+		final Random rng = new Random(0);
+		for (int i = 0; i < big.length; i++)
+			big[i] = rng.nextDouble();
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeAll(new DataOutputStream(expected), big);
+
+		final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		final ChannelDataOutput cdo = new ChannelDataOutput(Channels.newChannel(actual));
+		writeAll(cdo, big);
+		cdo.close();
+
+		assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+		readAll(new DataInputStream(new ByteArrayInputStream(actual.toByteArray())), big);
+
+		final ChannelDataInput cdi = new ChannelDataInput(Channels.newChannel(new ByteArrayInputStream(expected
+				.toByteArray())));
+		readAll(cdi, big);
+		cdi.close();
+
+		readAll(new ChannelDataInput(ByteBuffer.wrap(expected.toByteArray())), big);
+	}
+
+	/**
+	 * Test writing and reading files through {@link IOUtils}
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testFiles() throws IOException {
+		final Floats obj = new Floats();
+		obj.name = "test";
+		obj.values = new float[1000000];
+		for (int i = 0; i < obj.values.length; i++)
+			obj.values[i] = i * 0.5f;
+
+		final File channelFile = folder.newFile("channel.bin");
+		final File streamFile = folder.newFile("stream.bin");
+		IOUtils.writeBinaryChannel(channelFile, obj);
+		IOUtils.writeBinary(streamFile, obj);
+
+		assertEquals(streamFile.length(), channelFile.length());
+
+		for (final boolean mapped : new boolean[] { false, true }) {
+			final Floats read = IOUtils.readBinaryChannel(streamFile, Floats.class, mapped);
+			assertEquals("test", read.name);
+			assertArrayEquals(obj.values, read.values, 0);
+		}
+
+		final Floats read = IOUtils.read(channelFile, Floats.class);
+		assertArrayEquals(obj.values, read.values, 0);
+	}
+
+	/**
+	 * Test that discarded data never reaches the channel, and that the output
+	 * can be used afterwards
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testDiscard() throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ChannelDataOutput out = new ChannelDataOutput(Channels.newChannel(baos));
+		out.writeInt(1);
+		out.flush();
+		out.writeInt(2);
+		out.discard();
+		out.writeInt(3);
+		out.close();
+
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		assertEquals(8, baos.size());
+		assertEquals(1, in.readInt());
+		assertEquals(3, in.readInt());
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.concurrent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.openimaj.util.concurrent.RingBufferDroppingQueue.WaitStrategy;
+
+/**
+ * Tests for {@link RingBufferDroppingQueue}.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class RingBufferDroppingQueueTest {
+	/**
+	 * Test the sequential behaviour matches the lock-based queue
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testSequential() throws InterruptedException {
+		for (final boolean multi : new boolean[] { false, true }) {
+			final RingBufferDroppingQueue<Integer> q = new RingBufferDroppingQueue<Integer>(3, multi,
+					WaitStrategy.YIELD);
+			final ArrayBlockingDroppingQueue<Integer> ref = new ArrayBlockingDroppingQueue<Integer>(3);
+
+			assertNull(q.poll());
+			assertNull(q.peek());
+			assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+
+			for (int i = 0; i < 5; i++)
+				assertEquals(ref.put(i), q.put(i));
+
+			assertFalse(q.offer(5));
+			assertEquals(3, q.size());
+			assertEquals(0, q.remainingCapacity());
+			assertEquals(5, q.insertCount());
+			assertEquals(2, q.dropCount());
+			assertArrayEquals(ref.toArray(), q.toArray());
+			assertTrue(q.contains(3));
+			assertFalse(q.contains(1));
+
+			assertEquals(2, (int) q.peek());
+			assertEquals(2, (int) q.take());
+			assertTrue(q.offer(5));
+			assertEquals(3, (int) q.poll());
+			assertEquals(4, (int) q.poll());
+			assertEquals(5, (int) q.poll());
+			assertNull(q.poll());
+			assertEquals(0, q.size());
+		}
+	}
+
+	/**
+	 * Test a queue holding a single element, as used for live sources that
+	 * only want the latest item
+	 */
+	@Test
+	public void testSingleElement() {
+		for (final boolean multi : new boolean[] { false, true }) {
+			final RingBufferDroppingQueue<Integer> q = new RingBufferDroppingQueue<Integer>(1, multi,
+					WaitStrategy.YIELD);
+
+			assertTrue(q.offer(0));
+			assertFalse(q.offer(1));
+			assertEquals(1, q.size());
+
+			for (int i = 1; i < 5; i++)
+				assertEquals(i - 1, (int) q.put(i));
+
+			assertEquals(4, q.dropCount());
+			assertEquals(4, (int) q.poll());
+			assertNull(q.poll());
+			assertTrue(q.offer(5));
+			assertEquals(5, (int) q.poll());
+		}
+	}
+
+	private void runConcurrent(final int producers, final boolean multi, WaitStrategy strategy)
+			throws InterruptedException
+	{
+		final int perProducer = 200000;
+		final RingBufferDroppingQueue<Long> q = new RingBufferDroppingQueue<Long>(64, multi, strategy);
+		final long[] lastSeen = new long[producers];
+		final AtomicLong consumed = new AtomicLong();
+
+		final Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final long id = p;
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (long i = 0; i < perProducer; i++)
+						q.put(id * perProducer + i);
+				}
+			};
+		}
+
+		final Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				java.util.Arrays.fill(lastSeen, -1);
+				try {
+					while (true) {
+						final long v = q.take();
+						if (v < 0)
+							return;
+
+						final int p = (int) (v / perProducer);
+						// items from one producer must arrive in order
+						assertTrue(v % perProducer > lastSeen[p]);
+						lastSeen[p] = v % perProducer;
+						consumed.incrementAndGet();
+					}
+				} catch (final InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+
+		consumer.start();
+		for (final Thread t : threads)
+			t.start();
+		for (final Thread t : threads)
+			t.join();
+
+		q.put(-1L);
+		consumer.join();
+
+		assertEquals((long) producers * perProducer + 1, q.insertCount());
+		assertEquals(q.insertCount(), consumed.get() + q.dropCount() + 1);
+	}
+
+	/**
+	 * Test a single producer and consumer
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testSPSC() throws InterruptedException {
+		runConcurrent(1, false, WaitStrategy.BUSY_SPIN);
+		runConcurrent(1, false, WaitStrategy.PARK);
+	}
+
+	/**
+	 * Test multiple producers and a single consumer
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testMPSC() throws InterruptedException {
+		runConcurrent(4, true, WaitStrategy.YIELD);
+		runConcurrent(4, true, WaitStrategy.PARK);
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.io.ObjectReader;
+
+/**
+ * Tests for {@link PrefetchingIterator}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PrefetchingIteratorTest {
+	private static class SlowReader implements ObjectReader<Integer, Integer> {
+		Random rng = new Random(0);
+
+		@Override
+		public Integer read(Integer source) throws IOException {
+			if (source < 0)
+				throw new IOException("bad source");
+
+			try {
+				Thread.sleep(rng.nextInt(5));
+			} catch (final InterruptedException e) {
+				throw new IOException(e);
+			}
+			return source * 2;
+		}
+
+		@Override
+		public boolean canRead(Integer source, String name) {
+			return true;
+		}
+	}
+
+	private static List<Integer> sources(int n) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++)
+			list.add(i);
+		return list;
+	}
+
+	/**
+	 * Ordered mode must return items in source order
+	 */
+	@Test
+	public void testOrdered() {
+		final PrefetchingIterator<Integer, Integer> it = new PrefetchingIterator<Integer, Integer>(
+				sources(100).iterator(), new SlowReader(), 8, 4, true);
+
+		int i = 0;
+		while (it.hasNext())
+			assertEquals(i++ * 2, (int) it.next());
+
+		assertEquals(100, i);
+	}
+
+	/**
+	 * Unordered mode must return every item exactly once
+	 */
+	@Test
+	public void testUnordered() {
+		final PrefetchingIterator<Integer, Integer> it = new PrefetchingIterator<Integer, Integer>(
+				sources(100).iterator(), new SlowReader(), 8, 4, false);
+
+		final List<Integer> results = new ArrayList<Integer>();
+		while (it.hasNext())
+			results.add(it.next() / 2);
+
+		Collections.sort(results);
+		assertEquals(sources(100), results);
+	}
+
+	/**
+	 * Read errors are reported when the failing item is reached
+	 */
+	@Test
+	public void testError() {
+		final List<Integer> src = sources(10);
+		src.set(5, -1);
+
+		final PrefetchingIterator<Integer, Integer> it = new PrefetchingIterator<Integer, Integer>(
+				src.iterator(), new SlowReader(), 4, 2, true);
+
+		for (int i = 0; i < 5; i++)
+			assertEquals(i * 2, (int) it.next());
+
+		try {
+			it.next();
+			fail();
+		} catch (final RuntimeException e) {
+			assertEquals(IOException.class, e.getCause().getClass());
+		}
+
+		assertEquals(12, (int) it.next());
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Histogram}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class HistogramTest {
+	/**
+	 * Every value should map to a bucket that contains it
+	 */
+	@Test
+	public void testBuckets() {
+		final long[] values = { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE };
+
+		for (final long v : values) {
+			final int idx = Histogram.bucketIndex(v);
+			final long lower = Histogram.bucketLowerBound(idx);
+
+			assertTrue(lower <= v);
+			assertTrue(v - lower < Histogram.bucketWidth(idx));
+			assertTrue(Histogram.bucketWidth(idx) <= Math.max(1, lower / 32));
+		}
+	}
+
+	/**
+	 * Percentiles should be within the bucket precision
+	 */
+	@Test
+	public void testPercentiles() {
+		final Histogram h = new Histogram();
+		for (int i = 1; i <= 10000; i++)
+			h.record(i * 1000L);
+
+		assertEquals(10000, h.getCount());
+		assertEquals(1000, h.getMin());
+		assertEquals(10000000, h.getMax());
+		assertEquals(5000500, h.getMean(), 1e-6);
+
+		assertEquals(5000000, h.getValueAtPercentile(50), 5000000 / 32);
+		assertEquals(9900000, h.getValueAtPercentile(99), 9900000 / 32);
+		assertEquals(10000000, h.getValueAtPercentile(100));
+
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getValueAtPercentile(50));
+	}
+
+	/**
+	 * Concurrent recording should not lose values
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final Histogram h = new Histogram();
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int offset = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++)
+						h.record(j + offset);
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread t : threads)
+			t.join();
+
+		assertEquals(40000, h.getCount());
+		assertEquals(0, h.getMin());
+		assertEquals(10002, h.getMax());
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+import org.openimaj.util.concurrent.RingBufferDroppingQueue;
+import org.openimaj.util.function.Function;
+import org.openimaj.util.stream.BlockingDroppingBufferedStream;
+import org.openimaj.util.stream.CollectionStream;
+
+/**
+ * Tests for {@link MetricRegistry}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class MetricRegistryTest {
+	/**
+	 * Test metrics are shared by name and snapshotted
+	 */
+	@Test
+	public void testSnapshot() {
+		final MetricRegistry registry = new MetricRegistry();
+
+		assertSame(registry.counter("a"), registry.counter("a"));
+		registry.counter("a").add(5);
+		registry.histogram("h").record(100);
+		registry.gauge("g", new Gauge() {
+			@Override
+			public long getValue() {
+				return 42;
+			}
+		});
+
+		final SortedMap<String, Number> snapshot = registry.snapshot();
+		assertEquals(5L, snapshot.get("a"));
+		assertEquals(42L, snapshot.get("g"));
+		assertEquals(1L, snapshot.get("h.count"));
+		assertEquals(100L, snapshot.get("h.p50"));
+	}
+
+	/**
+	 * A name can only be used for one type of metric
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testTypeClash() {
+		final MetricRegistry registry = new MetricRegistry();
+		registry.counter("a");
+		registry.histogram("a");
+	}
+
+	/**
+	 * Test instrumenting a stream stage and a buffered stream
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testStreams() throws InterruptedException {
+		final MetricRegistry registry = new MetricRegistry();
+
+		final Function<Integer, Integer> square = new Function<Integer, Integer>() {
+			@Override
+			public Integer apply(Integer in) {
+				return in * in;
+			}
+		};
+
+		int sum = 0;
+		for (final Integer i : new CollectionStream<Integer>(Arrays.asList(1, 2, 3)).map(registry.timedFunction(
+				"square", square)))
+			sum += i;
+
+		assertEquals(14, sum);
+		assertEquals(3, registry.histogram("square").getCount());
+
+		final BlockingDroppingBufferedStream<Integer> buffered = new BlockingDroppingBufferedStream<Integer>(
+				new RingBufferDroppingQueue<Integer>(1));
+		buffered.registerMetrics(registry, "buffer");
+		buffered.getBuffer().put(1);
+		buffered.getBuffer().put(2);
+
+		final SortedMap<String, Number> snapshot = registry.snapshot();
+		assertEquals(1L, snapshot.get("buffer.depth"));
+		assertEquals(2L, snapshot.get("buffer.inserted"));
+		assertEquals(1L, snapshot.get("buffer.dropped"));
+	}
+
+	/**
+	 * Test the snapshot is exposed through JMX
+	 * 
+	 * @throws JMException
+	 */
+	@Test
+	public void testJmx() throws JMException {
+		final MetricRegistry registry = new MetricRegistry();
+		registry.counter("frames").add(10);
+
+		final ObjectName name = registry.registerMBean("org.openimaj.test:type=Metrics");
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(10L, server.getAttribute(name, "frames"));
+
+			try {
+				server.invoke(name, "reset", new Object[0], new String[0]);
+				fail();
+			} catch (final ReflectionException e) {
+				assertTrue(e.getTargetException() instanceof NoSuchMethodException);
+			}
+		} finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+}
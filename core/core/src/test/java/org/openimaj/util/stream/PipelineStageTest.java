@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openimaj.util.function.Function;
+
+/**
+ * Tests for {@link PipelineStage}.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ */
+public class PipelineStageTest {
+	static class CountingStream extends AbstractStream<Integer> {
+		final AtomicInteger read = new AtomicInteger();
+		final int limit;
+
+		CountingStream(int limit) {
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return limit < 0 || read.get() < limit;
+		}
+
+		@Override
+		public Integer next() {
+			return read.getAndIncrement();
+		}
+	}
+
+	static Function<Integer, Integer> slowSquare(final int maxDelay) {
+		return new Function<Integer, Integer>() {
+			@Override
+			public Integer apply(Integer in) {
+				try {
+					Thread.sleep(new Random().nextInt(maxDelay + 1));
+				} catch (final InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				return in * in;
+			}
+		};
+	}
+
+	/**
+	 * Test that a chain of parallel stages keeps the order of the items
+	 */
+	@Test
+	public void testOrder() {
+		final List<Integer> out = new ArrayList<Integer>();
+
+		for (final Integer i : new CountingStream(200)
+				.transform(new PipelineStage<Integer, Integer>(slowSquare(3), 4, 8))
+				.transform(PipelineStage.<Integer> buffer(3))
+				.map(new Function<Integer, Integer>() {
+					@Override
+					public Integer apply(Integer in) {
+						return -in;
+					}
+				}).transform(new PipelineStage<Integer, Integer>(slowSquare(1), 3, 5)))
+		{
+			out.add(i);
+		}
+
+		assertEquals(200, out.size());
+		for (int i = 0; i < 200; i++)
+			assertEquals(i * i * i * i, (int) out.get(i));
+	}
+
+	/**
+	 * Test that a stalled consumer stops the stages reading from an infinite
+	 * upstream
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		final CountingStream source = new CountingStream(-1);
+		final PipelineStage.PipelinedStream<Integer> stream = new PipelineStage<Integer, Integer>(slowSquare(0), 2, 4)
+				.apply(new PipelineStage<Integer, Integer>(slowSquare(0), 2, 6).apply(source));
+
+		assertEquals(0, (int) stream.next());
+		Thread.sleep(200);
+
+		// capacity of both stages, plus an item held by each feeder and the
+		// consumed item
+		final int read = source.read.get();
+		assertTrue(read <= 4 + 6 + 2 + 1);
+
+		Thread.sleep(200);
+		assertEquals(read, source.read.get());
+
+		for (int i = 1; i < 50; i++)
+			assertEquals(i * i * i * i, (int) stream.next());
+
+		stream.close();
+		while (stream.hasNext())
+			stream.next();
+		assertFalse(stream.hasNext());
+	}
+
+	/**
+	 * Test that closing the stream releases a consumer that is waiting for an
+	 * item that will not be completed
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testCloseReleasesConsumer() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final PipelineStage.PipelinedStream<Integer> stream = new PipelineStage<Integer, Integer>(
+				new Function<Integer, Integer>() {
+					@Override
+					public Integer apply(Integer in) {
+						// ignore interrupts so that the item is not completed
+						// when the stage is closed
+						while (release.getCount() > 0) {
+							try {
+								release.await();
+							} catch (final InterruptedException e) {
+								// ignore
+							}
+						}
+						return in;
+					}
+				}, 1, 4).apply(new CountingStream(-1));
+
+		final boolean[] result = { true };
+		final Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				result[0] = stream.hasNext();
+			}
+		});
+		consumer.start();
+
+		Thread.sleep(100);
+		stream.close();
+		consumer.join(2000);
+
+		try {
+			assertFalse(consumer.isAlive());
+			assertFalse(result[0]);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * Test that the threads of a stage finish once the end of the stream has
+	 * been consumed
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testThreadsFinishAtEnd() throws InterruptedException {
+		final Thread[] workers = new Thread[1];
+		final Stream<Integer> stream = new CountingStream(10).transform(new PipelineStage<Integer, Integer>(
+				new Function<Integer, Integer>() {
+					@Override
+					public Integer apply(Integer in) {
+						workers[0] = Thread.currentThread();
+						return in;
+					}
+				}, 1, 4));
+
+		int count = 0;
+		while (stream.hasNext()) {
+			stream.next();
+			count++;
+		}
+		assertEquals(10, count);
+
+		workers[0].join(2000);
+		assertFalse(workers[0].isAlive());
+	}
+
+	/**
+	 * Test that exceptions in the mapping function are rethrown in order
+	 */
+	@Test
+	public void testException() {
+		final Stream<Integer> stream = new CountingStream(10).transform(new PipelineStage<Integer, Integer>(
+				new Function<Integer, Integer>() {
+					@Override
+					public Integer apply(Integer in) {
+						if (in == 5)
+							throw new IllegalStateException();
+						return in;
+					}
+				}, 3, 4));
+
+		for (int i = 0; i < 5; i++)
+			assertEquals(i, (int) stream.next());
+
+		try {
+			stream.next();
+			fail();
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+
+		for (int i = 6; i < 10; i++)
+			assertEquals(i, (int) stream.next());
+		assertFalse(stream.hasNext());
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.stream.window;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openimaj.util.function.Function;
+import org.openimaj.util.stream.CollectionStream;
+import org.openimaj.util.stream.Stream;
+
+/**
+ * Tests for {@link EventTimeWindowFunction}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class EventTimeWindowFunctionTest {
+	private static final Function<Long, Long> IDENTITY = new Function<Long, Long>() {
+		@Override
+		public Long apply(Long in) {
+			return in;
+		}
+	};
+
+	/**
+	 * Counts the items in each window
+	 */
+	private static class Count implements WindowAccumulator<Long, long[], Long> {
+		@Override
+		public long[] createAccumulator() {
+			return new long[1];
+		}
+
+		@Override
+		public long[] add(long[] accumulator, Long item) {
+			accumulator[0]++;
+			return accumulator;
+		}
+
+		@Override
+		public long[] merge(long[] a, long[] b) {
+			a[0] += b[0];
+			return a;
+		}
+
+		@Override
+		public Long getResult(long[] accumulator) {
+			return accumulator[0];
+		}
+	}
+
+	private List<String> run(EventTimeWindowFunction<Long, long[], Long> fcn, Long... times) {
+		final Stream<Aggregation<Long, TimeWindow>> stream = new CollectionStream<Long>(Arrays.asList(times))
+				.transform(fcn);
+
+		final List<String> results = new ArrayList<String>();
+		for (final Aggregation<Long, TimeWindow> a : stream)
+			results.add(a.getMeta().getStart() + "-" + a.getMeta().getEnd() + ":" + a.getPayload());
+
+		return results;
+	}
+
+	/**
+	 * Test tumbling windows
+	 */
+	@Test
+	public void testTumbling() {
+		final List<String> res = run(new EventTimeWindowFunction<Long, long[], Long>(WindowAssigner.tumbling(10),
+				IDENTITY, new Count()), 1L, 2L, 9L, 10L, 15L, 31L);
+
+		assertEquals(Arrays.asList("0-10:3", "10-20:2", "30-40:1"), res);
+	}
+
+	/**
+	 * Test sliding windows
+	 */
+	@Test
+	public void testSliding() {
+		final List<String> res = run(new EventTimeWindowFunction<Long, long[], Long>(WindowAssigner.sliding(10, 5),
+				IDENTITY, new Count()), 1L, 6L, 12L);
+
+		assertEquals(Arrays.asList("-5-5:1", "0-10:2", "5-15:2", "10-20:1"), res);
+	}
+
+	/**
+	 * Test session windows, including merging of sessions by an out of order
+	 * item
+	 */
+	@Test
+	public void testSession() {
+		final List<String> res = run(new EventTimeWindowFunction<Long, long[], Long>(WindowAssigner.session(5),
+				IDENTITY, new Count(), 10, 0), 1L, 3L, 11L, 7L, 30L, 50L);
+
+		assertEquals(Arrays.asList("1-16:4", "30-35:1", "50-55:1"), res);
+	}
+
+	/**
+	 * Test out-of-orderness, allowed lateness and dropping of late items
+	 */
+	@Test
+	public void testLateness() {
+		final EventTimeWindowFunction<Long, long[], Long> fcn = new EventTimeWindowFunction<Long, long[], Long>(
+				WindowAssigner.tumbling(10), IDENTITY, new Count(), 2, 5);
+
+		// 11 is within the out-of-orderness, so 0-10 fires at 12; 4 is late
+		// but allowed, so causes an update; 3 arrives after the lateness and
+		// is dropped
+		final List<String> res = run(fcn, 1L, 11L, 9L, 12L, 4L, 17L, 3L, 25L);
+
+		assertEquals(Arrays.asList("0-10:2", "0-10:3", "10-20:3", "20-30:1"), res);
+		assertEquals(1, fcn.getNumDroppedLate());
+	}
+
+	/**
+	 * Test the incremental average gives the same result as the list version
+	 */
+	@Test
+	public void testWindowAverage() {
+		final List<Map<String, Double>> items = new ArrayList<Map<String, Double>>();
+		for (int i = 0; i < 10; i++) {
+			final Map<String, Double> m = new HashMap<String, Double>();
+			m.put("a", (double) i);
+			if (i % 2 == 0)
+				m.put("b", i * 2.0);
+			items.add(m);
+		}
+
+		final WindowAverage avg = new WindowAverage();
+		final Map<String, Double> res = avg.apply(items);
+		assertEquals(4.5, res.get("a"), 1e-10);
+		assertEquals(8.0, res.get("b"), 1e-10);
+
+		final Map<String, double[]> a = avg.add(avg.createAccumulator(), items.get(0));
+		Map<String, double[]> b = avg.createAccumulator();
+		for (int i = 1; i < 10; i++)
+			b = avg.add(b, items.get(i));
+
+		assertEquals(res, avg.getResult(avg.merge(a, b)));
+	}
+}
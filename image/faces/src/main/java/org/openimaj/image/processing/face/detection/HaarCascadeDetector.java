@@ -44,6 +44,7 @@ import java.util.List;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
 import org.openimaj.image.objectdetection.filtering.DetectionFilter;
 import org.openimaj.image.objectdetection.filtering.OpenCVGrouping;
 import org.openimaj.image.objectdetection.haar.Detector;
@@ -53,6 +54,9 @@ import org.openimaj.image.processing.algorithm.EqualisationProcessor;
 import org.openimaj.io.IOUtils;
 import org.openimaj.math.geometry.shape.Rectangle;
 import org.openimaj.util.hash.HashCodeUtil;
+import org.openimaj.util.metrics.Counter;
+import org.openimaj.util.metrics.Histogram;
+import org.openimaj.util.metrics.MetricRegistry;
 import org.openimaj.util.pair.ObjectIntPair;
 
 /**
@@ -190,6 +194,8 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 	protected Detector detector;
 	protected DetectionFilter<Rectangle, ObjectIntPair<Rectangle>> groupingFilter;
 	protected boolean histogramEqualize = false;
+	private transient Histogram latency;
+	private transient Counter detectionCount;
 
 	/**
 	 * Construct with the given cascade resource. See
@@ -296,10 +302,38 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 
 	@Override
 	public List<DetectedFace> detectFaces(FImage image) {
+		final long start = latency == null ? 0 : System.nanoTime();
+
 		if (histogramEqualize)
 			image.processInplace(new EqualisationProcessor());
 
 		final List<Rectangle> rects = detector.detect(image);
+
+		return groupDetections(image, rects, start);
+	}
+
+	/**
+	 * Detect faces in an image using its pre-computed summed area tables. This
+	 * allows the tables to be computed once per frame and shared with other
+	 * detectors operating on the same frame. Note that histogram equalisation
+	 * is not applied; the tables must have been computed from the image as it
+	 * should be searched.
+	 * 
+	 * @param image
+	 *            the image from which the faces will be extracted
+	 * @param sat
+	 *            the summed area tables of the image
+	 * @return the detected faces
+	 */
+	public List<DetectedFace> detectFaces(FImage image, SummedSqTiltAreaTable sat) {
+		final long start = latency == null ? 0 : System.nanoTime();
+
+		final List<Rectangle> rects = detector.detect(sat);
+
+		return groupDetections(image, rects, start);
+	}
+
+	private List<DetectedFace> groupDetections(FImage image, List<Rectangle> rects, long start) {
 		final List<ObjectIntPair<Rectangle>> filteredRects = groupingFilter.apply(rects);
 
 		final List<DetectedFace> results = new ArrayList<DetectedFace>();
@@ -307,9 +341,38 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 			results.add(new DetectedFace(r.first, image.extractROI(r.first), r.second));
 		}
 
+		final Histogram latency = this.latency;
+		final Counter detectionCount = this.detectionCount;
+		if (latency != null && detectionCount != null && start != 0) {
+			latency.recordSince(start);
+			detectionCount.add(results.size());
+		}
+
 		return results;
 	}
 
+	/**
+	 * Attach a {@link MetricRegistry} to record the time taken by each call to
+	 * detect faces (in the histogram <code>name.latency</code>, in
+	 * nanoseconds) and the total number of detections (in the counter
+	 * <code>name.detections</code>). The metrics are not serialised with the
+	 * detector.
+	 * 
+	 * @param registry
+	 *            the registry, or null to disable recording
+	 * @param name
+	 *            the prefix for the metric names
+	 */
+	public void setMetrics(MetricRegistry registry, String name) {
+		if (registry == null) {
+			this.latency = null;
+			this.detectionCount = null;
+		} else {
+			this.detectionCount = registry.counter(name + ".detections");
+			this.latency = registry.histogram(name + ".latency");
+		}
+	}
+
 	/**
 	 * @see Detector#getScaleFactor()
 	 * @return The detector scale factor
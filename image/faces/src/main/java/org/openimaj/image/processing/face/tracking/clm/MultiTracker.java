@@ -39,12 +39,21 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.openimaj.image.FImage;
 import org.openimaj.image.analysis.algorithm.FourierTemplateMatcher;
 import org.openimaj.image.processing.face.detection.DetectedFace;
 import org.openimaj.image.processing.resize.ResizeProcessor;
 import org.openimaj.math.geometry.shape.Rectangle;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.iterator.PrefetchingIterator;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.Parallel.IntRange;
 
 import Jama.Matrix;
 
@@ -59,6 +68,13 @@ import com.jsaragih.MFCheck;
  * {@link TrackerVars} object which can be used to construct the Tracker.
  * <p>
  * <code><pre>MultiTracker t = new MultiTracker( MultiTracker.load( new File("face.tracker.file") ) );</pre></code>
+ * <p>
+ * The models of the tracked faces are fitted concurrently. Each face has its
+ * own copy of the model, and the patch experts use per-thread working images.
+ * Periodic re-detection of faces while others are being tracked runs
+ * asynchronously on a background thread by default, and any new faces it
+ * finds are added when the detection completes; this can be disabled with
+ * {@link #setAsyncDetection(boolean)}.
  *
  * @author David Dupplaw (dpd@ecs.soton.ac.uk)
  */
@@ -166,6 +182,15 @@ public class MultiTracker {
 
 	private FImage small_;
 
+	/** Whether re-detection runs in the background */
+	private boolean asyncDetection = true;
+
+	/** The thread on which the face detector runs */
+	private ExecutorService detectionExecutor;
+
+	/** The currently running background detection */
+	private Future<List<Rectangle>> pendingDetection;
+
 	/**
 	 * Create a tracker using the given model, face detector, failure checker,
 	 * reference shape and similarity measures. These values will be copied into
@@ -219,6 +244,24 @@ public class MultiTracker {
 	public void frameReset() {
 		this.framesSinceLastDetection = -1;
 		this.trackedFaces.clear();
+
+		if (this.pendingDetection != null) {
+			this.pendingDetection.cancel(false);
+			this.pendingDetection = null;
+		}
+
+		// the detector isn't thread-safe, so wait for a detection that has
+		// already started before the next frame uses it; the detector thread
+		// is recreated when it is next needed
+		if (this.detectionExecutor != null) {
+			this.detectionExecutor.shutdown();
+			try {
+				this.detectionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.detectionExecutor = null;
+		}
 	}
 
 	/**
@@ -247,49 +290,50 @@ public class MultiTracker {
 			final float searchAreaSize)
 	{
 		this.currentFrame = im;
+		boolean smallIsCurrent = false;
 
 		if ((this.framesSinceLastDetection < 0)
 				|| (fpd >= 0 && fpd < this.framesSinceLastDetection))
 		{
 			this.framesSinceLastDetection = 0;
-			final List<Rectangle> RL = this.initialTracker.faceDetector
-					.detect(this.currentFrame);
 
-			// Convert the detected rectangles into face trackers
-			// trackedFaces.clear();
-			// for (final Rectangle r : RL)
-			// trackedFaces.add(new TrackedFace(r, initialTracker));
 			if (this.trackedFaces.size() == 0) {
-				for (final Rectangle r : RL)
+				// Nothing to track, so wait for the detection
+				for (final Rectangle r : this.detect(this.currentFrame))
 					this.trackedFaces.add(new TrackedFace(r, this.initialTracker));
-			} else {
+			} else if (this.asyncDetection) {
 				this.trackRedetect(this.currentFrame, searchAreaSize);
+				smallIsCurrent = true;
 
-				final int sz = this.trackedFaces.size();
-				for (final Rectangle r : RL) {
-					boolean found = false;
-					for (int i = 0; i < sz; i++) {
-						if (r.percentageOverlap(this.trackedFaces.get(i).redetectedBounds) > 0.5) {
-							found = true;
-							break;
-						}
-					}
+				// The frame might be reused by the caller, so detect in a copy
+				if (this.pendingDetection == null)
+					this.pendingDetection = this.detectAsync(this.currentFrame.clone());
+			} else {
+				final List<Rectangle> RL = this.detect(this.currentFrame);
 
-					if (!found)
-						this.trackedFaces.add(new TrackedFace(r, this.initialTracker));
-				}
+				this.trackRedetect(this.currentFrame, searchAreaSize);
+				smallIsCurrent = true;
+
+				this.addNewFaces(RL);
 			}
 		} else {
 			// Updates the tracked faces
 			this.trackRedetect(this.currentFrame, searchAreaSize);
+			smallIsCurrent = true;
+		}
+
+		// Add any faces found by a completed background detection
+		if (this.pendingDetection != null && this.pendingDetection.isDone()) {
+			final List<Rectangle> RL = this.getDetection(this.pendingDetection);
+			this.pendingDetection = null;
+			this.addNewFaces(RL);
 		}
 
 		// Didn't find any faces in this frame? Try again next frame.
 		if (this.trackedFaces.size() == 0)
 			return -1;
 
-		boolean resize = true;
-
+		// Position the models
 		for (final Iterator<TrackedFace> iterator = this.trackedFaces.iterator(); iterator.hasNext();) {
 			final TrackedFace f = iterator.next();
 
@@ -311,12 +355,32 @@ public class MultiTracker {
 
 				f.clm._pglobl.getArray()[4][0] += tx;
 				f.clm._pglobl.getArray()[5][0] += ty;
+			}
+		}
 
-				resize = false;
+		// Fit the models of all the faces concurrently
+		final List<TrackedFace> faces = this.trackedFaces;
+		final FImage frame = this.currentFrame;
+		Parallel.forRange(0, faces.size(), 1, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				for (int i = range.start; i < range.stop; i += range.incr) {
+					final TrackedFace f = faces.get(i);
+
+					f.clm.fit(frame, wSize, nIter, clamp, fTol);
+					f.clm._pdm.calcShape2D(f.shape, f.clm._plocal, f.clm._pglobl);
+				}
 			}
+		});
 
-			f.clm.fit(this.currentFrame, wSize, nIter, clamp, fTol);
-			f.clm._pdm.calcShape2D(f.shape, f.clm._plocal, f.clm._pglobl);
+		// The templates are cut from the reduced size frame
+		if (!smallIsCurrent)
+			this.small_ = ResizeProcessor.resample(this.currentFrame, (int) (MultiTracker.TSCALE * this.currentFrame.width),
+					(int) (MultiTracker.TSCALE * this.currentFrame.height));
+
+		// Check the fits and update the templates
+		for (final Iterator<TrackedFace> iterator = this.trackedFaces.iterator(); iterator.hasNext();) {
+			final TrackedFace f = iterator.next();
 
 			if (fcheck) {
 				if (!this.initialTracker.failureCheck.check(f.clm.getViewIdx(),
@@ -329,7 +393,7 @@ public class MultiTracker {
 			}
 
 			f.lastMatchBounds = this.updateTemplate(f, this.currentFrame, f.shape,
-					resize);
+					false);
 
 			if ((f.lastMatchBounds.width == 0)
 					|| (f.lastMatchBounds.height == 0))
@@ -350,6 +414,106 @@ public class MultiTracker {
 		return 0;
 	}
 
+	/**
+	 * Add a tracker for each of the detected rectangles that doesn't overlap
+	 * a face that is already being tracked.
+	 *
+	 * @param RL
+	 *            The detected rectangles
+	 */
+	private void addNewFaces(final List<Rectangle> RL) {
+		final int sz = this.trackedFaces.size();
+		for (final Rectangle r : RL) {
+			boolean found = false;
+			for (int i = 0; i < sz; i++) {
+				final Rectangle bounds = this.trackedFaces.get(i).redetectedBounds;
+				if (bounds != null && r.percentageOverlap(bounds) > 0.5) {
+					found = true;
+					break;
+				}
+			}
+
+			if (!found)
+				this.trackedFaces.add(new TrackedFace(r, this.initialTracker));
+		}
+	}
+
+	/**
+	 * Detect faces in the given image on the calling thread. Any background
+	 * detection in progress is completed first, as the detector is not
+	 * thread-safe.
+	 *
+	 * @param image
+	 *            The image
+	 * @return The detected faces
+	 */
+	private List<Rectangle> detect(final FImage image) {
+		if (this.pendingDetection != null) {
+			this.getDetection(this.pendingDetection);
+			this.pendingDetection = null;
+		}
+
+		return this.initialTracker.faceDetector.detect(image);
+	}
+
+	/**
+	 * Start detecting faces in the given image on the detector thread. The
+	 * thread exits when it has been idle for a short while, and is shut down
+	 * by {@link #frameReset()}.
+	 *
+	 * @param image
+	 *            The image; must not be modified until the detection completes
+	 * @return The future result
+	 */
+	private Future<List<Rectangle>> detectAsync(final FImage image) {
+		if (this.detectionExecutor == null)
+			this.detectionExecutor = PrefetchingIterator.createExecutor(1);
+
+		final FDet detector = this.initialTracker.faceDetector;
+		return this.detectionExecutor.submit(new Callable<List<Rectangle>>() {
+			@Override
+			public List<Rectangle> call() {
+				return detector.detect(image);
+			}
+		});
+	}
+
+	private List<Rectangle> getDetection(final Future<List<Rectangle>> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new ArrayList<Rectangle>();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Set whether faces are re-detected in the background while other faces
+	 * are being tracked. If false, the detection is performed in the call to
+	 * {@link #track(FImage, int[], int, int, double, double, boolean, float)}
+	 * that requires it.
+	 *
+	 * @param asyncDetection
+	 *            true to detect in the background
+	 */
+	public void setAsyncDetection(final boolean asyncDetection) {
+		this.asyncDetection = asyncDetection;
+	}
+
+	/**
+	 * @return whether faces are re-detected in the background
+	 */
+	public boolean isAsyncDetection() {
+		return this.asyncDetection;
+	}
+
 	/**
 	 * Initialise the shape within the given rectangle based on the given
 	 * reference shape.
@@ -404,55 +568,65 @@ public class MultiTracker {
 		this.small_ = ResizeProcessor.resample(im, (int) (MultiTracker.TSCALE * ww),
 				(int) (MultiTracker.TSCALE * hh));
 
-		for (final TrackedFace f : this.trackedFaces) {
-			f.gen = false;
-
-			// Get the new search area nearby to the last match
-			Rectangle searchAreaBounds = f.lastMatchBounds.clone();
-			searchAreaBounds.scale((float) MultiTracker.TSCALE);
-			searchAreaBounds.scaleCentroid(searchAreaSize);
-
-			if (searchAreaBounds.overlapping(this.small_.getBounds()) != null)
-				searchAreaBounds = searchAreaBounds.overlapping(this.small_.getBounds());
-			else
-				searchAreaBounds = this.small_.getBounds();
-
-			// Get the search image
-			final FImage searchArea = this.small_.extractROI(searchAreaBounds);
-
-			// Template match the template over the reduced size image.
-			final FourierTemplateMatcher matcher = new FourierTemplateMatcher(
-					f.templateImage,
-					FourierTemplateMatcher.Mode.NORM_CORRELATION_COEFFICIENT);
-			matcher.analyseImage(searchArea);
-
-			// Get the response map
-			final float[][] ncc_ = matcher.getResponseMap().pixels;
-
-			// DisplayUtilities.displayName( matcher.getResponseMap(),
-			// "responseMap" );
-			// DisplayUtilities.displayName( f.templateImage, "template" );
-
-			f.redetectedBounds = f.templateImage.getBounds();
-
-			// Find the maximum template match in the image
-			final int h = searchArea.height - f.templateImage.height + 1;
-			final int w = searchArea.width - f.templateImage.width + 1;
-			float vb = -2;
-			for (int y = 0; y < h; y++) {
-				for (int x = 0; x < w; x++) {
-					final float v = ncc_[y][x];
-					if (v > vb) {
-						vb = v;
-						f.redetectedBounds.x = x + searchAreaBounds.x;
-						f.redetectedBounds.y = y + searchAreaBounds.y;
+		// Template match each face in parallel
+		final FImage small = this.small_;
+		final List<TrackedFace> faces = this.trackedFaces;
+		Parallel.forRange(0, faces.size(), 1, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				for (int i = range.start; i < range.stop; i += range.incr) {
+					final TrackedFace f = faces.get(i);
+
+					f.gen = false;
+
+					// Get the new search area nearby to the last match
+					Rectangle searchAreaBounds = f.lastMatchBounds.clone();
+					searchAreaBounds.scale((float) MultiTracker.TSCALE);
+					searchAreaBounds.scaleCentroid(searchAreaSize);
+
+					if (searchAreaBounds.overlapping(small.getBounds()) != null)
+						searchAreaBounds = searchAreaBounds.overlapping(small.getBounds());
+					else
+						searchAreaBounds = small.getBounds();
+
+					// Get the search image
+					final FImage searchArea = small.extractROI(searchAreaBounds);
+
+					// Template match the template over the reduced size image.
+					final FourierTemplateMatcher matcher = new FourierTemplateMatcher(
+							f.templateImage,
+							FourierTemplateMatcher.Mode.NORM_CORRELATION_COEFFICIENT);
+					matcher.analyseImage(searchArea);
+
+					// Get the response map
+					final float[][] ncc_ = matcher.getResponseMap().pixels;
+
+					// DisplayUtilities.displayName( matcher.getResponseMap(),
+					// "responseMap" );
+					// DisplayUtilities.displayName( f.templateImage, "template" );
+
+					f.redetectedBounds = f.templateImage.getBounds();
+
+					// Find the maximum template match in the image
+					final int h = searchArea.height - f.templateImage.height + 1;
+					final int w = searchArea.width - f.templateImage.width + 1;
+					float vb = -2;
+					for (int y = 0; y < h; y++) {
+						for (int x = 0; x < w; x++) {
+							final float v = ncc_[y][x];
+							if (v > vb) {
+								vb = v;
+								f.redetectedBounds.x = x + searchAreaBounds.x;
+								f.redetectedBounds.y = y + searchAreaBounds.y;
+							}
+						}
 					}
+
+					// Rescale the rectangle to full-size image coordinates.
+					f.redetectedBounds.scale((float) (1d / MultiTracker.TSCALE));
 				}
 			}
-
-			// Rescale the rectangle to full-size image coordinates.
-			f.redetectedBounds.scale((float) (1d / MultiTracker.TSCALE));
-		}
+		});
 	}
 
 	protected Rectangle updateTemplate(final TrackedFace f, final FImage im, final Matrix s,
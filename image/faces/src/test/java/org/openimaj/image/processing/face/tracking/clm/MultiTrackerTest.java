@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.face.tracking.clm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.ImageUtilities;
+
+import Jama.Matrix;
+
+/**
+ * Tests for the concurrent fitting and background detection of the
+ * {@link MultiTracker}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class MultiTrackerTest {
+	private FImage face;
+
+	/**
+	 * Load the test face
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setup() throws IOException {
+		face = ImageUtilities.readF(this.getClass().getResourceAsStream(
+				"/org/openimaj/image/data/face/ss.jpg"));
+	}
+
+	private static CLMFaceTracker createTracker(boolean async) {
+		final CLMFaceTracker tracker = new CLMFaceTracker();
+		tracker.fpd = 2;
+		tracker.model.setAsyncDetection(async);
+		return tracker;
+	}
+
+	private static void assertShapeEquals(Matrix expected, Matrix actual) {
+		assertEquals(expected.getRowDimension(), actual.getRowDimension());
+		for (int i = 0; i < expected.getRowDimension(); i++)
+			assertEquals(expected.get(i, 0), actual.get(i, 0), 0);
+	}
+
+	/**
+	 * With a single face, background detection never changes what is
+	 * tracked, so the fitted shapes match synchronous detection exactly
+	 */
+	@Test
+	public void testAsyncMatchesSync() {
+		final CLMFaceTracker sync = createTracker(false);
+		final CLMFaceTracker async = createTracker(true);
+
+		for (int i = 0; i < 8; i++) {
+			sync.track(face);
+			async.track(face);
+
+			assertEquals(1, sync.model.trackedFaces.size());
+			assertEquals(1, async.model.trackedFaces.size());
+			assertShapeEquals(sync.model.trackedFaces.get(0).shape, async.model.trackedFaces.get(0).shape);
+		}
+
+		async.reset();
+		sync.reset();
+	}
+
+	/**
+	 * Resetting shuts down the background detection thread; tracking after
+	 * each reset must pick the face up again with a new thread, and repeat
+	 * the same fits
+	 */
+	@Test
+	public void testTrackingResumesAfterReset() {
+		final CLMFaceTracker async = createTracker(true);
+
+		final List<List<Matrix>> rounds = new ArrayList<List<Matrix>>();
+		for (int r = 0; r < 3; r++) {
+			final List<Matrix> shapes = new ArrayList<Matrix>();
+			for (int i = 0; i < 6; i++) {
+				async.track(face);
+				if (async.model.trackedFaces.size() > 0)
+					shapes.add(async.model.trackedFaces.get(0).shape.copy());
+			}
+			assertEquals(1, async.model.trackedFaces.size());
+			rounds.add(shapes);
+
+			async.reset();
+			assertEquals(0, async.model.trackedFaces.size());
+		}
+
+		// the first round starts from a fresh model; later rounds start from
+		// the state left by a reset
+		final List<Matrix> a = rounds.get(1);
+		final List<Matrix> b = rounds.get(2);
+		assertEquals(a.size(), b.size());
+		for (int i = 0; i < a.size(); i++)
+			assertShapeEquals(a.get(i), b.get(i));
+	}
+}
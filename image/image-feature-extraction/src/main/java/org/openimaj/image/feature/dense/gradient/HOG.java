@@ -143,6 +143,25 @@ public class HOG implements ImageAnalyser<FImage> {
 		extractor.analyseImage(image, edges);
 	}
 
+	/**
+	 * Get the histogram extractor that holds the binned gradient data of the
+	 * most recently analysed image.
+	 *
+	 * @return the histogram extractor
+	 */
+	public GradientOrientationHistogramExtractor getExtractor() {
+		return extractor;
+	}
+
+	/**
+	 * Get the strategy used to build features from the binned gradient data.
+	 *
+	 * @return the spatial binning strategy
+	 */
+	public SpatialBinningStrategy getStrategy() {
+		return strategy;
+	}
+
 	/**
 	 * Compute the HOG feature for the given window.
 	 *
@@ -189,6 +189,115 @@ public class FlexibleHOGStrategy implements SpatialBinningStrategy {
 		return output;
 	}
 
+	/**
+	 * Compute the normalised block histograms for a dense grid of cells of the
+	 * given size covering the given region. Every window of
+	 * {@link #getNumCellsX()} by {@link #getNumCellsY()} cells whose origin
+	 * lies on a cell boundary of the grid shares these blocks; the descriptor
+	 * that {@link #extract(WindowedHistogramExtractor, Rectangle, Histogram)}
+	 * would produce for the window starting at cell <code>(cx, cy)</code> is
+	 * the concatenation of the blocks at
+	 * <code>[cy + j * blockStepY][cx + i * blockStepX]</code> in row-major
+	 * order of <code>(j, i)</code>. This allows sliding-window detectors to
+	 * compute each cell and block only once per scale rather than once per
+	 * overlapping window.
+	 *
+	 * @param binnedData
+	 *            the histogram extractor for the image
+	 * @param region
+	 *            the region covered by the grid; cells that would extend
+	 *            beyond it are not computed
+	 * @param cellWidth
+	 *            the width of each cell in pixels
+	 * @param cellHeight
+	 *            the height of each cell in pixels
+	 * @return the normalised blocks, indexed by [y][x] in units of cells
+	 */
+	public Histogram[][] extractBlockGrid(WindowedHistogramExtractor binnedData, Rectangle region, int cellWidth,
+			int cellHeight)
+	{
+		final int gridCellsX = (int) (region.width / cellWidth);
+		final int gridCellsY = (int) (region.height / cellHeight);
+		final int gridBlocksX = Math.max(0, gridCellsX - cellsPerBlockX + 1);
+		final int gridBlocksY = Math.max(0, gridCellsY - cellsPerBlockY + 1);
+
+		final Histogram[][] gridCells = new Histogram[gridCellsY][gridCellsX];
+		for (int j = 0, y = (int) region.y; j < gridCellsY; j++, y += cellHeight) {
+			for (int i = 0, x = (int) region.x; i < gridCellsX; i++, x += cellWidth) {
+				gridCells[j][i] = new Histogram(binnedData.getNumBins());
+				binnedData.computeHistogram(x, y, cellWidth, cellHeight, gridCells[j][i]);
+				gridCells[j][i].normaliseL2();
+			}
+		}
+
+		final int gridBlockArea = cellsPerBlockX * cellsPerBlockY;
+		final Histogram[][] gridBlocks = new Histogram[gridBlocksY][gridBlocksX];
+		for (int y = 0; y < gridBlocksY; y++) {
+			for (int x = 0; x < gridBlocksX; x++) {
+				final Histogram block = new Histogram(binnedData.getNumBins() * gridBlockArea);
+
+				for (int j = 0, k = 0; j < cellsPerBlockY; j++) {
+					for (int i = 0; i < cellsPerBlockX; i++) {
+						final double[] cellData = gridCells[y + j][x + i].values;
+
+						System.arraycopy(cellData, 0, block.values, k, cellData.length);
+
+						k += cellData.length;
+					}
+				}
+
+				norm.normalise(block, gridBlockArea);
+				gridBlocks[y][x] = block;
+			}
+		}
+
+		return gridBlocks;
+	}
+
+	/**
+	 * @return the number of cells per window in the x direction
+	 */
+	public int getNumCellsX() {
+		return numCellsX;
+	}
+
+	/**
+	 * @return the number of cells per window in the y direction
+	 */
+	public int getNumCellsY() {
+		return numCellsY;
+	}
+
+	/**
+	 * @return the number of blocks per window in the x direction
+	 */
+	public int getNumBlocksX() {
+		return numBlocksX;
+	}
+
+	/**
+	 * @return the number of blocks per window in the y direction
+	 */
+	public int getNumBlocksY() {
+		return numBlocksY;
+	}
+
+	/**
+	 * @return the amount each block is shifted in the x direction in terms of
+	 *         cells
+	 */
+	public int getBlockStepX() {
+		return blockStepX;
+	}
+
+	/**
+	 * @return the amount each block is shifted in the y direction in terms of
+	 *         cells
+	 */
+	public int getBlockStepY() {
+		return blockStepY;
+	}
+
 	private void computeBlocks(Histogram[][] cells) {
 		for (int y = 0; y < numBlocksY; y++) {
 			for (int x = 0; x < numBlocksX; x++) {
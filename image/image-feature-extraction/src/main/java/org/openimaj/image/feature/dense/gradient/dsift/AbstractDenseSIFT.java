@@ -189,4 +189,57 @@ public abstract class AbstractDenseSIFT<IMAGE extends Image<?, IMAGE>> implement
 	 * @return the descriptors.
 	 */
 	public abstract float[][] getDescriptors();
+
+	/**
+	 * Copy the descriptors computed by the previous call to
+	 * {@link #analyseImage(Image)} or {@link #analyseImage(Image, Rectangle)}
+	 * into a single flat block, one descriptor after another. This avoids the
+	 * creation of a keypoint object per descriptor when only the feature
+	 * vectors are required (for example, when building a vocabulary).
+	 * 
+	 * @param block
+	 *            the block to fill; must have space for all the descriptors
+	 *            from the given offset
+	 * @param offset
+	 *            the offset in the block at which to start writing
+	 * @return the number of descriptors copied
+	 */
+	public int getDescriptors(float[] block, int offset) {
+		final float[][] descriptors = getDescriptors();
+
+		for (int i = 0; i < descriptors.length; i++) {
+			System.arraycopy(descriptors[i], 0, block, offset, descriptors[i].length);
+			offset += descriptors[i].length;
+		}
+
+		return descriptors.length;
+	}
+
+	/**
+	 * Copy the descriptors computed by the previous call to
+	 * {@link #analyseImage(Image)} or {@link #analyseImage(Image, Rectangle)}
+	 * into a single flat block of bytes, one descriptor after another. The
+	 * conversion to bytes is the same as used by {@link ByteDSIFTKeypoint}.
+	 * 
+	 * @param block
+	 *            the block to fill; must have space for all the descriptors
+	 *            from the given offset
+	 * @param offset
+	 *            the offset in the block at which to start writing
+	 * @return the number of descriptors copied
+	 */
+	public int getByteDescriptors(byte[] block, int offset) {
+		final float[][] descriptors = getDescriptors();
+
+		for (int i = 0; i < descriptors.length; i++) {
+			final float[] fdescriptor = descriptors[i];
+
+			for (int j = 0; j < fdescriptor.length; j++) {
+				final int intval = (int) (512.0 * fdescriptor[j]);
+				block[offset++] = (byte) (Math.min(255, intval) - 128);
+			}
+		}
+
+		return descriptors.length;
+	}
 }
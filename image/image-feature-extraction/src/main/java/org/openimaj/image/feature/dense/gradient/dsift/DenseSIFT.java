@@ -29,6 +29,8 @@
  */
 package org.openimaj.image.feature.dense.gradient.dsift;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.openimaj.feature.local.list.LocalFeatureList;
 import org.openimaj.feature.local.list.MemoryLocalFeatureList;
 import org.openimaj.image.FImage;
@@ -36,6 +38,9 @@ import org.openimaj.image.processing.convolution.FImageConvolveSeparable;
 import org.openimaj.image.processing.convolution.FImageGradients;
 import org.openimaj.math.geometry.shape.Rectangle;
 import org.openimaj.util.array.ArrayUtils;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.Parallel.IntRange;
 
 /**
  * Implementation of a dense SIFT feature extractor for {@link FImage}s.
@@ -164,6 +169,11 @@ public class DenseSIFT extends AbstractDenseSIFT<FImage> {
 
 	protected volatile WorkingData data = new WorkingData();
 
+	/**
+	 * Pool for extracting tiles in parallel; null for the calling thread
+	 */
+	protected ThreadPoolExecutor pool;
+
 	/**
 	 * Extracted descriptors
 	 */
@@ -302,32 +312,105 @@ public class DenseSIFT extends AbstractDenseSIFT<FImage> {
 	}
 
 	/**
-	 * Extract the DSIFT features
+	 * Extract the DSIFT features.
+	 * <p>
+	 * Rather than convolving the whole of every orientation image with the
+	 * kernel of every spatial bin, the separable smoothing is only evaluated
+	 * where it is sampled: the horizontal pass is computed at the sampled
+	 * columns of each spatial bin, and the vertical pass only at the sampled
+	 * rows. The result is identical to the full convolution. The frames are
+	 * processed in tiles of rows, which are run in parallel if a thread pool
+	 * has been set with {@link #setThreadPool(ThreadPoolExecutor)}.
 	 */
 	protected void extractFeatures() {
 		final int frameSizeX = binWidth * (numBinsX - 1) + 1;
 		final int frameSizeY = binHeight * (numBinsY - 1) + 1;
 
-		for (int biny = 0; biny < numBinsY; biny++) {
-			final float[] yker = buildKernel(binHeight, numBinsY, biny, gaussianWindowSize);
+		final int rangeX = data.boundMaxX - data.boundMinX - frameSizeX + 1;
+		final int rangeY = data.boundMaxY - data.boundMinY - frameSizeY + 1;
+		final int numFramesX = (rangeX >= 0) ? rangeX / stepX + 1 : 0;
+		final int numFramesY = (rangeY >= 0) ? rangeY / stepY + 1 : 0;
+
+		if (numFramesX == 0 || numFramesY == 0)
+			return;
+
+		final float[][] xkers = new float[numBinsX][];
+		for (int binx = 0; binx < numBinsX; binx++)
+			xkers[binx] = buildKernel(binWidth, numBinsX, binx, gaussianWindowSize);
+
+		final float[][] ykers = new float[numBinsY][];
+		for (int biny = 0; biny < numBinsY; biny++)
+			ykers[biny] = buildKernel(binHeight, numBinsY, biny, gaussianWindowSize);
+
+		if (pool == null) {
+			extractTile(0, numFramesY, numFramesX, xkers, ykers);
+		} else {
+			Parallel.forRange(0, numFramesY, 1, new Operation<IntRange>() {
+				@Override
+				public void perform(IntRange range) {
+					extractTile(range.start, range.stop, numFramesX, xkers, ykers);
+				}
+			}, pool);
+		}
+	}
 
-			for (int binx = 0; binx < numBinsX; binx++) {
-				final float[] xker = buildKernel(binWidth, numBinsX, binx, gaussianWindowSize);
+	/**
+	 * Extract the descriptors of the frames in the given range of frame rows.
+	 * The order of the floating point operations is the same as
+	 * {@link FImageConvolveSeparable} so the results do not depend on the
+	 * tiling.
+	 */
+	private void extractTile(int startRow, int stopRow, int numFramesX, float[][] xkers, float[][] ykers) {
+		final int width = data.gradientMagnitudes[0].width;
+		final int height = data.gradientMagnitudes[0].height;
+		final int halfX = binWidth - 1;
+		final int halfY = binHeight - 1;
+		final int kernelSizeX = 2 * binWidth - 1;
+		final int kernelSizeY = 2 * binHeight - 1;
+
+		// the rows of horizontally smoothed data needed by this tile
+		final int firstRow = data.boundMinY + startRow * stepY - halfY;
+		final int lastRow = data.boundMinY + (stopRow - 1) * stepY + (numBinsY - 1) * binHeight + halfY;
+		final int numRows = lastRow - firstRow + 1;
+		final float[] smoothed = new float[numRows * numFramesX];
+
+		for (int bint = 0; bint < numOriBins; bint++) {
+			final float[][] mag = data.gradientMagnitudes[bint].pixels;
 
-				for (int bint = 0; bint < numOriBins; bint++) {
-					final FImage conv = data.gradientMagnitudes[bint].process(new FImageConvolveSeparable(xker, yker));
-					final float[][] src = conv.pixels;
+			for (int binx = 0; binx < numBinsX; binx++) {
+				final float[] xker = xkers[binx];
+				final int firstCol = data.boundMinX + binx * binWidth - halfX;
+
+				for (int r = 0; r < numRows; r++) {
+					final float[] row = mag[Math.max(0, Math.min(height - 1, firstRow + r))];
+
+					for (int fx = 0, x = firstCol; fx < numFramesX; fx++, x += stepX) {
+						float sum = 0.0f;
+						if (x >= 0 && x + kernelSizeX <= width) {
+							for (int j = 0, jj = kernelSizeX - 1; j < kernelSizeX; j++, jj--)
+								sum += row[x + j] * xker[jj];
+						} else {
+							for (int j = 0, jj = kernelSizeX - 1; j < kernelSizeX; j++, jj--)
+								sum += row[Math.max(0, Math.min(width - 1, x + j))] * xker[jj];
+						}
+						smoothed[r * numFramesX + fx] = sum;
+					}
+				}
 
+				for (int biny = 0; biny < numBinsY; biny++) {
+					final float[] yker = ykers[biny];
 					final int descriptorOffset = bint + binx * numOriBins + biny * (numBinsX * numOriBins);
-					int descriptorIndex = 0;
-
-					for (int framey = data.boundMinY; framey <= data.boundMaxY - frameSizeY + 1; framey += stepY)
-					{
-						for (int framex = data.boundMinX; framex <= data.boundMaxX - frameSizeX + 1; framex += stepX)
-						{
-							descriptors[descriptorIndex][descriptorOffset] =
-									src[framey + biny * binHeight][framex + binx * binWidth];
-							descriptorIndex++;
+
+					for (int fy = startRow; fy < stopRow; fy++) {
+						final int r0 = (fy - startRow) * stepY + biny * binHeight;
+						int descriptorIndex = fy * numFramesX;
+
+						for (int fx = 0; fx < numFramesX; fx++, descriptorIndex++) {
+							float sum = 0.0f;
+							for (int j = 0, jj = kernelSizeY - 1; j < kernelSizeY; j++, jj--)
+								sum += smoothed[(r0 + j) * numFramesX + fx] * yker[jj];
+
+							descriptors[descriptorIndex][descriptorOffset] = sum;
 						}
 					}
 				}
@@ -335,6 +418,19 @@ public class DenseSIFT extends AbstractDenseSIFT<FImage> {
 		}
 	}
 
+	/**
+	 * Set the thread pool used to extract tiles of descriptors in parallel. By
+	 * default this is null and extraction happens on the calling thread; as
+	 * dense SIFT is often run from tasks that are already on a shared pool, the
+	 * pool must be chosen explicitly.
+	 * 
+	 * @param pool
+	 *            the thread pool, or null to run on the calling thread
+	 */
+	public void setThreadPool(ThreadPoolExecutor pool) {
+		this.pool = pool;
+	}
+
 	@Override
 	public void analyseImage(FImage image, Rectangle bounds) {
 		if (data == null)
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.dense.gradient.dsift;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openimaj.OpenIMAJ;
+import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.image.FImage;
+import org.openimaj.image.ImageUtilities;
+import org.openimaj.image.processing.convolution.FImageConvolveSeparable;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+
+/**
+ * Tests for {@link DenseSIFT}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class DenseSIFTTest {
+	/**
+	 * Reference implementation that convolves the whole of each orientation
+	 * image for every spatial bin
+	 */
+	static class ReferenceDenseSIFT extends DenseSIFT {
+		ReferenceDenseSIFT(int step, int binSize) {
+			super(step, binSize);
+		}
+
+		private float[] buildKernel(int binSize, int numBins, int binIndex, float windowSize) {
+			final int kernelSize = 2 * binSize - 1;
+			final float[] kernel = new float[kernelSize];
+			final float delta = binSize * (binIndex - 0.5F * (numBins - 1));
+			final float sigma = binSize * windowSize;
+
+			for (int x = -binSize + 1, i = 0; x <= +binSize - 1; x++, i++) {
+				final float z = (x - delta) / sigma;
+				kernel[i] = (1.0F - Math.abs(x) / binSize) * (float) Math.exp(-0.5F * z * z);
+			}
+
+			return kernel;
+		}
+
+		@Override
+		protected void extractFeatures() {
+			final int frameSizeX = binWidth * (numBinsX - 1) + 1;
+			final int frameSizeY = binHeight * (numBinsY - 1) + 1;
+
+			for (int biny = 0; biny < numBinsY; biny++) {
+				final float[] yker = buildKernel(binHeight, numBinsY, biny, gaussianWindowSize);
+
+				for (int binx = 0; binx < numBinsX; binx++) {
+					final float[] xker = buildKernel(binWidth, numBinsX, binx, gaussianWindowSize);
+
+					for (int bint = 0; bint < numOriBins; bint++) {
+						final FImage conv = data.gradientMagnitudes[bint].process(new FImageConvolveSeparable(xker,
+								yker));
+						final float[][] src = conv.pixels;
+
+						final int descriptorOffset = bint + binx * numOriBins + biny * (numBinsX * numOriBins);
+						int descriptorIndex = 0;
+
+						for (int framey = data.boundMinY; framey <= data.boundMaxY - frameSizeY + 1; framey += stepY) {
+							for (int framex = data.boundMinX; framex <= data.boundMaxX - frameSizeX + 1; framex += stepX) {
+								descriptors[descriptorIndex][descriptorOffset] =
+										src[framey + biny * binHeight][framex + binx * binWidth];
+								descriptorIndex++;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that the fused extraction gives exactly the same descriptors as
+	 * full convolution, both serially and in parallel tiles
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testFusedMatchesConvolution() throws IOException {
+		final FImage img = ImageUtilities.readF(OpenIMAJ.getLogoAsStream());
+
+		for (final int binSize : new int[] { 3, 5, 8 }) {
+			final DenseSIFT reference = new ReferenceDenseSIFT(4, binSize);
+			final DenseSIFT serial = new DenseSIFT(4, binSize);
+			final DenseSIFT parallel = new DenseSIFT(4, binSize);
+			parallel.setThreadPool(GlobalExecutorPool.getPool());
+
+			reference.analyseImage(img);
+			serial.analyseImage(img);
+			parallel.analyseImage(img);
+
+			assertEquals(reference.descriptors.length, serial.descriptors.length);
+			assertEquals(reference.descriptors.length, parallel.descriptors.length);
+
+			for (int i = 0; i < reference.descriptors.length; i++) {
+				assertArrayEquals(reference.descriptors[i], serial.descriptors[i], 0f);
+				assertArrayEquals(reference.descriptors[i], parallel.descriptors[i], 0f);
+				assertEquals(reference.energies[i], serial.energies[i], 0f);
+			}
+		}
+	}
+
+	/**
+	 * Test copying the descriptors into flat blocks
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testDescriptorBlocks() throws IOException {
+		final FImage img = ImageUtilities.readF(OpenIMAJ.getLogoAsStream());
+		final DenseSIFT dsift = new DenseSIFT();
+		dsift.analyseImage(img);
+
+		final int n = dsift.descriptors.length;
+		final float[] fblock = new float[10 + n * 128];
+		final byte[] bblock = new byte[10 + n * 128];
+
+		assertEquals(n, dsift.getDescriptors(fblock, 10));
+		assertEquals(n, dsift.getByteDescriptors(bblock, 10));
+
+		final LocalFeatureList<ByteDSIFTKeypoint> keys = dsift.getByteKeypoints();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < 128; j++) {
+				assertEquals(dsift.descriptors[i][j], fblock[10 + i * 128 + j], 0f);
+				assertEquals(keys.get(i).descriptor[j], bblock[10 + i * 128 + j]);
+			}
+		}
+	}
+}
@@ -46,6 +46,9 @@ import org.openimaj.image.feature.local.detector.dog.pyramid.DoGOctaveExtremaFin
 import org.openimaj.image.feature.local.detector.pyramid.BasicOctaveExtremaFinder;
 import org.openimaj.image.feature.local.detector.pyramid.OctaveInterestPointFinder;
 import org.openimaj.image.feature.local.keypoints.Keypoint;
+import org.openimaj.util.metrics.Counter;
+import org.openimaj.util.metrics.Histogram;
+import org.openimaj.util.metrics.MetricRegistry;
 
 /**
  * <p>
@@ -83,6 +86,8 @@ import org.openimaj.image.feature.local.keypoints.Keypoint;
 })
 public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
 	DoGSIFTEngineOptions<FImage> options;
+	private Histogram latency;
+	private Counter featureCount;
 
 	/**
 	 * Construct a DoGSIFTEngine with the default options.
@@ -103,6 +108,10 @@ public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
 
 	@Override
 	public LocalFeatureList<Keypoint> findFeatures(FImage image) {
+		final Histogram latency = this.latency;
+		final Counter featureCount = this.featureCount;
+		final long start = latency == null ? 0 : System.nanoTime();
+
 		final OctaveInterestPointFinder<GaussianOctave<FImage>, FImage> finder =
 				new DoGOctaveExtremaFinder(new BasicOctaveExtremaFinder(options.magnitudeThreshold,
 						options.eigenvalueRatio));
@@ -135,7 +144,35 @@ public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
 		final GaussianPyramid<FImage> pyr = new GaussianPyramid<FImage>(options);
 		pyr.process(image);
 
-		return collector.getFeatures();
+		final LocalFeatureList<Keypoint> features = collector.getFeatures();
+
+		if (latency != null && featureCount != null) {
+			latency.recordSince(start);
+			featureCount.add(features.size());
+		}
+
+		return features;
+	}
+
+	/**
+	 * Attach a {@link MetricRegistry} to record the time taken by each call to
+	 * {@link #findFeatures(FImage)} (in the histogram
+	 * <code>name.latency</code>, in nanoseconds) and the total number of
+	 * features found (in the counter <code>name.features</code>).
+	 * 
+	 * @param registry
+	 *            the registry, or null to disable recording
+	 * @param name
+	 *            the prefix for the metric names
+	 */
+	public void setMetrics(MetricRegistry registry, String name) {
+		if (registry == null) {
+			this.latency = null;
+			this.featureCount = null;
+		} else {
+			this.featureCount = registry.counter(name + ".features");
+			this.latency = registry.histogram(name + ".latency");
+		}
 	}
 
 	/**
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.local.keypoints;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A decoded block of {@link Keypoint}s from a {@link CompactKeypointList}. The
+ * data is held in primitive arrays (one per field, and a single flat array for
+ * the descriptors), so the block can be consumed directly without creating
+ * {@link Keypoint} objects.
+ * <p>
+ * In the encoded form, the x and y coordinates and the scale are quantised to
+ * a fixed-point representation and stored as zig-zag variable-length deltas
+ * from the previous keypoint in the block. The orientation is quantised to 16
+ * bits. The descriptors are stored verbatim. The encoded block can optionally
+ * be compressed with {@link Deflater}. An encoded block with no keypoints marks
+ * the end of the blocks in a stream.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CompactKeypointBlock {
+	private static final double ORI_QUANTUM = (2 * Math.PI) / 65536;
+
+	/**
+	 * The number of keypoints in the block
+	 */
+	public int size;
+
+	/**
+	 * The length of each descriptor
+	 */
+	public final int veclen;
+
+	/**
+	 * The x-ordinates
+	 */
+	public final float[] x;
+
+	/**
+	 * The y-ordinates
+	 */
+	public final float[] y;
+
+	/**
+	 * The scales
+	 */
+	public final float[] scale;
+
+	/**
+	 * The orientations
+	 */
+	public final float[] ori;
+
+	/**
+	 * The descriptors, stored contiguously; the descriptor of the i-th
+	 * keypoint starts at <code>i * veclen</code>.
+	 */
+	public final byte[] descriptors;
+
+	/**
+	 * Construct an empty block with the given capacity
+	 * 
+	 * @param capacity
+	 *            the maximum number of keypoints in the block
+	 * @param veclen
+	 *            the length of the descriptors
+	 */
+	public CompactKeypointBlock(int capacity, int veclen) {
+		this.veclen = veclen;
+		this.x = new float[capacity];
+		this.y = new float[capacity];
+		this.scale = new float[capacity];
+		this.ori = new float[capacity];
+		this.descriptors = new byte[capacity * veclen];
+	}
+
+	/**
+	 * Get the capacity of the block
+	 * 
+	 * @return the maximum number of keypoints the block can hold
+	 */
+	public int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Add a keypoint to the end of this block
+	 * 
+	 * @param kp
+	 *            the keypoint
+	 */
+	public void add(Keypoint kp) {
+		if (kp.ivec.length != veclen)
+			throw new IllegalArgumentException("Keypoint descriptor length does not match the block");
+
+		x[size] = kp.x;
+		y[size] = kp.y;
+		scale[size] = kp.scale;
+		ori[size] = kp.ori;
+		System.arraycopy(kp.ivec, 0, descriptors, size * veclen, veclen);
+		size++;
+	}
+
+	/**
+	 * Create a {@link Keypoint} from the i-th entry in this block.
+	 * 
+	 * @param i
+	 *            the index within the block
+	 * @return a new {@link Keypoint}
+	 */
+	public Keypoint getKeypoint(int i) {
+		final byte[] ivec = new byte[veclen];
+		System.arraycopy(descriptors, i * veclen, ivec, 0, veclen);
+
+		return new Keypoint(x[i], y[i], ori[i], scale[i], ivec);
+	}
+
+	/**
+	 * Copy the descriptor of the i-th entry in this block into the given
+	 * array.
+	 * 
+	 * @param i
+	 *            the index within the block
+	 * @param dest
+	 *            the destination array
+	 * @param offset
+	 *            the offset into the destination array
+	 */
+	public void getDescriptor(int i, byte[] dest, int offset) {
+		System.arraycopy(descriptors, i * veclen, dest, offset, veclen);
+	}
+
+	int write(DataOutput out, int locationScale, boolean compress) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(size * (veclen + 8));
+		final DataOutputStream dos = new DataOutputStream(baos);
+
+		int px = 0, py = 0, ps = 0;
+		for (int i = 0; i < size; i++) {
+			final int qx = Math.round(x[i] * locationScale);
+			final int qy = Math.round(y[i] * locationScale);
+			final int qs = Math.round(scale[i] * locationScale);
+
+			writeVarInt(dos, qx - px);
+			writeVarInt(dos, qy - py);
+			writeVarInt(dos, qs - ps);
+			dos.writeShort((short) Math.round(ori[i] / ORI_QUANTUM));
+
+			px = qx;
+			py = qy;
+			ps = qs;
+		}
+		dos.write(descriptors, 0, size * veclen);
+		dos.flush();
+
+		byte[] payload = baos.toByteArray();
+		final int rawLength = payload.length;
+
+		if (compress) {
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			deflater.setInput(payload);
+			deflater.finish();
+
+			final ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawLength);
+			final byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				final int n = deflater.deflate(buffer);
+				compressed.write(buffer, 0, n);
+			}
+			deflater.end();
+
+			payload = compressed.toByteArray();
+		}
+
+		out.writeInt(size);
+		out.writeInt(rawLength);
+		out.writeInt(payload.length);
+		out.write(payload);
+
+		return 12 + payload.length;
+	}
+
+	void read(DataInput in, int locationScale, boolean compressed) throws IOException {
+		size = in.readInt();
+		if (size == 0)
+			return;
+
+		final int rawLength = in.readInt();
+		final int storedLength = in.readInt();
+
+		byte[] payload = new byte[storedLength];
+		in.readFully(payload);
+
+		if (compressed) {
+			final Inflater inflater = new Inflater();
+			inflater.setInput(payload);
+
+			final byte[] raw = new byte[rawLength];
+			try {
+				int n = 0;
+				while (n < rawLength && !inflater.finished()) {
+					final int read = inflater.inflate(raw, n, rawLength - n);
+					if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					n += read;
+				}
+
+				if (n != rawLength)
+					throw new IOException("Truncated keypoint block: expected " + rawLength + " bytes but got " + n);
+			} catch (final DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.end();
+			}
+			payload = raw;
+		}
+
+		final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(payload));
+		final float norm = 1f / locationScale;
+
+		int qx = 0, qy = 0, qs = 0;
+		for (int i = 0; i < size; i++) {
+			qx += readVarInt(dis);
+			qy += readVarInt(dis);
+			qs += readVarInt(dis);
+
+			x[i] = qx * norm;
+			y[i] = qy * norm;
+			scale[i] = qs * norm;
+			ori[i] = (float) (dis.readShort() * ORI_QUANTUM);
+		}
+		dis.readFully(descriptors, 0, size * veclen);
+	}
+
+	private static void writeVarInt(DataOutput out, int value) throws IOException {
+		// zig-zag encode so small negative numbers are also short
+		int v = (value << 1) ^ (value >> 31);
+
+		while ((v & ~0x7F) != 0) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readVarInt(DataInput in) throws IOException {
+		int v = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return (v >>> 1) ^ -(v & 1);
+	}
+}
@@ -0,0 +1,466 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.local.keypoints;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.openimaj.data.AbstractDataSource;
+import org.openimaj.data.DataSource;
+import org.openimaj.data.RandomData;
+import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
+import org.openimaj.io.IOUtils;
+
+/**
+ * A read-only {@link LocalFeatureList} of {@link Keypoint}s backed by a file
+ * in a compact block-based binary format (as written by
+ * {@link CompactKeypointListWriter}). Compared to the standard binary and
+ * ASCII keypoint formats, the location, scale and orientation are quantised
+ * and delta-coded, and each block can be compressed.
+ * <p>
+ * Data is only read and decoded as necessary, a block at a time, using the
+ * block index stored at the end of the file. {@link Keypoint} objects are only
+ * created when elements of the list are accessed; the descriptors can be read
+ * without creating any {@link Keypoint}s through {@link #getBlock(int)} or
+ * {@link #asDataSource()}. Streams that cannot be randomly accessed can be
+ * decoded block-by-block using {@link #readBlocks(InputStream)}.
+ * <p>
+ * A single file handle is opened when the first block is read and reused for
+ * all subsequent reads; call {@link #close()} to release it when the list is
+ * no longer required.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CompactKeypointList extends AbstractList<Keypoint> implements LocalFeatureList<Keypoint>, Closeable {
+	/** The header used to identify compact keypoint files */
+	public static final byte[] BINARY_HEADER = "CKPT".getBytes();
+
+	/** The version of the format */
+	public static final int VERSION = 1;
+
+	private final File file;
+	private final boolean compressed;
+	private final int veclen;
+	private final int blockSize;
+	private final int locationScale;
+	private final int size;
+	private final long[] offsets;
+
+	private CompactKeypointBlock cachedBlock;
+	private int cachedBlockIndex = -1;
+	private RandomAccessFile raf;
+
+	/**
+	 * Construct a list backed by the given file. The header and block index
+	 * are read immediately; the keypoints are read lazily.
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if an error occurs reading the file
+	 */
+	public CompactKeypointList(File file) throws IOException {
+		this.file = file;
+
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+
+			final byte[] header = new byte[BINARY_HEADER.length];
+			raf.readFully(header);
+			if (!Arrays.equals(header, BINARY_HEADER))
+				throw new IOException("File is not a compact keypoint file");
+
+			final int version = raf.readUnsignedByte();
+			if (version != VERSION)
+				throw new IOException("Unsupported compact keypoint file version " + version);
+
+			compressed = raf.readBoolean();
+			veclen = raf.readInt();
+			blockSize = raf.readInt();
+			locationScale = raf.readInt();
+
+			raf.seek(raf.length() - 8);
+			raf.seek(raf.readLong());
+
+			size = raf.readInt();
+			offsets = new long[raf.readInt()];
+			for (int i = 0; i < offsets.length; i++)
+				offsets[i] = raf.readLong();
+		} finally {
+			if (raf != null)
+				try {
+					raf.close();
+				} catch (final IOException e) {
+				}
+		}
+	}
+
+	/**
+	 * Test whether the given file is in the compact keypoint format
+	 * 
+	 * @param file
+	 *            the file
+	 * @return true if the file is a compact keypoint file; false otherwise
+	 * @throws IOException
+	 *             if an error occurs reading the file
+	 */
+	public static boolean isCompact(File file) throws IOException {
+		return IOUtils.isBinary(file, BINARY_HEADER);
+	}
+
+	/**
+	 * Get the number of blocks in the file
+	 * 
+	 * @return the number of blocks
+	 */
+	public int numBlocks() {
+		return offsets.length;
+	}
+
+	/**
+	 * Get the maximum number of keypoints in each block
+	 * 
+	 * @return the block size
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Get the decoded block with the given index. The most recently decoded
+	 * block is cached, so sequential access to the keypoints only decodes
+	 * each block once.
+	 * <p>
+	 * The returned block must not be modified, and is only valid until the
+	 * next call to a method of this list.
+	 * 
+	 * @param index
+	 *            the block index
+	 * @return the decoded block
+	 */
+	public synchronized CompactKeypointBlock getBlock(int index) {
+		if (index != cachedBlockIndex) {
+			if (cachedBlock == null)
+				cachedBlock = new CompactKeypointBlock(blockSize, veclen);
+
+			try {
+				if (raf == null)
+					raf = new RandomAccessFile(file, "r");
+
+				raf.seek(offsets[index]);
+				cachedBlockIndex = -1;
+				cachedBlock.read(raf, locationScale, compressed);
+				cachedBlockIndex = index;
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		return cachedBlock;
+	}
+
+	/**
+	 * Close the file handle used to read blocks. The list can still be used
+	 * afterwards; the file will be reopened when the next block is read.
+	 */
+	@Override
+	public synchronized void close() {
+		if (raf != null) {
+			try {
+				raf.close();
+			} catch (final IOException e) {
+			}
+			raf = null;
+		}
+	}
+
+	@Override
+	public synchronized Keypoint get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		return getBlock(index / blockSize).getKeypoint(index % blockSize);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int vecLength() {
+		return veclen;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <Q> Q[] asDataArray(Q[] a) {
+		if (a.length < size()) {
+			a = (Q[]) Array.newInstance(a.getClass().getComponentType(), size());
+		}
+
+		final DataSource<byte[]> ds = asDataSource();
+		for (int i = 0; i < size; i++) {
+			a[i] = (Q) ds.getData(i);
+		}
+
+		return a;
+	}
+
+	/**
+	 * Get a {@link DataSource} view of the descriptors in this list. The
+	 * descriptors are copied straight out of the decoded blocks, so no
+	 * {@link Keypoint}s are created. This can be passed directly to the
+	 * clustering algorithms.
+	 * 
+	 * @return a {@link DataSource} of the descriptors
+	 */
+	public DataSource<byte[]> asDataSource() {
+		return new AbstractDataSource<byte[]>() {
+			@Override
+			public void getData(int startRow, int stopRow, byte[][] data) {
+				synchronized (CompactKeypointList.this) {
+					for (int i = startRow, j = 0; i < stopRow; i++, j++) {
+						if (data[j] == null || data[j].length != veclen)
+							data[j] = new byte[veclen];
+
+						getBlock(i / blockSize).getDescriptor(i % blockSize, data[j], 0);
+					}
+				}
+			}
+
+			@Override
+			public byte[] getData(int row) {
+				final byte[] data = new byte[veclen];
+
+				synchronized (CompactKeypointList.this) {
+					getBlock(row / blockSize).getDescriptor(row % blockSize, data, 0);
+				}
+
+				return data;
+			}
+
+			@Override
+			public int numDimensions() {
+				return veclen;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public byte[][] createTemporaryArray(int size) {
+				return new byte[size][veclen];
+			}
+
+			@Override
+			public Iterator<byte[]> iterator() {
+				return new Iterator<byte[]>() {
+					int index = 0;
+
+					@Override
+					public boolean hasNext() {
+						return index < size;
+					}
+
+					@Override
+					public byte[] next() {
+						return getData(index++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public MemoryLocalFeatureList<Keypoint> subList(int fromIndex, int toIndex) {
+		return new MemoryLocalFeatureList<Keypoint>(super.subList(fromIndex, toIndex));
+	}
+
+	@Override
+	public MemoryLocalFeatureList<Keypoint> randomSubList(int nelem) {
+		if (nelem > size())
+			throw new IllegalArgumentException("number of requested elements is greater than the list size");
+
+		final int[] indices = RandomData.getUniqueRandomInts(nelem, 0, size());
+		Arrays.sort(indices);
+
+		final MemoryLocalFeatureList<Keypoint> list = new MemoryLocalFeatureList<Keypoint>(veclen);
+		for (final int i : indices)
+			list.add(get(i));
+
+		return list;
+	}
+
+	/**
+	 * Writes the list in the standard (non-compact) binary keypoint format.
+	 */
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeInt(veclen);
+		for (final Keypoint k : this)
+			k.writeBinary(out);
+	}
+
+	/**
+	 * Writes the list in the standard ASCII keypoint format.
+	 */
+	@Override
+	public void writeASCII(PrintWriter out) throws IOException {
+		final Locale def = Locale.getDefault();
+		Locale.setDefault(Locale.ENGLISH);
+
+		out.println(size + " " + veclen);
+		for (final Keypoint k : this)
+			k.writeASCII(out);
+
+		Locale.setDefault(def);
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return LocalFeatureList.BINARY_HEADER;
+	}
+
+	@Override
+	public String asciiHeader() {
+		return "";
+	}
+
+	/**
+	 * Decode the blocks of a compact keypoint stream sequentially. This does
+	 * not require the block index, so can be used on streams that cannot be
+	 * randomly accessed. The same {@link CompactKeypointBlock} instance is
+	 * reused for every block, and the stream is closed when the last block has
+	 * been read.
+	 * 
+	 * @param stream
+	 *            the stream to read from
+	 * @return an iterable over the blocks in the stream
+	 * @throws IOException
+	 *             if an error occurs reading the header
+	 */
+	public static Iterable<CompactKeypointBlock> readBlocks(InputStream stream) throws IOException {
+		final DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
+
+		final byte[] header = new byte[BINARY_HEADER.length];
+		dis.readFully(header);
+		if (!Arrays.equals(header, BINARY_HEADER))
+			throw new IOException("Stream is not a compact keypoint stream");
+
+		final int version = dis.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported compact keypoint stream version " + version);
+
+		final boolean compressed = dis.readBoolean();
+		final int veclen = dis.readInt();
+		final int blockSize = dis.readInt();
+		final int locationScale = dis.readInt();
+
+		final CompactKeypointBlock block = new CompactKeypointBlock(blockSize, veclen);
+
+		return new Iterable<CompactKeypointBlock>() {
+			boolean used = false;
+
+			@Override
+			public Iterator<CompactKeypointBlock> iterator() {
+				if (used)
+					throw new IllegalStateException("The blocks of a stream can only be iterated once");
+				used = true;
+
+				return new Iterator<CompactKeypointBlock>() {
+					boolean ready = false;
+					boolean finished = false;
+
+					@Override
+					public boolean hasNext() {
+						if (ready)
+							return true;
+						if (finished)
+							return false;
+
+						try {
+							block.read(dis, locationScale, compressed);
+
+							// an empty block marks the end of the data
+							if (block.size == 0) {
+								finished = true;
+								dis.close();
+								return false;
+							}
+
+							ready = true;
+							return true;
+						} catch (final IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+
+					@Override
+					public CompactKeypointBlock next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+
+						ready = false;
+						return block;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.local.keypoints;
+
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openimaj.feature.local.list.LocalFeatureList;
+
+/**
+ * Incrementally writes {@link Keypoint}s in the block-based format read by
+ * {@link CompactKeypointList}. Keypoints are buffered into blocks which are
+ * encoded and written as soon as they are full, so arbitrarily large numbers
+ * of keypoints can be written with constant memory. The block index is
+ * written when the writer is closed.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CompactKeypointListWriter implements Closeable {
+	/**
+	 * The default number of keypoints per block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	/**
+	 * The default fixed-point scaling of the location and scale (i.e. they
+	 * are stored to the nearest 1/32 of a pixel)
+	 */
+	public static final int DEFAULT_LOCATION_SCALE = 32;
+
+	private final DataOutputStream out;
+	private final boolean compress;
+	private final int locationScale;
+	private final CompactKeypointBlock block;
+	private final TLongArrayList offsets = new TLongArrayList();
+	private int total;
+	private long position;
+
+	/**
+	 * Construct a writer with the default block size and location scaling,
+	 * and with compression enabled.
+	 * 
+	 * @param out
+	 *            the stream to write to
+	 * @param veclen
+	 *            the length of the keypoint descriptors
+	 * @throws IOException
+	 *             if an error occurs writing the header
+	 */
+	public CompactKeypointListWriter(OutputStream out, int veclen) throws IOException {
+		this(out, veclen, DEFAULT_BLOCK_SIZE, DEFAULT_LOCATION_SCALE, true);
+	}
+
+	/**
+	 * Construct a writer with the given parameters.
+	 * 
+	 * @param out
+	 *            the stream to write to
+	 * @param veclen
+	 *            the length of the keypoint descriptors
+	 * @param blockSize
+	 *            the number of keypoints per block
+	 * @param locationScale
+	 *            the fixed-point scaling applied to the location and scale
+	 * @param compress
+	 *            should the blocks be compressed
+	 * @throws IOException
+	 *             if an error occurs writing the header
+	 */
+	public CompactKeypointListWriter(OutputStream out, int veclen, int blockSize, int locationScale, boolean compress)
+			throws IOException
+	{
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.compress = compress;
+		this.locationScale = locationScale;
+		this.block = new CompactKeypointBlock(blockSize, veclen);
+
+		this.out.write(CompactKeypointList.BINARY_HEADER);
+		this.out.writeByte(CompactKeypointList.VERSION);
+		this.out.writeBoolean(compress);
+		this.out.writeInt(veclen);
+		this.out.writeInt(blockSize);
+		this.out.writeInt(locationScale);
+		this.position = this.out.size();
+	}
+
+	/**
+	 * Add a keypoint
+	 * 
+	 * @param kp
+	 *            the keypoint
+	 * @throws IOException
+	 *             if an error occurs writing a completed block
+	 */
+	public void add(Keypoint kp) throws IOException {
+		block.add(kp);
+		total++;
+
+		if (block.size == block.capacity())
+			flushBlock();
+	}
+
+	/**
+	 * Add all the given keypoints
+	 * 
+	 * @param kps
+	 *            the keypoints
+	 * @throws IOException
+	 *             if an error occurs writing a completed block
+	 */
+	public void addAll(Iterable<? extends Keypoint> kps) throws IOException {
+		for (final Keypoint kp : kps)
+			add(kp);
+	}
+
+	private void flushBlock() throws IOException {
+		offsets.add(position);
+		position += block.write(out, locationScale, compress);
+		block.size = 0;
+	}
+
+	/**
+	 * Write any remaining keypoints and the block index, and close the
+	 * underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (block.size > 0)
+			flushBlock();
+
+		// end-of-blocks marker
+		out.writeInt(0);
+		position += 4;
+
+		final long indexOffset = position;
+		out.writeInt(total);
+		out.writeInt(offsets.size());
+		for (int i = 0; i < offsets.size(); i++)
+			out.writeLong(offsets.get(i));
+		out.writeLong(indexOffset);
+
+		out.close();
+	}
+
+	/**
+	 * Write the given keypoints to a file using the default settings.
+	 * 
+	 * @param keypoints
+	 *            the keypoints
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public static void write(LocalFeatureList<? extends Keypoint> keypoints, File file) throws IOException {
+		final CompactKeypointListWriter writer = new CompactKeypointListWriter(new FileOutputStream(file),
+				keypoints.vecLength());
+
+		try {
+			writer.addAll(keypoints);
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -37,12 +37,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.openimaj.data.DataSource;
 import org.openimaj.feature.local.list.FileLocalFeatureList;
 import org.openimaj.feature.local.list.LocalFeatureList;
 import org.openimaj.feature.local.list.MemoryLocalFeatureList;
@@ -268,4 +270,42 @@ public class KeypointListTest {
 
 		ascii.delete();
 	}
+
+	/**
+	 * Test the views that read the descriptors without creating keypoints
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void vectorViewTest() throws IOException {
+		final File binary = folder.newFile("kpt-vectorViewTest.bin");
+		IOUtils.writeBinary(binary, keys);
+
+		final FileLocalFeatureList<Keypoint> fkl = FileLocalFeatureList.read(binary, Keypoint.class);
+		final DataSource<byte[]> ds = fkl.asDataSource();
+		assertEquals(keys.size(), ds.size());
+		assertEquals(128, ds.numDimensions());
+
+		final byte[][] rows = ds.createTemporaryArray(5);
+		ds.getData(3, 8, rows);
+		for (int i = 0; i < 5; i++)
+			assertArrayEquals(keys.get(3 + i).ivec, rows[i]);
+		assertArrayEquals(keys.get(keys.size() - 1).ivec, ds.getData(keys.size() - 1));
+
+		int i = 0;
+		for (final byte[] vec : ds)
+			assertArrayEquals(keys.get(i++).ivec, vec);
+		assertEquals(keys.size(), i);
+
+		final byte[][] all = fkl.asDataArray(new byte[0][]);
+		for (i = 0; i < keys.size(); i++)
+			assertArrayEquals(keys.get(i).ivec, all[i]);
+
+		final StreamLocalFeatureList<Keypoint> skl = StreamLocalFeatureList.read(new FileInputStream(binary),
+				Keypoint.class);
+		final Iterator<byte[]> iter = skl.vectorIterator();
+		for (i = 0; iter.hasNext(); i++)
+			assertArrayEquals(keys.get(i).ivec, iter.next());
+		assertEquals(keys.size(), i);
+	}
 }
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.local.keypoints;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.data.DataSource;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
+
+/**
+ * Tests for {@link CompactKeypointList} and
+ * {@link CompactKeypointListWriter}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CompactKeypointListTest {
+	/**
+	 * Temporary folder for the test files
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MemoryLocalFeatureList<Keypoint> keypoints;
+
+	/**
+	 * Create some random keypoints
+	 */
+	@Before
+	public void setup() {
+		final Random rng = new Random(42);
+
+		keypoints = new MemoryLocalFeatureList<Keypoint>(128);
+		for (int i = 0; i < 2500; i++) {
+			final byte[] ivec = new byte[128];
+			rng.nextBytes(ivec);
+
+			keypoints.add(new Keypoint(rng.nextFloat() * 640, rng.nextFloat() * 480,
+					(float) ((rng.nextFloat() - 0.5) * Math.PI), 1.6f + rng.nextFloat() * 20, ivec));
+		}
+	}
+
+	private void checkEquals(Keypoint expected, Keypoint actual) {
+		assertEquals(expected.x, actual.x, 1.0 / 64);
+		assertEquals(expected.y, actual.y, 1.0 / 64);
+		assertEquals(expected.scale, actual.scale, 1.0 / 64);
+		assertEquals(expected.ori, actual.ori, 1e-4);
+		assertArrayEquals(expected.ivec, actual.ivec);
+	}
+
+	private File write(boolean compress) throws IOException {
+		final File file = folder.newFile("keypoints-" + compress + ".ckpt");
+		final CompactKeypointListWriter writer = new CompactKeypointListWriter(new FileOutputStream(file), 128,
+				1000, CompactKeypointListWriter.DEFAULT_LOCATION_SCALE, compress);
+		writer.addAll(keypoints);
+		writer.close();
+
+		return file;
+	}
+
+	/**
+	 * Test random access to the keypoints and the descriptor data source
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testRandomAccess() throws IOException {
+		for (final boolean compress : new boolean[] { false, true }) {
+			final File file = write(compress);
+			assertTrue(CompactKeypointList.isCompact(file));
+
+			final CompactKeypointList list = new CompactKeypointList(file);
+			assertEquals(keypoints.size(), list.size());
+			assertEquals(3, list.numBlocks());
+			assertEquals(128, list.vecLength());
+
+			for (final int i : new int[] { 2499, 0, 1000, 999, 1500 })
+				checkEquals(keypoints.get(i), list.get(i));
+
+			final DataSource<byte[]> ds = list.asDataSource();
+			final byte[][] rows = ds.createTemporaryArray(10);
+			ds.getData(995, 1005, rows);
+			for (int i = 0; i < 10; i++)
+				assertArrayEquals(keypoints.get(995 + i).ivec, rows[i]);
+
+			list.close();
+		}
+	}
+
+	/**
+	 * Test sequential decoding of a stream
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testStream() throws IOException {
+		final File file = write(true);
+
+		int i = 0;
+		for (final CompactKeypointBlock block : CompactKeypointList.readBlocks(new FileInputStream(file))) {
+			for (int j = 0; j < block.size; j++)
+				checkEquals(keypoints.get(i++), block.getKeypoint(j));
+		}
+		assertEquals(keypoints.size(), i);
+	}
+
+	/**
+	 * A block whose compressed payload has been cut short must be rejected
+	 * rather than decoded forever or partially
+	 * 
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class, timeout = 10000)
+	public void testTruncatedBlock() throws IOException {
+		final CompactKeypointBlock block = new CompactKeypointBlock(100, 128);
+		for (int i = 0; i < 100; i++)
+			block.add(keypoints.get(i));
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		block.write(new DataOutputStream(baos), CompactKeypointListWriter.DEFAULT_LOCATION_SCALE, true);
+
+		// keep the header, but only half of the compressed payload
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		final int size = in.readInt();
+		final int rawLength = in.readInt();
+		final byte[] payload = new byte[in.readInt() / 2];
+		in.readFully(payload);
+
+		final ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(truncated);
+		out.writeInt(size);
+		out.writeInt(rawLength);
+		out.writeInt(payload.length);
+		out.write(payload);
+
+		new CompactKeypointBlock(100, 128).read(new DataInputStream(new ByteArrayInputStream(truncated.toByteArray())),
+				CompactKeypointListWriter.DEFAULT_LOCATION_SCALE, true);
+	}
+}
@@ -188,12 +188,31 @@ public class Detector extends AbstractMultiScaleObjectDetector<FImage, Rectangle
 
 	@Override
 	public List<Rectangle> detect(FImage image) {
-		final List<Rectangle> results = new ArrayList<Rectangle>();
+		final SummedSqTiltAreaTable sat = new SummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
 
-		final int imageWidth = image.getWidth();
-		final int imageHeight = image.getHeight();
+		return detect(sat);
+	}
 
-		final SummedSqTiltAreaTable sat = new SummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
+	/**
+	 * Detect objects in an image using its pre-computed summed area tables.
+	 * The tables are only read, so a single set of tables computed once per
+	 * frame can be shared by all scales of the search, and by multiple
+	 * detectors (for example face and eye detectors) applied to the same
+	 * frame.
+	 * 
+	 * @param sat
+	 *            the summed area tables of the image. If the cascade has
+	 *            tilted features, this must include the tilted table.
+	 * @return the detected objects
+	 */
+	public List<Rectangle> detect(SummedSqTiltAreaTable sat) {
+		if (cascade.hasTiltedFeatures && sat.tiltSum == null)
+			throw new IllegalArgumentException("The cascade has tilted features, but the tilted sum was not computed");
+
+		final List<Rectangle> results = new ArrayList<Rectangle>();
+
+		final int imageWidth = sat.sum.getWidth() - 1;
+		final int imageHeight = sat.sum.getHeight() - 1;
 
 		// compute the number of scales to test and the starting factor
 		int nFactors = 0;
@@ -29,6 +29,7 @@
  */
 package org.openimaj.image.objectdetection.haar;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -41,8 +42,9 @@ import org.openimaj.util.parallel.Parallel.IntRange;
 
 /**
  * Multi-threaded version of the {@link Detector}. The search algorithm is
- * identical, but the image is separated into multiple vertical stripes for each
- * thread to process independently.
+ * identical, but at each scale the rows of windows are separated into
+ * interleaved tiles for each thread to process independently. The summed area
+ * tables are computed once per image and shared by all threads and scales.
  * <p>
  * <strong>Important note:</strong> This detector is NOT thread-safe due to the
  * fact that {@link StageTreeClassifier}s are not themselves thread-safe. Do not
@@ -108,28 +110,40 @@ public class MultiThreadedDetector extends Detector {
 			final int stopY, final float ystep, final int windowWidth, final int windowHeight,
 			final List<Rectangle> results)
 	{
-		Parallel.forRange(startY, stopY, 1, new Operation<IntRange>() {
+		// Rows are interleaved across the tiles so that each tile gets a
+		// similar amount of work, even if the objects are concentrated in one
+		// part of the image. Each tile collects its results locally to avoid
+		// contention.
+		final int ntiles = Math.max(1, Math.min(threadPool.getMaximumPoolSize(), stopY - startY));
+
+		Parallel.forRange(0, ntiles, 1, new Operation<IntRange>() {
 			@Override
 			public void perform(IntRange range) {
-				for (int iy = range.start; iy < range.stop; iy += range.incr) {
-					final int y = Math.round(iy * ystep);
+				final List<Rectangle> tileResults = new ArrayList<Rectangle>();
+
+				for (int tile = range.start; tile < range.stop; tile += range.incr) {
+					for (int iy = startY + tile; iy < stopY; iy += ntiles) {
+						final int y = Math.round(iy * ystep);
 
-					for (int ix = startX, xstep = 0; ix < stopX; ix += xstep) {
-						final int x = Math.round(ix * ystep);
+						for (int ix = startX, xstep = 0; ix < stopX; ix += xstep) {
+							final int x = Math.round(ix * ystep);
 
-						final int result = cascade.classify(sat, x, y);
+							final int result = cascade.classify(sat, x, y);
 
-						if (result > 0) {
-							synchronized (results) {
-								results.add(new Rectangle(x, y, windowWidth, windowHeight));
+							if (result > 0) {
+								tileResults.add(new Rectangle(x, y, windowWidth, windowHeight));
 							}
-						}
 
-						// if there is no hint of detection, then increase the
-						// step size
-						xstep = result == 0 ? smallStep : bigStep;
+							// if there is no detection, then increase the step
+							// size
+							xstep = (result > 0 ? smallStep : bigStep);
+						}
 					}
 				}
+
+				synchronized (results) {
+					results.addAll(tileResults);
+				}
 			}
 		}, threadPool);
 	}
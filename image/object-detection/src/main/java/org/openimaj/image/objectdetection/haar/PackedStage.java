@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.objectdetection.haar;
+
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
+
+/**
+ * A flattened representation of a {@link Stage} whose ensemble consists only
+ * of single-feature decision stumps (i.e. {@link HaarFeatureClassifier}s with
+ * {@link ValueClassifier} children), which is the case for the stages of most
+ * cascades. The thresholds, leaf values and the scaled rectangles of all the
+ * features are held in packed primitive arrays, so the stage can be evaluated
+ * without any virtual method calls or pointer chasing.
+ * <p>
+ * {@link StageTreeClassifier} uses this to perform the rejection test of the
+ * root stage, which is the only stage that is evaluated for the overwhelming
+ * majority of windows. The result of {@link #pass} is identical to
+ * {@link Stage#pass(SummedSqTiltAreaTable, float, int, int)}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+final class PackedStage {
+	private final float threshold;
+	private final boolean hasNegativeValueFeatures;
+
+	private final HaarFeature[] features;
+	private final boolean[] tilted;
+	private final float[] thresholds;
+	private final float[] leftValues;
+	private final float[] rightValues;
+	private final int[] rectStart;
+
+	// rectangles of all features at the current scale
+	private final int[] rx;
+	private final int[] ry;
+	private final int[] rw;
+	private final int[] rh;
+	private final float[] rweight;
+
+	private PackedStage(Stage stage) {
+		final int n = stage.ensemble.length;
+
+		this.threshold = stage.threshold;
+		this.features = new HaarFeature[n];
+		this.tilted = new boolean[n];
+		this.thresholds = new float[n];
+		this.leftValues = new float[n];
+		this.rightValues = new float[n];
+		this.rectStart = new int[n + 1];
+
+		boolean negative = false;
+		for (int i = 0; i < n; i++) {
+			final HaarFeatureClassifier hfc = (HaarFeatureClassifier) stage.ensemble[i];
+
+			features[i] = hfc.feature;
+			tilted[i] = hfc.feature instanceof HaarFeature.TiltedFeature;
+			thresholds[i] = hfc.threshold;
+			leftValues[i] = ((ValueClassifier) hfc.left).value;
+			rightValues[i] = ((ValueClassifier) hfc.right).value;
+			rectStart[i + 1] = rectStart[i] + hfc.feature.rects.length;
+
+			negative |= leftValues[i] < 0 || rightValues[i] < 0;
+		}
+		this.hasNegativeValueFeatures = negative;
+
+		final int nrects = rectStart[n];
+		rx = new int[nrects];
+		ry = new int[nrects];
+		rw = new int[nrects];
+		rh = new int[nrects];
+		rweight = new float[nrects];
+	}
+
+	/**
+	 * Create a {@link PackedStage} from the given stage if possible.
+	 * 
+	 * @param stage
+	 *            the stage
+	 * @return the packed stage, or null if the stage's ensemble contains
+	 *         anything other than decision stumps.
+	 */
+	static PackedStage create(Stage stage) {
+		if (stage == null)
+			return null;
+
+		for (final Classifier c : stage.ensemble) {
+			if (!(c instanceof HaarFeatureClassifier))
+				return null;
+
+			final HaarFeatureClassifier hfc = (HaarFeatureClassifier) c;
+			if (!(hfc.left instanceof ValueClassifier) || !(hfc.right instanceof ValueClassifier))
+				return null;
+		}
+
+		return new PackedStage(stage);
+	}
+
+	/**
+	 * Copy the scaled rectangles from the features. Must be called after the
+	 * features have had their caches updated for the current scale.
+	 */
+	void updateCaches() {
+		for (int i = 0; i < features.length; i++) {
+			final WeightedRectangle[] rects = features[i].cachedRects;
+
+			for (int j = 0, k = rectStart[i]; j < rects.length; j++, k++) {
+				rx[k] = rects[j].x;
+				ry[k] = rects[j].y;
+				rw[k] = rects[j].width;
+				rh[k] = rects[j].height;
+				rweight[k] = rects[j].weight;
+			}
+		}
+	}
+
+	/**
+	 * Test whether the stage passes at the given window position.
+	 * 
+	 * @see Stage#pass(SummedSqTiltAreaTable, float, int, int)
+	 */
+	boolean pass(final SummedSqTiltAreaTable sat, final float wvNorm, final int x, final int y) {
+		final float[][] sum = sat.sum.pixels;
+		final float[][] tiltSum = sat.tiltSum == null ? null : sat.tiltSum.pixels;
+
+		float total = 0;
+		for (int i = 0; i < thresholds.length; i++) {
+			float response = 0;
+
+			if (tilted[i]) {
+				for (int k = rectStart[i]; k < rectStart[i + 1]; k++) {
+					final int xx = x + rx[k];
+					final int yy = y + ry[k];
+					final int w = rw[k];
+					final int h = rh[k];
+
+					final float regionSum = tiltSum[yy][xx] - tiltSum[yy + h][xx - h] - tiltSum[yy + w][xx + w]
+							+ tiltSum[yy + w + h][xx + w - h];
+
+					response += regionSum * rweight[k];
+				}
+			} else {
+				for (int k = rectStart[i]; k < rectStart[i + 1]; k++) {
+					final int xx = x + rx[k];
+					final int yy = y + ry[k];
+					final int yh = yy + rh[k];
+					final int xw = xx + rw[k];
+
+					final float regionSum = sum[yh][xw] - sum[yh][xx] - sum[yy][xw] + sum[yy][xx];
+
+					response += regionSum * rweight[k];
+				}
+			}
+
+			total += (response < thresholds[i] * wvNorm) ? leftValues[i] : rightValues[i];
+
+			// if there are no negative valued features then the sum can only
+			// increase, so the threshold can be checked on each iteration
+			if (!hasNegativeValueFeatures && total >= threshold)
+				return true;
+		}
+
+		return total >= threshold;
+	}
+}
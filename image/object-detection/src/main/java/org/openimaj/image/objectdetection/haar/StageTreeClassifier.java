@@ -113,6 +113,12 @@ public class StageTreeClassifier {
 	 */
 	Stage root;
 
+	/**
+	 * Packed version of the root stage for fast rejection (or null if the root
+	 * stage cannot be packed)
+	 */
+	PackedStage packedRoot;
+
 	// cached values for the scale being processed
 	float cachedScale; // the current scale
 	float cachedInvArea; // the inverse of the current (scaled) detection window
@@ -139,6 +145,7 @@ public class StageTreeClassifier {
 		this.name = name;
 		this.hasTiltedFeatures = hasTiltedFeatures;
 		this.root = root;
+		this.packedRoot = PackedStage.create(root);
 	}
 
 	float computeWindowVarianceNorm(SummedSqTiltAreaTable sat, int x, int y) {
@@ -179,6 +186,9 @@ public class StageTreeClassifier {
 		cachedInvArea = 1.0f / (cachedW * cachedH);
 
 		updateCaches(root);
+
+		if (packedRoot != null)
+			packedRoot.updateCaches();
 	}
 
 	/**
@@ -224,6 +234,24 @@ public class StageTreeClassifier {
 		// all stages need to match for this cascade to match
 		int matches = 0; // the number of stages that pass
 		Stage stage = root;
+
+		// the root stage rejects most windows, so test it using the packed
+		// representation if possible
+		if (packedRoot != null) {
+			if (packedRoot.pass(sat, wvNorm, x, y)) {
+				matches++;
+				stage = root.successStage;
+				if (stage == null) {
+					return matches;
+				}
+			} else {
+				stage = root.failureStage;
+				if (stage == null) {
+					return 0;
+				}
+			}
+		}
+
 		while (true) { // until success or failure
 			if (stage.pass(sat, wvNorm, x, y)) {
 				matches++;
@@ -34,6 +34,7 @@ import java.util.List;
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.image.FImage;
 import org.openimaj.image.feature.dense.gradient.HOG;
+import org.openimaj.image.feature.dense.gradient.binning.FlexibleHOGStrategy;
 import org.openimaj.math.geometry.shape.Rectangle;
 import org.openimaj.math.statistics.distribution.Histogram;
 import org.openimaj.ml.annotation.Annotator;
@@ -45,6 +46,9 @@ public class HOGClassifier {
 	HOG hogExtractor;
 	Annotator<DoubleFV, Boolean> classifier;
 
+	double[] weights;
+	double bias;
+
 	public void prepare(FImage image) {
 		hogExtractor.analyseImage(image);
 	}
@@ -60,4 +64,89 @@ public class HOGClassifier {
 			return 1 - res.get(0).confidence;
 		}
 	}
+
+	/**
+	 * Set the weights and offset of a linear decision function equivalent to
+	 * the classifier, such that the probability of a window containing the
+	 * object is <code>1 / (1 + exp(-(w.x + b)))</code>. Setting this allows
+	 * whole scales to be scored against a shared block grid with
+	 * {@link #classifyGrid(Histogram[][], int, int)} rather than extracting a
+	 * feature for every window.
+	 *
+	 * @param weights
+	 *            the weights, or null to disable the linear scoring path
+	 * @param bias
+	 *            the offset of the decision function
+	 */
+	public void setLinearModel(double[] weights, double bias) {
+		this.weights = weights;
+		this.bias = bias;
+	}
+
+	/**
+	 * Can windows be scored with {@link #classifyGrid(Histogram[][], int, int)}
+	 * ? This requires a linear model to have been set, and the HOG extractor to
+	 * use a {@link FlexibleHOGStrategy}.
+	 *
+	 * @return true if grid scoring is possible; false otherwise
+	 */
+	public boolean supportsGrid() {
+		return weights != null && hogExtractor.getStrategy() instanceof FlexibleHOGStrategy;
+	}
+
+	/**
+	 * Compute the normalised block grid for the current image with cells of the
+	 * given size covering the given region. The classifier must support grid
+	 * scoring.
+	 *
+	 * @param region
+	 *            the region covered by the grid
+	 * @param cellWidth
+	 *            the cell width in pixels
+	 * @param cellHeight
+	 *            the cell height in pixels
+	 * @return the block grid
+	 */
+	public Histogram[][] prepareGrid(Rectangle region, int cellWidth, int cellHeight) {
+		final FlexibleHOGStrategy strategy = (FlexibleHOGStrategy) hogExtractor.getStrategy();
+
+		return strategy.extractBlockGrid(hogExtractor.getExtractor(), region, cellWidth, cellHeight);
+	}
+
+	/**
+	 * Score the window whose top-left cell is at the given position in a grid
+	 * computed by {@link #prepareGrid(Rectangle, int, int)}. The score is the
+	 * dot product of the linear model weights with the window blocks taken
+	 * straight from the grid. This method only reads shared state, so may be
+	 * called concurrently.
+	 *
+	 * @param grid
+	 *            the block grid
+	 * @param cx
+	 *            the x-ordinate of the window in cells
+	 * @param cy
+	 *            the y-ordinate of the window in cells
+	 * @return the probability that the window contains the object
+	 */
+	public double classifyGrid(Histogram[][] grid, int cx, int cy) {
+		final FlexibleHOGStrategy strategy = (FlexibleHOGStrategy) hogExtractor.getStrategy();
+		final int numBlocksX = strategy.getNumBlocksX();
+		final int numBlocksY = strategy.getNumBlocksY();
+		final int blockStepX = strategy.getBlockStepX();
+		final int blockStepY = strategy.getBlockStepY();
+
+		double score = bias;
+		for (int j = 0, k = 0; j < numBlocksY; j++) {
+			final Histogram[] row = grid[cy + j * blockStepY];
+
+			for (int i = 0; i < numBlocksX; i++) {
+				final double[] block = row[cx + i * blockStepX].values;
+
+				for (int b = 0; b < block.length; b++, k++)
+					score += weights[k] * block[b];
+			}
+		}
+
+		return 1 / (1 + Math.exp(-score));
+	}
 }
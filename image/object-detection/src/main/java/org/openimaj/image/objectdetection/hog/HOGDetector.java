@@ -33,8 +33,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.openimaj.image.FImage;
+import org.openimaj.image.feature.dense.gradient.binning.FlexibleHOGStrategy;
 import org.openimaj.image.objectdetection.AbstractMultiScaleObjectDetector;
 import org.openimaj.math.geometry.shape.Rectangle;
+import org.openimaj.math.statistics.distribution.Histogram;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.Parallel.IntRange;
 
 public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectangle> {
 	protected float scaleFactor = 1.2f;
@@ -106,6 +111,11 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 	 * Perform detection at a single scale. Subclasses may override this to
 	 * customise the spatial search. The given starting and stopping coordinates
 	 * take into account any region of interest set on this detector.
+	 * <p>
+	 * If the classifier has a linear model that supports grid scoring, the
+	 * cell and block histograms for the scale are computed once and shared by
+	 * all windows, the windows are stepped by one cell (ignoring ystep), and
+	 * the rows of windows are scored in parallel.
 	 * 
 	 * @param startX
 	 *            the starting x-ordinate
@@ -128,6 +138,11 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 			final int stopY, final float ystep, final int windowWidth, final int windowHeight,
 			final List<Rectangle> results)
 	{
+		if (classifier.supportsGrid()) {
+			detectAtScaleGrid(startX, stopX, startY, stopY, windowWidth, windowHeight, results);
+			return;
+		}
+
 		final Rectangle current = new Rectangle();
 
 		for (int iy = startY; iy < stopY; iy += ystep) {
@@ -143,4 +158,45 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 			}
 		}
 	}
+
+	private void detectAtScaleGrid(final int startX, final int stopX, final int startY,
+			final int stopY, final int windowWidth, final int windowHeight, final List<Rectangle> results)
+	{
+		final FlexibleHOGStrategy strategy = (FlexibleHOGStrategy) classifier.hogExtractor.getStrategy();
+		final int cellWidth = windowWidth / strategy.getNumCellsX();
+		final int cellHeight = windowHeight / strategy.getNumCellsY();
+
+		if (cellWidth == 0 || cellHeight == 0 || stopX <= startX || stopY <= startY)
+			return;
+
+		// number of window positions; matches the ix < stopX test of the
+		// per-window search
+		final int nx = (stopX - startX + cellWidth - 1) / cellWidth;
+		final int ny = (stopY - startY + cellHeight - 1) / cellHeight;
+
+		final Rectangle region = new Rectangle(startX, startY,
+				(nx - 1 + strategy.getNumCellsX()) * cellWidth,
+				(ny - 1 + strategy.getNumCellsY()) * cellHeight);
+		final Histogram[][] grid = classifier.prepareGrid(region, cellWidth, cellHeight);
+
+		final boolean[][] hits = new boolean[ny][nx];
+		Parallel.forRange(0, ny, 1, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				for (int cy = range.start; cy < range.stop; cy += range.incr) {
+					for (int cx = 0; cx < nx; cx++) {
+						hits[cy][cx] = classifier.classifyGrid(grid, cx, cy) > threshold;
+					}
+				}
+			}
+		});
+
+		for (int cy = 0; cy < ny; cy++) {
+			for (int cx = 0; cx < nx; cx++) {
+				if (hits[cy][cx])
+					results.add(new Rectangle(startX + cx * cellWidth, startY + cy * cellHeight, windowWidth,
+							windowHeight));
+			}
+		}
+	}
 }
@@ -83,6 +83,11 @@ public class Training {
 		}
 	}
 
+	private static void setLinearModel(HOGClassifier hogClassifier, LiblinearAnnotator<DoubleFV, Boolean> ann) {
+		final double[] w = ann.getDecisionWeights(true);
+		hogClassifier.setLinearModel(Arrays.copyOf(w, w.length - 1), w[w.length - 1]);
+	}
+
 	public static void main(String[] args) throws IOException {
 		final HOGClassifier hogClassifier = new HOGClassifier();
 		hogClassifier.width = 64;
@@ -99,6 +104,7 @@ public class Training {
 				new IdentityFeatureExtractor<DoubleFV>(), Mode.MULTICLASS, SolverType.L2R_L2LOSS_SVC, 0.01, 0.01, 1, true);
 		ann.train(trainingData);
 		hogClassifier.classifier = ann;
+		setLinearModel(hogClassifier, ann);
 
 		IOUtils.writeToFile(hogClassifier, new File("initial-classifier.dat"));
 
@@ -164,6 +170,7 @@ public class Training {
 				SolverType.L2R_L2LOSS_SVC, 0.01, 0.01, 1, true);
 		ann.train(extendedTrainingData);
 		hogClassifier.classifier = ann;
+		setLinearModel(hogClassifier, ann);
 
 		int c = 0, p = 0;
 		for (final FImage i : INRIAPersonDataset.getPositiveTrainingImages(ImageUtilities.FIMAGE_READER)) {
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.objectdetection.haar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * Tests for {@link Detector}, {@link MultiThreadedDetector} and the packed
+ * root stage of the {@link StageTreeClassifier}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class DetectorTest {
+	private FImage createImage() {
+		final Random rng = new Random(42);
+		final FImage image = new FImage(160, 120);
+
+		for (int y = 0; y < image.height; y++)
+			for (int x = 0; x < image.width; x++)
+				image.pixels[y][x] = ((x / 10 + y / 15) % 2) * 0.5f + rng.nextFloat() * 0.5f;
+
+		return image;
+	}
+
+	/**
+	 * Test that the packed root stage gives identical results to the normal
+	 * stage evaluation.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testPackedRoot() throws IOException {
+		for (final String c : new String[] { "haarcascade_frontalface_default.xml", "haarcascade_eye.xml",
+				"haarcascade_mcs_nose.xml" })
+		{
+			final StageTreeClassifier cascade = OCVHaarLoader.read(OCVHaarLoader.class.getResourceAsStream(c));
+			final PackedStage packed = cascade.packedRoot;
+
+			final FImage image = createImage();
+			final SummedSqTiltAreaTable sat = new SummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
+
+			for (final float scale : new float[] { 1f, 1.5f, 2.3f }) {
+				cascade.setScale(scale);
+
+				final int maxX = image.width - Math.round(scale * cascade.width) - 1;
+				final int maxY = image.height - Math.round(scale * cascade.height) - 1;
+				for (int y = 0; y < maxY; y += 3) {
+					for (int x = 0; x < maxX; x += 3) {
+						final int expected = cascade.classify(sat, x, y);
+						cascade.packedRoot = null;
+						final int actual = cascade.classify(sat, x, y);
+						cascade.packedRoot = packed;
+
+						assertEquals(expected, actual);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that the multi-threaded detector gives the same results as the
+	 * single-threaded version.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testMultiThreaded() throws IOException {
+		final StageTreeClassifier cascade = OCVHaarLoader.read(OCVHaarLoader.class
+				.getResourceAsStream("haarcascade_eye.xml"));
+		final FImage image = createImage();
+
+		final List<Rectangle> expected = new Detector(cascade).detect(image);
+		final List<Rectangle> actual = new MultiThreadedDetector(cascade).detect(image);
+
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<Rectangle>(expected), new HashSet<Rectangle>(actual));
+	}
+}
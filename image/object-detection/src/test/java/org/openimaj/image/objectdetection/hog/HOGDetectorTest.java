@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.objectdetection.hog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.feature.dense.gradient.HOG;
+import org.openimaj.image.feature.dense.gradient.binning.FlexibleHOGStrategy;
+import org.openimaj.image.processing.convolution.FImageGradients;
+import org.openimaj.math.geometry.shape.Rectangle;
+import org.openimaj.math.statistics.distribution.Histogram;
+
+/**
+ * Tests for the shared block grid scoring of the {@link HOGClassifier} and
+ * {@link HOGDetector}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class HOGDetectorTest {
+	private FImage createImage() {
+		final Random rng = new Random(42);
+		final FImage image = new FImage(200, 260);
+
+		for (int y = 0; y < image.height; y++)
+			for (int x = 0; x < image.width; x++)
+				image.pixels[y][x] = ((x / 12 + y / 7) % 2) * 0.5f + rng.nextFloat() * 0.5f;
+
+		return image;
+	}
+
+	private HOGClassifier createClassifier() {
+		final HOGClassifier classifier = new HOGClassifier();
+		classifier.width = 64;
+		classifier.height = 128;
+		classifier.hogExtractor = new HOG(9, false, FImageGradients.Mode.Unsigned, new FlexibleHOGStrategy(8, 16, 2));
+
+		final Random rng = new Random(1);
+		final double[] weights = new double[7 * 15 * 36];
+		for (int i = 0; i < weights.length; i++)
+			weights[i] = rng.nextGaussian();
+		classifier.setLinearModel(weights, -0.1);
+
+		return classifier;
+	}
+
+	/**
+	 * Test that scoring from the shared grid gives the same result as
+	 * extracting the feature for each window individually.
+	 */
+	@Test
+	public void testGridMatchesWindows() {
+		final HOGClassifier classifier = createClassifier();
+		classifier.prepare(createImage());
+
+		for (final int cellSize : new int[] { 8, 9, 11 }) {
+			final Rectangle region = new Rectangle(3, 5, 14 * cellSize, 18 * cellSize);
+			final Histogram[][] grid = classifier.prepareGrid(region, cellSize, cellSize);
+
+			for (int cy = 0; cy <= 2; cy++) {
+				for (int cx = 0; cx <= 6; cx++) {
+					final Histogram fv = classifier.hogExtractor.getFeatureVector(new Rectangle(3 + cx * cellSize, 5
+							+ cy * cellSize, 8 * cellSize, 16 * cellSize));
+
+					double score = classifier.bias;
+					for (int i = 0; i < fv.values.length; i++)
+						score += classifier.weights[i] * fv.values[i];
+
+					assertEquals(1 / (1 + Math.exp(-score)), classifier.classifyGrid(grid, cx, cy), 1e-9);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that detection through the grid finds exactly the windows that
+	 * score above the threshold.
+	 */
+	@Test
+	public void testDetect() {
+		final HOGClassifier classifier = createClassifier();
+		final HOGDetector detector = new HOGDetector(classifier, 1.2f);
+		final FImage image = createImage();
+
+		final List<Rectangle> results = detector.detect(image);
+		assertTrue(results.size() > 0);
+
+		for (final Rectangle r : results) {
+			final Histogram fv = classifier.hogExtractor.getFeatureVector(r);
+
+			double score = classifier.bias;
+			for (int i = 0; i < fv.values.length; i++)
+				score += classifier.weights[i] * fv.values[i];
+
+			assertTrue(1 / (1 + Math.exp(-score)) > detector.threshold);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.clustering.kmeans;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.data.DataSource;
+import org.openimaj.data.FloatArrayBackedDataSource;
+import org.openimaj.data.FloatFlatArrayBackedDataSource;
+import org.openimaj.knn.FloatNearestNeighboursExact;
+import org.openimaj.knn.approximate.FloatNearestNeighboursKDTree;
+import org.openimaj.knn.pq.FloatProductQuantiser;
+import org.openimaj.knn.pq.FloatProductQuantiserUtilities;
+import org.openimaj.ml.clustering.FloatCentroidsResult;
+import org.openimaj.ml.clustering.assignment.hard.ExactFloatAssigner;
+
+/**
+ * Tests that clustering from blocks of data gives the same results as
+ * clustering from individual rows.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FloatKMeansBlockTest {
+	private static final int N = 1000;
+	private static final int D = 8;
+	private static final int K = 10;
+
+	private float[][] rows() {
+		final Random rng = new Random(0);
+		final float[][] data = new float[N][D];
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < D; j++)
+				data[i][j] = (float) (rng.nextGaussian() + (i % K) * 3);
+		return data;
+	}
+
+	private float[] flatten(float[][] rows) {
+		final float[] flat = new float[N * D];
+		for (int i = 0; i < N; i++)
+			System.arraycopy(rows[i], 0, flat, i * D, D);
+		return flat;
+	}
+
+	/**
+	 * Hides the block interface of a data source so the row-based path is
+	 * used
+	 */
+	private DataSource<float[]> rowsOnly(final DataSource<float[]> ds) {
+		return new DataSource<float[]>() {
+			@Override
+			public Iterator<float[]> iterator() {
+				return ds.iterator();
+			}
+
+			@Override
+			public void getData(int startRow, int stopRow, float[][] data) {
+				ds.getData(startRow, stopRow, data);
+			}
+
+			@Override
+			public float[] getData(int row) {
+				return ds.getData(row);
+			}
+
+			@Override
+			public int numDimensions() {
+				return ds.numDimensions();
+			}
+
+			@Override
+			public void getRandomRows(float[][] data) {
+				ds.getRandomRows(data);
+			}
+
+			@Override
+			public int size() {
+				return ds.size();
+			}
+
+			@Override
+			public float[][] createTemporaryArray(int size) {
+				return ds.createTemporaryArray(size);
+			}
+		};
+	}
+
+	/**
+	 * Test clustering a flat block gives the same centroids as clustering
+	 * rows
+	 */
+	@Test
+	public void testClusterBlocks() {
+		final float[][] rows = rows();
+
+		final FloatKMeans kmeans = FloatKMeans.createExact(K, 10);
+		final FloatCentroidsResult fromRows = kmeans.cluster(rowsOnly(new FloatArrayBackedDataSource(rows,
+				new Random(1))));
+		final FloatCentroidsResult fromArray = kmeans.cluster(new FloatArrayBackedDataSource(rows, new Random(1)));
+		final FloatCentroidsResult fromFlat = kmeans.cluster(new FloatFlatArrayBackedDataSource(flatten(rows), D,
+				new Random(1)));
+
+		for (int k = 0; k < K; k++) {
+			assertArrayEquals(fromRows.centroids[k], fromArray.centroids[k], 0f);
+			assertArrayEquals(fromRows.centroids[k], fromFlat.centroids[k], 0f);
+		}
+	}
+
+	/**
+	 * Test assigning a block matches assigning rows
+	 */
+	@Test
+	public void testAssignBlock() {
+		final float[][] rows = rows();
+		final FloatCentroidsResult result = FloatKMeans.createExact(K, 5).cluster(rows);
+		final ExactFloatAssigner assigner = new ExactFloatAssigner(result);
+
+		final int[] expected = assigner.assign(rows);
+		final int[] actual = new int[N - 1];
+		assigner.assign(flatten(rows), D, N - 1, actual);
+
+		for (int i = 0; i < N - 1; i++)
+			assertEquals(expected[i + 1], actual[i]);
+	}
+
+	/**
+	 * Test that only the nearest neighbour implementations that search blocks
+	 * without copying them report doing so, as k-means relies on this to
+	 * avoid building blocks needlessly
+	 */
+	@Test
+	public void testSearchesBlocksInPlace() {
+		final float[][] rows = rows();
+
+		assertTrue(new FloatNearestNeighboursExact(rows).searchesBlocksInPlace());
+		assertFalse(new FloatNearestNeighboursKDTree(rows, 1, 8).searchesBlocksInPlace());
+	}
+
+	/**
+	 * Test product quantiser training from rows and blocks agree
+	 */
+	@Test
+	public void testProductQuantiser() {
+		final float[][] rows = rows();
+
+		final FloatProductQuantiser pqRows = FloatProductQuantiserUtilities.train(rows, 2, 16, 5);
+		final FloatProductQuantiser pqFlat = FloatProductQuantiserUtilities.train(new FloatFlatArrayBackedDataSource(
+				flatten(rows), D), 2, 16, 5);
+
+		// clustering is randomly initialised, so just check the shapes and
+		// that the quantisers are usable
+		assertEquals(2, pqRows.quantise(rows[0]).length);
+		assertEquals(2, pqFlat.quantise(rows[0]).length);
+	}
+}
@@ -314,6 +314,25 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 			result.add(new ScoredAnnotation<ANNOTATION>(annotationsList.get((int) clz), (float) prob));
 			return result;
 		}
+
+		double[] getDecisionWeights(ANNOTATION annotation) {
+			if (annotationsList.size() != 2 || parameter.getSolverType() == SolverType.MCSVM_CS)
+				throw new UnsupportedOperationException(
+						"A single decision function is only available for two-class models");
+
+			final int nFeatures = model.getNrFeature();
+			final double[] w = model.getFeatureWeights();
+			final double sign = model.getLabels()[0] == annotationsList.indexOf(annotation) + 1 ? 1 : -1;
+
+			final double[] result = new double[nFeatures + 1];
+			for (int i = 0; i < nFeatures; i++)
+				result[i] = sign * w[i];
+
+			if (bias >= 0)
+				result[nFeatures] = sign * w[nFeatures] * bias;
+
+			return result;
+		}
 	}
 
 	/**
@@ -526,4 +545,27 @@ public class LiblinearAnnotator<OBJECT, ANNOTATION>
 	public void train(GroupedDataset<ANNOTATION, ? extends ListDataset<OBJECT>, OBJECT> dataset) {
 		internal.train(dataset);
 	}
+
+	/**
+	 * Get the weights of the linear decision function of a trained two-class
+	 * {@link Mode#MULTICLASS} model, oriented such that positive values
+	 * indicate the given annotation. The returned array has one element more
+	 * than the feature length; the last element is the constant offset of the
+	 * decision function (zero if the model was trained without a bias).
+	 * <p>
+	 * This allows callers that score many closely related features (e.g.
+	 * sliding-window detectors) to compute the decision values directly.
+	 *
+	 * @param annotation
+	 *            the annotation that positive decision values indicate
+	 * @return the weights followed by the offset
+	 * @throws UnsupportedOperationException
+	 *             if the model is not a two-class multiclass model
+	 */
+	public double[] getDecisionWeights(ANNOTATION annotation) {
+		if (!(internal instanceof Multiclass))
+			throw new UnsupportedOperationException("Decision weights are only available in MULTICLASS mode");
+
+		return ((Multiclass<OBJECT, ANNOTATION>) internal).getDecisionWeights(annotation);
+	}
 }
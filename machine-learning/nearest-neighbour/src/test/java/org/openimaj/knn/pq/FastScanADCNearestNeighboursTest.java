@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.knn.pq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.openimaj.data.RandomData;
+import org.openimaj.knn.FloatNearestNeighbours;
+import org.openimaj.knn.FloatNearestNeighboursExact;
+import org.openimaj.util.pair.IntFloatPair;
+
+/**
+ * Tests for {@link FloatFastScanADCNearestNeighbours}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FastScanADCNearestNeighboursTest {
+	private FloatProductQuantiser createQuantiser(int nsub, int subdims, int ncentroids) {
+		final FloatNearestNeighbours[] assigners = new FloatNearestNeighbours[nsub];
+		for (int i = 0; i < nsub; i++) {
+			assigners[i] = new FloatNearestNeighboursExact(RandomData.getRandomFloatArray(ncentroids, subdims, -1, 1,
+					i));
+		}
+		return new FloatProductQuantiser(assigners);
+	}
+
+	private void checkAgainstADC(FloatProductQuantiser pq, int expectedBits) {
+		checkAgainstADC(pq, expectedBits, 1000);
+	}
+
+	private void checkAgainstADC(FloatProductQuantiser pq, int expectedBits, int ndata) {
+		final float[][] data = RandomData.getRandomFloatArray(ndata, 32, -1, 1, 42);
+		final float[][] queries = RandomData.getRandomFloatArray(10, 32, -1, 1, 43);
+
+		final FloatADCNearestNeighbours adc = new FloatADCNearestNeighbours(pq, data);
+		final FloatFastScanADCNearestNeighbours fast = new FloatFastScanADCNearestNeighbours(pq, data);
+
+		assertEquals(expectedBits, fast.getBitsPerCode());
+		assertEquals(ndata, fast.size());
+
+		for (final float[] q : queries) {
+			final List<IntFloatPair> expected = adc.searchKNN(q, 10);
+			final List<IntFloatPair> actual = fast.searchKNN(q, 10);
+
+			assertEquals(10, actual.size());
+			for (int k = 0; k < 10; k++) {
+				assertEquals(expected.get(k).second, actual.get(k).second, 1e-4);
+			}
+			assertEquals(expected.get(0).first, fast.searchNN(q).first);
+		}
+	}
+
+	/**
+	 * Test that the 4-bit fast-scan mode gives the same results as standard
+	 * ADC
+	 */
+	@Test
+	public void testFourBit() {
+		checkAgainstADC(createQuantiser(8, 4, 16), 4);
+	}
+
+	/**
+	 * Test that the 8-bit mode gives the same results as standard ADC
+	 */
+	@Test
+	public void testEightBit() {
+		checkAgainstADC(createQuantiser(8, 4, 256), 8);
+	}
+
+	/**
+	 * Test that a database large enough to be split into shards that are
+	 * scanned in parallel gives the same results as the sequential ADC scan
+	 */
+	@Test
+	public void testParallelShards() {
+		final int ndata = 2 * FloatFastScanADCNearestNeighbours.MIN_BLOCKS_PER_SHARD
+				* FloatFastScanADCNearestNeighbours.BLOCK_SIZE + 1000;
+
+		checkAgainstADC(createQuantiser(8, 4, 16), 4, ndata);
+		checkAgainstADC(createQuantiser(8, 4, 256), 8, ndata);
+	}
+}
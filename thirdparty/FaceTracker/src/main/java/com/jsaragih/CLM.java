@@ -48,7 +48,6 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Scanner;
 
 import org.openimaj.citation.annotation.Reference;
@@ -374,12 +373,11 @@ public class CLM {
 		c.g_ = g_.copy();
 		c.J_ = J_.copy();
 		c.H_ = H_.copy();
-		c.prob_ = Arrays
-				.copyOf(prob_, prob_.length, (new FImage[0]).getClass());
-		c.pmem_ = Arrays
-				.copyOf(pmem_, pmem_.length, (new FImage[0]).getClass());
-		c.wmem_ = Arrays
-				.copyOf(wmem_, wmem_.length, (new FImage[0]).getClass());
+		// the working images are not shared, so that copies can be fitted
+		// concurrently
+		c.prob_ = new FImage[prob_.length];
+		c.pmem_ = new FImage[pmem_.length];
+		c.wmem_ = new FImage[wmem_.length];
 
 		return c;
 	}
@@ -70,7 +70,8 @@ public class MPatch {
 	/** List of patches */
 	public Patch[] _p;
 
-	private FImage res_;
+	/** Per-thread working image for the individual patch responses */
+	private static final ThreadLocal<FImage> res_ = new ThreadLocal<FImage>();
 
 	MPatch(Patch[] p) {
 		_w = p[0].matcher.getTemplate().width;
@@ -85,7 +86,6 @@ public class MPatch {
 		}
 
 		_p = p;
-		res_ = new FImage(0, 0);
 	}
 
 	MPatch() {
@@ -159,10 +159,11 @@ public class MPatch {
 		if (resp.height != h || resp.width != w)
 			resp.internalAssign(new FImage(w, h));
 
-		if (res_ == null)
-			res_ = new FImage(w, h);
-		if (res_.height != h || res_.width != w)
-			res_.internalAssign(new FImage(w, h));
+		FImage res = res_.get();
+		if (res == null || res.height != h || res.width != w) {
+			res = new FImage(w, h);
+			res_.set(res);
+		}
 
 		if (_p.length == 1) {
 			_p[0].response(im, resp);
@@ -171,9 +172,9 @@ public class MPatch {
 			resp.fill(1);
 
 			for (int i = 0; i < _p.length; i++) {
-				_p[i].response(im, res_);
-				sum2one(res_);
-				resp.multiplyInplace(res_);
+				_p[i].response(im, res);
+				sum2one(res);
+				resp.multiplyInplace(res);
 			}
 
 			sum2one(resp);
@@ -189,7 +190,6 @@ public class MPatch {
 		MPatch m = new MPatch();
 		m._w = _w;
 		m._h = _h;
-		m.res_ = res_;
 		m._p = new Patch[_p.length];
 		for (int i = 0; i < _p.length; i++)
 			m._p[i] = _p[i].copy();
@@ -53,6 +53,7 @@ import java.util.Scanner;
 import org.openimaj.image.FImage;
 import org.openimaj.image.analysis.algorithm.TemplateMatcher;
 import org.openimaj.image.analysis.algorithm.TemplateMatcher.Mode;
+import org.openimaj.image.processing.algorithm.MeanCenter;
 
 /**
  * A patch on a face
@@ -75,12 +76,19 @@ public class Patch {
 	/** Gain */
 	public FImage _W;
 
-	protected FImage im_ = new FImage(0, 0);
+	/** Per-thread working image for the transformed input */
+	private static final ThreadLocal<FImage> im_ = new ThreadLocal<FImage>();
+
 	protected TemplateMatcher matcher;
 
+	/** Sum of squares of the (mean-centred) matcher template */
+	private float tsumsq_;
+
 	FImage Grad(FImage im) {
-		FImage grad = new FImage(im.width, im.height);
+		return Grad(im, new FImage(im.width, im.height));
+	}
 
+	FImage Grad(FImage im, FImage grad) {
 		for (int y = 1; y < im.height - 1; y++) {
 			for (int x = 1; x < im.width - 1; x++) {
 				float vx = im.pixels[y][x + 1] - im.pixels[y][x - 1];
@@ -168,8 +176,7 @@ public class Patch {
 		p._a = s.nextDouble();
 		p._b = s.nextDouble();
 		p._W = IO.readImg(s);
-		p.matcher = new TemplateMatcher(p._W.clone(),
-				Mode.NORM_CORRELATION_COEFFICIENT);
+		p.setMatcher(p._W);
 
 		return p;
 	}
@@ -188,8 +195,7 @@ public class Patch {
 		_a = a;
 		_b = b;
 		_W = W;
-		matcher = new TemplateMatcher(W.clone(),
-				Mode.NORM_CORRELATION_COEFFICIENT);
+		setMatcher(W);
 	}
 
 	void response(FImage im, FImage resp) {
@@ -204,32 +210,60 @@ public class Patch {
 		FImage I;
 		if (_t == 0) {
 			I = im;
-		} else {
-			if (im_.height == im.height && im_.width == im.width) {
-				I = im_;
-			} else if (im_.height >= im.height && im_.width >= im.width) {
-				I = im_.extractROI(0, 0, im.width, im.height);
-			} else {
-				im_ = new FImage(im.width, im.height);
-				I = im_;
+		} else if (_t == 1) {
+			I = im_.get();
+			if (I == null || I.height != im.height || I.width != im.width) {
+				I = new FImage(im.width, im.height);
+				im_.set(I);
 			}
+			I = Grad(im, I);
+		} else if (_t == 2) {
+			I = LBP(im);
+		} else {
+			throw new RuntimeException("ERROR: Unsupported patch type!\n");
+		}
 
-			if (_t == 1) {
-				I = Grad(im);
-			} else if (_t == 2) {
-				I = LBP(im);
-			} else {
-				throw new RuntimeException("ERROR: Unsupported patch type!\n");
+		// normalised correlation coefficient with the template, computed
+		// directly into the response rather than through a response map
+		final FImage template = matcher.getTemplate();
+		final int tw = template.width;
+		final int th = template.height;
+		final float[][] ip = I.pixels;
+		final float[][] tp = template.pixels;
+
+		for (int y = 0; y < resp.height; y++) {
+			for (int x = 0; x < resp.width; x++) {
+				final float imgMean = MeanCenter.patchMean(ip, x, y, tw, th);
+
+				float score = 0;
+				float si = 0;
+				for (int j = 0; j < th; j++) {
+					final float[] irow = ip[j + y];
+					final float[] trow = tp[j];
+					for (int i = 0; i < tw; i++) {
+						final float ival = irow[i + x] - imgMean;
+						score += ival * trow[i];
+						si += ival * ival;
+					}
+				}
+
+				final double norm = Math.sqrt(si * tsumsq_);
+				final float res = norm == 0 ? 0 : (float) (score / norm);
+
+				resp.pixels[y][x] = (float) (1.0 / (1.0 + Math.exp(res * _a + _b)));
 			}
 		}
+	}
 
-		matcher.analyseImage(I);
-		FImage res = matcher.getResponseMap();
+	private void setMatcher(FImage W) {
+		matcher = new TemplateMatcher(W.clone(), Mode.NORM_CORRELATION_COEFFICIENT);
 
-		for (int y = 0; y < resp.height; y++)
-			for (int x = 0; x < resp.width; x++)
-				resp.pixels[y][x] = (float) (1.0 / (1.0 + Math
-						.exp(res.pixels[y][x] * _a + _b)));
+		final FImage template = matcher.getTemplate();
+		float sumsq = 0;
+		for (int y = 0; y < template.height; y++)
+			for (int x = 0; x < template.width; x++)
+				sumsq += template.pixels[y][x] * template.pixels[y][x];
+		tsumsq_ = sumsq;
 	}
 
 	/**
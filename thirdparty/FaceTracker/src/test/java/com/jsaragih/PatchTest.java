@@ -0,0 +1,162 @@
+/**
+ * FaceTracker Licence
+ * -------------------
+ * (Academic, non-commercial, not-for-profit licence)
+ *
+ * Copyright (c) 2010 Jason Mora Saragih
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * The software is provided under the terms of this licence stricly for
+ *       academic, non-commercial, not-for-profit purposes.
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions (licence) and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions (licence) and the following disclaimer
+ *       in the documentation and/or other materials provided with the
+ *       distribution.
+ *     * The name of the author may not be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *     * As this software depends on other libraries, the user must adhere to and
+ *       keep in place any licencing terms of those libraries.
+ *     * Any publications arising from the use of this software, including but
+ *       not limited to academic journal and conference publications, technical
+ *       reports and manuals, must cite the following work:
+ *
+ *       J. M. Saragih, S. Lucey, and J. F. Cohn. Face Alignment through Subspace
+ *       Constrained Mean-Shifts. International Journal of Computer Vision
+ *       (ICCV), September, 2009.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+ * EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jsaragih;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.algorithm.TemplateMatcher;
+import org.openimaj.image.analysis.algorithm.TemplateMatcher.Mode;
+
+/**
+ * Tests for {@link Patch}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PatchTest {
+	private static FImage random(Random rng, int w, int h) {
+		final FImage img = new FImage(w, h);
+		for (int y = 0; y < h; y++)
+			for (int x = 0; x < w; x++)
+				img.pixels[y][x] = rng.nextFloat();
+		return img;
+	}
+
+	/**
+	 * Compute the response via the {@link TemplateMatcher}, as the patch used
+	 * to.
+	 */
+	private static FImage reference(Patch p, FImage im) {
+		final FImage I = p._t == 1 ? p.Grad(im) : im;
+
+		final TemplateMatcher matcher = new TemplateMatcher(p._W.clone(), Mode.NORM_CORRELATION_COEFFICIENT);
+		matcher.analyseImage(I);
+		final FImage res = matcher.getResponseMap();
+
+		final FImage resp = new FImage(im.width - p._W.width + 1, im.height - p._W.height + 1);
+		for (int y = 0; y < resp.height; y++)
+			for (int x = 0; x < resp.width; x++)
+				resp.pixels[y][x] = (float) (1.0 / (1.0 + Math.exp(res.pixels[y][x] * p._a + p._b)));
+		return resp;
+	}
+
+	private static void assertImageEquals(FImage expected, FImage actual, float tol) {
+		assertEquals(expected.width, actual.width);
+		assertEquals(expected.height, actual.height);
+		for (int y = 0; y < expected.height; y++)
+			for (int x = 0; x < expected.width; x++)
+				assertEquals(expected.pixels[y][x], actual.pixels[y][x], tol);
+	}
+
+	/**
+	 * The direct response matches the template matcher for raw and gradient
+	 * patches, including when the response buffer has to be resized
+	 */
+	@Test
+	public void testResponse() {
+		final Random rng = new Random(1);
+
+		for (int t = 0; t <= 1; t++) {
+			final Patch p = new Patch(t, -3.5, 0.2, random(rng, 11, 11));
+			final FImage resp = new FImage(0, 0);
+
+			for (final int size : new int[] { 25, 31, 25 }) {
+				final FImage im = random(rng, size, size);
+				p.response(im, resp);
+				assertImageEquals(reference(p, im), resp, 1e-5f);
+			}
+		}
+	}
+
+	/**
+	 * Responses computed concurrently by the same patch are the same as those
+	 * computed sequentially
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentResponse() throws Exception {
+		final Random rng = new Random(2);
+		final Patch p = new Patch(1, -2, 0.5, random(rng, 9, 9));
+
+		final int n = 16;
+		final FImage[] images = new FImage[n];
+		final FImage[] expected = new FImage[n];
+		for (int i = 0; i < n; i++) {
+			images[i] = random(rng, 20 + i % 3, 20 + i % 3);
+			expected[i] = new FImage(0, 0);
+			p.response(images[i], expected[i]);
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			for (int repeat = 0; repeat < 5; repeat++) {
+				@SuppressWarnings("unchecked")
+				final Future<FImage>[] results = new Future[n];
+				for (int i = 0; i < n; i++) {
+					final FImage im = images[i];
+					results[i] = pool.submit(new Callable<FImage>() {
+						@Override
+						public FImage call() {
+							final FImage resp = new FImage(0, 0);
+							p.response(im, resp);
+							return resp;
+						}
+					});
+				}
+
+				for (int i = 0; i < n; i++)
+					assertImageEquals(expected[i], results[i].get(), 0f);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
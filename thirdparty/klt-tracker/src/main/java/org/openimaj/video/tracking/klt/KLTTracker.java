@@ -17,11 +17,22 @@ import java.util.Comparator;
 import org.openimaj.image.FImage;
 import org.openimaj.image.ImageUtilities;
 import org.openimaj.image.processing.convolution.FGaussianConvolve;
-import org.openimaj.math.geometry.point.Point2d;
 import org.openimaj.math.geometry.point.Point2dImpl;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.Parallel.IntRange;
 
 /**
- * The KLT tracker
+ * The KLT tracker.
+ * <p>
+ * The tracker keeps two sets of image and gradient pyramids which are
+ * recomputed in place for each new image; in sequential mode the previous and
+ * current pyramids are swapped between frames rather than being rebuilt. This
+ * means that a {@link PyramidSet} obtained from the {@link TrackingContext} is
+ * only valid until the next call to {@link #trackFeatures(FImage, FImage)};
+ * copy it if it needs to be kept for longer. A {@link PyramidSet} given to the
+ * {@link TrackingContext} by the caller is never overwritten.
+ * Features are tracked and good features are selected in parallel.
  * 
  * @author Stan Birchfield
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
@@ -73,6 +84,41 @@ public class KLTTracker {
 	boolean isNorm = true; // true if input images are in [0..1] range, false if
 							// [0..255]
 
+	/* Pyramids that are recomputed in place for each new image */
+	private final PyramidSet[] pyramidBuffers = new PyramidSet[2];
+
+	/* Images reused when selecting features */
+	private FImage selectImg, selectGradx, selectGrady;
+	private FGaussianConvolve selectSmoother;
+	private float selectSmootherSigma = -1;
+
+	/* Working memory for tracking a single feature */
+	private static class Workspace {
+		float[] imgdiff = new float[0];
+		float[] gradx = new float[0];
+		float[] grady = new float[0];
+		final float[] xy = new float[2];
+		final float[] matrix = new float[3];
+		final float[] vector = new float[2];
+		final float[] solution = new float[2];
+
+		Workspace ensure(int size) {
+			if (imgdiff.length != size) {
+				imgdiff = new float[size];
+				gradx = new float[size];
+				grady = new float[size];
+			}
+			return this;
+		}
+	}
+
+	private final ThreadLocal<Workspace> workspace = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
 	/**
 	 * Construct with the given target number of features.
 	 * 
@@ -266,11 +312,102 @@ public class KLTTracker {
 		return (float) ((gxx + gyy - Math.sqrt((gxx - gyy) * (gxx - gyy) + 4 * gxy * gxy)) / 2.0f);
 	}
 
+	/*********************************************************************
+	 * _computeTrackability
+	 * 
+	 * Computes the trackability (the minimum eigenvalue of the gradient matrix
+	 * summed over the window) of the candidate feature points in parallel over
+	 * rows. Each window is summed row by row, exactly as in the sequential
+	 * implementation, so the results are bit-for-bit identical. Points that
+	 * cannot be selected (because their trackability is below the minimum
+	 * eigenvalue) are omitted; the remaining points are returned in raster
+	 * order.
+	 */
+	private int[][] _computeTrackability(
+			final FImage gradx,
+			final FImage grady,
+			final int window_hw,
+			final int window_hh)
+	{
+		final int nrows = gradx.height, ncols = gradx.width;
+		final int step = tc.nSkippedPixels + 1;
+		final int borderx = Math.max(tc.borderx, window_hw); /* Must not touch cols */
+		final int bordery = Math.max(tc.bordery, window_hh); /* lost by convolution */
+		final int min_eigenvalue = Math.max(1, tc.min_eigenvalue);
+
+		/* Find largest value of an int */
+		final int limit = Integer.MAX_VALUE / 2 - 1;
+
+		final int nx = Math.max(0, (ncols - 2 * borderx + step - 1) / step);
+		final int ny = Math.max(0, (nrows - 2 * bordery + step - 1) / step);
+		final int[] vals = new int[nx * ny];
+
+		if (nx > 0 && ny > 0) {
+			Parallel.forRange(0, ny, 1, new Operation<IntRange>() {
+				@Override
+				public void perform(IntRange range) {
+					for (int r = range.start; r < range.stop; r += range.incr) {
+						final int y = bordery + r * step;
+
+						for (int c = 0; c < nx; c++) {
+							final int x = borderx + c * step;
+
+							if (tc.getTargetArea() != null && !tc.getTargetArea().isInside(new Point2dImpl(x, y))) {
+								vals[r * nx + c] = Integer.MIN_VALUE;
+								continue;
+							}
+
+							/* Sum the gradients in the surrounding window */
+							float gxx = 0, gxy = 0, gyy = 0;
+							for (int yy = y - window_hh; yy <= y + window_hh; yy++) {
+								final float[] gxrow = gradx.pixels[yy];
+								final float[] gyrow = grady.pixels[yy];
+								for (int xx = x - window_hw; xx <= x + window_hw; xx++) {
+									final float gx = gxrow[xx];
+									final float gy = gyrow[xx];
+									gxx += gx * gx;
+									gxy += gx * gy;
+									gyy += gy * gy;
+								}
+							}
+
+							float val = _minEigenvalue(gxx, gxy, gyy);
+							if (val > limit) {
+								System.err
+										.format("(_KLTSelectGoodFeatures) minimum eigenvalue %f is greater than the capacity of an int; setting to maximum value",
+												val);
+								val = limit;
+							}
+							vals[r * nx + c] = (int) val;
+						}
+					}
+				}
+			});
+		}
+
+		int npoints = 0;
+		for (final int val : vals)
+			if (val >= min_eigenvalue)
+				npoints++;
+
+		final int[][] pointlist = new int[npoints][];
+		for (int r = 0, ptr = 0; r < ny; r++) {
+			for (int c = 0; c < nx; c++) {
+				final int val = vals[r * nx + c];
+				if (val >= min_eigenvalue)
+					pointlist[ptr++] = new int[] { borderx + c * step, bordery + r * step, val };
+			}
+		}
+
+		return pointlist;
+	}
+
 	/**
 	 * @throws IOException
 	 *******************************************************************/
 	private void _selectGoodFeatures(
 			FImage img,
+			float scale,
 			SelectionMode mode)
 	{
 		final int nrows = img.height, ncols = img.width;
@@ -303,10 +440,6 @@ public class KLTTracker {
 		window_hw = tc.window_width / 2;
 		window_hh = tc.window_height / 2;
 
-		/* Create pointlist, which is a simplified version of a featurelist, */
-		/* for speed. Contains only integer locations and values. */
-		pointlist = new int[ncols * nrows][3];
-
 		/* Create temporary images, etc. */
 		final PyramidSet ppSet = tc.previousPyramidSet();
 		if (mode == SelectionMode.REPLACING_SOME &&
@@ -318,14 +451,26 @@ public class KLTTracker {
 			assert (gradx != null);
 			assert (grady != null);
 		} else {
-			// floatimages_created = true;
-			floatimg = new FImage(ncols, nrows);
-			gradx = new FImage(ncols, nrows);
-			grady = new FImage(ncols, nrows);
+			if (selectImg == null || selectImg.width != ncols || selectImg.height != nrows) {
+				selectImg = new FImage(ncols, nrows);
+				selectGradx = new FImage(ncols, nrows);
+				selectGrady = new FImage(ncols, nrows);
+			}
+			floatimg = selectImg;
+			gradx = selectGradx;
+			grady = selectGrady;
+
+			floatimg.internalCopy(img);
+			if (scale != 1f)
+				floatimg.multiplyInplace(scale);
+
 			if (tc.smoothBeforeSelecting) {
-				floatimg = img.process(new FGaussianConvolve(tc.computeSmoothSigma()));
-			} else {
-				floatimg = img.clone();
+				final float sigma = tc.computeSmoothSigma();
+				if (selectSmoother == null || selectSmootherSigma != sigma) {
+					selectSmoother = new FGaussianConvolve(sigma);
+					selectSmootherSigma = sigma;
+				}
+				floatimg.processInplace(selectSmoother);
 			}
 
 			/* Compute gradient of image in x and y direction */
@@ -347,64 +492,7 @@ public class KLTTracker {
 		 * Compute trackability of each image pixel as the minimum of the two
 		 * eigenvalues of the Z matrix
 		 */
-		{
-			float gx, gy;
-			float gxx, gxy, gyy;
-			int xx, yy;
-			int ptr;
-			float val;
-			int limit = 1;
-			int borderx = tc.borderx; /* Must not touch cols */
-			int bordery = tc.bordery; /* lost by convolution */
-			int x, y;
-
-			if (borderx < window_hw)
-				borderx = window_hw;
-			if (bordery < window_hh)
-				bordery = window_hh;
-
-			/* Find largest value of an int */
-			limit = Integer.MAX_VALUE / 2 - 1;
-
-			/* For most of the pixels in the image, do ... */
-			ptr = 0;
-			for (y = bordery; y < nrows - bordery; y += tc.nSkippedPixels + 1)
-				for (x = borderx; x < ncols - borderx; x += tc.nSkippedPixels + 1) {
-					if (tc.getTargetArea() != null) {
-						final Point2d point = new Point2dImpl(x, y);
-						if (!tc.getTargetArea().isInside(point))
-							continue;
-					}
-					/* Sum the gradients in the surrounding window */
-					gxx = 0;
-					gxy = 0;
-					gyy = 0;
-					for (yy = y - window_hh; yy <= y + window_hh; yy++)
-						for (xx = x - window_hw; xx <= x + window_hw; xx++) {
-							gx = gradx.pixels[yy][xx];
-							gy = grady.pixels[yy][xx];
-							gxx += gx * gx;
-							gxy += gx * gy;
-							gyy += gy * gy;
-						}
-
-					/*
-					 * Store the trackability of the pixel as the minimum of the
-					 * two eigenvalues
-					 */
-					pointlist[ptr][0] = x;
-					pointlist[ptr][1] = y;
-					val = _minEigenvalue(gxx, gxy, gyy);
-					if (val > limit) {
-						System.err
-								.format("(_KLTSelectGoodFeatures) minimum eigenvalue %f is greater than the capacity of an int; setting to maximum value",
-										val);
-						val = limit;
-					}
-					pointlist[ptr][2] = (int) val;
-					++ptr;
-				}
-		}
+		pointlist = _computeTrackability(gradx, grady, window_hw, window_hh);
 
 		/* Sort the features */
 		_sortPointList(pointlist);
@@ -443,15 +531,13 @@ public class KLTTracker {
 	 *            computed.
 	 */
 	public void selectGoodFeatures(FImage img) {
-		if (isNorm)
-			img = img.multiply(255f);
 
 		if (KLT_verbose >= 1) {
 			System.err.format("(KLT) Selecting the %d best features from a %d by %d image...  ",
 					featurelist.features.length, img.width, img.height);
 		}
 
-		_selectGoodFeatures(img, SelectionMode.SELECTING_ALL);
+		_selectGoodFeatures(img, isNorm ? 255f : 1f, SelectionMode.SELECTING_ALL);
 
 		if (KLT_verbose >= 1) {
 			System.err.format("\n\t%d features found.\n", featurelist.countRemainingFeatures());
@@ -478,9 +564,6 @@ public class KLTTracker {
 	 */
 	public void replaceLostFeatures(FImage img)
 	{
-		if (isNorm)
-			img = img.multiply(255f);
-
 		final int nLostFeatures = featurelist.features.length - featurelist.countRemainingFeatures();
 
 		if (KLT_verbose >= 1) {
@@ -490,7 +573,7 @@ public class KLTTracker {
 
 		/* If there are any lost features, replace them */
 		if (nLostFeatures > 0)
-			_selectGoodFeatures(img, SelectionMode.REPLACING_SOME);
+			_selectGoodFeatures(img, isNorm ? 255f : 1f, SelectionMode.REPLACING_SOME);
 
 		if (KLT_verbose >= 1) {
 			System.err.format("\n\t%d features replaced.\n",
@@ -704,11 +787,12 @@ public class KLTTracker {
 	 * _compute2by2GradientMatrix
 	 * 
 	 */
-	private float[] _compute2by2GradientMatrix(
+	private void _compute2by2GradientMatrix(
 			float[] gradx,
 			float[] grady,
 			int width, /* size of window */
-			int height
+			int height,
+			float[] output
 			)
 
 	{
@@ -733,7 +817,9 @@ public class KLTTracker {
 			gyy += gy * gy;
 		}
 
-		return new float[] { gxx, gxy, gyy };
+		output[0] = gxx;
+		output[1] = gxy;
+		output[2] = gyy;
 	}
 
 	/*********************************************************************
@@ -741,16 +827,17 @@ public class KLTTracker {
 	 * 
 	 */
 
-	private float[] _compute2by1ErrorVector(
+	private void _compute2by1ErrorVector(
 			float[] imgdiff,
 			float[] gradx,
 			float[] grady,
 			int width, /* size of window */
 			int height,
-			float step_factor /*
+			float step_factor, /*
 							 * 2.0 comes from equations, 1.0 seems to avoid
 							 * overshooting
 							 */
+			float[] output
 			)
 	{
 		float diff;
@@ -769,7 +856,8 @@ public class KLTTracker {
 		ex *= step_factor;
 		ey *= step_factor;
 
-		return new float[] { ex, ey };
+		output[0] = ex;
+		output[1] = ey;
 	}
 
 	/*********************************************************************
@@ -843,10 +931,11 @@ public class KLTTracker {
 								 * residue threshold for declaring
 								 * KLT_LARGE_RESIDUE
 								 */
-			boolean lighting_insensitive) /*
+			boolean lighting_insensitive, /*
 										 * whether to normalize for gain and
 										 * bias
 										 */
+			Workspace ws) /* working memory */
 	{
 		float[] imgdiff, gradx, grady;
 		float gxx, gxy, gyy, ex, ey, dx, dy;
@@ -859,9 +948,10 @@ public class KLTTracker {
 		final float one_plus_eps = 1.001f; /* To prevent rounding errors */
 
 		/* Allocate memory for windows */
-		imgdiff = new float[height * width];
-		gradx = new float[height * width];
-		grady = new float[height * width];
+		ws.ensure(height * width);
+		imgdiff = ws.imgdiff;
+		gradx = ws.gradx;
+		grady = ws.grady;
 
 		/* Iteratively update the window position */
 		do {
@@ -887,17 +977,19 @@ public class KLTTracker {
 			}
 
 			/* Use these windows to construct matrices */
-			float[] tmp = _compute2by2GradientMatrix(gradx, grady, width, height);
+			float[] tmp = ws.matrix;
+			_compute2by2GradientMatrix(gradx, grady, width, height, tmp);
 			gxx = tmp[0];
 			gxy = tmp[1];
 			gyy = tmp[2];
 
-			tmp = _compute2by1ErrorVector(imgdiff, gradx, grady, width, height, step_factor);
+			tmp = ws.vector;
+			_compute2by1ErrorVector(imgdiff, gradx, grady, width, height, step_factor, tmp);
 			ex = tmp[0];
 			ey = tmp[1];
 
 			/* Using matrices, solve equation for new displacement */
-			tmp = new float[2];
+			tmp = ws.solution;
 			status = _solveEquation(gxx, gxy, gyy, ex, ey, small, tmp);
 			dx = tmp[0];
 			dy = tmp[1];
@@ -1712,10 +1804,7 @@ public class KLTTracker {
 	 */
 	public void trackFeatures(FImage img1, FImage img2)
 	{
-		if (isNorm) {
-			img1 = img1.multiply(255f);
-			img2 = img2.multiply(255f);
-		}
+		final float scale = isNorm ? 255f : 1f;
 		PyramidSet pyr1, pyr2;
 		int i;
 		final int nrows = img1.height, ncols = img1.width;
@@ -1763,12 +1852,12 @@ public class KLTTracker {
 			assert (pyramid1_grady != null);
 			pyr1 = ppSet;
 		} else {
-			pyr1 = new PyramidSet(img1, tc);
-
+			pyr1 = _computePyramidSet(0, img1, scale);
 		}
 
-		/* Do the same thing with second image */
-		pyr2 = new PyramidSet(img2, tc);
+		/* Do the same thing with second image, in the other buffer */
+		final int buffer2 = (pyr1 == pyramidBuffers[1]) ? 0 : 1;
+		pyr2 = _computePyramidSet(buffer2, img2, scale);
 
 		/* Write internal images */
 		if (tc.writeInternalImages) {
@@ -1796,6 +1885,10 @@ public class KLTTracker {
 		trackFeatures(img1, img2, pyr1, pyr2);
 
 		if (tc.sequentialMode) {
+			/*
+			 * Swap the pyramids; the buffer holding the previous ones (unless
+			 * they were supplied by the caller) is recomputed next time
+			 */
 			tc.setPreviousPyramid(pyr2);
 		}
 
@@ -1807,6 +1900,23 @@ public class KLTTracker {
 		}
 	}
 
+	/*********************************************************************
+	 * _computePyramidSet
+	 * 
+	 * Computes the pyramids for an image, reusing the given buffer if it has
+	 * the right geometry.
+	 */
+	private PyramidSet _computePyramidSet(int buffer, FImage img, float scale) {
+		PyramidSet pyr = pyramidBuffers[buffer];
+
+		if (pyr != null && pyr.isCompatible(img, tc))
+			pyr.compute(img, scale, tc);
+		else
+			pyr = pyramidBuffers[buffer] = new PyramidSet(img, scale, tc);
+
+		return pyr;
+	}
+
 	/**
 	 * KLTTrackFeatures
 	 * 
@@ -1818,180 +1928,196 @@ public class KLTTracker {
 	 * @param pyr1
 	 * @param pyr2
 	 */
-	public void trackFeatures(FImage img1, FImage img2, PyramidSet pyr1, PyramidSet pyr2) {
+	public void trackFeatures(FImage img1, FImage img2, final PyramidSet pyr1, final PyramidSet pyr2) {
+		final int nrows = img1.height, ncols = img1.width;
+
+		/* For each feature, do ... */
+		Parallel.forRange(0, featurelist.features.length, 1, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				final Workspace ws = workspace.get();
+
+				for (int indx = range.start; indx < range.stop; indx += range.incr)
+					_trackFeature(indx, pyr1, pyr2, ncols, nrows, ws);
+			}
+		});
+	}
+
+	/*********************************************************************
+	 * Tracks a single feature of the feature list through the pyramids,
+	 * recording the result in the feature list.
+	 */
+	private void _trackFeature(int indx, PyramidSet pyr1, PyramidSet pyr2, int ncols, int nrows, Workspace ws) {
 		float xloc, yloc, xlocout, ylocout;
 		int val = -1;
-		int indx, r;
+		int r;
 		final float subsampling = tc.subsampling;
-		final int nrows = img1.height, ncols = img1.width;
-		/* For each feature, do ... */
-		for (indx = 0; indx < featurelist.features.length; indx++) {
 
-			/* Only track features that are not lost */
-			if (featurelist.features[indx].val >= 0) {
+		/* Only track features that are not lost */
+		if (featurelist.features[indx].val >= 0) {
 
-				xloc = featurelist.features[indx].x;
-				yloc = featurelist.features[indx].y;
+			xloc = featurelist.features[indx].x;
+			yloc = featurelist.features[indx].y;
 
-				/* Transform location to coarsest resolution */
-				for (r = tc.nPyramidLevels - 1; r >= 0; r--) {
-					xloc /= subsampling;
-					yloc /= subsampling;
-				}
-				xlocout = xloc;
-				ylocout = yloc;
-
-				/* Beginning with coarsest resolution, do ... */
-				for (r = tc.nPyramidLevels - 1; r >= 0; r--) {
-
-					/* Track feature at current resolution */
-					xloc *= subsampling;
-					yloc *= subsampling;
-					xlocout *= subsampling;
-					ylocout *= subsampling;
-
-					final float[] xylocout = new float[2];
-					xylocout[0] = xlocout;
-					xylocout[1] = ylocout;
-
-					val = _trackFeature(xloc, yloc,
-							xylocout,
-							pyr1.imgPyr.img[r],
-							pyr1.gradx.img[r], pyr1.grady.img[r],
-							pyr2.imgPyr.img[r],
-							pyr2.gradx.img[r], pyr2.grady.img[r],
-							tc.window_width, tc.window_height,
-							tc.step_factor,
-							tc.max_iterations,
-							tc.min_determinant,
-							tc.min_displacement,
-							tc.max_residue,
-							tc.lighting_insensitive);
-
-					xlocout = xylocout[0];
-					ylocout = xylocout[1];
-
-					if (val == KLT_SMALL_DET || val == KLT_OOB)
-						break;
-				}
+			/* Transform location to coarsest resolution */
+			for (r = tc.nPyramidLevels - 1; r >= 0; r--) {
+				xloc /= subsampling;
+				yloc /= subsampling;
+			}
+			xlocout = xloc;
+			ylocout = yloc;
+
+			/* Beginning with coarsest resolution, do ... */
+			for (r = tc.nPyramidLevels - 1; r >= 0; r--) {
+
+				/* Track feature at current resolution */
+				xloc *= subsampling;
+				yloc *= subsampling;
+				xlocout *= subsampling;
+				ylocout *= subsampling;
+
+				final float[] xylocout = ws.xy;
+				xylocout[0] = xlocout;
+				xylocout[1] = ylocout;
+
+				val = _trackFeature(xloc, yloc,
+						xylocout,
+						pyr1.imgPyr.img[r],
+						pyr1.gradx.img[r], pyr1.grady.img[r],
+						pyr2.imgPyr.img[r],
+						pyr2.gradx.img[r], pyr2.grady.img[r],
+						tc.window_width, tc.window_height,
+						tc.step_factor,
+						tc.max_iterations,
+						tc.min_determinant,
+						tc.min_displacement,
+						tc.max_residue,
+						tc.lighting_insensitive,
+						ws);
+
+				xlocout = xylocout[0];
+				ylocout = xylocout[1];
+
+				if (val == KLT_SMALL_DET || val == KLT_OOB)
+					break;
+			}
 
-				/* Record feature */
-				if (val == KLT_OOB) {
-					featurelist.features[indx].x = -1.0f;
-					featurelist.features[indx].y = -1.0f;
-					featurelist.features[indx].val = KLT_OOB;
+			/* Record feature */
+			if (val == KLT_OOB) {
+				featurelist.features[indx].x = -1.0f;
+				featurelist.features[indx].y = -1.0f;
+				featurelist.features[indx].val = KLT_OOB;
 
-					// featurelist.features[indx].aff_img = null;
-					// featurelist.features[indx].aff_img_gradx = null;
-					// featurelist.features[indx].aff_img_grady = null;
+				// featurelist.features[indx].aff_img = null;
+				// featurelist.features[indx].aff_img_gradx = null;
+				// featurelist.features[indx].aff_img_grady = null;
 
-				} else if (_outOfBounds(xlocout, ylocout, ncols, nrows, tc.borderx, tc.bordery)) {
-					featurelist.features[indx].x = -1.0f;
-					featurelist.features[indx].y = -1.0f;
-					featurelist.features[indx].val = KLT_OOB;
+			} else if (_outOfBounds(xlocout, ylocout, ncols, nrows, tc.borderx, tc.bordery)) {
+				featurelist.features[indx].x = -1.0f;
+				featurelist.features[indx].y = -1.0f;
+				featurelist.features[indx].val = KLT_OOB;
 
-					// featurelist.features[indx].aff_img = null;
-					// featurelist.features[indx].aff_img_gradx = null;
-					// featurelist.features[indx].aff_img_grady = null;
-				} else if (val == KLT_SMALL_DET) {
-					featurelist.features[indx].x = -1.0f;
-					featurelist.features[indx].y = -1.0f;
-					featurelist.features[indx].val = KLT_SMALL_DET;
+				// featurelist.features[indx].aff_img = null;
+				// featurelist.features[indx].aff_img_gradx = null;
+				// featurelist.features[indx].aff_img_grady = null;
+			} else if (val == KLT_SMALL_DET) {
+				featurelist.features[indx].x = -1.0f;
+				featurelist.features[indx].y = -1.0f;
+				featurelist.features[indx].val = KLT_SMALL_DET;
 
-					// featurelist.features[indx].aff_img = null;
-					// featurelist.features[indx].aff_img_gradx = null;
-					// featurelist.features[indx].aff_img_grady = null;
-				} else if (val == KLT_LARGE_RESIDUE) {
-					featurelist.features[indx].x = -1.0f;
-					featurelist.features[indx].y = -1.0f;
-					featurelist.features[indx].val = KLT_LARGE_RESIDUE;
+				// featurelist.features[indx].aff_img = null;
+				// featurelist.features[indx].aff_img_gradx = null;
+				// featurelist.features[indx].aff_img_grady = null;
+			} else if (val == KLT_LARGE_RESIDUE) {
+				featurelist.features[indx].x = -1.0f;
+				featurelist.features[indx].y = -1.0f;
+				featurelist.features[indx].val = KLT_LARGE_RESIDUE;
 
-					// featurelist.features[indx].aff_img = null;
-					// featurelist.features[indx].aff_img_gradx = null;
-					// featurelist.features[indx].aff_img_grady = null;
-				} else if (val == KLT_MAX_ITERATIONS) {
-					featurelist.features[indx].x = -1.0f;
-					featurelist.features[indx].y = -1.0f;
-					featurelist.features[indx].val = KLT_MAX_ITERATIONS;
+				// featurelist.features[indx].aff_img = null;
+				// featurelist.features[indx].aff_img_gradx = null;
+				// featurelist.features[indx].aff_img_grady = null;
+			} else if (val == KLT_MAX_ITERATIONS) {
+				featurelist.features[indx].x = -1.0f;
+				featurelist.features[indx].y = -1.0f;
+				featurelist.features[indx].val = KLT_MAX_ITERATIONS;
 
+				// featurelist.features[indx].aff_img = null;
+				// featurelist.features[indx].aff_img_gradx = null;
+				// featurelist.features[indx].aff_img_grady = null;
+			} else {
+				featurelist.features[indx].x = xlocout;
+				featurelist.features[indx].y = ylocout;
+				featurelist.features[indx].val = KLT_TRACKED;
+				if (tc.affineConsistencyCheck >= 0 && val == KLT_TRACKED) { /*
+																			 * for
+																			 * affine
+																			 * mapping
+																			 */
+					throw new UnsupportedOperationException("Affine mapping not yet implemented");
+					// int border = 2; /* add border for interpolation */
+					//
+					// if(featurelist.features[indx].aff_img == null){
+					// /* save image and gradient for each feature at finest
+					// resolution after first successful track */
+					// featurelist.features[indx].aff_img = new
+					// FImage((tc.affine_window_height+border),
+					// (tc.affine_window_width+border));
+					// featurelist.features[indx].aff_img_gradx = new
+					// FImage((tc.affine_window_height+border),
+					// (tc.affine_window_width+border));
+					// featurelist.features[indx].aff_img_grady = new
+					// FImage((tc.affine_window_height+border),
+					// (tc.affine_window_width+border));
+					// _am_getSubFloatImage(pyramid1.img[0],xloc,yloc,featurelist.features[indx].aff_img);
+					// _am_getSubFloatImage(pyramid1_gradx.img[0],xloc,yloc,featurelist.features[indx].aff_img_gradx);
+					// _am_getSubFloatImage(pyramid1_grady.img[0],xloc,yloc,featurelist.features[indx].aff_img_grady);
+					// featurelist.features[indx].aff_x = xloc - (int) xloc
+					// + (tc.affine_window_width+border)/2;
+					// featurelist.features[indx].aff_y = yloc - (int) yloc
+					// + (tc.affine_window_height+border)/2;;
+					// }else{
+					// /* affine tracking */
+					// val =
+					// _am_trackFeatureAffine(featurelist.features[indx].aff_x,
+					// featurelist.features[indx].aff_y,
+					// &xlocout, &ylocout,
+					// featurelist.features[indx].aff_img,
+					// featurelist.features[indx].aff_img_gradx,
+					// featurelist.features[indx].aff_img_grady,
+					// pyramid2.img[0],
+					// pyramid2_gradx.img[0], pyramid2_grady.img[0],
+					// tc.affine_window_width, tc.affine_window_height,
+					// tc.step_factor,
+					// tc.affine_max_iterations,
+					// tc.min_determinant,
+					// tc.min_displacement,
+					// tc.affine_min_displacement,
+					// tc.affine_max_residue,
+					// tc.lighting_insensitive,
+					// tc.affineConsistencyCheck,
+					// tc.affine_max_displacement_differ,
+					// &featurelist.features[indx].aff_Axx,
+					// &featurelist.features[indx].aff_Ayx,
+					// &featurelist.features[indx].aff_Axy,
+					// &featurelist.features[indx].aff_Ayy
+					// );
+					// featurelist.features[indx].val = val;
+					// if(val != KLT_TRACKED){
+					// featurelist.features[indx].x = -1.0f;
+					// featurelist.features[indx].y = -1.0f;
+					// featurelist.features[indx].aff_x = -1.0f;
+					// featurelist.features[indx].aff_y = -1.0f;
+					//
 					// featurelist.features[indx].aff_img = null;
 					// featurelist.features[indx].aff_img_gradx = null;
 					// featurelist.features[indx].aff_img_grady = null;
-				} else {
-					featurelist.features[indx].x = xlocout;
-					featurelist.features[indx].y = ylocout;
-					featurelist.features[indx].val = KLT_TRACKED;
-					if (tc.affineConsistencyCheck >= 0 && val == KLT_TRACKED) { /*
-																				 * for
-																				 * affine
-																				 * mapping
-																				 */
-						throw new UnsupportedOperationException("Affine mapping not yet implemented");
-						// int border = 2; /* add border for interpolation */
-						//
-						// if(featurelist.features[indx].aff_img == null){
-						// /* save image and gradient for each feature at finest
-						// resolution after first successful track */
-						// featurelist.features[indx].aff_img = new
-						// FImage((tc.affine_window_height+border),
-						// (tc.affine_window_width+border));
-						// featurelist.features[indx].aff_img_gradx = new
-						// FImage((tc.affine_window_height+border),
-						// (tc.affine_window_width+border));
-						// featurelist.features[indx].aff_img_grady = new
-						// FImage((tc.affine_window_height+border),
-						// (tc.affine_window_width+border));
-						// _am_getSubFloatImage(pyramid1.img[0],xloc,yloc,featurelist.features[indx].aff_img);
-						// _am_getSubFloatImage(pyramid1_gradx.img[0],xloc,yloc,featurelist.features[indx].aff_img_gradx);
-						// _am_getSubFloatImage(pyramid1_grady.img[0],xloc,yloc,featurelist.features[indx].aff_img_grady);
-						// featurelist.features[indx].aff_x = xloc - (int) xloc
-						// + (tc.affine_window_width+border)/2;
-						// featurelist.features[indx].aff_y = yloc - (int) yloc
-						// + (tc.affine_window_height+border)/2;;
-						// }else{
-						// /* affine tracking */
-						// val =
-						// _am_trackFeatureAffine(featurelist.features[indx].aff_x,
-						// featurelist.features[indx].aff_y,
-						// &xlocout, &ylocout,
-						// featurelist.features[indx].aff_img,
-						// featurelist.features[indx].aff_img_gradx,
-						// featurelist.features[indx].aff_img_grady,
-						// pyramid2.img[0],
-						// pyramid2_gradx.img[0], pyramid2_grady.img[0],
-						// tc.affine_window_width, tc.affine_window_height,
-						// tc.step_factor,
-						// tc.affine_max_iterations,
-						// tc.min_determinant,
-						// tc.min_displacement,
-						// tc.affine_min_displacement,
-						// tc.affine_max_residue,
-						// tc.lighting_insensitive,
-						// tc.affineConsistencyCheck,
-						// tc.affine_max_displacement_differ,
-						// &featurelist.features[indx].aff_Axx,
-						// &featurelist.features[indx].aff_Ayx,
-						// &featurelist.features[indx].aff_Axy,
-						// &featurelist.features[indx].aff_Ayy
-						// );
-						// featurelist.features[indx].val = val;
-						// if(val != KLT_TRACKED){
-						// featurelist.features[indx].x = -1.0f;
-						// featurelist.features[indx].y = -1.0f;
-						// featurelist.features[indx].aff_x = -1.0f;
-						// featurelist.features[indx].aff_y = -1.0f;
-						//
-						// featurelist.features[indx].aff_img = null;
-						// featurelist.features[indx].aff_img_gradx = null;
-						// featurelist.features[indx].aff_img_grady = null;
-						// }else{
-						// /*featurelist.features[indx].x = xlocout;*/
-						// /*featurelist.features[indx].y = ylocout;*/
-						// }
-						// }
-					}
-
+					// }else{
+					// /*featurelist.features[indx].x = xlocout;*/
+					// /*featurelist.features[indx].y = ylocout;*/
+					// }
+					// }
 				}
+
 			}
 		}
 	}
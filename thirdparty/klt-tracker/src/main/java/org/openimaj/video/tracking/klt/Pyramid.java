@@ -52,12 +52,31 @@ public class Pyramid {
 		}
 	}
 
+	/* Reusable working images and smoothing kernel */
+	private FImage[] smoothed;
+	private FGaussianConvolve smoother;
+	private float smootherSigma = -1;
+
 	/*********************************************************************
 	 * 
 	 */
 	void computePyramid(FImage img, float sigma_fact) {
+		/* Copy original image to level 0 of pyramid */
+		if (this.img[0].width == img.width && this.img[0].height == img.height)
+			this.img[0].internalCopy(img);
+		else
+			this.img[0] = img.clone();
+
+		computeLevels(sigma_fact);
+	}
+
+	/*********************************************************************
+	 * Compute the coarser levels of the pyramid from level 0, reusing the
+	 * existing level images and working buffers.
+	 */
+	void computeLevels(float sigma_fact) {
 		FImage currimg, tmpimg;
-		int ncols = img.width, nrows = img.height;
+		int ncols = img[0].width, nrows = img[0].height;
 		int subsampling = this.subsampling;
 		int subhalf = subsampling / 2;
 		float sigma = subsampling * sigma_fact;  /* empirically determined */
@@ -67,23 +86,52 @@ public class Pyramid {
 				subsampling != 8 && subsampling != 16 && subsampling != 32)
 			throw new RuntimeException("(_KLTComputePyramid)  Pyramid's subsampling must be either 2, 4, 8, 16, or 32");
 
-		/* Copy original image to level 0 of pyramid */
-		this.img[0] = img.clone();
+		if (smoother == null || smootherSigma != sigma) {
+			smoother = new FGaussianConvolve(sigma);
+			smootherSigma = sigma;
+		}
+		if (smoothed == null || smoothed.length != this.nLevels)
+			smoothed = new FImage[this.nLevels];
 
-		currimg = img;
+		currimg = this.img[0];
 		for (i = 1 ; i < this.nLevels ; i++)  {
-			//tmpimg = FImage(nrows, ncols);
-			//_KLTComputeSmoothedImage(currimg, sigma, tmpimg);
-			tmpimg = currimg.process(new FGaussianConvolve(sigma));
+			tmpimg = smoothed[i - 1];
+			if (tmpimg == null || tmpimg.width != currimg.width || tmpimg.height != currimg.height)
+				tmpimg = smoothed[i - 1] = currimg.clone();
+			else
+				tmpimg.internalCopy(currimg);
+			tmpimg.processInplace(smoother);
 
 			/* Subsample */
 			ncols /= subsampling;  nrows /= subsampling;
-			for (y = 0 ; y < nrows ; y++)
+			for (y = 0 ; y < nrows ; y++) {
+				final float[] src = tmpimg.pixels[subsampling*y+subhalf];
+				final float[] dst = this.img[i].pixels[y];
 				for (x = 0 ; x < ncols ; x++)
-					this.img[i].pixels[y][x] = tmpimg.pixels[(subsampling*y+subhalf)][(subsampling*x+subhalf)];
+					dst[x] = src[subsampling*x+subhalf];
+			}
 
 			/* Reassign current image */
 			currimg = this.img[i];
 		}
 	}
+
+	/**
+	 * Test whether this pyramid has the given geometry, and can thus be
+	 * recomputed in place for a new image.
+	 * 
+	 * @param ncols
+	 *            the width of the base level
+	 * @param nrows
+	 *            the height of the base level
+	 * @param subsampling
+	 *            the subsampling between levels
+	 * @param nlevels
+	 *            the number of levels
+	 * @return true if the geometry matches
+	 */
+	boolean hasGeometry(int ncols, int nrows, int subsampling, int nlevels) {
+		return this.nLevels == nlevels && this.subsampling == subsampling &&
+				this.ncols[0] == ncols && this.nrows[0] == nrows;
+	}
 }
@@ -23,15 +23,81 @@ public class PyramidSet{
 	 * @param tc
 	 */
 	public PyramidSet(FImage image, TrackingContext tc) {
+		this(image, 1f, tc);
+	}
+
+	/**
+	 * Construct the pyramids for the given image, with the pixel values of the
+	 * image multiplied by the given scale.
+	 * 
+	 * @param image
+	 * @param scale
+	 * @param tc
+	 */
+	PyramidSet(FImage image, float scale, TrackingContext tc) {
 		int nrows = image.height, ncols = image.width;
-		FImage floatimg2 = image.process(new FGaussianConvolve(tc.computeSmoothSigma()));
 		this.imgPyr = new Pyramid(ncols, nrows, (int) tc.subsampling, tc.nPyramidLevels);
-		this.imgPyr.computePyramid(floatimg2, tc.pyramid_sigma_fact);
 		this.gradx = new Pyramid(ncols, nrows, (int) tc.subsampling, tc.nPyramidLevels);
 		this.grady = new Pyramid(ncols, nrows, (int) tc.subsampling, tc.nPyramidLevels);
-		for (int i = 0 ; i < tc.nPyramidLevels ; i++)
-			tc.computeGradients(imgPyr.img[i], tc.grad_sigma, gradx.img[i], grady.img[i]);
+		compute(image, scale, tc);
+	}
+
+	/* Reusable working images and smoothing kernel */
+	private FImage[] workspace;
+	private FGaussianConvolve smoother;
+	private float smootherSigma = -1;
+
+	/**
+	 * Test whether the pyramids in this set can be recomputed in place for the
+	 * given image and context.
+	 * 
+	 * @param image
+	 * @param tc
+	 * @return true if the pyramids have the right geometry
+	 */
+	boolean isCompatible(FImage image, TrackingContext tc) {
+		return !isNull() &&
+				imgPyr.hasGeometry(image.width, image.height, tc.subsampling, tc.nPyramidLevels) &&
+				gradx.hasGeometry(image.width, image.height, tc.subsampling, tc.nPyramidLevels) &&
+				grady.hasGeometry(image.width, image.height, tc.subsampling, tc.nPyramidLevels);
+	}
+
+	/**
+	 * Recompute the pyramids in place from the given image, with the pixel
+	 * values of the image multiplied by the given scale. The pyramids must
+	 * have been created with a geometry compatible with the image.
+	 * 
+	 * @param image
+	 * @param scale
+	 * @param tc
+	 */
+	void compute(FImage image, float scale, TrackingContext tc) {
+		final float sigma = tc.computeSmoothSigma();
+		if (smoother == null || smootherSigma != sigma) {
+			smoother = new FGaussianConvolve(sigma);
+			smootherSigma = sigma;
+		}
+
+		/* Smooth directly into the base of the pyramid */
+		final FImage base = imgPyr.img[0];
+		base.internalCopy(image);
+		if (scale != 1f)
+			base.multiplyInplace(scale);
+		base.processInplace(smoother);
+		imgPyr.computeLevels(tc.pyramid_sigma_fact);
+
+		if (workspace == null || workspace.length != tc.nPyramidLevels)
+			workspace = new FImage[tc.nPyramidLevels];
+
+		for (int i = 0 ; i < tc.nPyramidLevels ; i++) {
+			final FImage level = imgPyr.img[i];
+			if (workspace[i] == null || workspace[i].width != level.width || workspace[i].height != level.height)
+				workspace[i] = new FImage(level.width, level.height);
+
+			tc.computeGradients(level, tc.grad_sigma, gradx.img[i], grady.img[i], workspace[i]);
+		}
 	}
+
 	/**
 	 * @param imgPyr
 	 * @param gradx
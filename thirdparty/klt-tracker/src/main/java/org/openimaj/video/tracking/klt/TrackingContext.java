@@ -7,6 +7,8 @@
  * for both commercial and non-commercial use.
  */
 package org.openimaj.video.tracking.klt;
+import java.util.Arrays;
+
 import org.openimaj.image.FImage;
 import org.openimaj.math.geometry.shape.Shape;
 
@@ -94,15 +96,28 @@ public class TrackingContext {
 	private Pyramid pyramid_last;
 	private Pyramid pyramid_last_gradx;
 	private Pyramid pyramid_last_grady;
+	private PyramidSet pyramid_last_set;	/* the set holding the above, so its workspace is kept */
 	
 	/**
+	 * In sequential mode the returned pyramids belong to the {@link KLTTracker}
+	 * and are recomputed in place by a later call to
+	 * {@link KLTTracker#trackFeatures(org.openimaj.image.FImage, org.openimaj.image.FImage)};
+	 * they are only valid until then.
+	 * 
 	 * @return a {@link PyramidSet} of the previous image's pyramids. Null if not previous image
 	 */
 	public PyramidSet previousPyramidSet(){
 		if(pyramid_last == null)
 			return null;
 		else
-			return new PyramidSet(pyramid_last,pyramid_last_gradx,pyramid_last_grady);
+			return lastPyramidSet();
+	}
+
+	private PyramidSet lastPyramidSet() {
+		if (pyramid_last_set == null || pyramid_last_set.imgPyr != pyramid_last ||
+				pyramid_last_set.gradx != pyramid_last_gradx || pyramid_last_set.grady != pyramid_last_grady)
+			pyramid_last_set = new PyramidSet(pyramid_last,pyramid_last_gradx,pyramid_last_grady);
+		return pyramid_last_set;
 	}
 
 	/*********************************************************************
@@ -333,6 +348,7 @@ public class TrackingContext {
 		this.pyramid_last = null;
 		this.pyramid_last_gradx = null;
 		this.pyramid_last_grady = null;
+		this.pyramid_last_set = null;
 	}
 
 	float computeSmoothSigma() {
@@ -461,7 +477,6 @@ public class TrackingContext {
 	 * _convolveImageVert
 	 */
 	void _convolveImageVert(FImage imgin, ConvolutionKernel kernel, FImage imgout) {
-		float sum;
 		int radius = kernel.width / 2;
 		int ncols = imgin.width, nrows = imgin.height;
 		int i, j, k;
@@ -472,44 +487,36 @@ public class TrackingContext {
 		/* Must read from and write to different images */
 		assert(imgin != imgout);
 
-		/* For each column, do ... */
-		for (i = 0 ; i < ncols ; i++)  {
-			int ptrout = 0;
-			/* Zero topmost rows */
-			for (j = 0 ; j < radius ; j++)  {
-				imgout.pixels[ptrout][i] = 0;
-				ptrout++;
-			}
-
-			/* Convolve middle rows with kernel */
-			for ( ; j < nrows - radius ; j++)  {
-				int ppp = (j - radius);
-				sum = 0.0f;
-				for (k = kernel.width-1 ; k >= 0 ; k--)  {
-					sum += imgin.pixels[ppp][i] * kernel.data[k];
-					ppp++;
-				}
-				imgout.pixels[ptrout][i] = sum;
-				ptrout ++;
-			}
-
-			/* Zero bottommost rows */
-			for ( ; j < nrows ; j++)  {
-				imgout.pixels[ptrout][i] = 0;
-				ptrout++;
+		/* Zero topmost rows */
+		for (j = 0 ; j < radius && j < nrows ; j++)
+			Arrays.fill(imgout.pixels[j], 0, ncols, 0);
+
+		/* Convolve middle rows with kernel a whole row at a time; each */
+		/* output pixel still sums its terms in the same order */
+		for ( ; j < nrows - radius ; j++)  {
+			final float[] out = imgout.pixels[j];
+			Arrays.fill(out, 0, ncols, 0);
+
+			int ppp = (j - radius);
+			for (k = kernel.width-1 ; k >= 0 ; k--)  {
+				final float[] in = imgin.pixels[ppp++];
+				final float kv = kernel.data[k];
+				for (i = 0 ; i < ncols ; i++)
+					out[i] += in[i] * kv;
 			}
 		}
+
+		/* Zero bottommost rows */
+		for ( ; j < nrows ; j++)
+			Arrays.fill(imgout.pixels[j], 0, ncols, 0);
 	}
 
 
 	/*********************************************************************
 	 * _convolveSeparate
 	 */
-	void _convolveSeparate(FImage imgin, ConvolutionKernel horiz_kernel, ConvolutionKernel vert_kernel, FImage imgout)
+	void _convolveSeparate(FImage imgin, ConvolutionKernel horiz_kernel, ConvolutionKernel vert_kernel, FImage imgout, FImage tmpimg)
 	{
-		/* Create temporary image */
-		FImage tmpimg = new FImage(imgin.width, imgin.height);
-
 		/* Do convolution */
 		_convolveImageHoriz(imgin, horiz_kernel, tmpimg);
 
@@ -524,12 +531,20 @@ public class TrackingContext {
 	 * @param grady 
 	 */
 	public void computeGradients(FImage img, float sigma, FImage gradx, FImage grady) {
+		computeGradients(img, sigma, gradx, grady, new FImage(img.width, img.height));
+	}
+
+	/*********************************************************************
+	 * As above, but using the given image (which must be the same size as
+	 * the input) as temporary workspace.
+	 */
+	void computeGradients(FImage img, float sigma, FImage gradx, FImage grady, FImage tmpimg) {
 		/* Compute kernels, if necessary */
 		if (Math.abs(sigma - sigma_last) > 0.05)
 			_computeKernels(sigma, gauss_kernel, gaussderiv_kernel);
 
-		_convolveSeparate(img, gaussderiv_kernel, gauss_kernel, gradx);
-		_convolveSeparate(img, gauss_kernel, gaussderiv_kernel, grady);
+		_convolveSeparate(img, gaussderiv_kernel, gauss_kernel, gradx, tmpimg);
+		_convolveSeparate(img, gauss_kernel, gaussderiv_kernel, grady, tmpimg);
 	}
 
 	/**
@@ -758,22 +773,30 @@ public class TrackingContext {
 	}
 
 	/**
+	 * Set the previous pyramids. A set supplied here is only read by the
+	 * tracker; it is never recomputed in place.
+	 * 
 	 * @param pyr set the previous pyramids
 	 */
 	public void setPreviousPyramid(PyramidSet pyr) {
 		this.pyramid_last = pyr.imgPyr;
 		this.pyramid_last_gradx = pyr.gradx;
 		this.pyramid_last_grady = pyr.grady;
+		this.pyramid_last_set = pyr;
 	}
 
 	/**
+	 * @see #previousPyramidSet()
 	 * @return the previous pyramid
 	 */
 	public PyramidSet getPreviousPyramid() {
-		PyramidSet ret = new PyramidSet();
-		ret.imgPyr = this.pyramid_last;
-		ret.gradx = this.pyramid_last_gradx;
-		ret.grady = this.pyramid_last_grady;
-		return ret;
+		if (this.pyramid_last == null) {
+			PyramidSet ret = new PyramidSet();
+			ret.imgPyr = this.pyramid_last;
+			ret.gradx = this.pyramid_last_gradx;
+			ret.grady = this.pyramid_last_grady;
+			return ret;
+		}
+		return lastPyramidSet();
 	}
 }
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.tracking.klt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+
+/**
+ * Tests for {@link KLTTracker}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class KLTTrackerTest {
+	private static final int SIZE = 160;
+	private static final int MARGIN = 32;
+
+	/**
+	 * Create a smoothed random texture in the range [0, 1]
+	 */
+	private static FImage texture(long seed) {
+		final Random rng = new Random(seed);
+		final int n = SIZE + 2 * MARGIN;
+		final FImage noise = new FImage(n + 4, n + 4);
+		for (int y = 0; y < n + 4; y++)
+			for (int x = 0; x < n + 4; x++)
+				noise.pixels[y][x] = rng.nextFloat();
+
+		final FImage tex = new FImage(n, n);
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				float sum = 0;
+				for (int j = 0; j < 5; j++)
+					for (int i = 0; i < 5; i++)
+						sum += noise.pixels[y + j][x + i];
+				tex.pixels[y][x] = sum / 25;
+			}
+		}
+		return tex;
+	}
+
+	/**
+	 * Crop a frame in which the content of the unshifted frame has moved by
+	 * (dx, dy)
+	 */
+	private static FImage frame(FImage texture, int dx, int dy) {
+		return texture.extractROI(MARGIN - dx, MARGIN - dy, SIZE, SIZE);
+	}
+
+	/**
+	 * The trackability of each selected feature is the minimum eigenvalue of
+	 * the gradient matrix summed row by row over the window, exactly as in the
+	 * original sequential implementation.
+	 */
+	@Test
+	public void testSelectedTrackability() {
+		final FImage img = frame(texture(1), 0, 0);
+
+		final TrackingContext tc = new TrackingContext();
+		tc.smoothBeforeSelecting = false;
+		final KLTTracker tracker = new KLTTracker(tc, new FeatureList(100));
+		tracker.selectGoodFeatures(img);
+
+		final FImage gradx = new FImage(SIZE, SIZE);
+		final FImage grady = new FImage(SIZE, SIZE);
+		tc.computeGradients(img.multiply(255f), tc.grad_sigma, gradx, grady);
+
+		final int hw = tc.window_width / 2;
+		final int hh = tc.window_height / 2;
+
+		int checked = 0;
+		for (final Feature f : tracker.getFeatureList()) {
+			if (f.val < 0)
+				continue;
+
+			final int x = (int) f.x;
+			final int y = (int) f.y;
+			float gxx = 0, gxy = 0, gyy = 0;
+			for (int yy = y - hh; yy <= y + hh; yy++) {
+				for (int xx = x - hw; xx <= x + hw; xx++) {
+					final float gx = gradx.pixels[yy][xx];
+					final float gy = grady.pixels[yy][xx];
+					gxx += gx * gx;
+					gxy += gx * gy;
+					gyy += gy * gy;
+				}
+			}
+			final float expected = (float) ((gxx + gyy - Math.sqrt((gxx - gyy) * (gxx - gyy) + 4 * gxy * gxy)) / 2.0f);
+
+			assertEquals((int) expected, f.val);
+			checked++;
+		}
+
+		assertTrue(checked > 50);
+	}
+
+	/**
+	 * Features follow a translation of the image
+	 */
+	@Test
+	public void testTranslation() {
+		final FImage texture = texture(2);
+		final FImage img1 = frame(texture, 0, 0);
+		final FImage img2 = frame(texture, 3, -2);
+
+		final KLTTracker tracker = new KLTTracker(new TrackingContext(), new FeatureList(50));
+		tracker.selectGoodFeatures(img1);
+		final FeatureList before = tracker.getFeatureList().clone();
+
+		tracker.trackFeatures(img1, img2);
+
+		int tracked = 0;
+		for (int i = 0; i < before.features.length; i++) {
+			final Feature f = tracker.getFeatureList().features[i];
+			if (f.val < 0)
+				continue;
+
+			assertEquals(before.features[i].x + 3, f.x, 0.1f);
+			assertEquals(before.features[i].y - 2, f.y, 0.1f);
+			tracked++;
+		}
+
+		assertTrue(tracked > 40);
+	}
+
+	/**
+	 * Sequential mode (which reuses and swaps the pyramid buffers) gives the
+	 * same result as building the pyramids for every pair of frames
+	 */
+	@Test
+	public void testSequentialMatchesNonSequential() {
+		final FImage texture = texture(3);
+		final FImage[] frames = new FImage[5];
+		for (int i = 0; i < frames.length; i++)
+			frames[i] = frame(texture, 2 * i, i);
+
+		final TrackingContext seqContext = new TrackingContext();
+		seqContext.setSequentialMode(true);
+		final KLTTracker seq = new KLTTracker(seqContext, new FeatureList(50));
+		final KLTTracker nonseq = new KLTTracker(new TrackingContext(), new FeatureList(50));
+
+		seq.selectGoodFeatures(frames[0]);
+		nonseq.selectGoodFeatures(frames[0]);
+
+		for (int i = 1; i < frames.length; i++) {
+			seq.trackFeatures(frames[i - 1], frames[i]);
+			nonseq.trackFeatures(frames[i - 1], frames[i]);
+
+			for (int j = 0; j < 50; j++) {
+				final Feature a = seq.getFeatureList().features[j];
+				final Feature b = nonseq.getFeatureList().features[j];
+				assertEquals(b.val, a.val);
+				assertEquals(b.x, a.x, 0f);
+				assertEquals(b.y, a.y, 0f);
+			}
+		}
+	}
+
+	/**
+	 * Pyramids given to the context by the caller are never recomputed in
+	 * place
+	 */
+	@Test
+	public void testCallerPyramidsNotOverwritten() {
+		final FImage texture = texture(4);
+
+		final TrackingContext tc = new TrackingContext();
+		tc.setSequentialMode(true);
+		final KLTTracker tracker = new KLTTracker(tc, new FeatureList(20));
+
+		final FImage first = frame(texture, 0, 0);
+		tracker.selectGoodFeatures(first);
+
+		final PyramidSet mine = new PyramidSet(first.multiply(255f), tc);
+		final float[][] expected = mine.imgPyr.img[0].clone().pixels;
+		tc.setPreviousPyramid(mine);
+
+		for (int i = 1; i < 5; i++)
+			tracker.trackFeatures(frame(texture, i - 1, 0), frame(texture, i, 0));
+
+		for (int y = 0; y < expected.length; y++)
+			assertArrayEquals(expected[y], mine.imgPyr.img[0].pixels[y], 0f);
+	}
+}
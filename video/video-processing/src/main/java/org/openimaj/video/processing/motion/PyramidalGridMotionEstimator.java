@@ -0,0 +1,373 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processing.motion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openimaj.image.FImage;
+import org.openimaj.math.geometry.point.Point2d;
+import org.openimaj.math.geometry.point.Point2dImpl;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.video.Video;
+import org.openimaj.video.VideoFrame;
+
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+
+/**
+ * A grid-based motion estimator that uses coarse-to-fine phase correlation
+ * over an image pyramid. The grid is defined in the same way as for the
+ * {@link GridMotionEstimator}. For each grid cell a block of the cell's size is
+ * correlated at each level of the pyramid, starting at the coarsest; the
+ * displacement found at each level is used to position the block in the
+ * current frame at the next finer level, so the range of motion that can be
+ * detected grows with the number of levels, while the work per cell stays
+ * constant.
+ * <p>
+ * The estimator is designed to be fast enough for dense motion fields on live
+ * video:
+ * <ul>
+ * <li>the cells are processed in parallel;</li>
+ * <li>FFT plans are created once per thread and reused;</li>
+ * <li>the (unshifted) block spectra of each frame are cached and reused as the
+ * previous-frame spectra when the next frame arrives, so only one FFT per
+ * cell and level is needed unless the block has to be shifted;</li>
+ * <li>the cross-power spectrum is normalised element-wise, and the peak is
+ * located to sub-pixel accuracy.</li>
+ * </ul>
+ * The {@link MotionEstimatorAlgorithm} passed to
+ * {@link #estimateMotionField(MotionEstimatorAlgorithm, VideoFrame, VideoFrame[])}
+ * is not used. The returned vectors give the displacement of each cell's
+ * content from the previous frame to the current frame.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PyramidalGridMotionEstimator extends MotionEstimator
+{
+	private static final ThreadLocal<Map<Long, FloatFFT_2D>> PLANS = new ThreadLocal<Map<Long, FloatFFT_2D>>() {
+		@Override
+		protected Map<Long, FloatFFT_2D> initialValue() {
+			return new HashMap<Long, FloatFFT_2D>();
+		}
+	};
+
+	private int x, y;
+	private boolean fixed;
+	private int levels;
+
+	/** Spectra of the cells of the previous frame, indexed [level][cell] */
+	private float[][][][] previousSpectra;
+	private int previousWidth = -1, previousHeight = -1;
+	private float[][] window;
+
+	/**
+	 * Construct a pyramidal grid-based motion estimator. If <code>fixed</code>
+	 * is true, the x and y values represent the width and height of the pixel
+	 * blocks. If <code>fixed</code> is false, the x and y represent the number
+	 * of grid elements to spread evenly across the frame.
+	 *
+	 * @param x
+	 *            The x value
+	 * @param y
+	 *            The y value
+	 * @param fixed
+	 *            Whether x and y represent pixels or grid count.
+	 * @param levels
+	 *            The maximum number of pyramid levels
+	 */
+	public PyramidalGridMotionEstimator(int x, int y, boolean fixed, int levels)
+	{
+		super(new MotionEstimatorAlgorithm.PHASE_CORRELATION());
+		this.x = x;
+		this.y = y;
+		this.fixed = fixed;
+		this.levels = levels;
+	}
+
+	/**
+	 * Construct a chained pyramidal grid-based motion estimator.
+	 *
+	 * @see #PyramidalGridMotionEstimator(int, int, boolean, int)
+	 * @param v
+	 *            The video to chain to
+	 * @param x
+	 *            The x value
+	 * @param y
+	 *            The y value
+	 * @param fixed
+	 *            Whether x and y represent pixels or grid count.
+	 * @param levels
+	 *            The maximum number of pyramid levels
+	 */
+	public PyramidalGridMotionEstimator(Video<FImage> v, int x, int y, boolean fixed, int levels)
+	{
+		super(v, new MotionEstimatorAlgorithm.PHASE_CORRELATION());
+		this.x = x;
+		this.y = y;
+		this.fixed = fixed;
+		this.levels = levels;
+	}
+
+	@Override
+	protected Map<Point2d, Point2d> estimateMotionField(MotionEstimatorAlgorithm estimator,
+			VideoFrame<FImage> vf, VideoFrame<FImage>[] array)
+	{
+		final FImage frame = vf.frame;
+		final int gw = fixed ? x : frame.getWidth() / x;
+		final int gh = fixed ? y : frame.getHeight() / y;
+
+		// the cell centres
+		final int nx = (frame.getWidth() + gw - 1) / gw;
+		final int ny = (frame.getHeight() + gh - 1) / gh;
+		final int ncells = nx * ny;
+		final float[] cx = new float[ncells];
+		final float[] cy = new float[ncells];
+		for (int j = 0, c = 0; j < ny; j++) {
+			for (int i = 0; i < nx; i++, c++) {
+				cx[c] = i * gw + gw / 2f;
+				cy[c] = j * gh + gh / 2f;
+			}
+		}
+
+		// build the pyramid, stopping when a level is smaller than a block
+		int nlevels = 1;
+		while (nlevels < levels && (frame.getWidth() >> nlevels) >= gw && (frame.getHeight() >> nlevels) >= gh)
+			nlevels++;
+
+		final FImage[] pyramid = new FImage[nlevels];
+		pyramid[0] = frame;
+		for (int l = 1; l < nlevels; l++)
+			pyramid[l] = halfSize(pyramid[l - 1]);
+
+		if (window == null || window.length != gh || window[0].length != gw)
+			window = hannWindow(gw, gh);
+
+		final int levelCount = nlevels;
+		final float[][][][] currentSpectra = new float[nlevels][ncells][][];
+		Parallel.forIndex(0, ncells, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer c) {
+				for (int l = 0; l < levelCount; l++) {
+					final float s = 1f / (1 << l);
+					currentSpectra[l][c] = spectrum(pyramid[l], cx[c] * s, cy[c] * s, gw, gh);
+				}
+			}
+		});
+
+		final boolean usable = array.length > 0 && previousSpectra != null
+				&& previousSpectra.length == nlevels && previousSpectra[0].length == ncells
+				&& previousWidth == frame.getWidth() && previousHeight == frame.getHeight();
+		final float[][][][] prev = usable ? previousSpectra : null;
+
+		previousSpectra = currentSpectra;
+		previousWidth = frame.getWidth();
+		previousHeight = frame.getHeight();
+
+		final Map<Point2d, Point2d> out = new HashMap<Point2d, Point2d>();
+		if (array.length < 1 || prev == null)
+			return out;
+
+		final Point2d[] vectors = new Point2d[ncells];
+		Parallel.forIndex(0, ncells, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer c) {
+				float dx = 0, dy = 0;
+
+				for (int l = levelCount - 1; l >= 0; l--) {
+					if (l < levelCount - 1) {
+						dx *= 2;
+						dy *= 2;
+					}
+
+					final int ix = Math.round(dx);
+					final int iy = Math.round(dy);
+					final float s = 1f / (1 << l);
+
+					final float[][] current = (ix == 0 && iy == 0) ? currentSpectra[l][c] :
+							spectrum(pyramid[l], cx[c] * s + ix, cy[c] * s + iy, gw, gh);
+
+					final float[] residual = phaseCorrelate(prev[l][c], current, gw, gh);
+					dx = ix + residual[0];
+					dy = iy + residual[1];
+				}
+
+				vectors[c] = new Point2dImpl(dx, dy);
+			}
+		});
+
+		for (int c = 0; c < ncells; c++)
+			out.put(new Point2dImpl(cx[c], cy[c]), vectors[c]);
+
+		return out;
+	}
+
+	private static FloatFFT_2D plan(int h, int w) {
+		final Map<Long, FloatFFT_2D> plans = PLANS.get();
+		final Long key = ((long) h << 32) | w;
+
+		FloatFFT_2D fft = plans.get(key);
+		if (fft == null) {
+			fft = new FloatFFT_2D(h, w);
+			plans.put(key, fft);
+		}
+		return fft;
+	}
+
+	private static float[][] hannWindow(int w, int h) {
+		final float[][] win = new float[h][w];
+		for (int yy = 0; yy < h; yy++) {
+			final double wy = h > 1 ? 0.5 - 0.5 * Math.cos(2 * Math.PI * yy / (h - 1)) : 1;
+			for (int xx = 0; xx < w; xx++) {
+				final double wx = w > 1 ? 0.5 - 0.5 * Math.cos(2 * Math.PI * xx / (w - 1)) : 1;
+				win[yy][xx] = (float) (wx * wy);
+			}
+		}
+		return win;
+	}
+
+	/**
+	 * Compute the spectrum of the windowed, zero-mean block of the given size
+	 * centred on the given point. Pixels outside the image are clamped to the
+	 * edge.
+	 */
+	private float[][] spectrum(FImage image, float centreX, float centreY, int w, int h) {
+		final int x0 = Math.round(centreX - w / 2f);
+		final int y0 = Math.round(centreY - h / 2f);
+		final int iw = image.width;
+		final int ih = image.height;
+		final float[][] pix = image.pixels;
+
+		final float[][] data = new float[h][2 * w];
+		double mean = 0;
+		for (int yy = 0; yy < h; yy++) {
+			final float[] row = pix[Math.max(0, Math.min(ih - 1, y0 + yy))];
+			for (int xx = 0; xx < w; xx++) {
+				final float v = row[Math.max(0, Math.min(iw - 1, x0 + xx))];
+				data[yy][2 * xx] = v;
+				mean += v;
+			}
+		}
+		mean /= (w * h);
+
+		for (int yy = 0; yy < h; yy++) {
+			final float[] wrow = window[yy];
+			final float[] drow = data[yy];
+			for (int xx = 0; xx < w; xx++)
+				drow[2 * xx] = (float) ((drow[2 * xx] - mean) * wrow[xx]);
+		}
+
+		plan(h, w).complexForward(data);
+		return data;
+	}
+
+	/**
+	 * Find the translation that maps the previous block onto the current
+	 * block from their spectra.
+	 */
+	private static float[] phaseCorrelate(float[][] prev, float[][] current, int w, int h) {
+		final float[][] r = new float[h][2 * w];
+
+		for (int yy = 0; yy < h; yy++) {
+			final float[] p = prev[yy];
+			final float[] c = current[yy];
+			final float[] rr = r[yy];
+			for (int xx = 0; xx < w; xx++) {
+				final float pr = p[2 * xx], pi = p[2 * xx + 1];
+				final float cr = c[2 * xx], ci = c[2 * xx + 1];
+
+				// current * conj(previous)
+				final float re = cr * pr + ci * pi;
+				final float im = ci * pr - cr * pi;
+				final float mag = (float) Math.sqrt(re * re + im * im);
+
+				if (mag > 1e-10f) {
+					rr[2 * xx] = re / mag;
+					rr[2 * xx + 1] = im / mag;
+				}
+			}
+		}
+
+		plan(h, w).complexInverse(r, false);
+
+		int px = 0, py = 0;
+		float max = -Float.MAX_VALUE;
+		for (int yy = 0; yy < h; yy++) {
+			for (int xx = 0; xx < w; xx++) {
+				if (r[yy][2 * xx] > max) {
+					max = r[yy][2 * xx];
+					px = xx;
+					py = yy;
+				}
+			}
+		}
+
+		// parabolic sub-pixel refinement (the correlation surface is periodic)
+		final float left = r[py][2 * ((px + w - 1) % w)];
+		final float right = r[py][2 * ((px + 1) % w)];
+		final float up = r[(py + h - 1) % h][2 * px];
+		final float down = r[(py + 1) % h][2 * px];
+
+		float dx = px + subpixel(left, max, right);
+		float dy = py + subpixel(up, max, down);
+
+		if (dx > w / 2f)
+			dx -= w;
+		if (dy > h / 2f)
+			dy -= h;
+
+		return new float[] { dx, dy };
+	}
+
+	private static float subpixel(float a, float b, float c) {
+		final float denom = a - 2 * b + c;
+		if (denom >= 0)
+			return 0;
+
+		final float offset = 0.5f * (a - c) / denom;
+		return Math.max(-0.5f, Math.min(0.5f, offset));
+	}
+
+	private static FImage halfSize(FImage image) {
+		final int w = image.width / 2;
+		final int h = image.height / 2;
+		final FImage out = new FImage(w, h);
+
+		for (int yy = 0; yy < h; yy++) {
+			final float[] r0 = image.pixels[2 * yy];
+			final float[] r1 = image.pixels[2 * yy + 1];
+			final float[] o = out.pixels[yy];
+			for (int xx = 0; xx < w; xx++)
+				o[xx] = 0.25f * (r0[2 * xx] + r0[2 * xx + 1] + r1[2 * xx] + r1[2 * xx + 1]);
+		}
+
+		return out;
+	}
+}
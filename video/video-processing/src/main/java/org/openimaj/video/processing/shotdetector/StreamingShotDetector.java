@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processing.shotdetector;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openimaj.image.MBFImage;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.stream.AbstractStream;
+import org.openimaj.video.Video;
+import org.openimaj.video.timecode.HrsMinSecFrameTimecode;
+import org.openimaj.video.timecode.VideoTimecode;
+
+/**
+ * A headless shot boundary detector that produces a {@link org.openimaj.util.stream.Stream} of
+ * {@link ShotBoundary}s. Unlike {@link VideoShotDetector} it has no
+ * dependency on a {@link org.openimaj.video.VideoDisplay} and is designed to
+ * process video offline as fast as it can be decoded:
+ * <ul>
+ * <li>every frame is reduced to a small thumbnail by point sampling every
+ * <code>spatialStep</code>-th pixel;</li>
+ * <li>colour histograms are only computed for every <code>frameStep</code>-th
+ * frame, in parallel batches;</li>
+ * <li>when the histograms of two consecutive sampled frames differ by more
+ * than the threshold, the frames between them are examined to locate the
+ * boundary exactly. A single large change between two frames is reported as
+ * a cut; a change spread over several frames is reported as a
+ * {@link FadeShotBoundary}, as are runs of consecutive candidates.</li>
+ * </ul>
+ * The first frame of the video always starts a shot. If keyframes are
+ * enabled, each boundary carries a {@link VideoKeyframe} holding a copy of the
+ * first sampled frame of the new shot.
+ * <p>
+ * The histogram distance is half the L1 distance between the normalised
+ * per-band histograms, averaged over the bands, so it lies between 0 (same
+ * colour distribution) and 1 (disjoint distributions).
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class StreamingShotDetector extends AbstractStream<ShotBoundary<MBFImage>> {
+	private static class Sample {
+		int frame;
+		float[][][] thumb;
+		double[] hist;
+		MBFImage image;
+	}
+
+	private final Video<MBFImage> video;
+	private final double fps;
+
+	private int frameStep = 4;
+	private int spatialStep = 4;
+	private int batchSize = Runtime.getRuntime().availableProcessors();
+	private int bins = 64;
+	private double threshold = 0.25;
+	private boolean findKeyframes = true;
+
+	private int frameCounter = 0;
+	private boolean finished = false;
+	private Sample lastSample;
+	private ShotBoundary<MBFImage> pending;
+	private int pendingEnd = -1;
+	private final LinkedList<ShotBoundary<MBFImage>> output = new LinkedList<ShotBoundary<MBFImage>>();
+
+	/**
+	 * Construct a detector for the given video.
+	 *
+	 * @param video
+	 *            the video
+	 */
+	public StreamingShotDetector(Video<MBFImage> video) {
+		this.video = video;
+		this.fps = video.getFPS();
+	}
+
+	/**
+	 * Set the number of frames between the frames whose histograms are
+	 * compared. Larger steps are faster, but two boundaries within a step of
+	 * each other will be reported as a single fade.
+	 *
+	 * @param frameStep
+	 *            the frame step
+	 * @return this detector
+	 */
+	public StreamingShotDetector setFrameStep(int frameStep) {
+		if (frameStep < 1)
+			throw new IllegalArgumentException("frameStep must be at least 1");
+		this.frameStep = frameStep;
+		return this;
+	}
+
+	/**
+	 * Set the spacing of the pixels sampled from each frame.
+	 *
+	 * @param spatialStep
+	 *            the pixel spacing
+	 * @return this detector
+	 */
+	public StreamingShotDetector setSpatialStep(int spatialStep) {
+		if (spatialStep < 1)
+			throw new IllegalArgumentException("spatialStep must be at least 1");
+		this.spatialStep = spatialStep;
+		return this;
+	}
+
+	/**
+	 * Set the number of sampled frames whose histograms are computed in
+	 * parallel. If keyframes are enabled a copy of each sampled frame in the
+	 * batch is held in memory.
+	 *
+	 * @param batchSize
+	 *            the batch size
+	 * @return this detector
+	 */
+	public StreamingShotDetector setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set the number of histogram bins per band.
+	 *
+	 * @param bins
+	 *            the number of bins
+	 * @return this detector
+	 */
+	public StreamingShotDetector setBins(int bins) {
+		this.bins = bins;
+		return this;
+	}
+
+	/**
+	 * Set the threshold on the histogram distance (between 0 and 1) above
+	 * which a shot boundary is detected.
+	 *
+	 * @param threshold
+	 *            the threshold
+	 * @return this detector
+	 */
+	public StreamingShotDetector setThreshold(double threshold) {
+		this.threshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Set whether keyframes should be attached to the detected boundaries.
+	 *
+	 * @param findKeyframes
+	 *            true to attach keyframes
+	 * @return this detector
+	 */
+	public StreamingShotDetector setFindKeyframes(boolean findKeyframes) {
+		this.findKeyframes = findKeyframes;
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (output.isEmpty() && !finished)
+			processBatch();
+
+		return !output.isEmpty();
+	}
+
+	@Override
+	public ShotBoundary<MBFImage> next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		return output.removeFirst();
+	}
+
+	/**
+	 * Read frames until a batch of sampled frames has been collected (or the
+	 * video ends), compute their histograms in parallel and look for
+	 * boundaries between them.
+	 */
+	private void processBatch() {
+		final List<float[][][]> thumbs = new ArrayList<float[][][]>();
+		final List<Sample> samples = new ArrayList<Sample>();
+		final int firstFrame = frameCounter;
+
+		MBFImage frame = null;
+		while (samples.size() < batchSize && (frame = video.getNextFrame()) != null) {
+			final float[][][] thumb = thumbnail(frame);
+			thumbs.add(thumb);
+
+			if (frameCounter % frameStep == 0)
+				samples.add(createSample(frameCounter, thumb, frame));
+
+			frameCounter++;
+		}
+
+		if (frame == null) {
+			finished = true;
+
+			// make sure the tail of the video is checked
+			final int last = frameCounter - 1;
+			if (last >= firstFrame && last % frameStep != 0)
+				samples.add(createSample(last, thumbs.get(last - firstFrame), null));
+		}
+
+		computeHistograms(samples);
+
+		for (final Sample s : samples) {
+			if (lastSample == null) {
+				// the start of the video is always a boundary
+				emit(new ShotBoundary<MBFImage>(timecode(s.frame)), s);
+			} else if (distance(lastSample.hist, s.hist) > threshold) {
+				refine(lastSample, s, thumbs, firstFrame);
+			} else {
+				flush();
+			}
+
+			// only the thumbnail of the last sample is needed by the next batch
+			s.image = null;
+			lastSample = s;
+		}
+
+		if (finished)
+			flush();
+	}
+
+	private Sample createSample(int index, float[][][] thumb, MBFImage frame) {
+		final Sample s = new Sample();
+		s.frame = index;
+		s.thumb = thumb;
+		if (findKeyframes && frame != null)
+			s.image = frame.clone();
+		return s;
+	}
+
+	/**
+	 * Locate the boundary between two sampled frames whose histograms differ.
+	 */
+	private void refine(Sample from, Sample to, List<float[][][]> thumbs, int firstFrame) {
+		final int n = to.frame - from.frame;
+
+		int boundary = to.frame;
+		boolean cut = true;
+
+		if (n > 1) {
+			final double[][] hists = new double[n + 1][];
+			hists[0] = from.hist;
+			hists[n] = to.hist;
+
+			Parallel.forIndex(1, n, 1, new Operation<Integer>() {
+				@Override
+				public void perform(Integer i) {
+					hists[i] = histogram(thumbs.get(from.frame + i - firstFrame));
+				}
+			});
+
+			double total = 0;
+			double max = -1;
+			for (int i = 1; i <= n; i++) {
+				final double d = distance(hists[i - 1], hists[i]);
+				total += d;
+				if (d > max) {
+					max = d;
+					boundary = from.frame + i;
+				}
+			}
+
+			// a gradual transition if no single frame accounts for most of
+			// the change
+			cut = max >= 0.5 * total;
+		}
+
+		if (pending != null && pendingEnd == from.frame) {
+			// consecutive candidates are merged into a fade
+			final FadeShotBoundary<MBFImage> fade = pending instanceof FadeShotBoundary ?
+					(FadeShotBoundary<MBFImage>) pending : new FadeShotBoundary<MBFImage>(pending);
+			fade.setEndTimecode(timecode(to.frame));
+			fade.keyframe = keyframe(to);
+			pending = fade;
+			pendingEnd = to.frame;
+			return;
+		}
+
+		flush();
+
+		if (cut) {
+			pending = new ShotBoundary<MBFImage>(timecode(boundary));
+		} else {
+			final FadeShotBoundary<MBFImage> fade = new FadeShotBoundary<MBFImage>(
+					new ShotBoundary<MBFImage>(timecode(from.frame + 1)));
+			fade.setEndTimecode(timecode(to.frame));
+			pending = fade;
+		}
+		pending.keyframe = keyframe(to);
+		pendingEnd = to.frame;
+	}
+
+	private void emit(ShotBoundary<MBFImage> sb, Sample s) {
+		sb.keyframe = keyframe(s);
+		output.add(sb);
+	}
+
+	private void flush() {
+		if (pending != null)
+			output.add(pending);
+		pending = null;
+		pendingEnd = -1;
+	}
+
+	private VideoKeyframe<MBFImage> keyframe(Sample s) {
+		if (s.image == null)
+			return null;
+		return new VideoKeyframe<MBFImage>(timecode(s.frame), s.image);
+	}
+
+	private VideoTimecode timecode(int frame) {
+		return new HrsMinSecFrameTimecode(frame, fps);
+	}
+
+	private float[][][] thumbnail(MBFImage frame) {
+		final int nb = frame.numBands();
+		final int w = (frame.getWidth() + spatialStep - 1) / spatialStep;
+		final int h = (frame.getHeight() + spatialStep - 1) / spatialStep;
+		final float[][][] thumb = new float[nb][h][w];
+
+		for (int b = 0; b < nb; b++) {
+			final float[][] pix = frame.getBand(b).pixels;
+			for (int y = 0; y < h; y++) {
+				final float[] src = pix[y * spatialStep];
+				final float[] dst = thumb[b][y];
+				for (int x = 0; x < w; x++)
+					dst[x] = src[x * spatialStep];
+			}
+		}
+
+		return thumb;
+	}
+
+	private void computeHistograms(final List<Sample> samples) {
+		Parallel.forIndex(0, samples.size(), 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer i) {
+				final Sample s = samples.get(i);
+				s.hist = histogram(s.thumb);
+			}
+		});
+	}
+
+	private double[] histogram(float[][][] thumb) {
+		final int nb = thumb.length;
+		final double[] hist = new double[nb * bins];
+
+		for (int b = 0; b < nb; b++) {
+			final int offset = b * bins;
+			int count = 0;
+			for (final float[] row : thumb[b]) {
+				for (final float v : row) {
+					final int bin = (int) (v * bins);
+					hist[offset + (bin < 0 ? 0 : bin >= bins ? bins - 1 : bin)]++;
+				}
+				count += row.length;
+			}
+
+			for (int i = 0; i < bins; i++)
+				hist[offset + i] /= count;
+		}
+
+		return hist;
+	}
+
+	private double distance(double[] h1, double[] h2) {
+		double d = 0;
+		for (int i = 0; i < h1.length; i++)
+			d += Math.abs(h1[i] - h2[i]);
+
+		return 0.5 * d / (h1.length / bins);
+	}
+}
@@ -62,6 +62,9 @@ import org.openimaj.video.timecode.VideoTimecode;
  * 	ShotDetected event which provides a VideoKeyframe which has a timecode
  * 	and an image. Each event will receive the same VideoKeyframe instance
  * 	containing different information. Use VideoKeyframe#clone() to make a copy.
+ * 	<p>
+ * 	For fast offline processing without a display see
+ * 	{@link StreamingShotDetector}.
  *
  *  @author David Dupplaw (dpd@ecs.soton.ac.uk)
  * 	@param <I> The type of image
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processing.motion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.math.geometry.point.Point2d;
+import org.openimaj.video.ArrayBackedVideo;
+
+/**
+ * Tests for {@link PyramidalGridMotionEstimator}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PyramidalGridMotionEstimatorTest {
+	private static final int SIZE = 128;
+	private static final int BLOCK = 32;
+	private static final int MARGIN = 32;
+
+	/**
+	 * Create a random texture, lightly smoothed so that it is not pure noise
+	 * but still has a broad spectrum.
+	 */
+	private static FImage texture(long seed) {
+		final Random rng = new Random(seed);
+		final int n = SIZE + 2 * MARGIN;
+		final FImage noise = new FImage(n + 2, n + 2);
+		for (int y = 0; y < n + 2; y++)
+			for (int x = 0; x < n + 2; x++)
+				noise.pixels[y][x] = rng.nextFloat();
+
+		final FImage tex = new FImage(n, n);
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				float sum = 0;
+				for (int j = 0; j < 3; j++)
+					for (int i = 0; i < 3; i++)
+						sum += noise.pixels[y + j][x + i];
+				tex.pixels[y][x] = sum / 9;
+			}
+		}
+		return tex;
+	}
+
+	/**
+	 * Crop a frame from the texture such that the content at (x, y) of the
+	 * unshifted frame appears at (x + dx, y + dy).
+	 */
+	private static FImage frame(FImage texture, int dx, int dy) {
+		return texture.extractROI(MARGIN - dx, MARGIN - dy, SIZE, SIZE);
+	}
+
+	private static Map<Point2d, Point2d> estimate(int levels, int dx, int dy) {
+		final FImage texture = texture(42);
+		final FImage[] frames = { frame(texture, 0, 0), frame(texture, dx, dy) };
+		final PyramidalGridMotionEstimator est = new PyramidalGridMotionEstimator(
+				new ArrayBackedVideo<FImage>(frames, 25), BLOCK, BLOCK, true, levels);
+
+		est.getNextFrame();
+		assertTrue(est.getMotionVectors().isEmpty());
+
+		est.getNextFrame();
+		return est.getMotionVectors();
+	}
+
+	private static void assertMotion(Map<Point2d, Point2d> field, float dx, float dy, float tol) {
+		assertEquals((SIZE / BLOCK) * (SIZE / BLOCK), field.size());
+
+		int checked = 0;
+		for (final Entry<Point2d, Point2d> e : field.entrySet()) {
+			final Point2d centre = e.getKey();
+
+			// blocks at the image border see clamped pixels
+			if (centre.getX() < BLOCK || centre.getX() > SIZE - BLOCK || centre.getY() < BLOCK
+					|| centre.getY() > SIZE - BLOCK)
+				continue;
+
+			assertEquals(dx, e.getValue().getX(), tol);
+			assertEquals(dy, e.getValue().getY(), tol);
+			checked++;
+		}
+		assertEquals(4, checked);
+	}
+
+	/**
+	 * A small shift is found at full resolution
+	 */
+	@Test
+	public void testSmallShift() {
+		assertMotion(estimate(1, 3, -2), 3, -2, 0.25f);
+		assertMotion(estimate(1, -5, 4), -5, 4, 0.25f);
+	}
+
+	/**
+	 * A shift beyond the reach of a single block is found by the pyramid
+	 */
+	@Test
+	public void testLargeShift() {
+		assertMotion(estimate(3, 21, -18), 21, -18, 0.5f);
+	}
+
+	/**
+	 * No motion gives zero vectors
+	 */
+	@Test
+	public void testStatic() {
+		assertMotion(estimate(3, 0, 0), 0, 0, 0.1f);
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processing.shotdetector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.colour.ColourSpace;
+import org.openimaj.video.Video;
+
+/**
+ * Tests for {@link StreamingShotDetector}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class StreamingShotDetectorTest {
+	/**
+	 * A synthetic video: red until frame 30, then a hard cut to green, then a
+	 * linear fade from green to blue over frames 60 to 76, then blue until
+	 * the end. The video ends (returns null) after the last frame.
+	 */
+	private static class SyntheticVideo extends Video<MBFImage> {
+		static final int NFRAMES = 100;
+		final MBFImage frame = new MBFImage(40, 30, ColourSpace.RGB);
+
+		@Override
+		public MBFImage getNextFrame() {
+			if (currentFrame >= NFRAMES)
+				return null;
+
+			final int i = currentFrame++;
+			if (i < 30) {
+				frame.fill(new Float[] { 1f, 0f, 0f });
+			} else if (i <= 60) {
+				frame.fill(new Float[] { 0f, 1f, 0f });
+			} else if (i < 76) {
+				final float t = (i - 60) / 16f;
+				frame.fill(new Float[] { 0f, 1 - t, t });
+			} else {
+				frame.fill(new Float[] { 0f, 0f, 1f });
+			}
+
+			// a little texture so that the frames aren't flat
+			for (int x = 0; x < frame.getWidth(); x += 8)
+				frame.getBand(0).pixels[0][x] = 0.5f;
+
+			return frame;
+		}
+
+		@Override
+		public MBFImage getCurrentFrame() {
+			return frame;
+		}
+
+		@Override
+		public int getWidth() {
+			return frame.getWidth();
+		}
+
+		@Override
+		public int getHeight() {
+			return frame.getHeight();
+		}
+
+		@Override
+		public long getTimeStamp() {
+			return (long) (1000 * (currentFrame - 1) / getFPS());
+		}
+
+		@Override
+		public double getFPS() {
+			return 25;
+		}
+
+		@Override
+		public boolean hasNextFrame() {
+			return currentFrame < NFRAMES;
+		}
+
+		@Override
+		public long countFrames() {
+			return NFRAMES;
+		}
+
+		@Override
+		public void reset() {
+			currentFrame = 0;
+		}
+	}
+
+	private static List<ShotBoundary<MBFImage>> detect(StreamingShotDetector detector) {
+		final List<ShotBoundary<MBFImage>> boundaries = new ArrayList<ShotBoundary<MBFImage>>();
+		while (detector.hasNext())
+			boundaries.add(detector.next());
+		return boundaries;
+	}
+
+	/**
+	 * The start, the cut and the fade are found, with the cut located exactly
+	 * even though it falls between sampled frames
+	 */
+	@Test
+	public void testCutAndFade() {
+		final List<ShotBoundary<MBFImage>> boundaries = detect(new StreamingShotDetector(new SyntheticVideo())
+				.setFrameStep(4).setSpatialStep(2).setBatchSize(3));
+
+		assertEquals(3, boundaries.size());
+
+		assertEquals(0, boundaries.get(0).getTimecode().getFrameNumber());
+		assertFalse(boundaries.get(0) instanceof FadeShotBoundary);
+
+		assertEquals(30, boundaries.get(1).getTimecode().getFrameNumber());
+		assertFalse(boundaries.get(1) instanceof FadeShotBoundary);
+
+		assertTrue(boundaries.get(2) instanceof FadeShotBoundary);
+		final FadeShotBoundary<MBFImage> fade = (FadeShotBoundary<MBFImage>) boundaries.get(2);
+		final long start = fade.getStartTimecode().getFrameNumber();
+		final long end = fade.getEndTimecode().getFrameNumber();
+		assertTrue("fade start " + start, start > 56 && start <= 64);
+		assertTrue("fade end " + end, end >= 72 && end <= 80);
+	}
+
+	/**
+	 * Keyframes are copies of the first sampled frame of each new shot
+	 */
+	@Test
+	public void testKeyframes() {
+		final List<ShotBoundary<MBFImage>> boundaries = detect(new StreamingShotDetector(new SyntheticVideo())
+				.setFrameStep(4).setBatchSize(2));
+
+		final MBFImage first = boundaries.get(0).getKeyframe().getImage();
+		assertEquals(1f, first.getBand(0).pixels[10][10], 0f);
+
+		final MBFImage second = boundaries.get(1).getKeyframe().getImage();
+		assertEquals(1f, second.getBand(1).pixels[10][10], 0f);
+
+		final List<ShotBoundary<MBFImage>> noKeyframes = detect(new StreamingShotDetector(new SyntheticVideo())
+				.setFindKeyframes(false));
+		for (final ShotBoundary<MBFImage> sb : noKeyframes)
+			assertNull(sb.getKeyframe());
+		assertNotNull(boundaries.get(2).getKeyframe());
+	}
+
+	/**
+	 * The result does not depend on the batch size
+	 */
+	@Test
+	public void testBatchSize() {
+		final List<ShotBoundary<MBFImage>> a = detect(new StreamingShotDetector(new SyntheticVideo()).setBatchSize(1));
+		final List<ShotBoundary<MBFImage>> b = detect(new StreamingShotDetector(new SyntheticVideo()).setBatchSize(7));
+
+		assertEquals(a.size(), b.size());
+		for (int i = 0; i < a.size(); i++) {
+			assertEquals(a.get(i).getClass(), b.get(i).getClass());
+			assertEquals(a.get(i).getTimecode().getFrameNumber(), b.get(i).getTimecode().getFrameNumber());
+		}
+	}
+}
@@ -29,63 +29,156 @@
  */
 package org.openimaj.ml.sketch.bloom;
 
-import gnu.trove.map.hash.TIntIntHashMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.openimaj.io.ReadWriteableBinary;
+import org.openimaj.ml.sketch.MergeableSketch;
 import org.openimaj.ml.sketch.SummarySketcher;
 import org.openimaj.util.hash.StringMurmurHashFunction;
-import org.openimaj.util.hash.StringMurmurHashFunctionFactory;
 
 /**
  * The bloom sketch as described by
  * http://lkozma.net/blog/sketching-data-structures/
+ * <p>
+ * The bits are packed into an array of atomic longs, so the filter can be
+ * updated and queried concurrently. Filters with the same number of hash
+ * functions, number of bits and seed can be merged.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
  */
-public class Bloom implements SummarySketcher<String, Boolean> {
+public class Bloom implements SummarySketcher<String, Boolean>, MergeableSketch<Bloom>, ReadWriteableBinary {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
 
-	private StringMurmurHashFunction[] maps;
-	private TIntIntHashMap table;
+	private int ntables;
 	private int nwords;
+	private int seed;
+	private AtomicLongArray bits;
 
 	/**
+	 * Construct an empty filter, ready to be filled by
+	 * {@link #readBinary(DataInput)}.
+	 */
+	protected Bloom() {
+	}
+
+	/**
+	 * Construct with a random seed.
+	 * 
 	 * @param ntables
 	 *            the number of hash functions
 	 * @param nwords
 	 *            the range of the hash functions
 	 */
 	public Bloom(int ntables, int nwords) {
-		maps = new StringMurmurHashFunction[ntables];
+		this(ntables, nwords, new Random().nextInt());
+	}
 
-		final StringMurmurHashFunctionFactory fact = new StringMurmurHashFunctionFactory();
-		for (int i = 0; i < maps.length; i++) {
-			maps[i] = fact.create();
-		}
+	/**
+	 * Construct with the given seed. Filters that are to be merged must be
+	 * created with the same seed.
+	 * 
+	 * @param ntables
+	 *            the number of hash functions
+	 * @param nwords
+	 *            the range of the hash functions
+	 * @param seed
+	 *            the hash seed
+	 */
+	public Bloom(int ntables, int nwords, int seed) {
+		if (ntables <= 0 || nwords <= 0)
+			throw new IllegalArgumentException("The number of tables and words must be positive");
 
+		this.ntables = ntables;
 		this.nwords = nwords;
-		this.table = new TIntIntHashMap(nwords);
+		this.seed = seed;
+		this.bits = new AtomicLongArray((nwords + 63) >>> 6);
 	}
 
+	/**
+	 * Set the bits for the given item. The value is ignored.
+	 */
 	@Override
 	public void update(String data, Boolean value) {
-		for (final StringMurmurHashFunction map : maps) {
-			final int hash = map.computeHashCode(data);
-			final int loc = Math.abs(hash) % this.nwords;
-			this.table.put(loc, 1);
+		final byte[] bytes = data.getBytes(UTF8);
+		final int h1 = StringMurmurHashFunction.murmurhash(bytes, seed);
+		final int h2 = StringMurmurHashFunction.murmurhash(bytes, h1);
+
+		for (int i = 0; i < ntables; i++) {
+			final int loc = ((h1 + i * h2) & Integer.MAX_VALUE) % nwords;
+			final int word = loc >>> 6;
+			final long mask = 1L << (loc & 63);
+
+			long current;
+			while (((current = bits.get(word)) & mask) == 0) {
+				if (bits.compareAndSet(word, current, current | mask))
+					break;
+			}
 		}
 	}
 
+	/**
+	 * Test if the item might have been added. False positives are possible,
+	 * but false negatives are not.
+	 */
 	@Override
 	public Boolean query(String data) {
-		boolean found = false;
-		for (final StringMurmurHashFunction map : maps) {
-			final int hash = map.computeHashCode(data);
-			final int loc = Math.abs(hash) % this.nwords;
-			found = this.table.get(loc) == 1;
-			if (found)
-				return found;
+		final byte[] bytes = data.getBytes(UTF8);
+		final int h1 = StringMurmurHashFunction.murmurhash(bytes, seed);
+		final int h2 = StringMurmurHashFunction.murmurhash(bytes, h1);
+
+		for (int i = 0; i < ntables; i++) {
+			final int loc = ((h1 + i * h2) & Integer.MAX_VALUE) % nwords;
+
+			if ((bits.get(loc >>> 6) & (1L << (loc & 63))) == 0)
+				return false;
 		}
-		return found;
+		return true;
 	}
 
+	@Override
+	public void merge(Bloom other) {
+		if (other.ntables != ntables || other.nwords != nwords || other.seed != seed)
+			throw new IllegalArgumentException("Filters must have the same dimensions and seed to be merged");
+
+		for (int i = 0; i < bits.length(); i++) {
+			final long o = other.bits.get(i);
+			long current;
+			while (((current = bits.get(i)) | o) != current) {
+				if (bits.compareAndSet(i, current, current | o))
+					break;
+			}
+		}
+	}
+
+	@Override
+	public void readBinary(DataInput in) throws IOException {
+		ntables = in.readInt();
+		nwords = in.readInt();
+		seed = in.readInt();
+
+		bits = new AtomicLongArray((nwords + 63) >>> 6);
+		for (int i = 0; i < bits.length(); i++)
+			bits.set(i, in.readLong());
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return "BLMk".getBytes();
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(ntables);
+		out.writeInt(nwords);
+		out.writeInt(seed);
+
+		for (int i = 0; i < bits.length(); i++)
+			out.writeLong(bits.get(i));
+	}
 }
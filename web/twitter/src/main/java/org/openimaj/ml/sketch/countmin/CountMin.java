@@ -29,70 +29,302 @@
  */
 package org.openimaj.ml.sketch.countmin;
 
-import gnu.trove.map.hash.TIntIntHashMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.openimaj.io.ReadWriteableBinary;
+import org.openimaj.ml.sketch.MergeableSketch;
 import org.openimaj.ml.sketch.SummarySketcher;
 import org.openimaj.util.hash.StringMurmurHashFunction;
-import org.openimaj.util.hash.StringMurmurHashFunctionFactory;
-import org.openimaj.util.pair.IndependentPair;
 
 /**
- * CountMin as described in the reference below
+ * CountMin sketch as described by Cormode and Muthukrishnan in "An Improved
+ * Data Stream Summary: The Count-Min Sketch and its Applications".
+ * <p>
+ * The counters are held in a single flat array of atomic longs (one row of
+ * <code>nwords</code> counters per table), so the sketch can be updated and
+ * queried concurrently from many threads without locking. The row positions
+ * for an item are derived from two murmur hashes of its bytes by double
+ * hashing, so the item is only hashed twice irrespective of the number of
+ * tables.
+ * <p>
+ * If conservative update is enabled, each update only raises the counters
+ * that are below the new estimate for the item; this considerably reduces the
+ * over-estimation for skewed streams, but only allows positive updates. As the
+ * new estimate depends on the current one, concurrent conservative updates of
+ * the same item are serialised by a lock chosen from the item's hash.
+ * <p>
+ * Sketches constructed with the same number of tables, number of words and
+ * seed can be merged, and can be serialised with
+ * {@link org.openimaj.io.IOUtils}.
  * 
  * @author Sina Samangooei (ss@ecs.soton.ac.uk)
  * 
  */
-public class CountMin implements SummarySketcher<String, Integer> {
+public class CountMin implements SummarySketcher<String, Integer>, MergeableSketch<CountMin>, ReadWriteableBinary {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int NUM_LOCKS = 64;
 
-	private static class FunctionHashPair extends IndependentPair<StringMurmurHashFunction, TIntIntHashMap> {
-
-		public FunctionHashPair(StringMurmurHashFunction func, TIntIntHashMap map) {
-			super(func, map);
+	private int ntables;
+	private int nwords;
+	private int seed;
+	private boolean conservative;
+	private AtomicLongArray counters;
+	private AtomicLong total = new AtomicLong();
+	private final Object[] locks = createLocks();
 
-		}
+	/**
+	 * Construct an empty sketch, ready to be filled by
+	 * {@link #readBinary(DataInput)}.
+	 */
+	protected CountMin() {
 	}
 
-	private FunctionHashPair[] maps;
-	private int nwords;
-
 	/**
+	 * Construct with a random seed and normal (non-conservative) updates.
+	 * 
 	 * @param ntables
 	 *            the number of hash functions
 	 * @param nwords
 	 *            the range of the hash functions
 	 */
 	public CountMin(int ntables, int nwords) {
-		maps = new FunctionHashPair[ntables];
+		this(ntables, nwords, new Random().nextInt(), false);
+	}
+
+	/**
+	 * Construct with the given seed. Sketches that are to be merged must be
+	 * created with the same seed.
+	 * 
+	 * @param ntables
+	 *            the number of hash functions
+	 * @param nwords
+	 *            the range of the hash functions
+	 * @param seed
+	 *            the hash seed
+	 * @param conservative
+	 *            if true then conservative update is used
+	 */
+	public CountMin(int ntables, int nwords, int seed, boolean conservative) {
+		this.ntables = ntables;
 		this.nwords = nwords;
+		this.seed = seed;
+		this.conservative = conservative;
+		this.counters = new AtomicLongArray(numCounters(ntables, nwords));
+	}
+
+	private static Object[] createLocks() {
+		final Object[] locks = new Object[NUM_LOCKS];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new Object();
+		return locks;
+	}
+
+	private static int numCounters(int ntables, int nwords) {
+		if (ntables <= 0 || nwords <= 0)
+			throw new IllegalArgumentException("The number of tables and words must be positive");
+
+		final long n = (long) ntables * nwords;
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The sketch can have at most " + Integer.MAX_VALUE + " counters, but "
+					+ ntables + " tables of " + nwords + " words were requested");
 
-		final StringMurmurHashFunctionFactory fact = new StringMurmurHashFunctionFactory();
-		for (int i = 0; i < maps.length; i++) {
-			maps[i] = new FunctionHashPair(fact.create(), new TIntIntHashMap());
+		return (int) n;
+	}
+
+	/**
+	 * Construct a sketch with the given error guarantees. The estimate of an
+	 * item's count will exceed the true count by at most
+	 * <code>epsilon * total</code> with probability <code>1 - delta</code>.
+	 * 
+	 * @param epsilon
+	 *            the relative error
+	 * @param delta
+	 *            the probability of exceeding the error
+	 * @param seed
+	 *            the hash seed
+	 * @param conservative
+	 *            if true then conservative update is used
+	 * @return the sketch
+	 */
+	public static CountMin create(double epsilon, double delta, int seed, boolean conservative) {
+		final int nwords = (int) Math.ceil(Math.E / epsilon);
+		final int ntables = (int) Math.ceil(Math.log(1 / delta));
+
+		return new CountMin(ntables, nwords, seed, conservative);
+	}
+
+	private void positions(String data, int[] pos) {
+		final byte[] bytes = data.getBytes(UTF8);
+		final int h1 = StringMurmurHashFunction.murmurhash(bytes, seed);
+		final int h2 = StringMurmurHashFunction.murmurhash(bytes, h1);
+
+		for (int i = 0; i < ntables; i++) {
+			final int loc = ((h1 + i * h2) & Integer.MAX_VALUE) % nwords;
+			pos[i] = i * nwords + loc;
 		}
 	}
 
 	@Override
 	public void update(String data, Integer value) {
-		for (final FunctionHashPair map : this.maps) {
-			final int hash = map.firstObject().computeHashCode(data);
-			final int loc = Math.abs(hash) % this.nwords;
+		add(data, value);
+	}
+
+	/**
+	 * Add the given amount to the count of the given item.
+	 * 
+	 * @param data
+	 *            the item
+	 * @param value
+	 *            the amount to add
+	 * @throws IllegalArgumentException
+	 *             if the value is negative and conservative update is enabled
+	 */
+	public void add(String data, long value) {
+		if (conservative && value < 0)
+			throw new IllegalArgumentException("Conservative update does not support negative values");
+
+		final int[] pos = new int[ntables];
+		positions(data, pos);
 
-			map.secondObject().adjustOrPutValue(loc, value, value);
+		if (conservative) {
+			// the position in the first table depends only on the item, so
+			// all updates of the item share a lock. Other items can only
+			// raise the counters, so the estimate can't fall below the count.
+			synchronized (locks[pos[0] % NUM_LOCKS]) {
+				final long target = estimate(pos) + value;
+
+				for (final int p : pos) {
+					long current;
+					while ((current = counters.get(p)) < target) {
+						if (counters.compareAndSet(p, current, target))
+							break;
+					}
+				}
+			}
+		} else {
+			for (final int p : pos)
+				counters.addAndGet(p, value);
 		}
+
+		total.addAndGet(value);
 	}
 
 	@Override
 	public Integer query(String data) {
-		int min = -1;
-		for (final FunctionHashPair map : this.maps) {
-			final int hash = map.firstObject().computeHashCode(data);
-			final int loc = Math.abs(hash) % this.nwords;
-			final int v = map.secondObject().get(loc);
-			if (min == -1 || min > v) {
+		return (int) Math.min(Integer.MAX_VALUE, estimate(data));
+	}
+
+	/**
+	 * Estimate the count of the given item
+	 * 
+	 * @param data
+	 *            the item
+	 * @return the estimated count
+	 */
+	public long estimate(String data) {
+		final int[] pos = new int[ntables];
+		positions(data, pos);
+		return estimate(pos);
+	}
+
+	private long estimate(int[] pos) {
+		long min = Long.MAX_VALUE;
+		for (final int p : pos) {
+			final long v = counters.get(p);
+			if (v < min)
 				min = v;
-			}
 		}
 		return min;
 	}
 
+	/**
+	 * @return the sum of all the values added to the sketch
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * @return the number of hash functions
+	 */
+	public int getNumTables() {
+		return ntables;
+	}
+
+	/**
+	 * @return the range of the hash functions
+	 */
+	public int getNumWords() {
+		return nwords;
+	}
+
+	/**
+	 * @return the hash seed
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return true if conservative update is being used
+	 */
+	public boolean isConservative() {
+		return conservative;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Merging sums the counters, so the merged sketch gives the same estimates
+	 * as a non-conservative sketch built over both streams. Merging
+	 * conservatively updated sketches still gives upper bounds on the counts.
+	 */
+	@Override
+	public void merge(CountMin other) {
+		if (other.ntables != ntables || other.nwords != nwords || other.seed != seed)
+			throw new IllegalArgumentException("Sketches must have the same dimensions and seed to be merged");
+
+		for (int i = 0; i < counters.length(); i++) {
+			final long v = other.counters.get(i);
+			if (v != 0)
+				counters.addAndGet(i, v);
+		}
+		total.addAndGet(other.total.get());
+	}
+
+	@Override
+	public void readBinary(DataInput in) throws IOException {
+		ntables = in.readInt();
+		nwords = in.readInt();
+		seed = in.readInt();
+		conservative = in.readBoolean();
+		total = new AtomicLong(in.readLong());
+
+		counters = new AtomicLongArray(numCounters(ntables, nwords));
+		for (int i = 0; i < counters.length(); i++)
+			counters.set(i, in.readLong());
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return "CMSk".getBytes();
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(ntables);
+		out.writeInt(nwords);
+		out.writeInt(seed);
+		out.writeBoolean(conservative);
+		out.writeLong(total.get());
+
+		for (int i = 0; i < counters.length(); i++)
+			out.writeLong(counters.get(i));
+	}
 }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.sketch.hll;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.openimaj.io.ReadWriteableBinary;
+import org.openimaj.ml.sketch.MergeableSketch;
+import org.openimaj.util.hash.StringMurmurHashFunction;
+
+/**
+ * HyperLogLog distinct value counter as described by Flajolet et al. in
+ * "HyperLogLog: the analysis of a near-optimal cardinality estimation
+ * algorithm". The small range correction (linear counting) is applied; the
+ * large range correction is unnecessary as 64-bit hashes are used.
+ * <p>
+ * With a precision of <code>p</code> the counter uses <code>2^p</code>
+ * registers and has a relative standard error of about
+ * <code>1.04 / sqrt(2^p)</code>. The registers are atomic, so the counter can
+ * be updated concurrently from many threads. Counters with the same precision
+ * and seed can be merged.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class HyperLogLog implements MergeableSketch<HyperLogLog>, ReadWriteableBinary {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private int precision;
+	private int seed;
+	private AtomicIntegerArray registers;
+
+	/**
+	 * Construct an empty counter, ready to be filled by
+	 * {@link #readBinary(DataInput)}.
+	 */
+	protected HyperLogLog() {
+	}
+
+	/**
+	 * Construct with the given precision and a default seed.
+	 * 
+	 * @param precision
+	 *            the number of bits used to index the registers (4-18)
+	 */
+	public HyperLogLog(int precision) {
+		this(precision, -1);
+	}
+
+	/**
+	 * Construct with the given precision and seed. Counters that are to be
+	 * merged must be created with the same precision and seed.
+	 * 
+	 * @param precision
+	 *            the number of bits used to index the registers (4-18)
+	 * @param seed
+	 *            the hash seed
+	 */
+	public HyperLogLog(int precision, int seed) {
+		if (precision < 4 || precision > 18)
+			throw new IllegalArgumentException("Precision must be between 4 and 18");
+
+		this.precision = precision;
+		this.seed = seed;
+		this.registers = new AtomicIntegerArray(1 << precision);
+	}
+
+	/**
+	 * Add an item to the counter
+	 * 
+	 * @param data
+	 *            the item
+	 * @return true if the internal state of the counter changed
+	 */
+	public boolean offer(String data) {
+		final byte[] bytes = data.getBytes(UTF8);
+		final long h1 = StringMurmurHashFunction.murmurhash(bytes, seed);
+		final long h2 = StringMurmurHashFunction.murmurhash(bytes, ~seed);
+
+		return offerHash((h1 << 32) | (h2 & 0xffffffffL));
+	}
+
+	/**
+	 * Add an item to the counter by its 64-bit hash code. The hash must be
+	 * well distributed over all bits.
+	 * 
+	 * @param hash
+	 *            the hash of the item
+	 * @return true if the internal state of the counter changed
+	 */
+	public boolean offerHash(long hash) {
+		final int index = (int) (hash >>> (64 - precision));
+		final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+
+		int current;
+		while ((current = registers.get(index)) < rank) {
+			if (registers.compareAndSet(index, current, rank))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the estimated number of distinct items offered
+	 */
+	public long cardinality() {
+		final int m = registers.length();
+
+		double sum = 0;
+		int zeros = 0;
+		for (int i = 0; i < m; i++) {
+			final int r = registers.get(i);
+			sum += 1.0 / (1L << r);
+			if (r == 0)
+				zeros++;
+		}
+
+		final double estimate = alpha(m) * m * m / sum;
+
+		if (estimate <= 2.5 * m && zeros > 0)
+			return Math.round(m * Math.log((double) m / zeros));
+
+		return Math.round(estimate);
+	}
+
+	private static double alpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+
+	/**
+	 * @return the precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return the hash seed
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	@Override
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision || other.seed != seed)
+			throw new IllegalArgumentException("Counters must have the same precision and seed to be merged");
+
+		for (int i = 0; i < registers.length(); i++) {
+			final int o = other.registers.get(i);
+			int current;
+			while ((current = registers.get(i)) < o) {
+				if (registers.compareAndSet(i, current, o))
+					break;
+			}
+		}
+	}
+
+	@Override
+	public void readBinary(DataInput in) throws IOException {
+		precision = in.readInt();
+		seed = in.readInt();
+
+		registers = new AtomicIntegerArray(1 << precision);
+		for (int i = 0; i < registers.length(); i++)
+			registers.set(i, in.readByte());
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return "HLLk".getBytes();
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(precision);
+		out.writeInt(seed);
+
+		for (int i = 0; i < registers.length(); i++)
+			out.writeByte(registers.get(i));
+	}
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.sketch.topk;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openimaj.io.ReadWriteableBinary;
+import org.openimaj.ml.sketch.MergeableSketch;
+import org.openimaj.ml.sketch.SummarySketcher;
+import org.openimaj.util.pair.ObjectLongPair;
+
+/**
+ * Space-Saving heavy hitter (top-k) sketch as described by Metwally et al. in
+ * "Efficient Computation of Frequent and Top-k Elements in Data Streams".
+ * <p>
+ * At most <code>capacity</code> items are monitored. When a new item arrives
+ * and all the counters are in use, the item with the smallest count is
+ * replaced and the new item inherits its count as the error bound. The
+ * counters are kept in an indexed min-heap so each update takes
+ * <code>O(log capacity)</code> time. The estimated count of a monitored item
+ * never under-estimates its true count, and over-estimates it by at most its
+ * error.
+ * <p>
+ * All methods are synchronized. Sketches can be merged using the method of
+ * Cafaro et al., where an item missing from one of the sketches is assumed to
+ * have that sketch's minimum count.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class SpaceSaving implements SummarySketcher<String, Long>, MergeableSketch<SpaceSaving>, ReadWriteableBinary {
+	private static class Counter {
+		String item;
+		long count;
+		long error;
+		int index;
+
+		Counter(String item, long count, long error) {
+			this.item = item;
+			this.count = count;
+			this.error = error;
+		}
+	}
+
+	private int capacity;
+	private long total;
+	private Map<String, Counter> counters;
+	private Counter[] heap;
+	private int size;
+
+	/**
+	 * Construct an empty sketch, ready to be filled by
+	 * {@link #readBinary(DataInput)}.
+	 */
+	protected SpaceSaving() {
+	}
+
+	/**
+	 * Construct with the given number of counters
+	 * 
+	 * @param capacity
+	 *            the maximum number of items to monitor
+	 */
+	public SpaceSaving(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+
+		init(capacity);
+	}
+
+	private void init(int capacity) {
+		this.capacity = capacity;
+		this.counters = new HashMap<String, Counter>(capacity * 2);
+		this.heap = new Counter[capacity];
+		this.size = 0;
+		this.total = 0;
+	}
+
+	/**
+	 * Add the given positive amount to the count of the given item
+	 */
+	@Override
+	public synchronized void update(String data, Long value) {
+		final long v = value;
+		if (v <= 0)
+			throw new IllegalArgumentException("Only positive updates are supported");
+
+		total += v;
+
+		Counter c = counters.get(data);
+		if (c != null) {
+			c.count += v;
+			siftDown(c.index);
+		} else if (size < capacity) {
+			c = new Counter(data, v, 0);
+			counters.put(data, c);
+			c.index = size;
+			heap[size++] = c;
+			siftUp(c.index);
+		} else {
+			c = heap[0];
+			counters.remove(c.item);
+			c.item = data;
+			c.error = c.count;
+			c.count += v;
+			counters.put(data, c);
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Increment the count of the given item by one
+	 * 
+	 * @param data
+	 *            the item
+	 */
+	public void offer(String data) {
+		update(data, 1L);
+	}
+
+	/**
+	 * Get the estimated count of the item. Items that are not monitored have
+	 * an estimated count of zero, although their true count could be up to
+	 * {@link #getMinCount()}.
+	 */
+	@Override
+	public synchronized Long query(String data) {
+		final Counter c = counters.get(data);
+		return c == null ? 0L : c.count;
+	}
+
+	/**
+	 * Get the maximum amount by which the estimated count of the item could
+	 * exceed its true count.
+	 * 
+	 * @param data
+	 *            the item
+	 * @return the error bound, or zero if the item is not monitored
+	 */
+	public synchronized long getError(String data) {
+		final Counter c = counters.get(data);
+		return c == null ? 0L : c.error;
+	}
+
+	/**
+	 * @return the smallest count of a monitored item if all the counters are
+	 *         in use, or zero otherwise
+	 */
+	public synchronized long getMinCount() {
+		return size < capacity ? 0 : heap[0].count;
+	}
+
+	/**
+	 * @return the sum of all the values added to the sketch
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the maximum number of monitored items
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the (at most) k items with the highest estimated counts, in order of
+	 * decreasing count.
+	 * 
+	 * @param k
+	 *            the number of items
+	 * @return the items and their estimated counts
+	 */
+	public synchronized List<ObjectLongPair<String>> getTopK(int k) {
+		final Counter[] sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted, DESCENDING);
+
+		final int n = Math.min(k, size);
+		final List<ObjectLongPair<String>> result = new ArrayList<ObjectLongPair<String>>(n);
+		for (int i = 0; i < n; i++)
+			result.add(ObjectLongPair.pair(sorted[i].item, sorted[i].count));
+
+		return result;
+	}
+
+	private static final Comparator<Counter> DESCENDING = new Comparator<Counter>() {
+		@Override
+		public int compare(Counter o1, Counter o2) {
+			if (o1.count != o2.count)
+				return o1.count > o2.count ? -1 : 1;
+			return o1.item.compareTo(o2.item);
+		}
+	};
+
+	private synchronized Counter[] snapshot() {
+		final Counter[] copy = new Counter[size];
+		for (int i = 0; i < size; i++)
+			copy[i] = new Counter(heap[i].item, heap[i].count, heap[i].error);
+		return copy;
+	}
+
+	@Override
+	public void merge(SpaceSaving other) {
+		if (other.capacity != capacity)
+			throw new IllegalArgumentException("Sketches must have the same capacity to be merged");
+
+		final Counter[] theirs = other.snapshot();
+		final long theirMin = theirs.length < capacity ? 0 : minCount(theirs);
+		final long theirTotal = other.getTotal();
+
+		synchronized (this) {
+			final long ourMin = getMinCount();
+			final Map<String, Counter> merged = new HashMap<String, Counter>(capacity * 4);
+
+			for (int i = 0; i < size; i++)
+				merged.put(heap[i].item, new Counter(heap[i].item, heap[i].count + theirMin, heap[i].error + theirMin));
+
+			for (final Counter c : theirs) {
+				final Counter m = merged.get(c.item);
+				if (m == null) {
+					merged.put(c.item, new Counter(c.item, c.count + ourMin, c.error + ourMin));
+				} else {
+					m.count += c.count - theirMin;
+					m.error += c.error - theirMin;
+				}
+			}
+
+			final List<Counter> all = new ArrayList<Counter>(merged.values());
+			Collections.sort(all, DESCENDING);
+
+			final long newTotal = total + theirTotal;
+			init(capacity);
+			total = newTotal;
+			for (int i = 0; i < Math.min(capacity, all.size()); i++)
+				insert(all.get(i));
+		}
+	}
+
+	private static long minCount(Counter[] counters) {
+		long min = Long.MAX_VALUE;
+		for (final Counter c : counters)
+			min = Math.min(min, c.count);
+		return min;
+	}
+
+	private void insert(Counter c) {
+		counters.put(c.item, c);
+		c.index = size;
+		heap[size++] = c;
+		siftUp(c.index);
+	}
+
+	private void siftUp(int i) {
+		final Counter c = heap[i];
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (heap[parent].count <= c.count)
+				break;
+
+			heap[i] = heap[parent];
+			heap[i].index = i;
+			i = parent;
+		}
+		heap[i] = c;
+		c.index = i;
+	}
+
+	private void siftDown(int i) {
+		final Counter c = heap[i];
+		final int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && heap[child + 1].count < heap[child].count)
+				child++;
+
+			if (c.count <= heap[child].count)
+				break;
+
+			heap[i] = heap[child];
+			heap[i].index = i;
+			i = child;
+		}
+		heap[i] = c;
+		c.index = i;
+	}
+
+	@Override
+	public synchronized void readBinary(DataInput in) throws IOException {
+		init(in.readInt());
+		total = in.readLong();
+
+		final int n = in.readInt();
+		for (int i = 0; i < n; i++)
+			insert(new Counter(in.readUTF(), in.readLong(), in.readLong()));
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return "SSTk".getBytes();
+	}
+
+	@Override
+	public synchronized void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(capacity);
+		out.writeLong(total);
+
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeUTF(heap[i].item);
+			out.writeLong(heap[i].count);
+			out.writeLong(heap[i].error);
+		}
+	}
+}
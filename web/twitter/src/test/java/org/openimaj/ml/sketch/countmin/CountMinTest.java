@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.sketch.countmin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.io.IOUtils;
+
+/**
+ * Tests for {@link CountMin}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class CountMinTest {
+	private Map<String, Long> fill(CountMin cm, int n, long seed) {
+		final Random rng = new Random(seed);
+		final Map<String, Long> truth = new HashMap<String, Long>();
+
+		for (int i = 0; i < n; i++) {
+			// skewed distribution over the items
+			final String item = "w" + (int) Math.abs(rng.nextGaussian() * 50);
+			cm.add(item, 1);
+
+			final Long c = truth.get(item);
+			truth.put(item, c == null ? 1 : c + 1);
+		}
+		return truth;
+	}
+
+	/**
+	 * Estimates should never be less than the true counts, and the
+	 * conservative estimates should be no worse than the normal ones
+	 */
+	@Test
+	public void testEstimates() {
+		final CountMin normal = new CountMin(4, 64, 42, false);
+		final CountMin conservative = new CountMin(4, 64, 42, true);
+
+		final Map<String, Long> truth = fill(normal, 10000, 1);
+		fill(conservative, 10000, 1);
+
+		long normalErr = 0, conservativeErr = 0;
+		for (final Map.Entry<String, Long> e : truth.entrySet()) {
+			final long n = normal.estimate(e.getKey());
+			final long c = conservative.estimate(e.getKey());
+
+			assertTrue(n >= e.getValue());
+			assertTrue(c >= e.getValue());
+			assertTrue(c <= n);
+
+			normalErr += n - e.getValue();
+			conservativeErr += c - e.getValue();
+		}
+
+		assertTrue(conservativeErr < normalErr);
+		assertEquals(10000, normal.getTotal());
+	}
+
+	/**
+	 * Merging sketches of two halves of a stream should give the same result
+	 * as sketching the whole stream
+	 */
+	@Test
+	public void testMerge() {
+		final CountMin whole = new CountMin(4, 64, 42, false);
+		fill(whole, 5000, 1);
+		final Map<String, Long> truth = fill(whole, 5000, 2);
+
+		final CountMin a = new CountMin(4, 64, 42, false);
+		final CountMin b = new CountMin(4, 64, 42, false);
+		fill(a, 5000, 1);
+		fill(b, 5000, 2);
+		a.merge(b);
+
+		for (final String item : truth.keySet())
+			assertEquals(whole.estimate(item), a.estimate(item));
+		assertEquals(whole.getTotal(), a.getTotal());
+	}
+
+	/**
+	 * Sketches with different seeds can't be merged
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeIncompatible() {
+		new CountMin(4, 64, 1, false).merge(new CountMin(4, 64, 2, false));
+	}
+
+	/**
+	 * Test concurrent updates are not lost
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final CountMin cm = new CountMin(3, 16, 42, false);
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++)
+						cm.add("item", 1);
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread t : threads)
+			t.join();
+
+		assertEquals(40000, cm.estimate("item"));
+	}
+
+	/**
+	 * Test concurrent conservative updates of the same item are not lost, so
+	 * the sketch never underestimates
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrentConservative() throws InterruptedException {
+		final CountMin cm = new CountMin(3, 16, 42, true);
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 100000; j++) {
+						cm.add("item", 1);
+						cm.add("other" + (j % 7), 1);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread t : threads)
+			t.join();
+
+		assertTrue(cm.estimate("item") >= 400000);
+	}
+
+	/**
+	 * Sketches with more counters than can be held in an array are rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		new CountMin(65536, 65536, 42, false);
+	}
+
+	/**
+	 * Test serialisation
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSerialisation() throws IOException {
+		final CountMin cm = new CountMin(4, 64, 42, true);
+		final Map<String, Long> truth = fill(cm, 1000, 1);
+
+		final CountMin copy = IOUtils.deserialize(IOUtils.serialize(cm), CountMin.class);
+		for (final String item : truth.keySet())
+			assertEquals(cm.estimate(item), copy.estimate(item));
+		assertEquals(cm.getTotal(), copy.getTotal());
+		assertTrue(copy.isConservative());
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.sketch.hll;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openimaj.io.IOUtils;
+
+/**
+ * Tests for {@link HyperLogLog}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class HyperLogLogTest {
+	/**
+	 * Test the estimates are within a few standard errors at small and large
+	 * cardinalities
+	 */
+	@Test
+	public void testCardinality() {
+		for (final int n : new int[] { 10, 1000, 100000 }) {
+			final HyperLogLog hll = new HyperLogLog(12);
+			for (int i = 0; i < n; i++) {
+				hll.offer("item" + i);
+				hll.offer("item" + (i / 2));
+			}
+
+			assertEquals(n, hll.cardinality(), n * 0.05 + 1);
+		}
+	}
+
+	/**
+	 * Test merging counters over overlapping sets
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testMergeAndSerialise() throws IOException {
+		final HyperLogLog a = new HyperLogLog(12, 42);
+		final HyperLogLog b = new HyperLogLog(12, 42);
+		for (int i = 0; i < 20000; i++)
+			a.offer("item" + i);
+		for (int i = 10000; i < 30000; i++)
+			b.offer("item" + i);
+
+		a.merge(b);
+		assertEquals(30000, a.cardinality(), 30000 * 0.05);
+
+		final HyperLogLog copy = IOUtils.deserialize(IOUtils.serialize(a), HyperLogLog.class);
+		assertEquals(a.cardinality(), copy.cardinality());
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.ml.sketch.topk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+import org.openimaj.io.IOUtils;
+import org.openimaj.util.pair.ObjectLongPair;
+
+/**
+ * Tests for {@link SpaceSaving}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class SpaceSavingTest {
+	private void fill(SpaceSaving ss, int offset) {
+		// heavy hitters "a", "b" and "c" with counts 1000, 500 and 250,
+		// interleaved with many unique items
+		for (int i = 0; i < 1000; i++) {
+			ss.offer("a");
+			if (i % 2 == 0)
+				ss.offer("b");
+			if (i % 4 == 0)
+				ss.offer("c");
+			ss.offer("noise" + (i + offset));
+		}
+	}
+
+	private void checkTop(SpaceSaving ss, long scale) {
+		final List<ObjectLongPair<String>> top = ss.getTopK(3);
+		assertEquals("a", top.get(0).first);
+		assertEquals("b", top.get(1).first);
+		assertEquals("c", top.get(2).first);
+
+		// estimates are upper bounds within the error
+		final long[] truth = { 1000 * scale, 500 * scale, 250 * scale };
+		for (int i = 0; i < 3; i++) {
+			assertTrue(top.get(i).second >= truth[i]);
+			assertTrue(top.get(i).second - ss.getError(top.get(i).first) <= truth[i]);
+		}
+	}
+
+	/**
+	 * Test the heavy hitters are found
+	 */
+	@Test
+	public void testTopK() {
+		final SpaceSaving ss = new SpaceSaving(20);
+		fill(ss, 0);
+
+		checkTop(ss, 1);
+		assertEquals(2750, ss.getTotal());
+		assertEquals(0L, (long) ss.query("missing"));
+	}
+
+	/**
+	 * Test merging and serialisation
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testMergeAndSerialise() throws IOException {
+		final SpaceSaving a = new SpaceSaving(20);
+		final SpaceSaving b = new SpaceSaving(20);
+		fill(a, 0);
+		fill(b, 1000);
+
+		a.merge(b);
+		checkTop(a, 2);
+		assertEquals(5500, a.getTotal());
+
+		final SpaceSaving copy = IOUtils.deserialize(IOUtils.serialize(a), SpaceSaving.class);
+		assertEquals(a.getTopK(20).size(), copy.getTopK(20).size());
+		for (final ObjectLongPair<String> p : a.getTopK(20))
+			assertEquals(p.second, (long) copy.query(p.first));
+	}
+}